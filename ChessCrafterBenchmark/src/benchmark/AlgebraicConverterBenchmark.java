@@ -0,0 +1,72 @@
+package benchmark;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import logic.AlgebraicConverter;
+import logic.GameBuilder;
+import models.Game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.Files;
+
+/**
+ * Reading a classic game back from Algebraic Chess Notation, which only
+ * classic games can be written in
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlgebraicConverterBenchmark
+{
+	@Setup
+	public void setUp() throws Exception
+	{
+		Game game = BenchmarkGames.newGame(BenchmarkGames.CLASSIC);
+		SaveGameBenchmark.playMoves(game, new Random(BenchmarkGames.RANDOM_SEED));
+
+		mDirectory = Files.createTempDir();
+		mFile = new File(mDirectory, SaveGameBenchmark.FILE_NAME);
+		AlgebraicConverter.convert(game.getHistory(), mFile);
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpInvocation() throws Exception
+	{
+		// reading ACN plays the moves into a Game of its own
+		mFreshGame = GameBuilder.newClassicGame();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		mFile.delete();
+		mDirectory.delete();
+	}
+
+	@Benchmark
+	public Game convertAlgebraic() throws Exception
+	{
+		return AlgebraicConverter.convert(mFreshGame, mFile);
+	}
+
+	private File mDirectory;
+	private File mFile;
+	private Game mFreshGame;
+}
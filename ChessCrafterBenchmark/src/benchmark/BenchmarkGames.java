@@ -0,0 +1,147 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import logic.GameBuilder;
+import models.Board;
+import models.Game;
+import models.Piece;
+import models.Rules;
+import models.Square;
+import rules.GetBoard;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * The Games the benchmarks run on. Most benchmarks play a few moves in
+ * first, so the Pieces have room to move and the Kings have something to
+ * worry about.
+ */
+final class BenchmarkGames
+{
+	private BenchmarkGames()
+	{
+	}
+
+	/**
+	 * @param variant CLASSIC, WRAPAROUND, LARGE or TWO_BOARDS
+	 * @return The Game, a few moves in
+	 */
+	static Game newPlayedGame(String variant) throws IOException
+	{
+		Game game = newGame(variant);
+		Random random = new Random(RANDOM_SEED);
+		for (int ply = 0; ply < OPENING_PLIES; ply++)
+		{
+			int[] moves = game.getLegalMoves();
+			if (moves.length == 0)
+				break;
+			game.makeMove(moves[random.nextInt(moves.length)]);
+		}
+		game.genLegalDests();
+		return game;
+	}
+
+	/**
+	 * @param variant CLASSIC, WRAPAROUND, LARGE or TWO_BOARDS
+	 * @return The Game, before any move
+	 */
+	static Game newGame(String variant) throws IOException
+	{
+		Game game;
+		if (variant.equals(CLASSIC))
+		{
+			game = GameBuilder.newClassicGame();
+			game.setIsPlayback(true);
+		}
+		else if (variant.equals(WRAPAROUND))
+		{
+			game = newGame(WRAPAROUND, new Board(10, 12, true));
+		}
+		else if (variant.equals(LARGE))
+		{
+			game = newGame(LARGE, new Board(16, 16, false));
+		}
+		else if (variant.equals(TWO_BOARDS))
+		{
+			game = newTwoBoardGame();
+		}
+		else
+		{
+			throw new IllegalArgumentException("No variant named " + variant); //$NON-NLS-1$
+		}
+
+		return game;
+	}
+
+	/**
+	 * @return A Board set up the classic way, stretched to its width with
+	 * extra Knights and Bishops
+	 */
+	private static Game newGame(String name, Board board) throws IOException
+	{
+		List<Piece> whiteTeam = Lists.newArrayList();
+		List<Piece> blackTeam = Lists.newArrayList();
+		int maxRow = board.getMaxRow();
+		int maxCol = board.getMaxCol();
+		for (int col = 1; col <= maxCol; col++)
+		{
+			whiteTeam.add(GameBuilder.createPawn(false, board.getSquare(2, col), board));
+			blackTeam.add(GameBuilder.createPawn(true, board.getSquare(maxRow - 1, col), board));
+			whiteTeam.add(createBackRankPiece(col, maxCol, false, board.getSquare(1, col), board));
+			blackTeam.add(createBackRankPiece(col, maxCol, true, board.getSquare(maxRow, col), board));
+		}
+
+		return newGame(name, new Board[] { board }, whiteTeam, blackTeam, new Rules(false), new Rules(true));
+	}
+
+	private static Game newTwoBoardGame() throws IOException
+	{
+		Game classic = GameBuilder.newClassicGame();
+		Board[] boards = { classic.getBoards()[0], new Board(8, 8, false) };
+
+		Rules whiteRules = new Rules(false);
+		Rules blackRules = new Rules(true);
+		whiteRules.setGetBoard(GetBoard.OPPOSITE_BOARD);
+		blackRules.setGetBoard(GetBoard.OPPOSITE_BOARD);
+
+		return newGame(TWO_BOARDS, boards, classic.getWhiteTeam(), classic.getBlackTeam(), whiteRules, blackRules);
+	}
+
+	private static Game newGame(String name, Board[] boards, List<Piece> whiteTeam, List<Piece> blackTeam, Rules whiteRules,
+			Rules blackRules)
+	{
+		Map<String, List<String>> whitePromotions = Maps.newHashMap();
+		Map<String, List<String>> blackPromotions = Maps.newHashMap();
+		Game game = new Game(name, boards, whiteTeam, blackTeam, whiteRules, blackRules, whitePromotions, blackPromotions);
+		game.setIsPlayback(true);
+		return game;
+	}
+
+	private static Piece createBackRankPiece(int col, int maxCol, boolean isBlack, Square square, Board board) throws IOException
+	{
+		int king = maxCol / 2 + 1;
+		if (col == 1 || col == maxCol)
+			return GameBuilder.createRook(isBlack, square, board);
+		if (col == king)
+			return GameBuilder.createKing(isBlack, square, board);
+		if (col == king - 1)
+			return GameBuilder.createQueen(isBlack, square, board);
+		if (col % 2 == 0)
+			return GameBuilder.createKnight(isBlack, square, board);
+		return GameBuilder.createBishop(isBlack, square, board);
+	}
+
+	static final long RANDOM_SEED = 5150L;
+
+	static final String CLASSIC = "Classic"; //$NON-NLS-1$
+	static final String WRAPAROUND = "Wraparound"; //$NON-NLS-1$
+	static final String LARGE = "Large"; //$NON-NLS-1$
+	static final String TWO_BOARDS = "Two Boards"; //$NON-NLS-1$
+
+	private static final int OPENING_PLIES = 10;
+}
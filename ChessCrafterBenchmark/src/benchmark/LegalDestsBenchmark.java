@@ -0,0 +1,110 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import models.Board;
+import models.Game;
+import models.Piece;
+import models.Rules;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Legal destination generation, from one Piece up to the whole Game
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LegalDestsBenchmark
+{
+	@Setup
+	public void setUp() throws IOException
+	{
+		mGame = BenchmarkGames.newPlayedGame(mVariant);
+		mMovingTeam = mGame.isBlackMove() ? mGame.getBlackTeam() : mGame.getWhiteTeam();
+		mOtherTeam = mGame.isBlackMove() ? mGame.getWhiteTeam() : mGame.getBlackTeam();
+		mMovingKing = mGame.isBlackMove() ? mGame.getBlackRules().objectivePiece(true) : mGame.getWhiteRules().objectivePiece(false);
+		mOtherKing = mGame.isBlackMove() ? mGame.getWhiteRules().objectivePiece(false) : mGame.getBlackRules().objectivePiece(true);
+		mMovingRules = mGame.isBlackMove() ? mGame.getBlackRules() : mGame.getWhiteRules();
+	}
+
+	@Benchmark
+	public void gameGenLegalDests(Blackhole blackhole)
+	{
+		mGame.genLegalDests();
+		blackhole.consume(mMovingKing.getLegalDests());
+	}
+
+	/**
+	 * Every Piece of both teams generates its destinations from scratch, onto
+	 * the Board the moving team's Rules send it to, as Game.genLegalDests does
+	 */
+	@Benchmark
+	public int pieceGenLegalDests()
+	{
+		int count = 0;
+		for (int i = 0; i < mMovingTeam.size(); i++)
+			count += genLegalDests(mMovingTeam.get(i));
+		for (int i = 0; i < mOtherTeam.size(); i++)
+			count += genLegalDests(mOtherTeam.get(i));
+		return count;
+	}
+
+	/**
+	 * Every Piece of the moving team checks for pins against its King. The
+	 * destinations are already cropped after the first call, so every call
+	 * after that walks the same lines.
+	 */
+	@Benchmark
+	public void adjustPinsLegalDests(Blackhole blackhole)
+	{
+		for (int i = 0; i < mMovingTeam.size(); i++)
+		{
+			Piece piece = mMovingTeam.get(i);
+			piece.adjustPinsLegalDests(mMovingKing, mOtherTeam);
+			blackhole.consume(piece.getLegalDests());
+		}
+	}
+
+	@Benchmark
+	public void getThreats(Blackhole blackhole)
+	{
+		blackhole.consume(mGame.getThreats(mMovingKing));
+		blackhole.consume(mGame.getThreats(mOtherKing));
+	}
+
+	private int genLegalDests(Piece piece)
+	{
+		if (piece.isCaptured())
+			return 0;
+
+		Board board = mMovingRules.getBoard(piece.getSquare().getBoard());
+		return piece.genLegalDests(board);
+	}
+
+	@Param({ BenchmarkGames.CLASSIC, BenchmarkGames.WRAPAROUND, BenchmarkGames.LARGE, BenchmarkGames.TWO_BOARDS })
+	public String mVariant;
+
+	private Game mGame;
+	private List<Piece> mMovingTeam;
+	private List<Piece> mOtherTeam;
+	private Piece mMovingKing;
+	private Piece mOtherKing;
+	private Rules mMovingRules;
+}
@@ -0,0 +1,80 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import logic.Move;
+import models.Game;
+import models.PackedMove;
+import models.Square;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Playing a move and taking it back, the way the GUI does it with Move, and
+ * the way a search does it with Game.makeMove
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveBenchmark
+{
+	@Setup
+	public void setUp() throws Exception
+	{
+		mGame = BenchmarkGames.newPlayedGame(mVariant);
+		int[] moves = mGame.getLegalMoves();
+		mPackedMove = moves[moves.length / 2];
+
+		mOrigin = mGame.getGeometry().getSquare(PackedMove.getOrigin(mPackedMove));
+		mDest = mGame.getGeometry().getSquare(PackedMove.getDest(mPackedMove));
+		mMove = new Move(mOrigin.getBoard(), mOrigin, mDest);
+	}
+
+	@Benchmark
+	public boolean executeAndUndo()
+	{
+		mMove.execute();
+		return mMove.undo();
+	}
+
+	/**
+	 * Build the Move as well, which checks it's legal
+	 */
+	@Benchmark
+	public boolean newMoveExecuteAndUndo() throws Exception
+	{
+		Move move = new Move(mOrigin.getBoard(), mOrigin, mDest);
+		move.execute();
+		return move.undo();
+	}
+
+	@Benchmark
+	public int makeAndUnmakeMove()
+	{
+		mGame.makeMove(mPackedMove);
+		mGame.unmakeMove();
+		return mGame.getMadeMoveCount();
+	}
+
+	@Param({ BenchmarkGames.CLASSIC, BenchmarkGames.WRAPAROUND, BenchmarkGames.LARGE, BenchmarkGames.TWO_BOARDS })
+	public String mVariant;
+
+	private Game mGame;
+	private int mPackedMove;
+	private Square mOrigin;
+	private Square mDest;
+	private Move mMove;
+}
@@ -0,0 +1,76 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import models.Game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ai.ParallelSearch;
+import ai.TranspositionTable;
+
+/**
+ * The time a ParallelSearch takes to reach a fixed depth, by thread count.
+ * The speedup of n threads is the time of one thread over the time of n.
+ * Every search starts with an empty table, so no search is helped by the
+ * one before.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ParallelSearchBenchmark
+{
+	@Setup(Level.Trial)
+	public void setUpGame() throws IOException
+	{
+		mGame = BenchmarkGames.newPlayedGame(mVariant);
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpSearch()
+	{
+		mSearch = new ParallelSearch(mGame, mThreadCount, new TranspositionTable(TABLE_SIZE_IN_MEGABYTES));
+		mSearch.getMainEngine().setMaxDepth(DEPTH);
+		mSearch.getMainEngine().setTimeBudgetMillis(TimeUnit.HOURS.toMillis(1));
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDownSearch()
+	{
+		mSearch.shutdown();
+	}
+
+	@Benchmark
+	public int searchToDepth()
+	{
+		return mSearch.search();
+	}
+
+	private static final int DEPTH = 4;
+	private static final int TABLE_SIZE_IN_MEGABYTES = 64;
+
+	@Param({ "1", "2", "4", "8", "16", "32" })
+	public int mThreadCount;
+
+	@Param({ BenchmarkGames.CLASSIC, BenchmarkGames.WRAPAROUND })
+	public String mVariant;
+
+	private Game mGame;
+	private ParallelSearch mSearch;
+}
@@ -0,0 +1,96 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import logic.Move;
+import models.Game;
+import models.PackedMove;
+import models.Square;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.Files;
+
+/**
+ * Saving a Game, into a temporary directory of its own
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveGameBenchmark
+{
+	@Setup
+	public void setUp() throws Exception
+	{
+		mGame = BenchmarkGames.newGame(mVariant);
+		playMoves(mGame, new Random(BenchmarkGames.RANDOM_SEED));
+
+		mDirectory = Files.createTempDir();
+		mFile = new File(mDirectory, FILE_NAME);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		mFile.delete();
+		mDirectory.delete();
+	}
+
+	@Benchmark
+	public void saveGame() throws IOException
+	{
+		mGame.saveGame(mFile);
+	}
+
+	/**
+	 * Play random Moves, the way the GUI does, so the Game has a history to
+	 * save
+	 */
+	static void playMoves(Game game, Random random) throws Exception
+	{
+		for (int ply = 0; ply < PLIES; ply++)
+		{
+			int[] moves = game.getLegalMoves();
+			if (moves.length == 0)
+				break;
+
+			int move = moves[random.nextInt(moves.length)];
+			Square origin = game.getGeometry().getSquare(PackedMove.getOrigin(move));
+			Square dest = game.getGeometry().getSquare(PackedMove.getDest(move));
+			int promotion = PackedMove.getPromotion(move);
+			String promo = (promotion == 0) ? null : origin.getPiece().getPromotesTo().get(promotion - 1);
+			Move toPlay = new Move(origin.getBoard(), origin, dest, promo);
+			toPlay.execute();
+			game.getHistory().add(toPlay);
+			game.setBlackMove(!game.isBlackMove());
+			game.setStaleLegalDests(true);
+		}
+	}
+
+	@Param({ BenchmarkGames.CLASSIC, BenchmarkGames.WRAPAROUND, BenchmarkGames.LARGE, BenchmarkGames.TWO_BOARDS })
+	public String mVariant;
+
+	static final String FILE_NAME = "benchmark"; //$NON-NLS-1$
+	private static final int PLIES = 40;
+
+	private Game mGame;
+	private File mDirectory;
+	private File mFile;
+}
@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.util.List;
 import java.util.Stack;
 
 import javax.swing.BorderFactory;
@@ -38,12 +39,18 @@ import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
 import javax.swing.WindowConstants;
 
+import logic.GameArchive;
+import logic.GameRecord;
+import logic.Result;
 import models.Game;
 import timer.ChessTimer;
 import utility.AppConstants;
 import utility.ChessCrafter;
 import utility.FileUtility;
 import utility.GuiUtility;
+import utility.RunnableOfT;
+
+import com.google.common.collect.Lists;
 
 public final class Driver extends JFrame implements ChessCrafter, PieceMenuManager
 {
@@ -506,9 +513,7 @@ public final class Driver extends JFrame implements ChessCrafter, PieceMenuManag
 					@Override
 					public void actionPerformed(ActionEvent event)
 					{
-						FileInputStream fileInputStream;
-						ObjectInputStream objectInputStream;
-						Game gameToPlay;
+						final Game gameToPlay;
 						try
 						{
 							if (gamesInProgressList.getSelectedValue() == null)
@@ -518,10 +523,35 @@ public final class Driver extends JFrame implements ChessCrafter, PieceMenuManag
 										JOptionPane.PLAIN_MESSAGE);
 								return;
 							}
-							fileInputStream = new FileInputStream(FileUtility.getGamesInProgressFile(gamesInProgressList
-									.getSelectedValue().toString()));
-							objectInputStream = new ObjectInputStream(fileInputStream);
-							gameToPlay = (Game) objectInputStream.readObject();
+							File saveFile = FileUtility.getGamesInProgressFile(gamesInProgressList.getSelectedValue().toString());
+							if (GameRecord.isGameRecord(saveFile))
+							{
+								gameToPlay = GameRecord.load(saveFile);
+								RunnableOfT<Boolean> timeElapsedCallback = new RunnableOfT<Boolean>()
+								{
+									@Override
+									public void run(Boolean isBlackTimer)
+									{
+										Result result = isBlackTimer ? Result.WHITE_WIN : Result.BLACK_WIN;
+										result.setGuiText(Messages.getString("NewGamePanel.timeHasRunOut") + result.winText() + Messages.getString("NewGamePanel.newLine")); //$NON-NLS-1$ //$NON-NLS-2$
+										GuiUtility.getChessCrafter().getPlayGameScreen(gameToPlay).endOfGame(result);
+									}
+								};
+								gameToPlay.getWhiteTimer().init(timeElapsedCallback);
+								gameToPlay.getBlackTimer().init(timeElapsedCallback);
+							}
+							else
+							{
+								ObjectInputStream objectInputStream = new ObjectInputStream(new FileInputStream(saveFile));
+								try
+								{
+									gameToPlay = (Game) objectInputStream.readObject();
+								}
+								finally
+								{
+									objectInputStream.close();
+								}
+							}
 
 							gameToPlay.getWhiteRules().setGame(gameToPlay);
 							gameToPlay.getBlackRules().setGame(gameToPlay);
@@ -633,8 +663,8 @@ public final class Driver extends JFrame implements ChessCrafter, PieceMenuManag
 			public void actionPerformed(ActionEvent event)
 			{
 
-				String[] files = FileUtility.getCompletedGamesFileArray();
-				if (files.length == 0)
+				Object[] completedGames = getCompletedGames();
+				if (completedGames.length == 0)
 				{
 					JOptionPane.showMessageDialog(Driver.getInstance(), Messages.getString("Driver.noCompletedToDisplay"), //$NON-NLS-1$
 							Messages.getString("Driver.noCompleted"), JOptionPane.ERROR_MESSAGE); //$NON-NLS-1$
@@ -646,7 +676,7 @@ public final class Driver extends JFrame implements ChessCrafter, PieceMenuManag
 				final ChessPanel continueGamePanel = new ChessPanel();
 				continueGamePanel.setLayout(new GridBagLayout());
 
-				final JList completedGamesList = new JList(FileUtility.getCompletedGamesFileArray());
+				final JList completedGamesList = new JList(completedGames);
 				final JScrollPane scrollPane = new JScrollPane(completedGamesList);
 				scrollPane.setPreferredSize(new Dimension(200, 200));
 				completedGamesList.setSelectedIndex(0);
@@ -665,8 +695,26 @@ public final class Driver extends JFrame implements ChessCrafter, PieceMenuManag
 							return;
 						}
 
-						File file = FileUtility.getCompletedGamesFile(completedGamesList.getSelectedValue().toString());
-						m_watchGameScreen = new WatchGamePanel(file);
+						Object selected = completedGamesList.getSelectedValue();
+						if (selected instanceof GameArchive.Entry)
+						{
+							try
+							{
+								m_watchGameScreen = new WatchGamePanel(getGameArchive().load((GameArchive.Entry) selected));
+							}
+							catch (IOException e)
+							{
+								e.printStackTrace();
+								JOptionPane.showMessageDialog(Driver.getInstance(),
+										Messages.getString("Driver.noValidSavedGames"), Messages.getString("Driver.invalidSavedGames"), //$NON-NLS-1$ //$NON-NLS-2$
+										JOptionPane.PLAIN_MESSAGE);
+								return;
+							}
+						}
+						else
+						{
+							m_watchGameScreen = new WatchGamePanel(FileUtility.getCompletedGamesFile(selected.toString()));
+						}
 						pushPanel(m_watchGameScreen);
 						mOtherPanel = m_watchGameScreen;
 						deactivateWindowListener();
@@ -689,10 +737,27 @@ public final class Driver extends JFrame implements ChessCrafter, PieceMenuManag
 					@Override
 					public void actionPerformed(ActionEvent event)
 					{
-						if (completedGamesList.getSelectedValue() != null)
+						Object selected = completedGamesList.getSelectedValue();
+						if (selected != null)
 						{
-							boolean didDeleteCompletedGameSuccessfully = FileUtility.getCompletedGamesFile(
-									completedGamesList.getSelectedValue().toString()).delete();
+							boolean didDeleteCompletedGameSuccessfully;
+							if (selected instanceof GameArchive.Entry)
+							{
+								try
+								{
+									getGameArchive().delete((GameArchive.Entry) selected);
+									didDeleteCompletedGameSuccessfully = true;
+								}
+								catch (IOException e)
+								{
+									e.printStackTrace();
+									didDeleteCompletedGameSuccessfully = false;
+								}
+							}
+							else
+							{
+								didDeleteCompletedGameSuccessfully = FileUtility.getCompletedGamesFile(selected.toString()).delete();
+							}
 							if (!didDeleteCompletedGameSuccessfully)
 							{
 								JOptionPane.showMessageDialog(Driver.getInstance(),
@@ -702,7 +767,7 @@ public final class Driver extends JFrame implements ChessCrafter, PieceMenuManag
 							else
 							{
 								completedGamesList.removeAll();
-								completedGamesList.setListData(FileUtility.getCompletedGamesFileArray());
+								completedGamesList.setListData(getCompletedGames());
 								completedGamesList.setSelectedIndex(0);
 								if (completedGamesList.getSelectedValue() == null)
 								{
@@ -754,6 +819,39 @@ public final class Driver extends JFrame implements ChessCrafter, PieceMenuManag
 		return viewCompletedGameButton;
 	}
 
+	/**
+	 * @return The names of the completed game files, then the entries of the
+	 * games in the archive
+	 */
+	private Object[] getCompletedGames()
+	{
+		List<Object> completedGames = Lists.<Object> newArrayList((Object[]) FileUtility.getCompletedGamesFileArray());
+		GameArchive archive = getGameArchive();
+		if (archive != null)
+			completedGames.addAll(archive.getEntries());
+		return completedGames.toArray();
+	}
+
+	/**
+	 * @return The archive completed games are saved in, or null if it can't
+	 * be opened
+	 */
+	public synchronized GameArchive getGameArchive()
+	{
+		if (mGameArchive == null)
+		{
+			try
+			{
+				mGameArchive = GameArchive.open(FileUtility.getGameArchiveFile());
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+		return mGameArchive;
+	}
+
 	private JButton variantMenuButton()
 	{
 		JButton variantButton = new JButton(Messages.getString("Driver.variants")); //$NON-NLS-1$
@@ -885,4 +983,5 @@ public final class Driver extends JFrame implements ChessCrafter, PieceMenuManag
 	private WatchGamePanel m_watchGameScreen;
 	private PlayNetGamePanel m_playNetGameScreen;
 	private Stack<ChessPanel> mPanelStack;
+	private GameArchive mGameArchive;
 }
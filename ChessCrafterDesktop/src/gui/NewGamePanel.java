@@ -10,21 +10,15 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Constructor;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Locale;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
-import javax.tools.JavaCompiler;
-import javax.tools.JavaCompiler.CompilationTask;
-import javax.tools.JavaFileObject;
-import javax.tools.StandardJavaFileManager;
-import javax.tools.ToolProvider;
 import logic.GameBuilder;
 import logic.Result;
 import models.Game;
@@ -37,6 +31,10 @@ import utility.RunnableOfT;
 import ai.AIAdapter;
 import ai.AIManager;
 import ai.AIPlugin;
+import ai.AIPluginLoader;
+import ai.AIPluginLoader.LoadException;
+import ai.AlphaBetaPlugin;
+
 import com.google.common.collect.Lists;
 
 public class NewGamePanel extends ChessPanel
@@ -92,8 +90,7 @@ public class NewGamePanel extends ChessPanel
 			@Override
 			public void actionPerformed(ActionEvent event)
 			{
-				if (validAIFilesExist())
-					Driver.getInstance().pushPanel(createAIGamePanel());
+				Driver.getInstance().pushPanel(createAIGamePanel());
 			}
 		});
 		constraints.gridy = 3;
@@ -314,12 +311,29 @@ public class NewGamePanel extends ChessPanel
 		constraints.gridy = 1;
 		mPanel.add(GuiUtility.createJLabel(Messages.getString("NewGamePanel.ai")), constraints); //$NON-NLS-1$
 
-		final JComboBox aiComboBox = new JComboBox(AIManager.getInstance().getAIFiles());
+		final JComboBox aiComboBox = new JComboBox(getAIChoices());
 		constraints.gridx = 1;
 		constraints.gridy = 1;
 		constraints.fill = GridBagConstraints.HORIZONTAL;
 		mPanel.add(aiComboBox, constraints);
 
+		// only the built in AI can think on the player's time
+		final JCheckBox ponderCheckBox = new JCheckBox(Messages.getString("NewGamePanel.ponder")); //$NON-NLS-1$
+		ponderCheckBox.setToolTipText(Messages.getString("NewGamePanel.ponderToolTip")); //$NON-NLS-1$
+		ponderCheckBox.setOpaque(false);
+		ponderCheckBox.setForeground(Color.white);
+		aiComboBox.addActionListener(new ActionListener()
+		{
+			@Override
+			public void actionPerformed(ActionEvent event)
+			{
+				ponderCheckBox.setEnabled(aiComboBox.getSelectedIndex() == 0);
+			}
+		});
+		constraints.gridx = 1;
+		constraints.gridy = 2;
+		mPanel.add(ponderCheckBox, constraints);
+
 		// add a button to the frame for installing a new AI
 		JButton addAIFileButton = new JButton(Messages.getString("NewGamePanel.installNewAI")); //$NON-NLS-1$
 		addAIFileButton.addActionListener(new ActionListener()
@@ -330,8 +344,8 @@ public class NewGamePanel extends ChessPanel
 				if (GuiUtility.tryAIFileInstall(NewGamePanel.this))
 				{
 					aiComboBox.removeAllItems();
-					for (String fileName : AIManager.getInstance().getAIFiles())
-						aiComboBox.addItem(fileName);
+					for (String choice : getAIChoices())
+						aiComboBox.addItem(choice);
 				}
 			}
 		});
@@ -343,7 +357,6 @@ public class NewGamePanel extends ChessPanel
 			public void actionPerformed(ActionEvent event)
 			{
 				final String aiFileName = (String) aiComboBox.getSelectedItem();
-				File aiFile = FileUtility.getAIFile(aiFileName);
 				if (aiComboBox.getSelectedItem() == null)
 				{
 					JOptionPane.showMessageDialog(Driver.getInstance(),
@@ -363,61 +376,42 @@ public class NewGamePanel extends ChessPanel
 					return;
 				}
 
-				JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-				StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, Locale.getDefault(), null);
-
-				String[] compileOptions = new String[] { "-d", "bin" }; //$NON-NLS-1$ //$NON-NLS-2$
-				Iterable<String> compilationOptions = Arrays.asList(compileOptions);
-
-				List<File> sourceFileList = Lists.newArrayList();
-				sourceFileList.add(aiFile);
-				Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(sourceFileList);
-				CompilationTask task = compiler.getTask(null, fileManager, null, compilationOptions, null, compilationUnits);
-
-				if (!task.call())
-				{
-					JOptionPane.showMessageDialog(
-							Driver.getInstance(),
-							Messages.getString("NewGamePanel.compilationFailed") //$NON-NLS-1$
-									+
-									Messages.getString("NewGamePanel.makeSureClassImplementsAIPlugin") //$NON-NLS-1$
-									+ Messages.getString("NewGamePanel.makeSureClassIncludes") + "import ai.*;\n" //$NON-NLS-1$ //$NON-NLS-2$
-									+ "import ai.AIAdapter.*;\n", Messages.getString("NewGamePanel.compilationFailure"), JOptionPane.PLAIN_MESSAGE); //$NON-NLS-1$ //$NON-NLS-2$
-					return;
-				}
-
 				try
 				{
-					fileManager.close();
-
 					final AIPlugin aiPlugin;
-					final AIAdapter aiAdapter = new AIAdapter(gameToPlay);
-					ClassLoader classLoader = ClassLoader.getSystemClassLoader();
-					Class<?> klazz = classLoader.loadClass(aiFileName.substring(0, aiFileName.indexOf(".java"))); //$NON-NLS-1$
-					Constructor<?> constructor = klazz.getConstructor();
-					aiPlugin = (AIPlugin) constructor.newInstance();
-
-					Thread aiThread;
-					aiThread = new Thread(new Runnable()
+					if (aiComboBox.getSelectedIndex() == 0)
+					{
+						AlphaBetaPlugin alphaBetaPlugin = new AlphaBetaPlugin(gameToPlay, AI_TIME_BUDGET_MILLIS, Runtime.getRuntime()
+								.availableProcessors());
+						alphaBetaPlugin.setPondering(ponderCheckBox.isSelected());
+						aiPlugin = alphaBetaPlugin;
+					}
+					else
 					{
-						@Override
-						public void run()
-						{
-							try
-							{
-								aiAdapter.runGame(aiPlugin);
-							}
-							catch (Exception e)
-							{
-								e.printStackTrace();
-							}
-						}
-					});
-					aiThread.start();
+						// compiled only the first time, then loaded from the
+						// cache
+						File aiFile = FileUtility.getAIFile(aiFileName);
+						aiPlugin = AIPluginLoader.getInstance().newPlugin(aiFile);
+					}
+					final AIAdapter aiAdapter = new AIAdapter(gameToPlay);
 
 					PlayNetGamePanel playNetGame = new PlayNetGamePanel(gameToPlay, false, false);
 					playNetGame.setIsAIGame(true);
+					playNetGame.setAIAdapter(aiAdapter);
+					PlayGamePanel.setPlayers(PlayGamePanel.getLocalPlayer(), aiFileName);
 					Driver.getInstance().pushPanel(playNetGame);
+
+					aiAdapter.runGame(aiPlugin, playNetGame);
+				}
+				catch (LoadException e)
+				{
+					JOptionPane.showMessageDialog(
+							Driver.getInstance(),
+							Messages.getString("NewGamePanel.compilationFailed") //$NON-NLS-1$
+									+ (e.isCompilationFailure() ? e.getMessage() + "\n" : "") //$NON-NLS-1$ //$NON-NLS-2$
+									+ Messages.getString("NewGamePanel.makeSureClassImplementsAIPlugin") //$NON-NLS-1$
+									+ Messages.getString("NewGamePanel.makeSureClassIncludes") + "import ai.*;\n" //$NON-NLS-1$ //$NON-NLS-2$
+									+ "import ai.AIAdapter.*;\n", Messages.getString("NewGamePanel.compilationFailure"), JOptionPane.PLAIN_MESSAGE); //$NON-NLS-1$ //$NON-NLS-2$
 				}
 				catch (Exception e)
 				{
@@ -443,39 +437,29 @@ public class NewGamePanel extends ChessPanel
 		buttonPanel.add(cancelButton);
 
 		constraints.gridx = 0;
-		constraints.gridy = 2;
+		constraints.gridy = 3;
 		constraints.gridwidth = 2;
 		constraints.insets = new Insets(3, 0, 3, 0);
 		mPanel.add(addAIFileButton, constraints);
 
 		constraints.gridx = 0;
-		constraints.gridy = 3;
+		constraints.gridy = 4;
 		mPanel.add(buttonPanel, constraints);
 
 		return mPanel;
 	}
 
-	public boolean validAIFilesExist()
+	/**
+	 * @return The built in AI, then the installed AI files
+	 */
+	private static String[] getAIChoices()
 	{
-		if (AIManager.getInstance().getAIFiles().length == 0)
-		{
-			switch (JOptionPane.showConfirmDialog(Driver.getInstance(),
-					Messages.getString("NewGamePanel.noAIFilesInstalled"), Messages.getString("NewGamePanel.installAIFiles"), //$NON-NLS-1$ //$NON-NLS-2$
-					JOptionPane.YES_NO_OPTION, JOptionPane.PLAIN_MESSAGE))
-			{
-			case JOptionPane.YES_OPTION:
-				return GuiUtility.tryAIFileInstall(NewGamePanel.this);
-			case JOptionPane.NO_OPTION:
-			default:
-				return false;
-			}
-		}
-		else
-		{
-			return true;
-		}
+		List<String> choices = Lists.newArrayList(Messages.getString("NewGamePanel.builtInAI")); //$NON-NLS-1$
+		choices.addAll(Arrays.asList(AIManager.getInstance().getAIFiles()));
+		return choices.toArray(new String[choices.size()]);
 	}
 
+	private static final long AI_TIME_BUDGET_MILLIS = 2000L;
 	private static final long serialVersionUID = -6371389704966320508L;
 
 	private ChessPanel mPanel;
@@ -17,6 +17,7 @@ import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.util.List;
 
 import javax.swing.BorderFactory;
@@ -32,6 +33,9 @@ import javax.swing.JPanel;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
 
+import logic.AlgebraicConverter;
+import logic.GameArchive;
+import logic.GameRecord;
 import logic.Move;
 import logic.Result;
 import models.Board;
@@ -60,9 +64,14 @@ public class PlayGamePanel extends ChessPanel implements PlayGameScreen
 	public PlayGamePanel(Game game)
 	{
 		if (game != null)
+		{
 			setGame(game);
+			setPlayers(getLocalPlayer(), getLocalPlayer());
+		}
 		else
+		{
 			game = getGame();
+		}
 
 		mDropManager = new DropManager();
 		mGlobalGlassPane = new GlassPane();
@@ -212,7 +221,7 @@ public class PlayGamePanel extends ChessPanel implements PlayGameScreen
 	@Override
 	public void endOfGame(Result result)
 	{
-		PlayNetGamePanel.mIsRunning = false;
+		PlayNetGamePanel.stopRunning();
 		if (mGame.getHistory().size() != 0)
 		{
 			PlayNetGamePanel.mNetMove = mGame.moveToFakeMove(mGame.getHistory().get(mGame.getHistory().size() - 1));
@@ -258,7 +267,8 @@ public class PlayGamePanel extends ChessPanel implements PlayGameScreen
 			String saveFileName = JOptionPane.showInputDialog(Driver.getInstance(),
 					Messages.getString("PlayGamePanel.enterAName"), Messages.getString("PlayGamePanel.saving"), //$NON-NLS-1$ //$NON-NLS-2$
 					JOptionPane.PLAIN_MESSAGE);
-			getGame().saveGame(saveFileName, getGame().isClassicChess(), false);
+			if (saveFileName != null)
+				archiveGame(saveFileName, result);
 			mGame.setBlackMove(false);
 			Driver.getInstance().setFileMenuVisibility(true);
 			PreferenceUtility.clearTooltipListeners();
@@ -275,6 +285,31 @@ public class PlayGamePanel extends ChessPanel implements PlayGameScreen
 		}
 	}
 
+	/**
+	 * Add the Game to the archive of completed games, or save it in a file of
+	 * its own if it can't be archived
+	 */
+	private void archiveGame(String name, Result result)
+	{
+		GameArchive archive = Driver.getInstance().getGameArchive();
+		if (archive != null)
+		{
+			try
+			{
+				archive.append(name, GameRecord.fromGame(getGame()), result, System.currentTimeMillis(), mWhitePlayer, mBlackPlayer);
+				// classic games are written in algebraic notation as well
+				if (getGame().isClassicChess())
+					AlgebraicConverter.convert(getGame().getHistory(), name);
+				return;
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+		getGame().saveGame(name, getGame().isClassicChess(), false);
+	}
+
 	@Override
 	public void saveGame()
 	{
@@ -592,6 +627,27 @@ public class PlayGamePanel extends ChessPanel implements PlayGameScreen
 		return mGame;
 	}
 
+	/**
+	 * Name the players of the Game being played, to archive it under. A new
+	 * Game is played by the local player on both sides until this is called.
+	 * 
+	 * @param whitePlayer Who plays white
+	 * @param blackPlayer Who plays black
+	 */
+	public static void setPlayers(String whitePlayer, String blackPlayer)
+	{
+		mWhitePlayer = whitePlayer;
+		mBlackPlayer = blackPlayer;
+	}
+
+	/**
+	 * @return The name of the player at this computer
+	 */
+	public static String getLocalPlayer()
+	{
+		return System.getProperty("user.name", ""); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
 	@Override
 	public void resetTimers()
 	{
@@ -778,6 +834,8 @@ public class PlayGamePanel extends ChessPanel implements PlayGameScreen
 	protected static Move[] mHistory;
 	protected static int mHistoryIndex;
 	protected static List<SquareJLabel> mSquareLabels;
+	private static String mWhitePlayer;
+	private static String mBlackPlayer;
 
 	private Preference mPreference;
 
@@ -24,6 +24,7 @@ import models.Game;
 import models.Square;
 import timer.ChessTimer;
 import utility.GuiUtility;
+import ai.AIAdapter;
 import ai.FakeMove;
 
 public class PlayNetGamePanel extends PlayGamePanel implements PlayNetGameScreen
@@ -489,10 +490,34 @@ public class PlayNetGamePanel extends PlayGamePanel implements PlayNetGameScreen
 		Driver.getInstance().setFileMenuVisibility(true);
 	}
 
+	/**
+	 * @param aiAdapter The AIAdapter playing black, to stop when the game ends
+	 */
+	public void setAIAdapter(AIAdapter aiAdapter)
+	{
+		mAIAdapter = aiAdapter;
+	}
+
 	@Override
 	public void setIsRunning(boolean isRunning)
 	{
-		mIsRunning = isRunning;
+		if (isRunning)
+			mIsRunning = true;
+		else
+			stopRunning();
+	}
+
+	/**
+	 * End the game being played, and stop the AI if it's thinking
+	 */
+	static void stopRunning()
+	{
+		mIsRunning = false;
+		if (mAIAdapter != null)
+		{
+			mAIAdapter.stopGame();
+			mAIAdapter = null;
+		}
 	}
 
 	@Override
@@ -530,6 +555,7 @@ public class PlayNetGamePanel extends PlayGamePanel implements PlayNetGameScreen
 	private static boolean mIsBlackPlayer;
 	public static boolean mIsRunning = true;
 	public static FakeMove mNetMove = null;
+	private static AIAdapter mAIAdapter;
 
 	private boolean mIsAIGame;
 	public boolean mDrawRequested = false;
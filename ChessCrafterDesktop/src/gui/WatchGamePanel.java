@@ -20,6 +20,7 @@ import javax.swing.JPanel;
 import javax.swing.SwingConstants;
 
 import logic.AlgebraicConverter;
+import logic.GameRecord;
 import logic.Move;
 import logic.Result;
 import models.Board;
@@ -38,13 +39,21 @@ public class WatchGamePanel extends ChessPanel implements WatchGameScreen
 		Game game = null;
 		try
 		{
-			ObjectInputStream in = new ObjectInputStream(new FileInputStream(saveFile));
-			game = (Game) in.readObject();
-			game.setIsPlayback(true);
-			game.setBlackMove(false);
-			if (game.isClassicChess())
-				game = AlgebraicConverter.convert(game, saveFile);
-			in.close();
+			if (GameRecord.isGameRecord(saveFile))
+			{
+				game = GameRecord.load(saveFile);
+				game.setIsPlayback(true);
+			}
+			else
+			{
+				ObjectInputStream in = new ObjectInputStream(new FileInputStream(saveFile));
+				game = (Game) in.readObject();
+				game.setIsPlayback(true);
+				game.setBlackMove(false);
+				if (game.isClassicChess())
+					game = AlgebraicConverter.convert(game, saveFile);
+				in.close();
+			}
 		}
 		catch (Exception e)
 		{
@@ -53,8 +62,28 @@ public class WatchGamePanel extends ChessPanel implements WatchGameScreen
 
 		if (game != null)
 			setGame(game);
-		else
-			game = getGame();
+		setUpHistory(getGame());
+	}
+
+	/**
+	 * @param game The Game to watch, played up to its end, as it comes from a
+	 * GameArchive
+	 */
+	public WatchGamePanel(Game game)
+	{
+		game.setIsPlayback(true);
+		setGame(game);
+		setUpHistory(game);
+	}
+
+	/**
+	 * Take the Game back to its start, so its history can be stepped through
+	 */
+	private void setUpHistory(Game game)
+	{
+		// stepping back and forth through the history keeps revisiting the
+		// same positions
+		game.setLegalDestsCacheSize(HISTORY_CACHE_SIZE);
 
 		WatchGamePanel.mWhiteTimer = ChessTimer.createTimer(TimerTypes.NO_TIMER, null, 0, 0, false);
 		WatchGamePanel.mBlackTimer = ChessTimer.createTimer(TimerTypes.NO_TIMER, null, 0, 0, true);
@@ -493,6 +522,7 @@ public class WatchGamePanel extends ChessPanel implements WatchGameScreen
 	}
 
 	private static final long serialVersionUID = -2507232401817253688L;
+	private static final int HISTORY_CACHE_SIZE = 512;
 
 	protected static boolean mNextMoveMustPlacePiece;
 	protected static Game mGame;
@@ -1,6 +1,7 @@
 package net;
 
 import gui.Driver;
+import gui.PlayGamePanel;
 import gui.PlayGameScreen;
 import gui.PlayNetGameScreen;
 
@@ -59,6 +60,7 @@ public class NetworkClient
 
 		Game g = (Game) in.readObject();
 		PlayNetGameScreen png = GuiUtility.getChessCrafter().getNetGameScreen(g, false, true);
+		PlayGamePanel.setPlayers(host, PlayGamePanel.getLocalPlayer());
 		PlayGameScreen pgs = GuiUtility.getChessCrafter().getPlayGameScreen(g);
 		pgs.resetTimers();
 		GuiUtility.getChessCrafter().pushPanel(png);
@@ -57,6 +57,7 @@ public class NetworkServer
 		}
 
 		AnimatedLabel.m_isFinished = true;
+		PlayGamePanel.setPlayers(PlayGamePanel.getLocalPlayer(), clientSocket.getInetAddress().getHostName());
 		ObjectOutputStream out = new ObjectOutputStream(clientSocket.getOutputStream());
 		ObjectInputStream in = new ObjectInputStream(clientSocket.getInputStream());
 
@@ -2,16 +2,25 @@ package ai;
 
 import gui.PlayNetGameScreen;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import utility.GuiUtility;
 import logic.Move;
 import models.Board;
 import models.Game;
+import models.Game.TurnListener;
 import models.Piece;
 import models.Square;
 
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * AIAdapter.java
@@ -54,58 +63,112 @@ public class AIAdapter
 	}
 
 	/**
+	 * Let the plug in play black. It's asked for a move on its own thread
+	 * every time black's turn goes on, until the game ends or stopGame is
+	 * called. An AlphaBetaPlugin is told when the turn changes to white as
+	 * well, so it can ponder. This returns right away.
+	 * 
 	 * @param aiPlugin The AI logical analysis plugin for decision trees
+	 * @param playNetGameScreen The screen the game is played on, which says
+	 * whether the game is still running
 	 */
-	public void runGame(AIPlugin aiPlugin)
+	public synchronized void runGame(AIPlugin aiPlugin, PlayNetGameScreen playNetGameScreen)
 	{
-		if (m_playNetGameScreen == null)
-			try
-			{
-				m_playNetGameScreen = GuiUtility.getChessCrafter().getNetGameScreen();
-			}
-			catch (Exception e1)
-			{
-				// TODO Auto-generated catch block
-				e1.printStackTrace();
-			}
+		Preconditions.checkArgument(aiPlugin != null);
+		Preconditions.checkArgument(playNetGameScreen != null);
+		Preconditions.checkState(mExecutor == null);
+
+		m_playNetGameScreen = playNetGameScreen;
 		m_playNetGameScreen.setIsRunning(true);
-		while (m_playNetGameScreen.isRunning())
+
+		mAIPlugin = aiPlugin;
+		mExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("ai-player-%d").setDaemon(true) //$NON-NLS-1$
+				.build());
+		mTurnListener = new TurnListener()
 		{
-			while (mGame.isBlackMove())
-			{
-				try
-				{
-					Thread.sleep(200);
-				}
-				catch (InterruptedException e)
-				{
-				}
-				AIBoard[] boards = getBoards();
-				FakeMove fm = aiPlugin.getMove(boards);
-				playMove(fm);
-			}
-			try
+			@Override
+			public void onTurnChanged(boolean isBlackMove)
 			{
-				Thread.sleep(0);
+				if (isBlackMove)
+					requestMove();
+				else if (mAIPlugin instanceof AlphaBetaPlugin)
+					((AlphaBetaPlugin) mAIPlugin).startPondering();
 			}
-			catch (InterruptedException e)
+		};
+		mGame.addTurnListener(mTurnListener);
+
+		if (mGame.isBlackMove())
+			requestMove();
+	}
+
+	/**
+	 * Stop asking the plug in for moves, and interrupt it if it's thinking
+	 */
+	public synchronized void stopGame()
+	{
+		if (mExecutor == null)
+			return;
+
+		mGame.removeTurnListener(mTurnListener);
+		if (mPendingMove != null)
+			mPendingMove.cancel(true);
+		mExecutor.shutdownNow();
+		if (mAIPlugin instanceof AlphaBetaPlugin)
+			((AlphaBetaPlugin) mAIPlugin).stopPondering();
+	}
+
+	private synchronized void requestMove()
+	{
+		if (mExecutor.isShutdown())
+			return;
+		if (!m_playNetGameScreen.isRunning())
+		{
+			stopGame();
+			return;
+		}
+
+		mPendingMove = mExecutor.submit(new Runnable()
+		{
+			@Override
+			public void run()
 			{
-				e.printStackTrace();
+				playAIMove();
 			}
+		});
+	}
+
+	private void playAIMove()
+	{
+		// ask again if the plug in comes up with a move that can't be played
+		while (mGame.isBlackMove() && m_playNetGameScreen.isRunning())
+		{
+			FakeMove move = mAIPlugin.getMove(getBoards());
+			if (move == null || Thread.currentThread().isInterrupted())
+				return;
+			if (playMove(move))
+				return;
 		}
 	}
 
 	/**
-	 * @param move The move that it wishes to try
-	 * @return Whether it moved there or not.
+	 * @param move The move that it wishes to try. Its board index is the Board
+	 * of the destination, and the origin is on the Board the rules of the
+	 * moving team move to that one from.
+	 * @return Whether it moved there or not. A move to a Square that isn't
+	 * one of the legal destinations of the Piece isn't played.
 	 */
 	public boolean playMove(FakeMove move)
 	{
 		try
 		{
-			Board board = mGame.getBoards()[move.mBoardIndex];
-			mGame.playMove(new Move(board, board.getSquare(move.mOriginRow, move.mOriginColumn), board.getSquare(move.mDestinationRow,
-					move.mDestinationColumn), move.mPromotionPieceName));
+			Move realMove = mGame.fakeToRealMove(move);
+			Piece piece = realMove.origin.getPiece();
+			if (mGame.isStaleLegalDests())
+				mGame.genLegalDests();
+			if (piece == null || piece.isBlack() != mGame.isBlackMove() || !piece.getLegalDests().contains(realMove.getDest()))
+				return false;
+
+			mGame.playMove(realMove);
 			return true;
 		}
 		catch (Exception e)
@@ -115,6 +178,11 @@ public class AIAdapter
 	}
 
 	/**
+	 * The AIBoards are views of the Game being played, not copies: they're
+	 * made once, and always show the position as it is now. Since the Game
+	 * doesn't change on the plug in's turn, it sees the position it has to
+	 * move in for as long as it thinks.
+	 * 
 	 * @return The array of boards in terms of AIBoard type.
 	 */
 	public synchronized AIBoard[] getBoards()
@@ -122,15 +190,49 @@ public class AIAdapter
 		if (mGame.isStaleLegalDests())
 			mGame.genLegalDests();
 
-		mBoards = new AIBoard[mGame.getBoards().length];
-		for (int i = 0; i < mBoards.length; i++)
-			mBoards[i] = new AIBoard(mGame.getBoards()[i]);
+		// a copy of the array only, so the plug in can't swap our boards
+		return getAIBoards().clone();
+	}
+
+	private synchronized AIBoard[] getAIBoards()
+	{
+		if (mBoards == null)
+		{
+			mBoards = new AIBoard[mGame.getBoards().length];
+			for (int i = 0; i < mBoards.length; i++)
+				mBoards[i] = new AIBoard(mGame.getBoards()[i]);
+		}
 		return mBoards;
 	}
 
+	private AIBoard getAIBoard(Board board)
+	{
+		for (AIBoard aiBoard : getAIBoards())
+		{
+			if (aiBoard.mBoard == board)
+				return aiBoard;
+		}
+		return null;
+	}
+
+	private synchronized AIPiece getAIPiece(Piece piece)
+	{
+		if (piece == null)
+			return null;
+
+		AIPiece aiPiece = mPieces.get(piece);
+		if (aiPiece == null)
+		{
+			aiPiece = new AIPiece(piece);
+			mPieces.put(piece, aiPiece);
+		}
+		return aiPiece;
+	}
+
 	/**
 	 * @author Drew Hannay The AIBoard class. This is the board the AI "sees"
-	 * and acts upon, similar to networking games.
+	 * and acts upon, similar to networking games. It's a read only view of a
+	 * Board.
 	 */
 	public class AIBoard
 	{
@@ -140,46 +242,23 @@ public class AIAdapter
 		protected AISquare squares[][];
 
 		/**
-		 * If movement beyond the East and West edges of the board results in
-		 * further relocation.
+		 * The Board this is a view of
 		 */
-		private boolean wraparound;
-
-		/**
-		 * The max column for this AIBoard
-		 */
-		private int maxColumn;
-		/**
-		 * The max row for this AIBoard
-		 */
-		private int maxRow;
+		private final Board mBoard;
 
 		/**
 		 * @param b The AI board for reference to all of its components.
 		 */
 		public AIBoard(Board b)
 		{
-			wraparound = b.isWrapAround();
+			mBoard = b;
 			squares = new AISquare[b.getMaxRow()][b.getMaxCol()];
-			maxColumn = b.getMaxCol();
-			maxRow = b.getMaxRow();
-			for (int row = 1, col = 1; row <= b.getMaxRow(); row++)
-			{
-				for (col = 1; col <= b.getMaxCol(); col++)
-				{
-					// Initialize the AISquares.
-					// ignore counting from zero.
-					squares[row - 1][col - 1] = new AISquare((row), (col), b.getSquare(row, col).isHabitable(), null);
-				}
-			}
-			for (int row = 1, col = 1; row <= b.getMaxRow(); row++)
+			for (int row = 1; row <= b.getMaxRow(); row++)
 			{
-				for (col = 1; col <= b.getMaxCol(); col++)
+				for (int col = 1; col <= b.getMaxCol(); col++)
 				{
-					// Initialize the AISquares.
 					// ignore counting from zero.
-					if (b.getSquare(row, col).getPiece() != null)
-						squares[row - 1][col - 1].setPiece(new AIPiece(b.getSquare(row, col).getPiece(), this));
+					squares[row - 1][col - 1] = new AISquare(b.getSquare(row, col));
 				}
 			}
 		}
@@ -190,7 +269,7 @@ public class AIAdapter
 		 */
 		public boolean isWraparound()
 		{
-			return wraparound;
+			return mBoard.isWrapAround();
 		}
 
 		/**
@@ -198,7 +277,7 @@ public class AIAdapter
 		 */
 		public int maxCol()
 		{
-			return maxColumn;
+			return mBoard.getMaxCol();
 		}
 
 		/**
@@ -206,7 +285,7 @@ public class AIAdapter
 		 */
 		public int maxRow()
 		{
-			return maxRow;
+			return mBoard.getMaxRow();
 		}
 
 		/**
@@ -226,43 +305,17 @@ public class AIAdapter
 	}
 
 	/**
-	 * @author Drew Hannay The class for AI squares.
+	 * @author Drew Hannay The class for AI squares, a read only view of a
+	 * Square.
 	 */
 	public class AISquare
 	{
-
-		/**
-		 * Row Index of AISquare
-		 */
-		private int row;// File
 		/**
-		 * Column Index of AISquare
+		 * @param square The Square this is a view of
 		 */
-		private int col;// Rank
-		/**
-		 * If the AISquare is able to be occupied.
-		 */
-		private boolean isHabitable;
-
-		/**
-		 * The AIPiece occupying this AISquare
-		 */
-		private AIPiece piece;
-
-		/**
-		 * Constructor
-		 * 
-		 * @param row The row number
-		 * @param col The col number
-		 * @param isHabitable If it can hold a piece
-		 * @param piece The piece on it, if there is one.
-		 */
-		public AISquare(int row, int col, boolean isHabitable, AIPiece piece)
+		private AISquare(Square square)
 		{
-			this.row = row;
-			this.col = col;
-			this.isHabitable = isHabitable;
-			this.piece = piece;
+			mSquare = square;
 		}
 
 		/**
@@ -272,17 +325,20 @@ public class AIAdapter
 		 */
 		public int getRow()
 		{
-			return row;
+			return mSquare.getRow();
 		}
 
 		/**
-		 * Setter for piece.
+		 * The AISquares show the Game being played, which plug ins can't change
 		 * 
 		 * @param p The new piece.
+		 * @throws UnsupportedOperationException Always
+		 * @deprecated Play a FakeMove instead
 		 */
+		@Deprecated
 		public void setPiece(AIPiece p)
 		{
-			piece = p;
+			throw new UnsupportedOperationException();
 		}
 
 		/**
@@ -292,7 +348,7 @@ public class AIAdapter
 		 */
 		public int getCol()
 		{
-			return col;
+			return mSquare.getCol();
 		}
 
 		/**
@@ -302,7 +358,7 @@ public class AIAdapter
 		 */
 		public AIPiece getPiece()
 		{
-			return piece;
+			return getAIPiece(mSquare.getPiece());
 		}
 
 		/**
@@ -312,62 +368,27 @@ public class AIAdapter
 		 */
 		public boolean isHabitable()
 		{
-			return isHabitable;
+			return mSquare.isHabitable();
 		}
 
+		/**
+		 * The Square this is a view of
+		 */
+		private final Square mSquare;
 	}
 
 	/**
 	 * @author Drew Hannay This is the AIPiece class to distinguish between
-	 * normal and AI pieces.
+	 * normal and AI pieces. It's a read only view of a Piece.
 	 */
 	public class AIPiece
 	{
-
-		/**
-		 * The name of this AIPiece
-		 */
-		private String name;
-
-		/**
-		 * The color of this AIPiece
-		 */
-		private boolean isBlack;
-
-		/**
-		 * The Board this AIPiece is on
-		 */
-		private AIBoard board;
-
-		/**
-		 * List of legal AISquares for this AIPiece to move to
-		 */
-		protected List<AISquare> legalDests;
-
 		/**
 		 * @param p The piece we are extracting data from
-		 * @param b The board the AI piece is on
 		 */
-		public AIPiece(Piece p, AIBoard b)
+		private AIPiece(Piece p)
 		{
-			name = p.getName();
-			isBlack = p.isBlack();
-			board = b;
-			legalDests = transformLegalDests(p.getLegalDests());
-		}
-
-		/**
-		 * @param legalDests The legal destinations of the piece in standard
-		 * terms
-		 * @return The legal destinations of the piece in terms of AI Squares
-		 */
-		private synchronized List<AISquare> transformLegalDests(List<Square> legalDests)
-		{
-			List<AISquare> toReturn = Lists.newArrayList();
-			for (Square s : legalDests)
-				if (board.getSquare(s.getRow(), s.getCol()) != null)
-					toReturn.add(board.getSquare(s.getRow(), s.getCol()));
-			return toReturn;
+			mPiece = p;
 		}
 
 		/**
@@ -375,7 +396,7 @@ public class AIAdapter
 		 */
 		public String getName()
 		{
-			return name;
+			return mPiece.getName();
 		}
 
 		/**
@@ -383,7 +404,7 @@ public class AIAdapter
 		 */
 		public boolean isBlack()
 		{
-			return isBlack;
+			return mPiece.isBlack();
 		}
 
 		/**
@@ -391,17 +412,36 @@ public class AIAdapter
 		 */
 		public AIBoard getBoard()
 		{
-			return board;
+			return getAIBoard(mPiece.getSquare().getBoard());
 		}
 
 		/**
-		 * @return Legal destinations for this piece
+		 * @return Legal destinations for this piece, a read only view of the
+		 * ones of the Piece
 		 */
 		public List<AISquare> getLegalDests()
 		{
-			return legalDests;
+			return Collections.unmodifiableList(Lists.transform(mPiece.getLegalDests(), mToAISquare));
 		}
+
+		/**
+		 * The Piece this is a view of
+		 */
+		private final Piece mPiece;
 	}
 
 	private PlayNetGameScreen m_playNetGameScreen;
+	private AIPlugin mAIPlugin;
+	private ExecutorService mExecutor;
+	private TurnListener mTurnListener;
+	private Future<?> mPendingMove;
+	private final Map<Piece, AIPiece> mPieces = Maps.newIdentityHashMap();
+	private final Function<Square, AISquare> mToAISquare = new Function<Square, AISquare>()
+	{
+		@Override
+		public AISquare apply(Square square)
+		{
+			return getAIBoard(square.getBoard()).getSquare(square.getRow(), square.getCol());
+		}
+	};
 }
@@ -29,7 +29,7 @@ public final class AIManager
 
 		for (String fileName : allFiles)
 		{
-			if (fileName.endsWith(".java")) //$NON-NLS-1$
+			if (fileName.endsWith(".java") || fileName.endsWith(".jar")) //$NON-NLS-1$ //$NON-NLS-2$
 				tempFiles.add(fileName);
 		}
 
@@ -0,0 +1,245 @@
+package ai;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import utility.FileUtility;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Loads AIPlugins from the files installed in the AI directory. A .java file
+ * is compiled once: its classes are kept in the cache directory under the
+ * hash of the source, so it's only compiled again once it changes, and a JRE
+ * without a compiler can still load it after that. A .jar file is searched
+ * for plugins with a ServiceLoader, so it has to list them in
+ * META-INF/services/ai.AIPlugin. Each plugin gets a class loader of its own.
+ */
+public final class AIPluginLoader
+{
+	/**
+	 * Thrown when a file doesn't give an AIPlugin: it doesn't compile, there's
+	 * no compiler to compile it with, or the class it has isn't a plugin that
+	 * can be made
+	 */
+	public static final class LoadException extends Exception
+	{
+		public LoadException(String message, boolean isCompilationFailure)
+		{
+			super(message);
+			mIsCompilationFailure = isCompilationFailure;
+		}
+
+		public LoadException(String message, Throwable cause)
+		{
+			super(message, cause);
+			mIsCompilationFailure = false;
+		}
+
+		/**
+		 * @return Whether the source of the plugin didn't compile
+		 */
+		public boolean isCompilationFailure()
+		{
+			return mIsCompilationFailure;
+		}
+
+		private static final long serialVersionUID = -4032418870520133409L;
+
+		private final boolean mIsCompilationFailure;
+	}
+
+	/**
+	 * @return The loader caching in the hidden directory
+	 */
+	public static synchronized AIPluginLoader getInstance()
+	{
+		if (sInstance == null)
+			sInstance = new AIPluginLoader(FileUtility.getAICacheDir());
+
+		return sInstance;
+	}
+
+	/**
+	 * @param cacheDir The directory to keep compiled plugins in
+	 */
+	public AIPluginLoader(File cacheDir)
+	{
+		Preconditions.checkArgument(cacheDir != null);
+
+		mCacheDir = cacheDir;
+		mPluginClasses = Maps.newConcurrentMap();
+	}
+
+	/**
+	 * @param file The .java or .jar file of the plugin
+	 * @return A new instance of the plugin
+	 * @throws IOException If the file can't be read, or the cache written
+	 * @throws LoadException If the file doesn't give an AIPlugin
+	 */
+	public AIPlugin newPlugin(File file) throws IOException, LoadException
+	{
+		Class<? extends AIPlugin> pluginClass = loadPluginClass(file);
+		try
+		{
+			return pluginClass.getConstructor().newInstance();
+		}
+		catch (Exception e)
+		{
+			throw new LoadException(pluginClass.getName(), e);
+		}
+	}
+
+	/**
+	 * @param file The .java or .jar file of the plugin
+	 * @return The class of the plugin
+	 * @throws IOException If the file can't be read, or the cache written
+	 * @throws LoadException If the file doesn't give an AIPlugin
+	 */
+	public Class<? extends AIPlugin> loadPluginClass(File file) throws IOException, LoadException
+	{
+		// the hash is of the contents, so a file replaced by another one of
+		// the same name isn't mistaken for it
+		String key = file.getName() + "-" + Files.hash(file, Hashing.sha1()); //$NON-NLS-1$
+		Class<? extends AIPlugin> pluginClass = mPluginClasses.get(key);
+		if (pluginClass == null)
+		{
+			if (file.getName().endsWith(JAR))
+				pluginClass = findJarPlugin(file);
+			else
+				pluginClass = loadCompiledPlugin(file, key);
+			Class<? extends AIPlugin> loadedClass = mPluginClasses.putIfAbsent(key, pluginClass);
+			if (loadedClass != null)
+				pluginClass = loadedClass;
+		}
+		return pluginClass;
+	}
+
+	private Class<? extends AIPlugin> loadCompiledPlugin(File sourceFile, String key) throws IOException, LoadException
+	{
+		String className = sourceFile.getName().substring(0, sourceFile.getName().length() - JAVA.length());
+		File classDir = new File(mCacheDir, key);
+		if (!new File(classDir, className + CLASS).exists())
+			compile(sourceFile, classDir);
+
+		ClassLoader classLoader = new URLClassLoader(new URL[] { classDir.toURI().toURL() }, AIPlugin.class.getClassLoader());
+		try
+		{
+			return classLoader.loadClass(className).asSubclass(AIPlugin.class);
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new LoadException(className, e);
+		}
+		catch (ClassCastException e)
+		{
+			throw new LoadException(className, e);
+		}
+	}
+
+	/**
+	 * Compile the source into a directory of its own first, and move that
+	 * into place once it's done, so a failed compilation is never taken for
+	 * a cached one
+	 */
+	private void compile(File sourceFile, File classDir) throws IOException, LoadException
+	{
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null)
+			throw new LoadException(sourceFile.getName(), false);
+
+		File compileDir = new File(mCacheDir, classDir.getName() + "." + System.nanoTime()); //$NON-NLS-1$
+		if (!compileDir.mkdirs())
+			throw new IOException(compileDir.getPath());
+
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.getDefault(), null);
+		try
+		{
+			Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjects(sourceFile);
+			Iterable<String> options = Arrays.asList("-d", compileDir.getPath(), "-classpath", System.getProperty("java.class.path")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, compilationUnits);
+			if (!task.call())
+			{
+				deleteRecursively(compileDir);
+				StringBuilder message = new StringBuilder();
+				for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+					message.append(diagnostic.getMessage(Locale.getDefault())).append('\n');
+				throw new LoadException(message.toString(), true);
+			}
+		}
+		finally
+		{
+			fileManager.close();
+		}
+
+		// another thread may have compiled the same source in the meantime
+		if (!compileDir.renameTo(classDir))
+			deleteRecursively(compileDir);
+	}
+
+	private static void deleteRecursively(File file)
+	{
+		File[] children = file.listFiles();
+		if (children != null)
+		{
+			for (File child : children)
+				deleteRecursively(child);
+		}
+		file.delete();
+	}
+
+	private static Class<? extends AIPlugin> findJarPlugin(File jarFile) throws IOException, LoadException
+	{
+		ClassLoader classLoader = new URLClassLoader(new URL[] { jarFile.toURI().toURL() }, AIPlugin.class.getClassLoader());
+		try
+		{
+			// the ServiceLoader sees the plugins of the parent loader as well
+			Iterator<AIPlugin> plugins = ServiceLoader.load(AIPlugin.class, classLoader).iterator();
+			while (plugins.hasNext())
+			{
+				AIPlugin plugin = plugins.next();
+				if (plugin.getClass().getClassLoader() == classLoader)
+					return plugin.getClass();
+			}
+		}
+		catch (Error e)
+		{
+			// a ServiceConfigurationError, or a plugin that fails to link
+			throw new LoadException(jarFile.getName(), e);
+		}
+		throw new LoadException(jarFile.getName(), false);
+	}
+
+	public File getCacheDir()
+	{
+		return mCacheDir;
+	}
+
+	private static final String JAVA = ".java"; //$NON-NLS-1$
+	private static final String JAR = ".jar"; //$NON-NLS-1$
+	private static final String CLASS = ".class"; //$NON-NLS-1$
+
+	private static AIPluginLoader sInstance;
+
+	private final File mCacheDir;
+	private final ConcurrentMap<String, Class<? extends AIPlugin>> mPluginClasses;
+}
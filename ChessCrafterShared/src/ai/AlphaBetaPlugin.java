@@ -0,0 +1,327 @@
+package ai;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import models.Game;
+import models.PackedMove;
+import models.Piece;
+import models.Square;
+import ai.AIAdapter.AIBoard;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The AI that comes with ChessCrafter. Instead of looking at the AIBoard
+ * views, it searches the Game itself with a SearchEngine, so it plays every
+ * variant the rules support. Given more than one thread, it searches with a
+ * ParallelSearch. How long it thinks about each move is up to a
+ * TimeManager, which follows the timer of the team it plays, if it has one.
+ *
+ * With pondering on, it also thinks on the other team's time: it plays the
+ * reply its last search expected on a copy of the Game, and searches the
+ * position after it with the same ParallelSearch, on as many threads as its
+ * moves, from a thread of its own. If the other team does play
+ * that reply, the ponder search becomes the search of the move, with the
+ * time of the move counted from then on, so it gets deeper in the same time.
+ * Otherwise it's thrown away. Either way, the positions it searched stay in
+ * the TranspositionTable.
+ */
+public final class AlphaBetaPlugin implements AIPlugin
+{
+	/**
+	 * @param game The Game to play in
+	 * @param timeBudgetMillis How long to think about each move, in
+	 * milliseconds, when there's no timer
+	 */
+	public AlphaBetaPlugin(Game game, long timeBudgetMillis)
+	{
+		this(game, timeBudgetMillis, 1);
+	}
+
+	/**
+	 * @param game The Game to play in
+	 * @param timeBudgetMillis How long to think about each move, in
+	 * milliseconds
+	 * @param threadCount The number of threads to search on
+	 */
+	public AlphaBetaPlugin(Game game, long timeBudgetMillis, int threadCount)
+	{
+		this(game, timeBudgetMillis, new ParallelSearch(game, threadCount));
+	}
+
+	/**
+	 * @param game The Game to play in
+	 * @param timeBudgetMillis How long to think about each move, in
+	 * milliseconds
+	 * @param threadCount The number of threads to search on
+	 * @param table The transposition table to search with
+	 */
+	public AlphaBetaPlugin(Game game, long timeBudgetMillis, int threadCount, TranspositionTable table)
+	{
+		this(game, timeBudgetMillis, new ParallelSearch(game, threadCount, table));
+	}
+
+	private AlphaBetaPlugin(Game game, long timeBudgetMillis, ParallelSearch search)
+	{
+		Preconditions.checkArgument(game != null);
+
+		mGame = game;
+		mSearch = search;
+		mTimeManager = new TimeManager(game, timeBudgetMillis);
+	}
+
+	@Override
+	public FakeMove getMove(AIBoard[] boards)
+	{
+		mTimeManager.startMove(mGame.isBlackMove());
+		long softLimitMillis = mTimeManager.getSoftLimitMillis();
+		long hardLimitMillis = mTimeManager.getHardLimitMillis();
+		int move;
+		try
+		{
+			move = takePonderMove(softLimitMillis, hardLimitMillis);
+			if (move == SearchEngine.NO_MOVE)
+			{
+				mSearch.getMainEngine().setTimeBudgetMillis(softLimitMillis, hardLimitMillis);
+				move = mSearch.search();
+				mLastCompletedDepth = mSearch.getMainEngine().getCompletedDepth();
+				mLastNodeCount = mSearch.getNodeCount();
+			}
+		}
+		finally
+		{
+			mTimeManager.endMove();
+		}
+		if (move == SearchEngine.NO_MOVE)
+			return null;
+
+		return toFakeMove(move);
+	}
+
+	/**
+	 * @param isPondering Whether to think on the other team's time, once
+	 * startPondering is called
+	 */
+	public void setPondering(boolean isPondering)
+	{
+		mIsPondering = isPondering;
+		if (!isPondering)
+			stopPondering();
+	}
+
+	public boolean isPondering()
+	{
+		return mIsPondering;
+	}
+
+	/**
+	 * Start searching the position after the reply the last search expected,
+	 * if pondering is on and the TranspositionTable has one. Call it once the
+	 * other team's turn has started. It returns right away.
+	 */
+	public synchronized void startPondering()
+	{
+		stopPondering();
+		if (!mIsPondering)
+			return;
+
+		long entry = mSearch.getTranspositionTable().probe(mGame.getZobristKey());
+		if (entry == TranspositionTable.MISS)
+			return;
+
+		// the copy is made now, while the Game is the position to ponder on
+		int expectedMove = TranspositionTable.getMove(entry);
+		Game ponderGame = mGame.copy();
+		if (!Ints.contains(ponderGame.getLegalMoves(), expectedMove) || !ponderGame.makeMove(expectedMove))
+			return;
+
+		final SearchEngine engine = new SearchEngine(ponderGame, mSearch.getTranspositionTable(), mSearch.getMainEngine()
+				.getEvaluatorFactory());
+		engine.setMaxDepth(mSearch.getMainEngine().getMaxDepth());
+		engine.setTimeBudgetMillis(PONDER_TIME_BUDGET_MILLIS);
+		mPonderKey = ponderGame.getZobristKey();
+		mPonderEngine = engine;
+		// the ParallelSearch doesn't clear the stop flag of the engine the
+		// way SearchEngine.search does, so stopping before the thread gets to
+		// it still stops it
+		mPonderResult = getPonderExecutor().submit(new Callable<Integer>()
+		{
+			@Override
+			public Integer call()
+			{
+				return mSearch.search(engine);
+			}
+		});
+	}
+
+	/**
+	 * Throw away the ponder search, if there is one, and wait for it to stop
+	 */
+	public synchronized void stopPondering()
+	{
+		if (mPonderResult == null)
+			return;
+
+		mPonderEngine.stop();
+		waitFor(mPonderResult);
+		mPonderEngine = null;
+		mPonderResult = null;
+	}
+
+	/**
+	 * Turn the ponder search into the search of the move, if the other team
+	 * played the reply it was started for, or throw it away
+	 *
+	 * @return The move the ponder search found, or SearchEngine.NO_MOVE if
+	 * there wasn't one to take
+	 */
+	private int takePonderMove(long softLimitMillis, long hardLimitMillis)
+	{
+		SearchEngine engine;
+		Future<Integer> result;
+		synchronized (this)
+		{
+			if (mPonderResult == null)
+				return SearchEngine.NO_MOVE;
+			if (mGame.getZobristKey() != mPonderKey)
+			{
+				mPonderMissCount++;
+				stopPondering();
+				return SearchEngine.NO_MOVE;
+			}
+
+			mPonderHitCount++;
+			engine = mPonderEngine;
+			result = mPonderResult;
+			mPonderEngine = null;
+			mPonderResult = null;
+		}
+
+		engine.restartClock(softLimitMillis, hardLimitMillis);
+		int move = waitFor(result);
+		mLastCompletedDepth = engine.getCompletedDepth();
+		mLastNodeCount = mSearch.getNodeCount();
+		return move;
+	}
+
+	private static int waitFor(Future<Integer> result)
+	{
+		try
+		{
+			return result.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return SearchEngine.NO_MOVE;
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private ExecutorService getPonderExecutor()
+	{
+		if (mPonderExecutor == null)
+		{
+			mPonderExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("ai-ponder-%d").setDaemon(true) //$NON-NLS-1$
+					.build());
+		}
+		return mPonderExecutor;
+	}
+
+	/**
+	 * @return The number of moves the other team played that were the reply
+	 * being pondered on
+	 */
+	public int getPonderHitCount()
+	{
+		return mPonderHitCount;
+	}
+
+	/**
+	 * @return The number of moves the other team played while pondering on
+	 * another reply
+	 */
+	public int getPonderMissCount()
+	{
+		return mPonderMissCount;
+	}
+
+	/**
+	 * @return The depth the search of the last move completed, pondering
+	 * included
+	 */
+	public int getLastCompletedDepth()
+	{
+		return mLastCompletedDepth;
+	}
+
+	/**
+	 * @return The number of positions the search of the last move searched,
+	 * pondering included
+	 */
+	public long getLastNodeCount()
+	{
+		return mLastNodeCount;
+	}
+
+	/**
+	 * @return The search, with the statistics of the last one, which may be
+	 * a ponder search that was thrown away
+	 */
+	public ParallelSearch getSearch()
+	{
+		return mSearch;
+	}
+
+	/**
+	 * @return The TimeManager deciding how long each move may take, with the
+	 * time the moves so far took
+	 */
+	public TimeManager getTimeManager()
+	{
+		return mTimeManager;
+	}
+
+	private FakeMove toFakeMove(int move)
+	{
+		Square origin = mGame.getGeometry().getSquare(PackedMove.getOrigin(move));
+		Square dest = mGame.getGeometry().getSquare(PackedMove.getDest(move));
+		Piece piece = origin.getPiece();
+
+		String promotionName = null;
+		int promotion = PackedMove.getPromotion(move);
+		if (promotion > 0)
+			promotionName = piece.getPromotesTo().get(promotion - 1);
+
+		// a FakeMove names the Board of its destination, as
+		// Game.fakeToRealMove reads it
+		int boardIndex = Arrays.asList(mGame.getBoards()).indexOf(dest.getBoard());
+		return new FakeMove(boardIndex, origin.getRow(), origin.getCol(), dest.getRow(), dest.getCol(), promotionName);
+	}
+
+	private static final long PONDER_TIME_BUDGET_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	private final Game mGame;
+	private final ParallelSearch mSearch;
+	private final TimeManager mTimeManager;
+	private volatile boolean mIsPondering;
+	private ExecutorService mPonderExecutor;
+	private SearchEngine mPonderEngine;
+	private Future<Integer> mPonderResult;
+	private long mPonderKey;
+	private int mPonderHitCount;
+	private int mPonderMissCount;
+	private int mLastCompletedDepth;
+	private long mLastNodeCount;
+}
@@ -0,0 +1,30 @@
+package ai;
+
+import models.Game;
+
+/**
+ * Scores positions for the SearchEngine. An Evaluator belongs to one Game,
+ * and may keep its score up to date as the Game changes, by listening to its
+ * Squares, instead of looking at every Piece at every node of the search.
+ */
+public interface Evaluator
+{
+	/**
+	 * Makes an Evaluator for each Game searched, including the copies the
+	 * helper threads of a ParallelSearch search
+	 */
+	public interface Factory
+	{
+		/**
+		 * @param game The Game to score the positions of
+		 * @return A new Evaluator
+		 */
+		public Evaluator newEvaluator(Game game);
+	}
+
+	/**
+	 * @return The score of the current position for the team to move, in
+	 * hundredths of a Pawn, positive if the team is ahead
+	 */
+	public int evaluate();
+}
@@ -8,7 +8,8 @@ import java.io.Serializable;
 public class FakeMove implements Serializable
 {
 	/**
-	 * @param boardIndex Which board in the board[]
+	 * @param boardIndex Which board in the board[] the destination is on; the
+	 * origin is on the board the rules of the moving team give for it
 	 * @param originRow Which row it was/is on
 	 * @param originColumn Which col it was/is on
 	 * @param destinationRow Which row it wants to be on
@@ -0,0 +1,324 @@
+package ai;
+
+import java.util.Arrays;
+import java.util.List;
+
+import logic.Result;
+import models.Board;
+import models.BoardGeometry;
+import models.Game;
+import models.PackedMove;
+import models.Piece;
+import models.Rules;
+import rules.EndOfGame;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A game between two AIPlugins with no GUI at all. Moves are made with
+ * Game.makeMove, which leaves the GUI, the timers and the history alone, so
+ * the EndOfGame rules aren't asked who won: they tell the GUI, and keep their
+ * counts in enum constants every Game shares. Instead the game keeps its own
+ * counts, and after every move applies the EndOfGame rules of both teams
+ * that aren't CLASSIC the way they would be applied, black's first. Then it
+ * ends the way the SearchEngine sees it: a team that has lost its objective
+ * piece, or has no legal moves while it's in check, has lost, and a team
+ * with no legal moves otherwise has drawn. A game that goes on too long is a
+ * draw too, and a plugin that comes up with a move that isn't legal, or
+ * throws, forfeits. An AlphaBetaPlugin with pondering on ponders while the
+ * other plugin thinks.
+ */
+public final class HeadlessGame
+{
+	/**
+	 * @param game The Game to play, from its current position
+	 * @param whitePlugin The plugin playing white
+	 * @param blackPlugin The plugin playing black
+	 * @param maxPlies The number of moves after which the game is a draw
+	 */
+	public HeadlessGame(Game game, AIPlugin whitePlugin, AIPlugin blackPlugin, int maxPlies)
+	{
+		Preconditions.checkArgument(game != null);
+		Preconditions.checkArgument(whitePlugin != null && blackPlugin != null);
+		Preconditions.checkArgument(maxPlies > 0);
+
+		mGame = game;
+		mGame.setIsPlayback(true);
+		mWhitePlugin = whitePlugin;
+		mBlackPlugin = blackPlugin;
+		mMaxPlies = maxPlies;
+		mThinkNanos = new long[2];
+		mNodeCounts = new long[2];
+		mMoveCounts = new int[2];
+
+		// the EndOfGame constants are shared, so read what they were set up
+		// with before another Game sets them up again
+		Rules[] rules = { game.getWhiteRules(), game.getBlackRules() };
+		mEndsOfGame = new EndOfGame[2];
+		mMaxNumbersOfChecks = new int[2];
+		mCaptureAllPieceNames = new String[2];
+		mNumbersOfChecks = new int[2];
+		for (int side = 0; side < 2; side++)
+		{
+			mEndsOfGame[side] = rules[side].getEndOfGame();
+			mMaxNumbersOfChecks[side] = mEndsOfGame[side].getMaxNumberOfChecks();
+			mCaptureAllPieceNames[side] = mEndsOfGame[side].getCaptureAllPieceName();
+		}
+	}
+
+	/**
+	 * Play the game to the end
+	 *
+	 * @return The Result of the game
+	 */
+	public Result play()
+	{
+		try
+		{
+			return playMoves();
+		}
+		finally
+		{
+			stopPondering(mWhitePlugin);
+			stopPondering(mBlackPlugin);
+		}
+	}
+
+	private Result playMoves()
+	{
+		AIAdapter adapter = new AIAdapter(mGame);
+		while (mPlyCount < mMaxPlies)
+		{
+			boolean isBlackMove = mGame.isBlackMove();
+			int[] legalMoves = mGame.getLegalMoves();
+			// the legal moves say whether the last move checked the team
+			// to move, the way Game.genLegalDests marks the last Move
+			if (mPlyCount > 0 && mIsLastMoveBlack != isBlackMove && isInCheck())
+				mNumbersOfChecks[mIsLastMoveBlack ? 1 : 0]++;
+			Result result = checkEndOfGame();
+			if (result != null)
+				return result;
+			if (isObjectiveCaptured())
+				return getWin(!isBlackMove);
+			if (legalMoves.length == 0)
+				return isInCheck() ? getWin(!isBlackMove) : Result.DRAW;
+
+			AIPlugin plugin = isBlackMove ? mBlackPlugin : mWhitePlugin;
+			int side = isBlackMove ? 1 : 0;
+			long start = System.nanoTime();
+			FakeMove fakeMove;
+			try
+			{
+				fakeMove = plugin.getMove(adapter.getBoards());
+			}
+			catch (RuntimeException e)
+			{
+				fakeMove = null;
+			}
+			mThinkNanos[side] += System.nanoTime() - start;
+			mMoveCounts[side]++;
+			if (plugin instanceof AlphaBetaPlugin)
+				mNodeCounts[side] += ((AlphaBetaPlugin) plugin).getLastNodeCount();
+
+			int move = findLegalMove(fakeMove, legalMoves);
+			if (move == SearchEngine.NO_MOVE)
+			{
+				mIsForfeit = true;
+				return getWin(!isBlackMove);
+			}
+			mGame.makeMove(move);
+			mIsLastMoveBlack = isBlackMove;
+			mPlyCount++;
+			if (plugin instanceof AlphaBetaPlugin)
+				((AlphaBetaPlugin) plugin).startPondering();
+		}
+		return Result.DRAW;
+	}
+
+	/**
+	 * Apply the EndOfGame rules of black and then white, the way
+	 * Game.playMove does, except for CLASSIC, which the SearchEngine's view
+	 * of the game covers
+	 *
+	 * @return The Result, or null if the game goes on
+	 */
+	private Result checkEndOfGame()
+	{
+		for (int side = 1; side >= 0; side--)
+		{
+			boolean isBlack = side == 1;
+			List<Piece> team = isBlack ? mGame.getBlackTeam() : mGame.getWhiteTeam();
+			List<Piece> otherTeam = isBlack ? mGame.getWhiteTeam() : mGame.getBlackTeam();
+			switch (mEndsOfGame[side])
+			{
+			case CHECK_N_TIMES:
+				if (mNumbersOfChecks[side] >= mMaxNumbersOfChecks[side])
+					return getWin(isBlack);
+				break;
+			case LOSE_ALL_PIECES:
+				if (isAllCaptured(otherTeam, null))
+					return getWin(isBlack);
+				break;
+			case CAPTURE_ALL_PIECES:
+				if (isAllCaptured(team, null))
+					return getWin(!isBlack);
+				break;
+			case CAPTURE_ALL_OF_TYPE:
+				if (isAllCaptured(otherTeam, mCaptureAllPieceNames[side]))
+					return getWin(isBlack);
+				break;
+			case CLASSIC:
+			default:
+				break;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param team The team to look at
+	 * @param name The name of the Pieces to look at, or null for all of them
+	 * @return Whether every one of the Pieces is captured
+	 */
+	private static boolean isAllCaptured(List<Piece> team, String name)
+	{
+		for (Piece piece : team)
+		{
+			if ((name == null || piece.getName().equals(name)) && !piece.isCaptured())
+				return false;
+		}
+		return true;
+	}
+
+	private static void stopPondering(AIPlugin plugin)
+	{
+		if (plugin instanceof AlphaBetaPlugin)
+			((AlphaBetaPlugin) plugin).stopPondering();
+	}
+
+	/**
+	 * @param fakeMove The move a plugin came up with, or null. Its board index
+	 * is the Board of the destination, and the origin is on the Board the
+	 * rules of the moving team give for it, as AIAdapter.playMove reads it.
+	 * @param legalMoves The legal moves, packed by PackedMove
+	 * @return The legal move from the origin to the destination the FakeMove
+	 * describes, or SearchEngine.NO_MOVE
+	 */
+	private int findLegalMove(FakeMove fakeMove, int[] legalMoves)
+	{
+		Board[] boards = mGame.getBoards();
+		if (fakeMove == null || fakeMove.mBoardIndex < 0 || fakeMove.mBoardIndex >= boards.length)
+			return SearchEngine.NO_MOVE;
+
+		Board destBoard = boards[fakeMove.mBoardIndex];
+		Board originBoard = (mGame.isBlackMove() ? mGame.getBlackRules() : mGame.getWhiteRules()).getBoard(destBoard);
+		if (!isOnBoard(originBoard, fakeMove.mOriginRow, fakeMove.mOriginColumn)
+				|| !isOnBoard(destBoard, fakeMove.mDestinationRow, fakeMove.mDestinationColumn))
+		{
+			return SearchEngine.NO_MOVE;
+		}
+
+		BoardGeometry geometry = mGame.getGeometry();
+		int origin = geometry.indexOf(Arrays.asList(boards).indexOf(originBoard), fakeMove.mOriginRow, fakeMove.mOriginColumn);
+		int dest = geometry.indexOf(fakeMove.mBoardIndex, fakeMove.mDestinationRow, fakeMove.mDestinationColumn);
+		Piece piece = originBoard.getSquare(fakeMove.mOriginRow, fakeMove.mOriginColumn).getPiece();
+		for (int move : legalMoves)
+		{
+			if (PackedMove.getOrigin(move) == origin && PackedMove.getDest(move) == dest
+					&& isPromotion(move, piece, fakeMove.mPromotionPieceName))
+			{
+				return move;
+			}
+		}
+		return SearchEngine.NO_MOVE;
+	}
+
+	private static boolean isOnBoard(Board board, int row, int col)
+	{
+		return row >= 1 && row <= board.getMaxRow() && col >= 1 && col <= board.getMaxCol();
+	}
+
+	private static boolean isPromotion(int move, Piece piece, String promotionName)
+	{
+		int promotion = PackedMove.getPromotion(move);
+		if (promotion == 0)
+			return true;
+		if (promotionName == null)
+			return promotion == 1;
+		return piece.getPromotesTo().get(promotion - 1).equals(promotionName);
+	}
+
+	private boolean isObjectiveCaptured()
+	{
+		Piece objective = mGame.getOtherObjectivePiece(!mGame.isBlackMove());
+		return objective != null && objective.isCaptured();
+	}
+
+	private boolean isInCheck()
+	{
+		Piece objective = mGame.getOtherObjectivePiece(!mGame.isBlackMove());
+		return objective != null && objective.isInCheck();
+	}
+
+	private static Result getWin(boolean isBlack)
+	{
+		return isBlack ? Result.BLACK_WIN : Result.WHITE_WIN;
+	}
+
+	/**
+	 * @return Whether the game ended because a plugin couldn't come up with a
+	 * legal move
+	 */
+	public boolean isForfeit()
+	{
+		return mIsForfeit;
+	}
+
+	public int getPlyCount()
+	{
+		return mPlyCount;
+	}
+
+	/**
+	 * @param isBlack Which team to ask about
+	 * @return The number of moves the team's plugin was asked for
+	 */
+	public int getMoveCount(boolean isBlack)
+	{
+		return mMoveCounts[isBlack ? 1 : 0];
+	}
+
+	/**
+	 * @param isBlack Which team to ask about
+	 * @return The time the team's plugin spent thinking, in nanoseconds
+	 */
+	public long getThinkNanos(boolean isBlack)
+	{
+		return mThinkNanos[isBlack ? 1 : 0];
+	}
+
+	/**
+	 * @param isBlack Which team to ask about
+	 * @return The number of positions the team's plugin searched, pondering
+	 * included, if it's an AlphaBetaPlugin, or 0
+	 */
+	public long getNodeCount(boolean isBlack)
+	{
+		return mNodeCounts[isBlack ? 1 : 0];
+	}
+
+	private final Game mGame;
+	private final AIPlugin mWhitePlugin;
+	private final AIPlugin mBlackPlugin;
+	private final int mMaxPlies;
+	private final long[] mThinkNanos;
+	private final long[] mNodeCounts;
+	private final int[] mMoveCounts;
+	private final EndOfGame[] mEndsOfGame;
+	private final int[] mMaxNumbersOfChecks;
+	private final String[] mCaptureAllPieceNames;
+	private final int[] mNumbersOfChecks;
+	private int mPlyCount;
+	private boolean mIsLastMoveBlack;
+	private boolean mIsForfeit;
+}
@@ -0,0 +1,270 @@
+package ai;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import models.Game;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A search on several threads at once, by Lazy SMP: every thread searches
+ * the same position with its own SearchEngine and its own copy of the Game,
+ * and they share one TranspositionTable. The helpers fill the table with
+ * results the main search then finds instead of searching them itself, and
+ * every other helper searches a ply deeper, so they don't all search the
+ * same thing at the same time. The move played is the one of the main
+ * search, which runs on the calling thread.
+ */
+public final class ParallelSearch
+{
+	/**
+	 * @param game The Game to search, which must not be changed by anybody
+	 * else while searching
+	 * @param threadCount The number of threads to search on, including the
+	 * calling thread
+	 */
+	public ParallelSearch(Game game, int threadCount)
+	{
+		this(game, threadCount, new TranspositionTable(DEFAULT_TABLE_SIZE_IN_MEGABYTES));
+	}
+
+	/**
+	 * @param game The Game to search, which must not be changed by anybody
+	 * else while searching
+	 * @param threadCount The number of threads to search on, including the
+	 * calling thread
+	 * @param table The transposition table every thread shares
+	 */
+	public ParallelSearch(Game game, int threadCount, TranspositionTable table)
+	{
+		this(game, threadCount, table, PieceSquareEvaluator.FACTORY);
+	}
+
+	/**
+	 * @param game The Game to search, which must not be changed by anybody
+	 * else while searching
+	 * @param threadCount The number of threads to search on, including the
+	 * calling thread
+	 * @param table The transposition table every thread shares
+	 * @param evaluatorFactory Makes an Evaluator for each thread
+	 */
+	public ParallelSearch(Game game, int threadCount, TranspositionTable table, Evaluator.Factory evaluatorFactory)
+	{
+		Preconditions.checkArgument(game != null);
+		Preconditions.checkArgument(threadCount > 0);
+
+		mThreadCount = threadCount;
+		mTable = table;
+		mMainEngine = new SearchEngine(game, table, evaluatorFactory);
+	}
+
+	/**
+	 * Search the current position on every thread, until the time budget runs
+	 * out or the main search reaches the maximum depth
+	 *
+	 * @return The best move found, as a PackedMove, or SearchEngine.NO_MOVE
+	 */
+	public int search()
+	{
+		return search(mMainEngine);
+	}
+
+	/**
+	 * Search the Game of another engine the way search does, with the
+	 * helpers searching copies of it. Pondering searches a copy of the Game
+	 * with the reply it expects played this way, from a thread of its own, so
+	 * the Game can change meanwhile. Stopping the engine, or restarting its
+	 * clock, stops the helpers or gives them more time with it, since they're
+	 * stopped once it's done. Only one search may run at a time.
+	 *
+	 * @param mainEngine The engine to search on the calling thread, sharing
+	 * the table of this search
+	 * @return The best move found, as a PackedMove, or SearchEngine.NO_MOVE
+	 */
+	int search(SearchEngine mainEngine)
+	{
+		Preconditions.checkArgument(mainEngine.getTranspositionTable() == mTable);
+
+		mTable.newSearch();
+		long start = System.nanoTime();
+
+		// the helpers search copies made now, since the Game changes from
+		// one search to the next
+		Game game = mainEngine.getGame();
+		List<SearchEngine> helpers = Lists.newArrayList();
+		List<Future<Integer>> results = Lists.newArrayList();
+		for (int i = 1; i < mThreadCount; i++)
+		{
+			final SearchEngine helper = new SearchEngine(game.copy(), mTable, mainEngine.getEvaluatorFactory());
+			helper.setTimeBudgetMillis(mainEngine.getSoftTimeBudgetMillis(), mainEngine.getTimeBudgetMillis());
+			helper.setMaxDepth(mainEngine.getMaxDepth());
+			helper.setDepthSkew(i % 2);
+			helpers.add(helper);
+		}
+		for (final SearchEngine helper : helpers)
+		{
+			results.add(getExecutor().submit(new Callable<Integer>()
+			{
+				@Override
+				public Integer call()
+				{
+					return helper.searchSharedTable();
+				}
+			}));
+		}
+
+		int move = mainEngine.searchSharedTable();
+
+		for (SearchEngine helper : helpers)
+			helper.stop();
+		for (int i = 0; i < results.size(); i++)
+			waitFor(results.get(i));
+
+		// every engine counts for itself, so the threads never write to the
+		// same counters
+		helpers.add(0, mainEngine);
+		mNodeCount = 0;
+		mProbeCount = 0;
+		mHitCount = 0;
+		mCollisionCount = 0;
+		for (SearchEngine engine : helpers)
+		{
+			mNodeCount += engine.getNodeCount();
+			mProbeCount += engine.getProbeCount();
+			mHitCount += engine.getHitCount();
+			mCollisionCount += engine.getCollisionCount();
+		}
+
+		mElapsedNanos = System.nanoTime() - start;
+		return move;
+	}
+
+	private static void waitFor(Future<Integer> result)
+	{
+		try
+		{
+			result.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private ExecutorService getExecutor()
+	{
+		if (mExecutor == null)
+		{
+			mExecutor = Executors.newFixedThreadPool(mThreadCount - 1,
+					new ThreadFactoryBuilder().setNameFormat("search-helper-%d").setDaemon(true).build()); //$NON-NLS-1$
+		}
+		return mExecutor;
+	}
+
+	/**
+	 * Stop the helper threads. The search can't be used after this.
+	 */
+	public void shutdown()
+	{
+		if (mExecutor != null)
+			mExecutor.shutdownNow();
+	}
+
+	/**
+	 * @return The engine of the main search, for its settings and for the
+	 * depth and score of the last search
+	 */
+	public SearchEngine getMainEngine()
+	{
+		return mMainEngine;
+	}
+
+	public int getThreadCount()
+	{
+		return mThreadCount;
+	}
+
+	public TranspositionTable getTranspositionTable()
+	{
+		return mTable;
+	}
+
+	/**
+	 * @return The number of positions looked at by the last search, on every
+	 * thread
+	 */
+	public long getNodeCount()
+	{
+		return mNodeCount;
+	}
+
+	/**
+	 * @return The number of transposition table lookups of the last search,
+	 * on every thread
+	 */
+	public long getProbeCount()
+	{
+		return mProbeCount;
+	}
+
+	/**
+	 * @return The number of lookups of the last search that found their
+	 * position, on every thread
+	 */
+	public long getHitCount()
+	{
+		return mHitCount;
+	}
+
+	/**
+	 * @return The share of lookups of the last search that found their
+	 * position, from 0 to 1
+	 */
+	public double getHitRate()
+	{
+		return (mProbeCount == 0) ? 0 : (double) mHitCount / mProbeCount;
+	}
+
+	/**
+	 * @return The number of stores of the last search that found another
+	 * position in the entry, on every thread
+	 */
+	public long getCollisionCount()
+	{
+		return mCollisionCount;
+	}
+
+	/**
+	 * @return The number of positions looked at per second by the last
+	 * search, on every thread
+	 */
+	public long getNodesPerSecond()
+	{
+		if (mElapsedNanos <= 0)
+			return 0;
+		return mNodeCount * 1000000000L / mElapsedNanos;
+	}
+
+	private static final int DEFAULT_TABLE_SIZE_IN_MEGABYTES = 64;
+
+	private final int mThreadCount;
+	private final TranspositionTable mTable;
+	private final SearchEngine mMainEngine;
+	private ExecutorService mExecutor;
+	private long mNodeCount;
+	private long mProbeCount;
+	private long mHitCount;
+	private long mCollisionCount;
+	private long mElapsedNanos;
+}
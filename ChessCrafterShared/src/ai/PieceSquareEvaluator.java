@@ -0,0 +1,156 @@
+package ai;
+
+import java.util.concurrent.ConcurrentMap;
+
+import logic.Messages;
+import models.Board;
+import models.BoardGeometry;
+import models.Game;
+import models.Piece;
+import models.Square;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+/**
+ * The Evaluator the SearchEngine uses unless told otherwise: material, from
+ * PieceValues, plus a bonus for where each Piece stands. Pawns are worth more
+ * the further they've come, objective pieces stand anywhere, and every other
+ * Piece is worth more the further it is from the edges of its Board, which
+ * gives it more room to move. The bonuses come from a table for each size of
+ * Board, so custom Boards get one as well.
+ *
+ * The score of every Square is kept, and updated as the Squares of the Game
+ * change, so evaluating a position is a lookup however the Game got there:
+ * by makeMove and unmakeMove, Move.execute, or the AfterMove rules.
+ */
+public final class PieceSquareEvaluator implements Evaluator, Game.SquareListener
+{
+	public static final Evaluator.Factory FACTORY = new Evaluator.Factory()
+	{
+		@Override
+		public Evaluator newEvaluator(Game game)
+		{
+			return new PieceSquareEvaluator(game);
+		}
+	};
+
+	/**
+	 * @param game The Game to score, which this listens to from now on
+	 */
+	public PieceSquareEvaluator(Game game)
+	{
+		Preconditions.checkArgument(game != null);
+
+		mGame = game;
+		mGeometry = game.getGeometry();
+		mSquareScores = new int[mGeometry.size()];
+		for (int index = 0; index < mSquareScores.length; index++)
+		{
+			mSquareScores[index] = getSquareScore(mGeometry.getSquare(index));
+			mScore += mSquareScores[index];
+		}
+		game.addSquareListener(this);
+	}
+
+	@Override
+	public int evaluate()
+	{
+		return mGame.isBlackMove() ? -mScore : mScore;
+	}
+
+	@Override
+	public void onSquareChanged(Square square)
+	{
+		int index = mGeometry.indexOf(square);
+		if (index < 0)
+			return;
+
+		int squareScore = getSquareScore(square);
+		mScore += squareScore - mSquareScores[index];
+		mSquareScores[index] = squareScore;
+	}
+
+	/**
+	 * @return The score of the current position for white, from every
+	 * Square, for checking the one kept up to date
+	 */
+	int getScoreFromScratch()
+	{
+		int score = 0;
+		for (int index = 0; index < mGeometry.size(); index++)
+			score += getSquareScore(mGeometry.getSquare(index));
+		return score;
+	}
+
+	/**
+	 * @return The score of the Piece on the Square, positive for white and
+	 * negative for black, or 0 if there isn't one
+	 */
+	private int getSquareScore(Square square)
+	{
+		Piece piece = square.getPiece();
+		if (piece == null)
+			return 0;
+
+		int score = PieceValues.getValue(piece) + getPositionBonus(piece, square);
+		return piece.isBlack() ? -score : score;
+	}
+
+	private int getPositionBonus(Piece piece, Square square)
+	{
+		Board board = square.getBoard();
+		if (piece.getName().equals(PAWN))
+		{
+			// Pawns start on the second row from their side
+			int advance = piece.isBlack() ? board.getMaxRow() - square.getRow() : square.getRow() - 1;
+			return Math.max(advance - 1, 0) * PAWN_ADVANCE_VALUE;
+		}
+
+		String objectiveName = (piece.isBlack() ? mGame.getBlackRules() : mGame.getWhiteRules()).getObjectiveName();
+		if (piece.getName().equals(objectiveName))
+			return 0;
+
+		return getCenterTable(board)[(square.getRow() - 1) * board.getMaxCol() + square.getCol() - 1];
+	}
+
+	/**
+	 * @param board The Board to get the table for
+	 * @return The bonus for standing on each Square of a Board of its size,
+	 * by (row - 1) * columns + (col - 1)
+	 */
+	private static int[] getCenterTable(Board board)
+	{
+		String key = board.getMaxRow() + "x" + board.getMaxCol() + (board.isWrapAround() ? "w" : ""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		int[] table = sCenterTables.get(key);
+		if (table == null)
+		{
+			table = new int[board.getMaxRow() * board.getMaxCol()];
+			for (int row = 1; row <= board.getMaxRow(); row++)
+			{
+				for (int col = 1; col <= board.getMaxCol(); col++)
+				{
+					int rowSteps = Math.min(Math.min(row - 1, board.getMaxRow() - row), MAX_CENTER_STEPS);
+					// the columns of a wraparound Board have no edges
+					int colSteps = board.isWrapAround() ? MAX_CENTER_STEPS : Math.min(Math.min(col - 1, board.getMaxCol() - col),
+							MAX_CENTER_STEPS);
+					table[(row - 1) * board.getMaxCol() + col - 1] = (rowSteps + colSteps) * CENTER_STEP_VALUE;
+				}
+			}
+			sCenterTables.putIfAbsent(key, table);
+		}
+		return table;
+	}
+
+	private static final String PAWN = Messages.getString("pawn"); //$NON-NLS-1$
+	private static final int PAWN_ADVANCE_VALUE = 8;
+	private static final int CENTER_STEP_VALUE = 4;
+	private static final int MAX_CENTER_STEPS = 3;
+
+	private static final ConcurrentMap<String, int[]> sCenterTables = Maps.newConcurrentMap();
+
+	private final Game mGame;
+	private final BoardGeometry mGeometry;
+	private final int[] mSquareScores;
+	private int mScore;
+}
@@ -0,0 +1,80 @@
+package ai;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import logic.AttackTable;
+import logic.Messages;
+import models.Board;
+import models.Piece;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * What Pieces are worth, in hundredths of a Pawn. The classic Pieces have
+ * their usual values. A Piece made up for a custom variant is valued by its
+ * mobility instead: the average number of Squares it reaches from each
+ * Square of an empty Board of its size. The line through the Knight and the
+ * Queen gives a Bishop and a Rook somewhat more than their classic values,
+ * which is close enough for Pieces nobody has played before.
+ */
+public final class PieceValues
+{
+	private PieceValues()
+	{
+	}
+
+	/**
+	 * @param piece The Piece to value
+	 * @return The value of the Piece
+	 */
+	public static int getValue(Piece piece)
+	{
+		Integer value = CLASSIC_VALUES.get(piece.getName());
+		if (value != null)
+			return value;
+
+		AttackTable table = piece.getAttackTable(piece.getBoard());
+		value = sMobilityValues.get(table);
+		if (value == null)
+		{
+			value = getMobilityValue(table, piece.getBoard());
+			sMobilityValues.putIfAbsent(table, value);
+		}
+		return value;
+	}
+
+	/**
+	 * @param table The moves of a piece type on the Board
+	 * @param board A Board of the size the table was compiled for
+	 * @return The value of the piece type, from its mobility
+	 */
+	static int getMobilityValue(AttackTable table, Board board)
+	{
+		int squareCount = board.getMaxRow() * board.getMaxCol();
+		long reached = 0;
+		for (int i = 0; i < squareCount; i++)
+			reached += table.getRaySquares(i).length + table.getLeapSquares(i).length;
+
+		return (int) Math.round(MOBILITY_BASE_VALUE + MOBILITY_VALUE * reached / squareCount);
+	}
+
+	private static final Map<String, Integer> CLASSIC_VALUES = ImmutableMap.<String, Integer> builder()
+			.put(Messages.getString("pawn"), 100) //$NON-NLS-1$
+			.put(Messages.getString("knight"), 320) //$NON-NLS-1$
+			.put(Messages.getString("bishop"), 330) //$NON-NLS-1$
+			.put(Messages.getString("rook"), 500) //$NON-NLS-1$
+			.put(Messages.getString("queen"), 900) //$NON-NLS-1$
+			.put(Messages.getString("king"), 0) //$NON-NLS-1$
+			.build();
+
+	// a Knight reaches 5.25 Squares of an empty 8x8 Board on average, and a
+	// Queen 22.75
+	private static final double MOBILITY_VALUE = 33.1;
+	private static final double MOBILITY_BASE_VALUE = 146;
+
+	// tables are shared by every Piece with the same moves on the same size
+	// of Board, so they make good keys
+	private static final ConcurrentMap<AttackTable, Integer> sMobilityValues = Maps.newConcurrentMap();
+}
@@ -0,0 +1,673 @@
+package ai;
+
+import models.BoardGeometry;
+import models.Game;
+import models.PackedMove;
+import models.Piece;
+import models.Square;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A built-in search for the best move in a Game: iterative deepening negamax
+ * with alpha-beta pruning, and a quiescence search on captures at the end of
+ * every line. Moves are tried in the order most likely to cut off the
+ * search: the best move of the previous iteration first, then captures by
+ * most valuable victim and least valuable attacker, then the killer moves of
+ * the ply, then the rest by their history score.
+ *
+ * Moves are generated with Game.getLegalMoves and made with Game.makeMove,
+ * so every variant the rules support can be searched, whatever its Pieces
+ * and Boards. The Game is left as it was. Positions already searched are
+ * looked up by their Zobrist key in a TranspositionTable, and the positions
+ * at the end of each line are scored by an Evaluator.
+ */
+public final class SearchEngine
+{
+	/**
+	 * @param game The Game to search, which must not be changed by anybody
+	 * else while searching
+	 */
+	public SearchEngine(Game game)
+	{
+		this(game, new TranspositionTable(DEFAULT_TABLE_SIZE_IN_MEGABYTES));
+	}
+
+	/**
+	 * @param game The Game to search, which must not be changed by anybody
+	 * else while searching
+	 * @param table The transposition table to use, which may be shared with
+	 * other engines
+	 */
+	public SearchEngine(Game game, TranspositionTable table)
+	{
+		this(game, table, PieceSquareEvaluator.FACTORY);
+	}
+
+	/**
+	 * @param game The Game to search, which must not be changed by anybody
+	 * else while searching
+	 * @param table The transposition table to use, which may be shared with
+	 * other engines
+	 * @param evaluatorFactory Makes the Evaluator to score positions with
+	 */
+	public SearchEngine(Game game, TranspositionTable table, Evaluator.Factory evaluatorFactory)
+	{
+		Preconditions.checkArgument(game != null);
+		Preconditions.checkArgument(table != null);
+		Preconditions.checkArgument(evaluatorFactory != null);
+
+		mGame = game;
+		// the Piece types may have been reset since the Game was built, and
+		// promoting while searching mustn't read them from disk
+		game.loadPromotionTypes();
+		mTable = table;
+		mEvaluatorFactory = evaluatorFactory;
+		mEvaluator = evaluatorFactory.newEvaluator(game);
+		mMaxDepth = DEFAULT_MAX_DEPTH;
+		mSoftTimeBudgetMillis = DEFAULT_TIME_BUDGET_MILLIS;
+		mTimeBudgetMillis = DEFAULT_TIME_BUDGET_MILLIS;
+	}
+
+	/**
+	 * Search the current position until the time budget runs out, the
+	 * maximum depth is reached or the thread is interrupted
+	 *
+	 * @return The best move found, as a PackedMove, or NO_MOVE if the team to
+	 * move has no legal moves
+	 */
+	public int search()
+	{
+		mIsStopped = false;
+		mTable.newSearch();
+		return searchSharedTable();
+	}
+
+	/**
+	 * Search without starting a new search in the transposition table, for
+	 * the helpers of a ParallelSearch, which share the table of the main
+	 * search
+	 *
+	 * @return The best move found, or NO_MOVE
+	 */
+	int searchSharedTable()
+	{
+		BoardGeometry geometry = mGame.getGeometry();
+		mHistory = new int[geometry.size() * geometry.size()];
+		mKillers = new int[MAX_PLY][2];
+		mNodeCount = 0;
+		mProbeCount = 0;
+		mHitCount = 0;
+		mCollisionCount = 0;
+		mIsAborted = false;
+		mCompletedDepth = 0;
+		mStartNanos = System.nanoTime();
+		mSoftDeadlineNanos = mStartNanos + mSoftTimeBudgetMillis * 1000000L;
+		mDeadlineNanos = mStartNanos + mTimeBudgetMillis * 1000000L;
+
+		int[] rootMoves = mGame.getLegalMoves();
+		int bestMove = (rootMoves.length == 0) ? NO_MOVE : rootMoves[0];
+		mScore = 0;
+		for (int depth = 1; depth <= mMaxDepth && rootMoves.length > 0; depth++)
+		{
+			int searchDepth = Math.min(depth + mDepthSkew, mMaxDepth);
+			orderMoves(rootMoves, 0, bestMove);
+			int iterationMove = NO_MOVE;
+			int alpha = -INFINITY;
+			for (int move : rootMoves)
+			{
+				int score = searchMove(move, searchDepth, 0, alpha, INFINITY);
+				if (mIsAborted)
+					break;
+				if (score > alpha)
+				{
+					alpha = score;
+					iterationMove = move;
+				}
+			}
+
+			// a move searched completely in an unfinished iteration is still
+			// better than the best move of the last one, since that was
+			// searched first
+			if (iterationMove != NO_MOVE)
+			{
+				bestMove = iterationMove;
+				mScore = alpha;
+			}
+			if (mIsAborted)
+				break;
+
+			mCompletedDepth = searchDepth;
+			if (Math.abs(alpha) >= MATE - MAX_PLY || searchDepth == mMaxDepth)
+				break;
+
+			// the next iteration would most likely be cut off before it's done
+			if (System.nanoTime() >= mSoftDeadlineNanos)
+				break;
+		}
+
+		mElapsedNanos = System.nanoTime() - mStartNanos;
+		return bestMove;
+	}
+
+	/**
+	 * Make a move, search the position after it, and take it back
+	 *
+	 * @return The score of the move for the team making it
+	 */
+	private int searchMove(int move, int depth, int ply, int alpha, int beta)
+	{
+		boolean wasBlackMove = mGame.isBlackMove();
+		mGame.makeMove(move);
+		int score;
+		// some variants give a team more than one move in a row
+		if (mGame.isBlackMove() == wasBlackMove)
+			score = negamax(depth - 1, ply + 1, alpha, beta);
+		else
+			score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+		mGame.unmakeMove();
+		return score;
+	}
+
+	private int negamax(int depth, int ply, int alpha, int beta)
+	{
+		if (depth <= 0 || ply >= MAX_PLY - 1)
+			return quiesce(ply, alpha, beta, 0);
+
+		if (countNode())
+			return 0;
+
+		// the key holds the state of the turn, so the same Pieces at another
+		// point of a turn of several moves don't share an entry
+		long key = mGame.getZobristKey();
+		long entry = mTable.probe(key);
+		mProbeCount++;
+		int tableMove = NO_MOVE;
+		if (entry != TranspositionTable.MISS)
+		{
+			mHitCount++;
+			tableMove = TranspositionTable.getMove(entry);
+			if (TranspositionTable.getDepth(entry) >= depth)
+			{
+				int score = fromTable(TranspositionTable.getScore(entry), ply);
+				int bound = TranspositionTable.getBound(entry);
+				if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+						|| (bound == TranspositionTable.UPPER_BOUND && score <= alpha))
+				{
+					return score;
+				}
+			}
+		}
+
+		int[] moves = mGame.getLegalMoves();
+		if (moves.length == 0 || isObjectiveCaptured())
+			return getEndScore(ply);
+
+		// a move from the table is only tried first if it's legal here, so a
+		// key collision can't play a wrong move
+		orderMoves(moves, ply, tableMove);
+		int originalAlpha = alpha;
+		int bestScore = -INFINITY;
+		int bestMove = NO_MOVE;
+		for (int move : moves)
+		{
+			int score = searchMove(move, depth, ply, alpha, beta);
+			if (mIsAborted)
+				return 0;
+
+			if (score > bestScore)
+			{
+				bestScore = score;
+				bestMove = move;
+			}
+			if (score > alpha)
+				alpha = score;
+			if (alpha >= beta)
+			{
+				if (!isCapture(move))
+					rememberCutoff(move, depth, ply);
+				break;
+			}
+		}
+
+		int bound = TranspositionTable.EXACT;
+		if (bestScore <= originalAlpha)
+			bound = TranspositionTable.UPPER_BOUND;
+		else if (bestScore >= beta)
+			bound = TranspositionTable.LOWER_BOUND;
+		if (mTable.store(key, bestMove, toTable(bestScore, ply), depth, bound))
+			mCollisionCount++;
+		return bestScore;
+	}
+
+	/**
+	 * Mate scores count plies from the root, but the table is shared by
+	 * every path to a position, so they're stored counting from the
+	 * position itself
+	 */
+	private static int toTable(int score, int ply)
+	{
+		if (isMateScore(score))
+			return (score > 0) ? score + ply : score - ply;
+		return score;
+	}
+
+	private static int fromTable(int score, int ply)
+	{
+		if (isMateScore(score))
+			return (score > 0) ? score - ply : score + ply;
+		return score;
+	}
+
+	/**
+	 * Search only captures, until the position is quiet, so the search
+	 * doesn't stop in the middle of an exchange. The team to move may also
+	 * stand pat on the evaluation, unless it's in check.
+	 */
+	private int quiesce(int ply, int alpha, int beta, int quiescenceDepth)
+	{
+		if (countNode())
+			return 0;
+
+		int[] moves = mGame.getLegalMoves();
+		if (moves.length == 0 || isObjectiveCaptured())
+			return getEndScore(ply);
+
+		if (quiescenceDepth >= MAX_QUIESCENCE_DEPTH || ply >= MAX_PLY - 1)
+			return mEvaluator.evaluate();
+
+		boolean isInCheck = isInCheck();
+		int bestScore = -INFINITY;
+		if (!isInCheck)
+		{
+			bestScore = mEvaluator.evaluate();
+			if (bestScore >= beta)
+				return bestScore;
+			if (bestScore > alpha)
+				alpha = bestScore;
+		}
+
+		orderMoves(moves, ply, NO_MOVE);
+		for (int move : moves)
+		{
+			if (!isInCheck && !isCapture(move))
+				continue;
+
+			boolean wasBlackMove = mGame.isBlackMove();
+			mGame.makeMove(move);
+			int score;
+			if (mGame.isBlackMove() == wasBlackMove)
+				score = quiesce(ply + 1, alpha, beta, quiescenceDepth + 1);
+			else
+				score = -quiesce(ply + 1, -beta, -alpha, quiescenceDepth + 1);
+			mGame.unmakeMove();
+			if (mIsAborted)
+				return 0;
+
+			if (score > bestScore)
+				bestScore = score;
+			if (score > alpha)
+				alpha = score;
+			if (alpha >= beta)
+				break;
+		}
+		return bestScore;
+	}
+
+	/**
+	 * Count a node, and check the clock every so often
+	 *
+	 * @return True if the search is out of time
+	 */
+	private boolean countNode()
+	{
+		mNodeCount++;
+		if (mIsStopped
+				|| ((mNodeCount & CLOCK_CHECK_MASK) == 0 && (System.nanoTime() >= mDeadlineNanos || Thread.currentThread().isInterrupted())))
+			mIsAborted = true;
+		return mIsAborted;
+	}
+
+	/**
+	 * Stop the search running on another thread as soon as possible. It
+	 * returns the best move found so far.
+	 */
+	public void stop()
+	{
+		mIsStopped = true;
+	}
+
+	/**
+	 * Make every iteration search deeper than its number, so helpers of a
+	 * ParallelSearch don't all search the same depth at the same time
+	 *
+	 * @param depthSkew The number of plies to add
+	 */
+	void setDepthSkew(int depthSkew)
+	{
+		mDepthSkew = depthSkew;
+	}
+
+	/**
+	 * @return The score of a position where the team to move has no legal
+	 * moves, or has lost its objective piece
+	 */
+	private int getEndScore(int ply)
+	{
+		// mates closer to the root are better for the winner
+		if (isObjectiveCaptured() || isInCheck())
+			return -MATE + ply;
+		return 0;
+	}
+
+	private Piece getMovingObjectivePiece()
+	{
+		return mGame.getOtherObjectivePiece(!mGame.isBlackMove());
+	}
+
+	private boolean isObjectiveCaptured()
+	{
+		Piece objective = getMovingObjectivePiece();
+		return objective != null && objective.isCaptured();
+	}
+
+	private boolean isInCheck()
+	{
+		Piece objective = getMovingObjectivePiece();
+		return objective != null && !objective.isCaptured() && objective.isInCheck();
+	}
+
+	private boolean isCapture(int move)
+	{
+		Piece captured = getSquare(PackedMove.getDest(move)).getPiece();
+		return captured != null && captured.isBlack() != mGame.isBlackMove();
+	}
+
+	private Square getSquare(int index)
+	{
+		return mGame.getGeometry().getSquare(index);
+	}
+
+	/**
+	 * Sort the moves by how likely they are to cut off the search, best first
+	 *
+	 * @param moves The moves to sort
+	 * @param ply The distance from the root
+	 * @param firstMove A move to try before all others, or NO_MOVE
+	 */
+	private void orderMoves(int[] moves, int ply, int firstMove)
+	{
+		int[] scores = new int[moves.length];
+		for (int i = 0; i < moves.length; i++)
+			scores[i] = getOrderScore(moves[i], ply, firstMove);
+
+		// insertion sort, since move lists are short
+		for (int i = 1; i < moves.length; i++)
+		{
+			int move = moves[i];
+			int score = scores[i];
+			int j = i - 1;
+			for (; j >= 0 && scores[j] < score; j--)
+			{
+				moves[j + 1] = moves[j];
+				scores[j + 1] = scores[j];
+			}
+			moves[j + 1] = move;
+			scores[j + 1] = score;
+		}
+	}
+
+	private int getOrderScore(int move, int ply, int firstMove)
+	{
+		if (move == firstMove)
+			return FIRST_MOVE_SCORE;
+
+		Piece captured = getSquare(PackedMove.getDest(move)).getPiece();
+		if (captured != null && captured.isBlack() != mGame.isBlackMove())
+		{
+			Piece attacker = getSquare(PackedMove.getOrigin(move)).getPiece();
+			return CAPTURE_SCORE + PieceValues.getValue(captured) * 16 - PieceValues.getValue(attacker) / 16;
+		}
+
+		if (move == mKillers[ply][0])
+			return KILLER_SCORE;
+		if (move == mKillers[ply][1])
+			return KILLER_SCORE - 1;
+
+		return Math.min(mHistory[getHistoryIndex(move)], KILLER_SCORE - 2);
+	}
+
+	/**
+	 * Remember a quiet move that cut off the search, for the other moves at
+	 * the same ply, and for the same move anywhere in the tree
+	 */
+	private void rememberCutoff(int move, int depth, int ply)
+	{
+		if (mKillers[ply][0] != move)
+		{
+			mKillers[ply][1] = mKillers[ply][0];
+			mKillers[ply][0] = move;
+		}
+
+		int index = getHistoryIndex(move);
+		mHistory[index] += depth * depth;
+		// keep the history scores below the killers
+		if (mHistory[index] >= KILLER_SCORE - 2)
+		{
+			for (int i = 0; i < mHistory.length; i++)
+				mHistory[i] /= 2;
+		}
+	}
+
+	private int getHistoryIndex(int move)
+	{
+		return PackedMove.getOrigin(move) * mGame.getGeometry().size() + PackedMove.getDest(move);
+	}
+
+	/**
+	 * @param timeBudgetMillis How long a search may take, in milliseconds
+	 */
+	public void setTimeBudgetMillis(long timeBudgetMillis)
+	{
+		setTimeBudgetMillis(timeBudgetMillis, timeBudgetMillis);
+	}
+
+	/**
+	 * @param softTimeBudgetMillis How long the search may go on starting new
+	 * iterations, in milliseconds
+	 * @param timeBudgetMillis How long a search may take, in milliseconds,
+	 * after which the iteration being searched is cut off
+	 */
+	public void setTimeBudgetMillis(long softTimeBudgetMillis, long timeBudgetMillis)
+	{
+		Preconditions.checkArgument(softTimeBudgetMillis > 0 && softTimeBudgetMillis <= timeBudgetMillis);
+		mSoftTimeBudgetMillis = softTimeBudgetMillis;
+		mTimeBudgetMillis = timeBudgetMillis;
+	}
+
+	/**
+	 * Give the search running on another thread a new time budget, counted
+	 * from now instead of from when it started. This turns a search started
+	 * while pondering into the search of the move to play.
+	 *
+	 * @param softTimeBudgetMillis How long the search may go on starting new
+	 * iterations, from now, in milliseconds
+	 * @param timeBudgetMillis How long the search may take, from now, in
+	 * milliseconds
+	 */
+	public void restartClock(long softTimeBudgetMillis, long timeBudgetMillis)
+	{
+		setTimeBudgetMillis(softTimeBudgetMillis, timeBudgetMillis);
+		long now = System.nanoTime();
+		mSoftDeadlineNanos = now + softTimeBudgetMillis * 1000000L;
+		mDeadlineNanos = now + timeBudgetMillis * 1000000L;
+	}
+
+	public long getSoftTimeBudgetMillis()
+	{
+		return mSoftTimeBudgetMillis;
+	}
+
+	public long getTimeBudgetMillis()
+	{
+		return mTimeBudgetMillis;
+	}
+
+	/**
+	 * @param maxDepth The deepest iteration to search, in plies
+	 */
+	public void setMaxDepth(int maxDepth)
+	{
+		Preconditions.checkArgument(maxDepth > 0 && maxDepth < MAX_PLY);
+		mMaxDepth = maxDepth;
+	}
+
+	public int getMaxDepth()
+	{
+		return mMaxDepth;
+	}
+
+	/**
+	 * @return What made the Evaluator, for engines searching copies of the
+	 * Game
+	 */
+	public Evaluator.Factory getEvaluatorFactory()
+	{
+		return mEvaluatorFactory;
+	}
+
+	/**
+	 * @return The transposition table, which may be shared with other
+	 * engines
+	 */
+	public TranspositionTable getTranspositionTable()
+	{
+		return mTable;
+	}
+
+	/**
+	 * @return The Game this searches
+	 */
+	Game getGame()
+	{
+		return mGame;
+	}
+
+	/**
+	 * @return The number of positions looked at by the last search
+	 */
+	public long getNodeCount()
+	{
+		return mNodeCount;
+	}
+
+	/**
+	 * @return The number of positions the last search looked up in the
+	 * transposition table
+	 */
+	public long getProbeCount()
+	{
+		return mProbeCount;
+	}
+
+	/**
+	 * @return The number of lookups of the last search that found their
+	 * position
+	 */
+	public long getHitCount()
+	{
+		return mHitCount;
+	}
+
+	/**
+	 * @return The number of stores of the last search that found another
+	 * position in the entry
+	 */
+	public long getCollisionCount()
+	{
+		return mCollisionCount;
+	}
+
+	/**
+	 * @return The number of positions looked at per second by the last search
+	 */
+	public long getNodesPerSecond()
+	{
+		if (mElapsedNanos <= 0)
+			return 0;
+		return mNodeCount * 1000000000L / mElapsedNanos;
+	}
+
+	/**
+	 * @return How long the last search took, in milliseconds
+	 */
+	public long getElapsedMillis()
+	{
+		return mElapsedNanos / 1000000L;
+	}
+
+	/**
+	 * @return The deepest iteration the last search finished
+	 */
+	public int getCompletedDepth()
+	{
+		return mCompletedDepth;
+	}
+
+	/**
+	 * @return The score of the best move found by the last search, for the
+	 * team that was to move, in hundredths of a Pawn
+	 */
+	public int getScore()
+	{
+		return mScore;
+	}
+
+	/**
+	 * @param score A score returned by getScore
+	 * @return If the score is a forced win or loss
+	 */
+	public static boolean isMateScore(int score)
+	{
+		return Math.abs(score) >= MATE - MAX_PLY;
+	}
+
+	public static final int NO_MOVE = -1;
+
+	private static final int MATE = 1000000;
+	private static final int INFINITY = MATE + 1;
+	private static final int MAX_PLY = 64;
+	private static final int MAX_QUIESCENCE_DEPTH = 8;
+	private static final int CLOCK_CHECK_MASK = 1023;
+	private static final int DEFAULT_MAX_DEPTH = 32;
+	private static final long DEFAULT_TIME_BUDGET_MILLIS = 5000L;
+	private static final int DEFAULT_TABLE_SIZE_IN_MEGABYTES = 16;
+
+	private static final int FIRST_MOVE_SCORE = Integer.MAX_VALUE;
+	private static final int CAPTURE_SCORE = 1 << 28;
+	private static final int KILLER_SCORE = 1 << 24;
+
+	private final Game mGame;
+	private final TranspositionTable mTable;
+	private final Evaluator.Factory mEvaluatorFactory;
+	private final Evaluator mEvaluator;
+	private int mMaxDepth;
+	private volatile long mSoftTimeBudgetMillis;
+	private volatile long mTimeBudgetMillis;
+
+	private int[] mHistory;
+	private int[][] mKillers;
+	private long mNodeCount;
+	private long mProbeCount;
+	private long mHitCount;
+	private long mCollisionCount;
+	private boolean mIsAborted;
+	private volatile boolean mIsStopped;
+	private int mDepthSkew;
+	private int mCompletedDepth;
+	private int mScore;
+	private long mStartNanos;
+	private volatile long mSoftDeadlineNanos;
+	private volatile long mDeadlineNanos;
+	private long mElapsedNanos;
+}
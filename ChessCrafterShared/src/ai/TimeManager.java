@@ -0,0 +1,171 @@
+package ai;
+
+import models.Game;
+import timer.ChessTimer;
+import timer.TimerTypes;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Decides how long the AI may think about each move, from the ChessTimer of
+ * the team it's playing. The soft limit is the time to plan on: the time left
+ * spread over the moves still to come, plus most of what the timer gives back
+ * on every move. The SearchEngine starts no new iteration after it. The hard
+ * limit is the most the move may take, so the AI never flags: a few times the
+ * soft limit, but never more than a share of the time left. Without a timer,
+ * every move gets the default budget.
+ *
+ * It also keeps track of the time each move really took.
+ */
+public final class TimeManager
+{
+	/**
+	 * @param game The Game whose timers to read
+	 * @param defaultBudgetMillis How long to think about each move when
+	 * there's no timer, in milliseconds
+	 */
+	public TimeManager(Game game, long defaultBudgetMillis)
+	{
+		Preconditions.checkArgument(game != null);
+		Preconditions.checkArgument(defaultBudgetMillis > 0);
+
+		mGame = game;
+		mDefaultBudgetMillis = defaultBudgetMillis;
+		mSoftLimitMillis = defaultBudgetMillis;
+		mHardLimitMillis = defaultBudgetMillis;
+	}
+
+	/**
+	 * Work out the limits of the move about to be searched, and start timing
+	 * it
+	 *
+	 * @param isBlack Whether the move is black's
+	 */
+	public void startMove(boolean isBlack)
+	{
+		ChessTimer timer = isBlack ? mGame.getBlackTimer() : mGame.getWhiteTimer();
+		TimerTypes type = timer == null ? TimerTypes.NO_TIMER : timer.getType();
+		long remaining = timer == null ? 0 : timer.getRawTime();
+		long soft;
+		long hard;
+		switch (type)
+		{
+		case FISCHER:
+		case FISCHER_AFTER:
+			// the increment comes back after the move, so spending a little
+			// less than all of it keeps the clock from running down
+			soft = remaining / MOVES_TO_GO + timer.getIncrementAmount() * 3 / 4;
+			hard = remaining / MAX_SHARE_OF_REMAINING + timer.getIncrementAmount();
+			break;
+		case BRONSTEIN_DELAY:
+		case SIMPLE_DELAY:
+			// time spent within the delay isn't taken off the clock
+			soft = remaining / MOVES_TO_GO + timer.getIncrementAmount();
+			hard = remaining / MAX_SHARE_OF_REMAINING + timer.getIncrementAmount();
+			break;
+		case HOUR_GLASS:
+			// the time used goes to the other team as well
+			soft = remaining / MOVES_TO_GO;
+			hard = remaining / MAX_SHARE_OF_REMAINING;
+			break;
+		case WORD:
+			// once the word time is gone, the clock only counts the time over
+			if (remaining <= 0 || timer.getClockDirection() < 0)
+			{
+				setDefaultLimits();
+				return;
+			}
+			soft = remaining / MOVES_TO_GO;
+			hard = remaining / MAX_SHARE_OF_REMAINING;
+			break;
+		default:
+			setDefaultLimits();
+			return;
+		}
+
+		hard = Math.min(soft * HARD_TO_SOFT_RATIO, hard) - SAFETY_MARGIN_MILLIS;
+		mHardLimitMillis = Math.max(hard, MIN_LIMIT_MILLIS);
+		mSoftLimitMillis = Math.max(Math.min(soft, mHardLimitMillis), MIN_LIMIT_MILLIS);
+		mMoveStartNanos = System.nanoTime();
+	}
+
+	private void setDefaultLimits()
+	{
+		mSoftLimitMillis = mDefaultBudgetMillis;
+		mHardLimitMillis = mDefaultBudgetMillis;
+		mMoveStartNanos = System.nanoTime();
+	}
+
+	/**
+	 * Stop timing the move started last, and add it to the telemetry
+	 */
+	public void endMove()
+	{
+		long millis = (System.nanoTime() - mMoveStartNanos) / 1000000L;
+		mLastMoveMillis = millis;
+		mMaxMoveMillis = Math.max(mMaxMoveMillis, millis);
+		mTotalMillis += millis;
+		mMoveCount++;
+	}
+
+	/**
+	 * @return The time the SearchEngine should plan on for the move started
+	 * last, in milliseconds
+	 */
+	public long getSoftLimitMillis()
+	{
+		return mSoftLimitMillis;
+	}
+
+	/**
+	 * @return The most time the move started last may take, in milliseconds
+	 */
+	public long getHardLimitMillis()
+	{
+		return mHardLimitMillis;
+	}
+
+	public int getMoveCount()
+	{
+		return mMoveCount;
+	}
+
+	/**
+	 * @return The time every move took together, in milliseconds
+	 */
+	public long getTotalMillis()
+	{
+		return mTotalMillis;
+	}
+
+	public long getLastMoveMillis()
+	{
+		return mLastMoveMillis;
+	}
+
+	public long getMaxMoveMillis()
+	{
+		return mMaxMoveMillis;
+	}
+
+	public long getAverageMoveMillis()
+	{
+		return mMoveCount == 0 ? 0 : mTotalMillis / mMoveCount;
+	}
+
+	private static final int MOVES_TO_GO = 30;
+	private static final int MAX_SHARE_OF_REMAINING = 5;
+	private static final int HARD_TO_SOFT_RATIO = 4;
+	private static final long SAFETY_MARGIN_MILLIS = 50;
+	private static final long MIN_LIMIT_MILLIS = 10;
+
+	private final Game mGame;
+	private final long mDefaultBudgetMillis;
+	private long mSoftLimitMillis;
+	private long mHardLimitMillis;
+	private long mMoveStartNanos;
+	private int mMoveCount;
+	private long mTotalMillis;
+	private long mLastMoveMillis;
+	private long mMaxMoveMillis;
+}
@@ -0,0 +1,609 @@
+package ai;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import logic.GameBuilder;
+import logic.Messages;
+import logic.Result;
+import models.Game;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Plays AIPlugins against each other without a GUI, many games at once, and
+ * reports how each one did: wins, draws and losses, an Elo estimate, and how
+ * fast and how long it thought. Every game is a HeadlessGame on a Game of its
+ * own, with new plugins, so plugins that keep state between moves can't see
+ * each other's games.
+ */
+public final class TournamentRunner
+{
+	/**
+	 * Makes the plugin an entrant plays each game with
+	 */
+	public interface PluginFactory
+	{
+		/**
+		 * @param game The Game the plugin will play in
+		 * @return A new plugin
+		 */
+		public AIPlugin newPlugin(Game game);
+	}
+
+	/**
+	 * How one game went
+	 */
+	public static final class GameRecord
+	{
+		private GameRecord(String variant, String white, String black, HeadlessGame game, Result result)
+		{
+			mVariant = variant;
+			mWhite = white;
+			mBlack = black;
+			mResult = result;
+			mIsForfeit = game.isForfeit();
+			mPlyCount = game.getPlyCount();
+			mMoveCounts = new int[] { game.getMoveCount(false), game.getMoveCount(true) };
+			mThinkNanos = new long[] { game.getThinkNanos(false), game.getThinkNanos(true) };
+			mNodeCounts = new long[] { game.getNodeCount(false), game.getNodeCount(true) };
+			mFailure = null;
+		}
+
+		private GameRecord(String variant, String white, String black, Exception failure)
+		{
+			mVariant = variant;
+			mWhite = white;
+			mBlack = black;
+			mResult = null;
+			mIsForfeit = false;
+			mPlyCount = 0;
+			mMoveCounts = new int[2];
+			mThinkNanos = new long[2];
+			mNodeCounts = new long[2];
+			mFailure = failure;
+		}
+
+		public String getVariant()
+		{
+			return mVariant;
+		}
+
+		public String getWhite()
+		{
+			return mWhite;
+		}
+
+		public String getBlack()
+		{
+			return mBlack;
+		}
+
+		/**
+		 * @return The Result of the game, or null if it failed
+		 */
+		public Result getResult()
+		{
+			return mResult;
+		}
+
+		/**
+		 * @return Whether the game couldn't be played to the end, because
+		 * the variant couldn't be loaded or something threw
+		 */
+		public boolean isFailed()
+		{
+			return mFailure != null;
+		}
+
+		/**
+		 * @return What made the game fail, or null
+		 */
+		public Exception getFailure()
+		{
+			return mFailure;
+		}
+
+		public boolean isForfeit()
+		{
+			return mIsForfeit;
+		}
+
+		public int getPlyCount()
+		{
+			return mPlyCount;
+		}
+
+		private final String mVariant;
+		private final String mWhite;
+		private final String mBlack;
+		private final Result mResult;
+		private final boolean mIsForfeit;
+		private final int mPlyCount;
+		private final int[] mMoveCounts;
+		private final long[] mThinkNanos;
+		private final long[] mNodeCounts;
+		private final Exception mFailure;
+	}
+
+	/**
+	 * How an entrant did over every game it played
+	 */
+	public static final class Standing
+	{
+		private Standing(String name)
+		{
+			mName = name;
+		}
+
+		private void add(GameRecord record, boolean isBlack)
+		{
+			int side = isBlack ? 1 : 0;
+			mMoveCount += record.mMoveCounts[side];
+			mThinkNanos += record.mThinkNanos[side];
+			mNodeCount += record.mNodeCounts[side];
+			if (record.mNodeCounts[side] > 0)
+				mSearchNanos += record.mThinkNanos[side];
+
+			if (record.mResult == Result.DRAW)
+				mDraws++;
+			else if ((record.mResult == Result.BLACK_WIN) == isBlack)
+				mWins++;
+			else
+				mLosses++;
+		}
+
+		public String getName()
+		{
+			return mName;
+		}
+
+		public int getGameCount()
+		{
+			return mWins + mDraws + mLosses;
+		}
+
+		public int getWins()
+		{
+			return mWins;
+		}
+
+		public int getDraws()
+		{
+			return mDraws;
+		}
+
+		public int getLosses()
+		{
+			return mLosses;
+		}
+
+		/**
+		 * @return The points scored, a win being worth 1 and a draw 1/2, over
+		 * the number of games, from 0 to 1
+		 */
+		public double getScore()
+		{
+			int games = getGameCount();
+			return (games == 0) ? 0 : (mWins + mDraws / 2.0) / games;
+		}
+
+		/**
+		 * @return How much stronger the entrant played than the average of
+		 * its opponents, in Elo points, from its score
+		 */
+		public double getElo()
+		{
+			int games = getGameCount();
+			if (games == 0)
+				return 0;
+
+			// a perfect score would make the estimate infinite, so count it
+			// as half a game short of one
+			double score = Math.max(0.5 / games, Math.min(1 - 0.5 / games, getScore()));
+			return 400 * Math.log10(score / (1 - score));
+		}
+
+		/**
+		 * @return The positions searched per second of thinking, for
+		 * AlphaBetaPlugins, or 0
+		 */
+		public long getNodesPerSecond()
+		{
+			return (mSearchNanos == 0) ? 0 : mNodeCount * 1000000000L / mSearchNanos;
+		}
+
+		/**
+		 * @return The average time taken to come up with a move, in
+		 * milliseconds
+		 */
+		public double getAverageMoveMillis()
+		{
+			return (mMoveCount == 0) ? 0 : mThinkNanos / 1e6 / mMoveCount;
+		}
+
+		private final String mName;
+		private int mWins;
+		private int mDraws;
+		private int mLosses;
+		private int mMoveCount;
+		private long mThinkNanos;
+		private long mSearchNanos;
+		private long mNodeCount;
+	}
+
+	/**
+	 * @param variants The names of the variants to play, Classic or the names
+	 * of saved variants
+	 * @param gamesPerPairing The number of games each pairing plays on each
+	 * variant, with colors alternating
+	 * @param maxPlies The number of moves after which a game is a draw
+	 */
+	public TournamentRunner(List<String> variants, int gamesPerPairing, int maxPlies)
+	{
+		Preconditions.checkArgument(!variants.isEmpty());
+		Preconditions.checkArgument(gamesPerPairing > 0);
+		Preconditions.checkArgument(maxPlies > 0);
+
+		mVariants = Lists.newArrayList(variants);
+		mGamesPerPairing = gamesPerPairing;
+		mMaxPlies = maxPlies;
+		mEntrants = Maps.newLinkedHashMap();
+		mThreadCount = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * @param name The name to report the entrant by
+	 * @param factory Makes the entrant's plugin for every game
+	 */
+	public void addEntrant(String name, PluginFactory factory)
+	{
+		Preconditions.checkArgument(!mEntrants.containsKey(name));
+
+		mEntrants.put(name, factory);
+	}
+
+	/**
+	 * @param isGauntlet Whether the first entrant plays each of the others,
+	 * instead of every entrant playing every other one
+	 */
+	public void setGauntlet(boolean isGauntlet)
+	{
+		mIsGauntlet = isGauntlet;
+	}
+
+	/**
+	 * @param threadCount The number of games to play at once
+	 */
+	public void setThreadCount(int threadCount)
+	{
+		Preconditions.checkArgument(threadCount > 0);
+
+		mThreadCount = threadCount;
+	}
+
+	/**
+	 * Play every game of the tournament
+	 *
+	 * @return How every game went, in the order they were scheduled
+	 */
+	public List<GameRecord> run() throws InterruptedException
+	{
+		Preconditions.checkState(mEntrants.size() > 1);
+
+		List<String> names = Lists.newArrayList(mEntrants.keySet());
+		List<Callable<GameRecord>> games = Lists.newArrayList();
+		// in a gauntlet, only the first entrant plays the others
+		int firstCount = mIsGauntlet ? 1 : names.size();
+		for (int i = 0; i < firstCount; i++)
+		{
+			for (int j = i + 1; j < names.size(); j++)
+			{
+				for (String variant : mVariants)
+				{
+					for (int game = 0; game < mGamesPerPairing; game++)
+					{
+						boolean isSwapped = game % 2 == 1;
+						games.add(newGame(variant, names.get(isSwapped ? j : i), names.get(isSwapped ? i : j)));
+					}
+				}
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(mThreadCount,
+				new ThreadFactoryBuilder().setNameFormat("tournament-%d").setDaemon(true).build()); //$NON-NLS-1$
+		try
+		{
+			List<GameRecord> records = Lists.newArrayList();
+			for (Future<GameRecord> result : executor.invokeAll(games))
+				records.add(getRecord(result));
+			return records;
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	private Callable<GameRecord> newGame(final String variant, final String white, final String black)
+	{
+		return new Callable<GameRecord>()
+		{
+			@Override
+			public GameRecord call()
+			{
+				// one game going wrong doesn't stop the others
+				try
+				{
+					return play(variant, white, black);
+				}
+				catch (IOException e)
+				{
+					return new GameRecord(variant, white, black, e);
+				}
+				catch (RuntimeException e)
+				{
+					return new GameRecord(variant, white, black, e);
+				}
+			}
+		};
+	}
+
+	private GameRecord play(String variant, String white, String black) throws IOException
+	{
+		AIPlugin whitePlugin = null;
+		AIPlugin blackPlugin = null;
+		try
+		{
+			HeadlessGame headlessGame;
+			// building a Game sets up the EndOfGame constants every Game
+			// shares, so no other game may be built until the HeadlessGame has
+			// read what this one was set up with
+			synchronized (VARIANT_LOCK)
+			{
+				Game game = loadVariant(variant);
+				whitePlugin = mEntrants.get(white).newPlugin(game);
+				blackPlugin = mEntrants.get(black).newPlugin(game);
+				headlessGame = new HeadlessGame(game, whitePlugin, blackPlugin, mMaxPlies);
+			}
+			Result result = headlessGame.play();
+			return new GameRecord(variant, white, black, headlessGame, result);
+		}
+		finally
+		{
+			shutdown(whitePlugin);
+			shutdown(blackPlugin);
+		}
+	}
+
+	private static void shutdown(AIPlugin plugin)
+	{
+		if (plugin instanceof AlphaBetaPlugin)
+			((AlphaBetaPlugin) plugin).getSearch().shutdown();
+	}
+
+	private static GameRecord getRecord(Future<GameRecord> result) throws InterruptedException
+	{
+		try
+		{
+			return result.get();
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * @param variant Classic, or the name of a saved variant
+	 * @return A new Game of the variant, whose EndOfGame rules are only set
+	 * up until another Game is built
+	 */
+	static Game loadVariant(String variant) throws IOException
+	{
+		Game game = variant.equals(Messages.getString("classic")) ? GameBuilder.newClassicGame() : GameBuilder.newGame(variant); //$NON-NLS-1$
+		if (game == null)
+			throw new IOException("No variant named " + variant); //$NON-NLS-1$
+		game.setIsPlayback(true);
+		return game;
+	}
+
+	/**
+	 * @param records How the games of a tournament went
+	 * @return How each entrant did, in the order they were added, leaving
+	 * out the games that failed
+	 */
+	public List<Standing> getStandings(List<GameRecord> records)
+	{
+		Map<String, Standing> standings = Maps.newLinkedHashMap();
+		for (String name : mEntrants.keySet())
+			standings.put(name, new Standing(name));
+		for (GameRecord record : records)
+		{
+			if (record.isFailed())
+				continue;
+
+			standings.get(record.getWhite()).add(record, false);
+			standings.get(record.getBlack()).add(record, true);
+		}
+		return Lists.newArrayList(standings.values());
+	}
+
+	/**
+	 * Write the standings, then every game
+	 *
+	 * @param records How the games of a tournament went
+	 * @param writer Where to write the report
+	 */
+	public void writeReport(List<GameRecord> records, Writer writer)
+	{
+		PrintWriter out = new PrintWriter(writer);
+		out.println((mIsGauntlet ? "Gauntlet" : "Round robin") + ", " + records.size() + " games on " + mVariants); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		out.println();
+		out.println(String.format("%-24s %6s %5s %5s %5s %7s %7s %10s %9s", "Entrant", "Games", "W", "D", "L", "Score", "Elo", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+				"Nodes/s", "ms/move")); //$NON-NLS-1$ //$NON-NLS-2$
+		for (Standing standing : getStandings(records))
+		{
+			out.println(String.format("%-24s %6d %5d %5d %5d %7.3f %+7.0f %10d %9.1f", standing.getName(), standing.getGameCount(), //$NON-NLS-1$
+					standing.getWins(), standing.getDraws(), standing.getLosses(), standing.getScore(), standing.getElo(),
+					standing.getNodesPerSecond(), standing.getAverageMoveMillis()));
+		}
+
+		out.println();
+		for (GameRecord record : records)
+		{
+			if (record.isFailed())
+			{
+				out.println(String.format("%-16s %-24s %-24s failed: %s", record.getVariant(), record.getWhite(), record.getBlack(), //$NON-NLS-1$
+						record.getFailure()));
+				continue;
+			}
+
+			out.println(String.format("%-16s %-24s %-24s %-7s %4d plies%s", record.getVariant(), record.getWhite(), record.getBlack(), //$NON-NLS-1$
+					record.getResult(), record.getPlyCount(), record.isForfeit() ? ", forfeit" : "")); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		out.flush();
+	}
+
+	/**
+	 * @param spec AlphaBeta, AlphaBeta:&lt;milliseconds per move&gt;, or the
+	 * class name of an AIPlugin with a constructor taking no arguments
+	 * @return A PluginFactory for the entrant
+	 */
+	public static PluginFactory parseEntrant(String spec)
+	{
+		if (spec.startsWith(ALPHA_BETA))
+		{
+			final long timeBudgetMillis = spec.length() > ALPHA_BETA.length() ? Long.parseLong(spec.substring(ALPHA_BETA.length() + 1))
+					: DEFAULT_TIME_BUDGET_MILLIS;
+			return new PluginFactory()
+			{
+				@Override
+				public AIPlugin newPlugin(Game game)
+				{
+					return new AlphaBetaPlugin(game, timeBudgetMillis, 1, new TranspositionTable(TABLE_SIZE_IN_MEGABYTES));
+				}
+			};
+		}
+
+		final Class<? extends AIPlugin> pluginClass;
+		try
+		{
+			pluginClass = Class.forName(spec).asSubclass(AIPlugin.class);
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new IllegalArgumentException("No AIPlugin named " + spec, e); //$NON-NLS-1$
+		}
+		return new PluginFactory()
+		{
+			@Override
+			public AIPlugin newPlugin(Game game)
+			{
+				try
+				{
+					return pluginClass.getDeclaredConstructor().newInstance();
+				}
+				catch (ReflectiveOperationException e)
+				{
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Run a tournament from the command line. The report is written to the
+	 * output file, tournament.txt unless given, and printed.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		List<String> variants = null;
+		List<String> entrants = Lists.newArrayList();
+		String output = "tournament.txt"; //$NON-NLS-1$
+		int games = 2;
+		int maxPlies = 200;
+		int threads = Runtime.getRuntime().availableProcessors();
+		boolean isGauntlet = false;
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("-gauntlet")) //$NON-NLS-1$
+				isGauntlet = true;
+			else if (args[i].equals("-games") && i + 1 < args.length) //$NON-NLS-1$
+				games = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-plies") && i + 1 < args.length) //$NON-NLS-1$
+				maxPlies = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-threads") && i + 1 < args.length) //$NON-NLS-1$
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-variants") && i + 1 < args.length) //$NON-NLS-1$
+				variants = Arrays.asList(args[++i].split(",")); //$NON-NLS-1$
+			else if (args[i].equals("-out") && i + 1 < args.length) //$NON-NLS-1$
+				output = args[++i];
+			else
+				entrants.add(args[i]);
+		}
+
+		if (entrants.size() < 2)
+		{
+			System.out.println("Usage: TournamentRunner [-gauntlet] [-games <n>] [-plies <n>] [-threads <n>]" //$NON-NLS-1$
+					+ " [-variants <name,name,...>] [-out <file>] <entrant> <entrant> ..."); //$NON-NLS-1$
+			System.out.println("An entrant is AlphaBeta[:<milliseconds per move>] or the class name of an AIPlugin"); //$NON-NLS-1$
+			return;
+		}
+
+		// every saved variant, including Classic, unless told otherwise
+		if (variants == null)
+			variants = Arrays.asList(GameBuilder.getVariantFileArray());
+		for (String variant : variants)
+			loadVariant(variant);
+
+		TournamentRunner runner = new TournamentRunner(variants, games, maxPlies);
+		runner.setGauntlet(isGauntlet);
+		runner.setThreadCount(threads);
+		for (String entrant : entrants)
+			runner.addEntrant(entrant, parseEntrant(entrant));
+
+		List<GameRecord> records = runner.run();
+		StringWriter report = new StringWriter();
+		runner.writeReport(records, report);
+		System.out.print(report);
+
+		FileWriter file = new FileWriter(output);
+		try
+		{
+			file.write(report.toString());
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+
+	private static final String ALPHA_BETA = "AlphaBeta"; //$NON-NLS-1$
+	private static final long DEFAULT_TIME_BUDGET_MILLIS = 100L;
+	// many games run at once, each with two tables
+	private static final int TABLE_SIZE_IN_MEGABYTES = 8;
+	// held while a game is built and its EndOfGame rules are read
+	private static final Object VARIANT_LOCK = new Object();
+
+	private final List<String> mVariants;
+	private final int mGamesPerPairing;
+	private final int mMaxPlies;
+	private final Map<String, PluginFactory> mEntrants;
+	private boolean mIsGauntlet;
+	private int mThreadCount;
+}
@@ -0,0 +1,195 @@
+package ai;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * What the search found out about the positions it has seen, by their
+ * Zobrist key, so a position reached again by another order of moves isn't
+ * searched again. The table has a fixed size, and every entry is two longs:
+ * the key XORed with the data, and the data itself, which packs the best
+ * move, the score, the depth searched, the bound type and the search it was
+ * stored by.
+ *
+ * Several search threads may share one table without locking. Each long is
+ * written atomically, but another thread may write the other long of the
+ * entry in between; an entry torn like that doesn't give its key back when
+ * XORed with its data, and is treated as a miss. The table keeps no counters
+ * of its own for the threads to fight over; every SearchEngine counts its
+ * probes, hits and collisions itself.
+ */
+public final class TranspositionTable
+{
+	/**
+	 * @param sizeInMegabytes How much memory to use, at least 1 MB
+	 */
+	public TranspositionTable(int sizeInMegabytes)
+	{
+		Preconditions.checkArgument(sizeInMegabytes > 0 && sizeInMegabytes <= MAX_SIZE_IN_MEGABYTES);
+
+		// a power of two, so the index is a mask of the key
+		long entries = Long.highestOneBit(sizeInMegabytes * BYTES_PER_MEGABYTE / BYTES_PER_ENTRY);
+		mEntries = new AtomicLongArray((int) entries * 2);
+		mMask = (int) entries - 1;
+		mSizeInMegabytes = sizeInMegabytes;
+	}
+
+	/**
+	 * Look up a position
+	 *
+	 * @param key The Zobrist key of the position
+	 * @return The data stored for the position, to be unpacked with
+	 * getMove, getScore, getDepth and getBound, or MISS
+	 */
+	public long probe(long key)
+	{
+		int index = getIndex(key);
+		long data = mEntries.get(index + 1);
+		long check = mEntries.get(index);
+
+		if (data == MISS || (check ^ data) != key)
+			return MISS;
+		return data;
+	}
+
+	/**
+	 * Store what a search found out about a position. An entry for another
+	 * position is kept if it was searched deeper by the current search.
+	 *
+	 * @param key The Zobrist key of the position
+	 * @param move The best move found, as a PackedMove, or
+	 * SearchEngine.NO_MOVE
+	 * @param score The score of the position, between -MAX_SCORE and
+	 * MAX_SCORE
+	 * @param depth The depth the position was searched to
+	 * @param bound EXACT, LOWER_BOUND or UPPER_BOUND
+	 * @return If the entry held another position
+	 */
+	public boolean store(long key, int move, int score, int depth, int bound)
+	{
+		Preconditions.checkArgument(Math.abs(score) <= MAX_SCORE);
+
+		int index = getIndex(key);
+		long oldData = mEntries.get(index + 1);
+		boolean isCollision = false;
+		if (oldData != MISS)
+		{
+			boolean isSamePosition = (mEntries.get(index) ^ oldData) == key;
+			isCollision = !isSamePosition;
+
+			// deeper results of this search are worth more than this one
+			if (getAge(oldData) == mAge && getDepth(oldData) > depth && !(isSamePosition && bound == EXACT))
+				return isCollision;
+
+			// keep the best move if there's no new one
+			if (isSamePosition && move == SearchEngine.NO_MOVE)
+				move = getMove(oldData);
+		}
+
+		long data = pack(move, score, depth, bound, mAge);
+		mEntries.set(index, key ^ data);
+		mEntries.set(index + 1, data);
+		return isCollision;
+	}
+
+	/**
+	 * Start a new search. Entries of older searches are replaced before the
+	 * ones of the new search.
+	 */
+	public void newSearch()
+	{
+		mAge = (mAge + 1) & AGE_MASK;
+	}
+
+	/**
+	 * Forget every position
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < mEntries.length(); i++)
+			mEntries.set(i, MISS);
+	}
+
+	public int getSizeInMegabytes()
+	{
+		return mSizeInMegabytes;
+	}
+
+	/**
+	 * @return The number of positions the table has room for
+	 */
+	public int getCapacity()
+	{
+		return mMask + 1;
+	}
+
+	public static int getMove(long data)
+	{
+		return (int) (data >>> MOVE_SHIFT);
+	}
+
+	public static int getScore(long data)
+	{
+		return (int) ((data >>> SCORE_SHIFT) & SCORE_MASK) - SCORE_OFFSET;
+	}
+
+	public static int getDepth(long data)
+	{
+		return (int) ((data >>> DEPTH_SHIFT) & DEPTH_MASK);
+	}
+
+	public static int getBound(long data)
+	{
+		return (int) ((data >>> BOUND_SHIFT) & BOUND_MASK);
+	}
+
+	private static int getAge(long data)
+	{
+		return (int) (data & AGE_MASK);
+	}
+
+	private static long pack(int move, int score, int depth, int bound, int age)
+	{
+		return ((long) move << MOVE_SHIFT) | ((long) (score + SCORE_OFFSET) << SCORE_SHIFT)
+				| ((long) Math.min(depth, DEPTH_MASK) << DEPTH_SHIFT) | ((long) bound << BOUND_SHIFT) | age;
+	}
+
+	private int getIndex(long key)
+	{
+		// the low bits of the key pick the entry, so mix in the high ones
+		return (int) ((key ^ (key >>> 32)) & mMask) * 2;
+	}
+
+	public static final long MISS = 0L;
+
+	public static final int EXACT = 1;
+	public static final int LOWER_BOUND = 2;
+	public static final int UPPER_BOUND = 3;
+
+	/**
+	 * The largest score that fits in an entry
+	 */
+	public static final int MAX_SCORE = (1 << 20) - 1;
+
+	// the data of an entry, from the top bit down: 32 bits of move, 21 of
+	// score, 7 of depth, 2 of bound and 2 of age
+	private static final int MOVE_SHIFT = 32;
+	private static final int SCORE_SHIFT = 11;
+	private static final int SCORE_MASK = (1 << 21) - 1;
+	private static final int SCORE_OFFSET = 1 << 20;
+	private static final int DEPTH_SHIFT = 4;
+	private static final int DEPTH_MASK = (1 << 7) - 1;
+	private static final int BOUND_SHIFT = 2;
+	private static final int BOUND_MASK = 3;
+	private static final int AGE_MASK = 3;
+
+	private static final int BYTES_PER_ENTRY = 16;
+	private static final long BYTES_PER_MEGABYTE = 1024L * 1024L;
+	private static final int MAX_SIZE_IN_MEGABYTES = 1 << 13;
+
+	private final AtomicLongArray mEntries;
+	private final int mMask;
+	private final int mSizeInMegabytes;
+	private volatile int mAge;
+}
@@ -208,11 +208,22 @@ public final class AlgebraicConverter
 	 * @param pathName The path to where to save the output File
 	 */
 	public static void convert(List<Move> moves, String pathName)
+	{
+		convert(moves, FileUtility.getCompletedGamesFile(pathName));
+	}
+
+	/**
+	 * Convert a List of Moves to a text file of Algebraic Chess Notation
+	 * 
+	 * @param moves The List of Moves to convert to ACN
+	 * @param file The File to write
+	 */
+	public static void convert(List<Move> moves, File file)
 	{
 		try
 		{
-			BufferedWriter out = new BufferedWriter(new FileWriter(FileUtility.getCompletedGamesFile(pathName)));
-			String toWrite = ""; //$NON-NLS-1$
+			BufferedWriter out = new BufferedWriter(new FileWriter(file));
+			StringBuilder toWrite = new StringBuilder();
 			for (int i = 0, j = 1; i < moves.size(); i++)
 			{
 				String turn = moves.get(i).toString();
@@ -222,13 +233,18 @@ public final class AlgebraicConverter
 				}
 				if (i % 2 != 0 || moves.get(i).result != null)
 				{
-					out.write(j + " " + toWrite + " " + turn + '\n'); //$NON-NLS-1$ //$NON-NLS-2$
-					toWrite = ""; //$NON-NLS-1$
+					out.write(Integer.toString(j));
+					out.write(' ');
+					out.append(toWrite);
+					out.write(' ');
+					out.write(turn);
+					out.write('\n');
+					toWrite.setLength(0);
 					j++;
 				}
 				else
 				{
-					toWrite += turn;
+					toWrite.append(turn);
 				}
 
 			}
@@ -0,0 +1,287 @@
+package logic;
+
+import java.util.Collections;
+import java.util.List;
+
+import logic.PieceMovements.MovementDirection;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+
+/**
+ * The moves of one piece type on one board geometry, compiled once so move
+ * generation doesn't have to look up distances or work out wraparound for
+ * every Piece on every turn. For every Square of the Board, the table holds
+ * the Squares each ray visits in order, and the Squares each leap lands on.
+ * Squares are numbered (row - 1) * columns + (col - 1).
+ *
+ * The rays and leaps are exactly the ones Piece.genLegalDests always walked,
+ * quirks included, so compiling a table never changes which moves are legal.
+ */
+public final class AttackTable
+{
+	/**
+	 * Compile the table for a piece type on a board geometry
+	 *
+	 * @param movements The movements of the piece type
+	 * @param isLeaper If the piece type jumps over other Pieces
+	 * @param maxRow The number of rows of the Board
+	 * @param maxCol The number of columns of the Board
+	 * @param wraparound If the columns of the Board wrap around
+	 * @return The compiled table
+	 */
+	static AttackTable compile(PieceMovements movements, boolean isLeaper, int maxRow, int maxCol, boolean wraparound)
+	{
+		AttackTable table = new AttackTable(isLeaper, maxRow, maxCol, wraparound);
+		List<BidirectionalMovement> leaps = getSortedLeaps(movements);
+
+		for (int row = 1; row <= maxRow; row++)
+		{
+			for (int col = 1; col <= maxCol; col++)
+			{
+				List<Integer> raySquares = Lists.newArrayList();
+				List<Integer> rayEnds = Lists.newArrayList();
+				List<Integer> leapSquares = Lists.newArrayList();
+
+				for (MovementDirection direction : RAY_ORDER)
+				{
+					table.compileRay(direction, movements.getDistance(direction), row, col, raySquares);
+					if (rayEnds.isEmpty() ? !raySquares.isEmpty() : rayEnds.get(rayEnds.size() - 1) < raySquares.size())
+						rayEnds.add(raySquares.size());
+				}
+				for (BidirectionalMovement leap : leaps)
+					table.compileLeap(leap.getRowDistance(), leap.getColumnDistance(), row, col, leapSquares);
+
+				int origin = table.indexOf(row, col);
+				table.mRaySquares[origin] = Ints.toArray(raySquares);
+				table.mRayEnds[origin] = Ints.toArray(rayEnds);
+				table.mLeapSquares[origin] = Ints.toArray(leapSquares);
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Build the key the compiled tables are cached under. Two piece types
+	 * with the same movements share a table.
+	 */
+	static String getKey(PieceMovements movements, boolean isLeaper, int maxRow, int maxCol, boolean wraparound)
+	{
+		StringBuilder key = new StringBuilder();
+		key.append(maxRow).append('x').append(maxCol).append(wraparound ? 'w' : '-').append(isLeaper ? 'j' : '-');
+		for (MovementDirection direction : RAY_ORDER)
+			key.append(direction).append(movements.getDistance(direction));
+		for (BidirectionalMovement leap : getSortedLeaps(movements))
+			key.append('|').append(leap);
+		return key.toString();
+	}
+
+	private AttackTable(boolean isLeaper, int maxRow, int maxCol, boolean wraparound)
+	{
+		mIsLeaper = isLeaper;
+		mMaxRow = maxRow;
+		mMaxCol = maxCol;
+		mIsWraparound = wraparound;
+
+		mRaySquares = new int[maxRow * maxCol][];
+		mRayEnds = new int[maxRow * maxCol][];
+		mLeapSquares = new int[maxRow * maxCol][];
+	}
+
+	/**
+	 * @param maxRow The number of rows of a Board
+	 * @param maxCol The number of columns of a Board
+	 * @param wraparound If the columns of the Board wrap around
+	 * @return If this table was compiled for that geometry
+	 */
+	public boolean isFor(int maxRow, int maxCol, boolean wraparound)
+	{
+		return mMaxRow == maxRow && mMaxCol == maxCol && mIsWraparound == wraparound;
+	}
+
+	public int indexOf(int row, int col)
+	{
+		return (row - 1) * mMaxCol + col - 1;
+	}
+
+	public boolean isLeaper()
+	{
+		return mIsLeaper;
+	}
+
+	/**
+	 * @param origin The index of the Square the Piece is on
+	 * @return The Squares visited by every ray from the origin, one ray after
+	 * the other
+	 */
+	public int[] getRaySquares(int origin)
+	{
+		return mRaySquares[origin];
+	}
+
+	/**
+	 * @param origin The index of the Square the Piece is on
+	 * @return Where each ray of getRaySquares ends, exclusive
+	 */
+	public int[] getRayEnds(int origin)
+	{
+		return mRayEnds[origin];
+	}
+
+	/**
+	 * @param origin The index of the Square the Piece is on
+	 * @return The Squares the leaps from the origin land on
+	 */
+	public int[] getLeapSquares(int origin)
+	{
+		return mLeapSquares[origin];
+	}
+
+	private void compileRay(MovementDirection direction, int distance, int row, int col, List<Integer> ray)
+	{
+		boolean unlimited = distance == PieceMovements.UNLIMITED;
+		switch (direction)
+		{
+		case EAST:
+			int eastMax = distance + col;
+			if ((eastMax > mMaxCol || unlimited) && !mIsWraparound)
+				eastMax = mMaxCol;
+
+			for (int c = col + 1; (unlimited && mIsWraparound) || c <= eastMax; c++)
+			{
+				int j = (mIsWraparound && c > mMaxCol) ? c % mMaxCol : c;
+				if (j == 0 || !visit(row, col, row, j, ray))
+					break;
+			}
+			break;
+		case WEST:
+			int westMax = col - distance;
+			if ((westMax < 1 || unlimited) && !mIsWraparound)
+				westMax = 1;
+
+			for (int c = col - 1; (unlimited && mIsWraparound) || c >= westMax; c--)
+			{
+				int j = (mIsWraparound && c < 1) ? mMaxCol + c : c;
+				// wrapping all the way around used to fall off the Board
+				if (j < 1 || !visit(row, col, row, j, ray))
+					break;
+			}
+			break;
+		case NORTH:
+			int northMax = (distance + row >= mMaxRow || unlimited) ? mMaxRow : distance + row;
+			for (int r = row + 1; r <= northMax; r++)
+				visit(row, col, r, col, ray);
+			break;
+		case SOUTH:
+			int southMin = (row - distance < 1 || unlimited) ? 1 : row - distance;
+			for (int r = row - 1; r >= southMin; r--)
+				visit(row, col, r, col, ray);
+			break;
+		case NORTHEAST:
+			// rows and columns share one limit here, which is what Pieces
+			// have always done
+			int neMax = Math.max(row, col) + distance;
+			if (neMax >= mMaxCol || unlimited)
+				neMax = mMaxCol;
+			if (neMax >= mMaxRow || unlimited)
+				neMax = mMaxRow;
+
+			for (int r = row + 1, c = col + 1; r <= neMax && c <= neMax; r++, c++)
+				visit(row, col, r, c, ray);
+			break;
+		case SOUTHEAST:
+			int seMaxCol = (col + distance >= mMaxCol || unlimited) ? mMaxCol : col + distance;
+			int seMinRow = (row - distance <= 1 || unlimited) ? 1 : row - distance;
+			for (int r = row - 1, c = col + 1; r >= seMinRow && c <= seMaxCol; r--, c++)
+				visit(row, col, r, c, ray);
+			break;
+		case NORTHWEST:
+			int nwMinCol = (col - distance <= 1 || unlimited) ? 1 : col - distance;
+			int nwMaxRow = (row + distance >= mMaxRow || unlimited) ? mMaxRow : row + distance;
+			for (int r = row + 1, c = col - 1; r <= nwMaxRow && c >= nwMinCol; r++, c--)
+				visit(row, col, r, c, ray);
+			break;
+		case SOUTHWEST:
+			int swMinCol = (col - distance <= 1 || unlimited) ? 1 : col - distance;
+			int swMinRow = (row - distance <= 1 || unlimited) ? 1 : row - distance;
+			for (int r = row - 1, c = col - 1; r >= swMinRow && c >= swMinCol; r--, c--)
+				visit(row, col, r, c, ray);
+			break;
+		}
+	}
+
+	/**
+	 * Add a Square to a ray
+	 *
+	 * @return False if the ray came back around to its origin and stops
+	 * there; leapers skip their own Square and carry on
+	 */
+	private boolean visit(int originRow, int originCol, int row, int col, List<Integer> ray)
+	{
+		if (row == originRow && col == originCol)
+			return mIsLeaper;
+
+		ray.add(indexOf(row, col));
+		return true;
+	}
+
+	private void compileLeap(int rank, int file, int row, int col, List<Integer> leaps)
+	{
+		// one, two, four, five, seven, eight, ten and eleven o'clock
+		addLeap(row + file, wrapRight(col + rank), leaps);
+		addLeap(row + rank, wrapRight(col + file), leaps);
+		addLeap(row + file, wrapLeft(col - rank), leaps);
+		addLeap(row + rank, wrapLeft(col - file), leaps);
+		addLeap(row - file, wrapLeft(col - rank), leaps);
+		addLeap(row - rank, wrapLeft(col - file), leaps);
+		addLeap(row - file, wrapRight(col + rank), leaps);
+		addLeap(row - rank, wrapRight(col + file), leaps);
+	}
+
+	private int wrapRight(int col)
+	{
+		// a leap landing just one column past the edge has never wrapped
+		return (mIsWraparound && col > mMaxCol + 1) ? col % mMaxCol : col;
+	}
+
+	private int wrapLeft(int col)
+	{
+		return (mIsWraparound && col < 1) ? mMaxCol + col : col;
+	}
+
+	private void addLeap(int row, int col, List<Integer> leaps)
+	{
+		if (row > 0 && row <= mMaxRow && col > 0 && col <= mMaxCol)
+			leaps.add(indexOf(row, col));
+	}
+
+	private static List<BidirectionalMovement> getSortedLeaps(PieceMovements movements)
+	{
+		List<BidirectionalMovement> leaps = Lists.newArrayList(movements.getBidirectionalMovements());
+		Collections.sort(leaps, new java.util.Comparator<BidirectionalMovement>()
+		{
+			@Override
+			public int compare(BidirectionalMovement first, BidirectionalMovement second)
+			{
+				if (first.getRowDistance() != second.getRowDistance())
+					return first.getRowDistance() < second.getRowDistance() ? -1 : 1;
+				if (first.getColumnDistance() != second.getColumnDistance())
+					return first.getColumnDistance() < second.getColumnDistance() ? -1 : 1;
+				return 0;
+			}
+		});
+		return leaps;
+	}
+
+	private static final MovementDirection[] RAY_ORDER = { MovementDirection.EAST, MovementDirection.WEST, MovementDirection.NORTH,
+			MovementDirection.SOUTH, MovementDirection.NORTHEAST, MovementDirection.SOUTHEAST, MovementDirection.NORTHWEST,
+			MovementDirection.SOUTHWEST };
+
+	private final boolean mIsLeaper;
+	private final int mMaxRow;
+	private final int mMaxCol;
+	private final boolean mIsWraparound;
+	private final int[][] mRaySquares;
+	private final int[][] mRayEnds;
+	private final int[][] mLeapSquares;
+}
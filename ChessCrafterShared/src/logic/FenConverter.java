@@ -0,0 +1,787 @@
+package logic;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import models.Board;
+import models.BoardGeometry;
+import models.Game;
+import models.Piece;
+import models.Square;
+import rules.NextTurn;
+import rules.NextTurn.NextTurnOption;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Writes the position of a Game in Forsyth-Edwards Notation and sets a Game
+ * up from it. A position of classic chess is written as in FEN, and reads
+ * back from any FEN record, so published positions can seed perft and tests.
+ * For other variants FEN is stretched the way X-FEN and Crazyhouse FEN
+ * stretch it:
+ * <ul>
+ * <li>Ranks are as wide as their Board, with runs of more than 9 empty
+ * Squares written as one number, and * for a Square no Piece can stand on. A
+ * Board whose columns wrap around starts with ~, and Boards after the first
+ * follow a |.</li>
+ * <li>A Piece is written with the first letter of its name, N for the
+ * knight, in upper case for white and lower case for black. Pieces of the
+ * variant that would share a letter are written with their whole name in
+ * parentheses instead, like (Archbishop) and (archbishop).</li>
+ * <li>Captured Pieces follow the Boards in brackets, like [Qpp], in the case
+ * of the team holding them, which drop variants play them back for. Without
+ * brackets, the Pieces of the Game left off the Boards are the captured
+ * ones.</li>
+ * <li>When the teams make more than one move in a turn, the side to move is
+ * followed by the moves made in the turn and the moves in a turn of each
+ * team, like w:1/2/2.</li>
+ * <li>Castling is K and Q for the outermost unmoved Rooks on each side of an
+ * unmoved King, and the file of any other one, as in X-FEN. The en passant
+ * field has a Square for each Board, split by |.</li>
+ * </ul>
+ * The Game keeps no halfmove clock, so it's written as 0 and ignored when
+ * read, and so is the move number.
+ *
+ * A converter keeps the letters of the Game's Pieces, so writing the same
+ * Game over and over makes nothing but the text, and appendPosition writes
+ * the position without the move counters, to be used as a key.
+ */
+public final class FenConverter
+{
+	/**
+	 * @param game The Game to write and set up. The Pieces it has and can
+	 * promote to are the Pieces its positions can hold.
+	 */
+	public FenConverter(Game game)
+	{
+		Preconditions.checkArgument(game != null);
+
+		mGame = game;
+		mGeometry = game.getGeometry();
+
+		mNames = game.getPieceNames();
+
+		Map<Character, Integer> letterCounts = Maps.newHashMap();
+		for (String name : mNames)
+		{
+			char letter = getLetter(name);
+			Integer count = letterCounts.get(letter);
+			letterCounts.put(letter, count == null ? 1 : count + 1);
+		}
+
+		mLetters = Maps.newHashMap();
+		mNamesByLetter = Maps.newHashMap();
+		mNamesByKey = Maps.newHashMap();
+		for (String name : mNames)
+		{
+			char letter = getLetter(name);
+			if (letter != NO_LETTER && letterCounts.get(letter) == 1)
+			{
+				mLetters.put(name, letter);
+				mNamesByLetter.put(letter, name);
+			}
+			mNamesByKey.put(getKey(name), name);
+		}
+	}
+
+	/**
+	 * Build a variant and set it up at a position
+	 *
+	 * @param variantName The name of the variant
+	 * @param fen The position
+	 * @return The Game, with its timers as the variant has them
+	 * @throws IOException If the variant can't be built, or the position isn't
+	 * one of its positions
+	 */
+	public static Game newGame(String variantName, String fen) throws IOException
+	{
+		Game game = GameRecord.newVariantGame(variantName);
+		new FenConverter(game).setPosition(fen);
+		return game;
+	}
+
+	/**
+	 * @return The letter of a white Piece of the given name, or NO_LETTER if
+	 * it has no letter of its own
+	 */
+	private static char getLetter(String name)
+	{
+		if (name.equals(PAWN))
+			return PAWN_LETTER;
+		char letter = SanConverter.getLetter(name);
+		return Character.isUpperCase(letter) ? letter : NO_LETTER;
+	}
+
+	/**
+	 * @return The name as it's looked up when read in parentheses, which is
+	 * without the case of its first letter
+	 */
+	private static String getKey(String name)
+	{
+		return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+	}
+
+	/**
+	 * @return The position in FEN
+	 */
+	public String toFen()
+	{
+		StringBuilder fen = new StringBuilder(FEN_CAPACITY);
+		appendFen(fen);
+		return fen.toString();
+	}
+
+	/**
+	 * @param fen The StringBuilder to append the position in FEN to
+	 */
+	public void appendFen(StringBuilder fen)
+	{
+		appendPosition(fen);
+		int plyCount = mGame.getHistory().size() + mGame.getMadeMoveCount();
+		fen.append(" 0 ").append(plyCount / 2 + 1); //$NON-NLS-1$
+	}
+
+	/**
+	 * Append the fields of FEN that make up the position, without the move
+	 * counters, so positions that are the same are written the same
+	 *
+	 * @param position The StringBuilder to append to
+	 */
+	public void appendPosition(StringBuilder position)
+	{
+		Board[] boards = mGame.getBoards();
+		for (int i = 0; i < boards.length; i++)
+		{
+			if (i > 0)
+				position.append(BOARD_SEPARATOR);
+			appendPlacement(boards[i], position);
+		}
+		appendJail(position);
+
+		position.append(' ');
+		position.append(mGame.isBlackMove() ? BLACK : WHITE);
+		NextTurn nextTurn = mGame.getWhiteRules().getNextTurn();
+		if (nextTurn.getOption() != NextTurnOption.CLASSIC)
+		{
+			position.append(TURN_SEPARATOR).append(nextTurn.getMovesMade()).append('/').append(nextTurn.getWhiteMoves()).append('/')
+					.append(nextTurn.getBlackMoves());
+		}
+
+		position.append(' ');
+		int start = position.length();
+		appendCastling(mGame.getWhiteTeam(), position);
+		appendCastling(mGame.getBlackTeam(), position);
+		if (position.length() == start)
+			position.append(NONE);
+
+		position.append(' ');
+		for (int i = 0; i < boards.length; i++)
+		{
+			if (i > 0)
+				position.append(BOARD_SEPARATOR);
+			appendEnpassant(boards[i], position);
+		}
+	}
+
+	private void appendPlacement(Board board, StringBuilder out)
+	{
+		if (board.isWrapAround())
+			out.append(WRAPAROUND);
+		for (int row = board.getMaxRow(); row >= 1; row--)
+		{
+			if (row < board.getMaxRow())
+				out.append('/');
+
+			int emptyCount = 0;
+			for (int col = 1; col <= board.getMaxCol(); col++)
+			{
+				Square square = board.getSquare(row, col);
+				Piece piece = square.getPiece();
+				if (piece == null && square.isHabitable())
+				{
+					emptyCount++;
+					continue;
+				}
+
+				if (emptyCount > 0)
+					out.append(emptyCount);
+				emptyCount = 0;
+				if (piece == null)
+					out.append(HOLE);
+				else
+					appendPiece(piece.getName(), piece.isBlack(), out);
+			}
+			if (emptyCount > 0)
+				out.append(emptyCount);
+		}
+	}
+
+	private void appendPiece(String name, boolean isBlack, StringBuilder out)
+	{
+		Character letter = mLetters.get(name);
+		if (letter != null)
+		{
+			out.append(isBlack ? Character.toLowerCase(letter) : letter.charValue());
+			return;
+		}
+
+		char first = name.charAt(0);
+		out.append('(').append(isBlack ? Character.toLowerCase(first) : Character.toUpperCase(first));
+		out.append(name, 1, name.length()).append(')');
+	}
+
+	private void appendJail(StringBuilder out)
+	{
+		int start = out.length();
+		out.append('[');
+		appendCaptured(mGame.getWhiteTeam(), out);
+		appendCaptured(mGame.getBlackTeam(), out);
+		if (out.length() == start + 1)
+			out.setLength(start);
+		else
+			out.append(']');
+	}
+
+	/**
+	 * Append the captured Pieces of a team in the order of their names, so
+	 * the same Pieces are always written the same
+	 */
+	private void appendCaptured(List<Piece> team, StringBuilder out)
+	{
+		int capturedCount = 0;
+		for (int i = 0; i < team.size(); i++)
+		{
+			if (team.get(i).isCaptured())
+				capturedCount++;
+		}
+		for (int n = 0; n < mNames.length && capturedCount > 0; n++)
+		{
+			String name = mNames[n];
+			for (int i = 0; i < team.size(); i++)
+			{
+				Piece piece = team.get(i);
+				if (piece.isCaptured() && piece.getName().equals(name))
+				{
+					appendPiece(name, piece.isBlack(), out);
+					capturedCount--;
+				}
+			}
+		}
+	}
+
+	private void appendCastling(List<Piece> team, StringBuilder out)
+	{
+		Piece king = null;
+		for (int i = 0; i < team.size() && king == null; i++)
+		{
+			Piece piece = team.get(i);
+			if (piece.getName().equals(KING) && !piece.isCaptured() && piece.getMoveCount() == 0 && piece.getSquare() != null)
+				king = piece;
+		}
+		if (king == null)
+			return;
+
+		Square kingSquare = king.getSquare();
+		Board board = kingSquare.getBoard();
+		boolean isBlack = king.isBlack();
+		boolean isOutermost = true;
+		for (int col = board.getMaxCol(); col > kingSquare.getCol(); col--)
+		{
+			if (isUnmovedRook(board.getSquare(kingSquare.getRow(), col).getPiece(), isBlack))
+			{
+				out.append(getCastlingLetter(isOutermost ? KING_SIDE : getFile(col), isBlack));
+				isOutermost = false;
+			}
+		}
+		isOutermost = true;
+		for (int col = 1; col < kingSquare.getCol(); col++)
+		{
+			if (isUnmovedRook(board.getSquare(kingSquare.getRow(), col).getPiece(), isBlack))
+			{
+				out.append(getCastlingLetter(isOutermost ? QUEEN_SIDE : getFile(col), isBlack));
+				isOutermost = false;
+			}
+		}
+	}
+
+	private static boolean isUnmovedRook(Piece piece, boolean isBlack)
+	{
+		return piece != null && piece.isBlack() == isBlack && piece.getName().equals(ROOK) && piece.getMoveCount() == 0;
+	}
+
+	private static char getCastlingLetter(char letter, boolean isBlack)
+	{
+		return isBlack ? letter : Character.toUpperCase(letter);
+	}
+
+	/**
+	 * Append the Square a Pawn passed on its first move, which is only read
+	 * back for its file
+	 */
+	private void appendEnpassant(Board board, StringBuilder out)
+	{
+		if (board.getEnpassantCol() == Board.NO_ENPASSANT)
+		{
+			out.append(NONE);
+			return;
+		}
+		out.append(getFile(board.getEnpassantCol())).append(mGame.isBlackMove() ? 3 : board.getMaxRow() - 2);
+	}
+
+	private static char getFile(int col)
+	{
+		return (char) ('a' + col - 1);
+	}
+
+	/**
+	 * Set the Game up at a position. Its own Pieces are put on the Squares
+	 * first, preferring the ones that started there, which are the Pieces
+	 * that haven't moved, and then Pieces of the other team; Pieces are only
+	 * made when the Game runs out of them. A Pawn or any other Piece off the
+	 * Square it started on has moved, and so has every King and Rook the
+	 * castling field doesn't name. The Game's history is cleared, since its
+	 * moves can't be taken back from the new position.
+	 *
+	 * @param fen The position
+	 * @throws IOException If it isn't FEN, or it isn't a position of the
+	 * Game's variant. The Game isn't changed then.
+	 * @throws IllegalStateException If the Game has moves made by makeMove to
+	 * take back
+	 */
+	public void setPosition(String fen) throws IOException
+	{
+		Preconditions.checkArgument(fen != null);
+		Preconditions.checkState(mGame.getMadeMoveCount() == 0);
+
+		String[] names = new String[mGeometry.size()];
+		boolean[] isBlack = new boolean[mGeometry.size()];
+		List<String> jailNames = Lists.newArrayList();
+		List<Boolean> jailTeams = Lists.newArrayList();
+		int end = readPlacement(fen, names, isBlack);
+		boolean hasJail = end < fen.length() && fen.charAt(end) == '[';
+		if (hasJail)
+			end = readJail(fen, end + 1, jailNames, jailTeams);
+		if (end < fen.length() && fen.charAt(end) != ' ')
+			throw badNotation(fen);
+
+		String[] fields = fen.substring(end).trim().split(" +"); //$NON-NLS-1$
+		if (fields[0].isEmpty())
+			throw badNotation(fen);
+		if (fields[0].charAt(0) != WHITE && fields[0].charAt(0) != BLACK)
+			throw badNotation(fen);
+		boolean isBlackMove = fields[0].charAt(0) == BLACK;
+		int[] turn = readTurn(fields[0], fen);
+		boolean[] isUnmoved = new boolean[mGeometry.size()];
+		if (fields.length > 1)
+			readCastling(fields[1], names, isBlack, isUnmoved, fen);
+		int[] enpassantCols = new int[mGeometry.getBoardCount()];
+		if (fields.length > 2)
+			readEnpassant(fields[2], enpassantCols, fen);
+
+		placePieces(names, isBlack, isUnmoved, jailNames, jailTeams, hasJail);
+		for (int i = 0; i < enpassantCols.length; i++)
+			mGeometry.getBoard(i).setEnpassantCol(enpassantCols[i]);
+
+		// turns are only tracked by the white Rules, as Game does
+		mGame.setBlackMove(isBlackMove);
+		NextTurn nextTurn = mGame.getWhiteRules().getNextTurn();
+		if (turn == null)
+			nextTurn.setTurn(isBlackMove, 0, nextTurn.getWhiteMoves(), nextTurn.getBlackMoves());
+		else
+			nextTurn.setTurn(isBlackMove, turn[0], turn[1], turn[2]);
+
+		mGame.getHistory().clear();
+		mGame.setLastMove(null);
+		mGame.setStaleLegalDests(true);
+	}
+
+	/**
+	 * Read the Boards into the names and teams of the Pieces on each Square
+	 *
+	 * @return The index of the first character after them
+	 */
+	private int readPlacement(String fen, String[] names, boolean[] isBlack) throws IOException
+	{
+		int i = 0;
+		for (int boardIndex = 0; boardIndex < mGeometry.getBoardCount(); boardIndex++)
+		{
+			Board board = mGeometry.getBoard(boardIndex);
+			if (boardIndex > 0 && !isAt(fen, i++, BOARD_SEPARATOR))
+				throw wrongBoards(fen);
+			boolean isWrapAround = isAt(fen, i, WRAPAROUND);
+			if (isWrapAround)
+				i++;
+			if (isWrapAround != board.isWrapAround())
+				throw wrongBoards(fen);
+
+			for (int row = board.getMaxRow(); row >= 1; row--)
+			{
+				if (row < board.getMaxRow() && !isAt(fen, i++, '/'))
+					throw wrongBoards(fen);
+
+				int col = 1;
+				while (col <= board.getMaxCol())
+				{
+					if (i == fen.length())
+						throw wrongBoards(fen);
+
+					char c = fen.charAt(i);
+					if (Character.isDigit(c))
+					{
+						int emptyCount = 0;
+						for (; i < fen.length() && Character.isDigit(fen.charAt(i)); i++)
+							emptyCount = emptyCount * 10 + fen.charAt(i) - '0';
+						for (int j = 0; j < emptyCount; j++, col++)
+						{
+							if (col > board.getMaxCol() || !board.getSquare(row, col).isHabitable())
+								throw wrongBoards(fen);
+						}
+						continue;
+					}
+
+					int index = mGeometry.indexOf(boardIndex, row, col++);
+					if (c == HOLE)
+					{
+						if (board.getSquare(row, col - 1).isHabitable())
+							throw wrongBoards(fen);
+						i++;
+						continue;
+					}
+					if (!board.getSquare(row, col - 1).isHabitable())
+						throw wrongBoards(fen);
+					i = readPiece(fen, i, names, isBlack, index);
+				}
+			}
+		}
+		return i;
+	}
+
+	/**
+	 * Read the Piece starting at the index into the arrays at the Square
+	 * index
+	 *
+	 * @return The index of the first character after it
+	 */
+	private int readPiece(String fen, int i, String[] names, boolean[] isBlack, int index) throws IOException
+	{
+		char c = fen.charAt(i);
+		if (c == '(')
+		{
+			int end = fen.indexOf(')', i);
+			if (end < i + 2)
+				throw badNotation(fen);
+			names[index] = mNamesByKey.get(getKey(fen.substring(i + 1, end)));
+			isBlack[index] = Character.isLowerCase(fen.charAt(i + 1));
+			if (names[index] == null)
+				throw new IOException(Messages.getString("FenConverter.unknownPiece") + fen.substring(i, end + 1)); //$NON-NLS-1$
+			return end + 1;
+		}
+
+		if (!Character.isLetter(c))
+			throw badNotation(fen);
+		names[index] = mNamesByLetter.get(Character.toUpperCase(c));
+		isBlack[index] = Character.isLowerCase(c);
+		if (names[index] == null)
+			throw new IOException(Messages.getString("FenConverter.unknownPiece") + c); //$NON-NLS-1$
+		return i + 1;
+	}
+
+	/**
+	 * @param i The index of the first character after the opening bracket
+	 * @return The index of the first character after the closing bracket
+	 */
+	private int readJail(String fen, int i, List<String> jailNames, List<Boolean> jailTeams) throws IOException
+	{
+		String[] name = new String[1];
+		boolean[] isBlack = new boolean[1];
+		while (!isAt(fen, i, ']'))
+		{
+			if (i == fen.length())
+				throw badNotation(fen);
+			i = readPiece(fen, i, name, isBlack, 0);
+			jailNames.add(name[0]);
+			jailTeams.add(isBlack[0]);
+		}
+		return i + 1;
+	}
+
+	/**
+	 * @return The moves made in the turn and the moves in a turn of white and
+	 * black, or null if the side to move isn't followed by them
+	 */
+	private static int[] readTurn(String field, String fen) throws IOException
+	{
+		if (field.length() == 1)
+			return null;
+
+		String[] counts = field.substring(2).split("/"); //$NON-NLS-1$
+		if (field.charAt(1) != TURN_SEPARATOR || counts.length != 3)
+			throw badNotation(fen);
+		int[] turn = new int[counts.length];
+		try
+		{
+			for (int i = 0; i < counts.length; i++)
+				turn[i] = Integer.parseInt(counts[i]);
+		}
+		catch (NumberFormatException e)
+		{
+			throw badNotation(fen);
+		}
+		return turn;
+	}
+
+	/**
+	 * Mark the Kings and Rooks that can still castle
+	 */
+	private void readCastling(String field, String[] names, boolean[] isBlack, boolean[] isUnmoved, String fen) throws IOException
+	{
+		if (field.equals(String.valueOf(NONE)))
+			return;
+
+		for (int i = 0; i < field.length(); i++)
+		{
+			char c = field.charAt(i);
+			boolean isBlackRook = Character.isLowerCase(c);
+			int kingIndex = findKing(names, isBlack, isBlackRook);
+			if (!Character.isLetter(c) || kingIndex < 0)
+				throw badNotation(fen);
+
+			Square kingSquare = mGeometry.getSquare(kingIndex);
+			int boardIndex = mGeometry.getBoardIndex(kingIndex);
+			Board board = mGeometry.getBoard(boardIndex);
+			char letter = Character.toLowerCase(c);
+			int rookIndex = -1;
+			if (letter == KING_SIDE || letter == QUEEN_SIDE)
+			{
+				// the outermost Rook on that side
+				int step = letter == KING_SIDE ? -1 : 1;
+				for (int col = letter == KING_SIDE ? board.getMaxCol() : 1; col != kingSquare.getCol() && rookIndex < 0; col += step)
+				{
+					int index = mGeometry.indexOf(boardIndex, kingSquare.getRow(), col);
+					if (isRook(names, isBlack, index, isBlackRook))
+						rookIndex = index;
+				}
+			}
+			else if (letter >= 'a' && letter - 'a' < board.getMaxCol())
+			{
+				int index = mGeometry.indexOf(boardIndex, kingSquare.getRow(), letter - 'a' + 1);
+				if (isRook(names, isBlack, index, isBlackRook))
+					rookIndex = index;
+			}
+			if (rookIndex < 0)
+				throw badNotation(fen);
+
+			isUnmoved[kingIndex] = true;
+			isUnmoved[rookIndex] = true;
+		}
+	}
+
+	private static int findKing(String[] names, boolean[] isBlack, boolean isBlackKing)
+	{
+		for (int index = 0; index < names.length; index++)
+		{
+			if (KING.equals(names[index]) && isBlack[index] == isBlackKing)
+				return index;
+		}
+		return -1;
+	}
+
+	private static boolean isRook(String[] names, boolean[] isBlack, int index, boolean isBlackRook)
+	{
+		return ROOK.equals(names[index]) && isBlack[index] == isBlackRook;
+	}
+
+	private void readEnpassant(String field, int[] enpassantCols, String fen) throws IOException
+	{
+		String[] squares = field.split("\\" + BOARD_SEPARATOR); //$NON-NLS-1$
+		if (squares.length != enpassantCols.length)
+			throw wrongBoards(fen);
+
+		for (int i = 0; i < squares.length; i++)
+		{
+			if (squares[i].equals(String.valueOf(NONE)))
+				continue;
+
+			int col = squares[i].charAt(0) - 'a' + 1;
+			if (col < 1 || col > mGeometry.getBoard(i).getMaxCol())
+				throw badNotation(fen);
+			enpassantCols[i] = col;
+		}
+	}
+
+	/**
+	 * Put the Pieces on their Squares and in the jail, and count the Kings
+	 * and Rooks that can castle and the Pieces on the Squares they started on
+	 * as unmoved
+	 */
+	private void placePieces(String[] names, boolean[] isBlack, boolean[] isUnmoved, List<String> jailNames, List<Boolean> jailTeams,
+			boolean hasJail) throws IOException
+	{
+		List<Piece> pieces = Lists.newArrayList(mGame.getWhiteTeam());
+		pieces.addAll(mGame.getBlackTeam());
+		Set<Piece> used = Sets.newIdentityHashSet();
+		Piece[] placed = new Piece[names.length];
+
+		// a Piece already where the position has one like it stays there
+		for (int index = 0; index < names.length; index++)
+		{
+			Piece piece = mGeometry.getSquare(index).getPiece();
+			if (names[index] != null && piece != null && piece.getName().equals(names[index]) && piece.isBlack() == isBlack[index]
+					&& used.add(piece))
+			{
+				placed[index] = piece;
+			}
+		}
+		for (int index = 0; index < names.length; index++)
+		{
+			if (names[index] != null && placed[index] == null)
+				placed[index] = takePiece(pieces, used, names[index], isBlack[index], mGeometry.getSquare(index));
+		}
+		Piece[] jailed = new Piece[jailNames.size()];
+		for (int i = 0; i < jailed.length; i++)
+			jailed[i] = takePiece(pieces, used, jailNames.get(i), jailTeams.get(i), null);
+
+		for (int index = 0; index < names.length; index++)
+			mGeometry.getSquare(index).setPiece(null);
+
+		for (int index = 0; index < names.length; index++)
+		{
+			if (names[index] == null)
+				continue;
+
+			Square square = mGeometry.getSquare(index);
+			Piece piece = placed[index];
+			if (piece == null)
+			{
+				piece = newPiece(names[index], isBlack[index], square);
+			}
+			else
+			{
+				if (piece.isBlack() != isBlack[index])
+					switchTeams(piece);
+				piece.setIsCaptured(false);
+				square.setPiece(piece);
+			}
+
+			boolean hasMoved;
+			if (piece.getName().equals(KING) || piece.getName().equals(ROOK))
+				hasMoved = !isUnmoved[index];
+			else
+				hasMoved = placed[index] == null || piece.getOriginalSquare() != square;
+			piece.setMoveCount(hasMoved ? Math.max(piece.getMoveCount(), 1) : 0);
+		}
+
+		for (int i = 0; i < jailed.length; i++)
+		{
+			Piece piece = jailed[i];
+			if (piece == null)
+			{
+				// made on a Square and taken off it again
+				Square square = mGeometry.getSquare(0);
+				Piece occupant = square.getPiece();
+				piece = newPiece(jailNames.get(i), jailTeams.get(i), square);
+				square.setPiece(occupant);
+			}
+			else if (piece.isBlack() != jailTeams.get(i))
+			{
+				switchTeams(piece);
+			}
+			piece.setIsCaptured(true);
+		}
+
+		for (Piece piece : pieces)
+		{
+			if (used.contains(piece))
+				continue;
+			if (hasJail)
+				(piece.isBlack() ? mGame.getBlackTeam() : mGame.getWhiteTeam()).remove(piece);
+			else
+				piece.setIsCaptured(true);
+		}
+	}
+
+	/**
+	 * @param square The Square the Piece goes to, to prefer the Piece that
+	 * started there, or null
+	 * @return An unused Piece of the name, of the team if there is one, or
+	 * null if there's none
+	 */
+	private static Piece takePiece(List<Piece> pieces, Set<Piece> used, String name, boolean isBlack, Square square)
+	{
+		Piece match = null;
+		for (Piece piece : pieces)
+		{
+			if (used.contains(piece) || !piece.getName().equals(name))
+				continue;
+			if (piece.isBlack() == isBlack && (square == null || piece.getOriginalSquare() == square))
+			{
+				match = piece;
+				break;
+			}
+			if (match == null || (match.isBlack() != isBlack && piece.isBlack() == isBlack))
+				match = piece;
+		}
+		if (match != null)
+			used.add(match);
+		return match;
+	}
+
+	private Piece newPiece(String name, boolean isBlack, Square square) throws IOException
+	{
+		Piece piece = PieceBuilder.makePiece(name, isBlack, square, square.getBoard());
+		(isBlack ? mGame.getBlackTeam() : mGame.getWhiteTeam()).add(piece);
+		return piece;
+	}
+
+	private void switchTeams(Piece piece)
+	{
+		(piece.isBlack() ? mGame.getBlackTeam() : mGame.getWhiteTeam()).remove(piece);
+		(piece.isBlack() ? mGame.getWhiteTeam() : mGame.getBlackTeam()).add(piece);
+		piece.setBlack(!piece.isBlack());
+	}
+
+	private static boolean isAt(String fen, int i, char c)
+	{
+		return i < fen.length() && fen.charAt(i) == c;
+	}
+
+	private static IOException badNotation(String fen)
+	{
+		return new IOException(Messages.getString("FenConverter.badNotation") + fen); //$NON-NLS-1$
+	}
+
+	private static IOException wrongBoards(String fen)
+	{
+		return new IOException(Messages.getString("FenConverter.wrongBoards") + fen); //$NON-NLS-1$
+	}
+
+	public static final String CLASSIC_START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"; //$NON-NLS-1$
+
+	private static final char NO_LETTER = 0;
+	private static final char PAWN_LETTER = 'P';
+	private static final char WHITE = 'w';
+	private static final char BLACK = 'b';
+	private static final char NONE = '-';
+	private static final char HOLE = '*';
+	private static final char WRAPAROUND = '~';
+	private static final char BOARD_SEPARATOR = '|';
+	private static final char TURN_SEPARATOR = ':';
+	private static final char KING_SIDE = 'k';
+	private static final char QUEEN_SIDE = 'q';
+	private static final int FEN_CAPACITY = 96;
+	private static final String PAWN = Messages.getString("pawn"); //$NON-NLS-1$
+	private static final String KING = Messages.getString("king"); //$NON-NLS-1$
+	private static final String ROOK = Messages.getString("rook"); //$NON-NLS-1$
+
+	private final Game mGame;
+	private final BoardGeometry mGeometry;
+	private final String[] mNames;
+	private final Map<String, Character> mLetters;
+	private final Map<Character, String> mNamesByLetter;
+	private final Map<String, String> mNamesByKey;
+}
@@ -0,0 +1,482 @@
+package logic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Collections;
+import java.util.List;
+
+import models.Game;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+
+/**
+ * Many completed games in one file, which is only ever appended to. Every
+ * game is an entry: a small header with what it's looked up by, then its
+ * GameRecord. Opening the archive reads the headers through a memory map,
+ * skipping over the records, and indexes the games by variant, result, date
+ * and player, so any game can be read without reading the others. The map
+ * is made once, of the entries there were then: records appended since are
+ * read through the channel, so appending never maps the file again.
+ *
+ * The file starts with a magic number, the version and the length of the
+ * entries written so far. That length is only updated once an entry is
+ * complete and forced to the disk, so an append that didn't finish is
+ * ignored, and written over by the next one. Deleting a game only marks its
+ * entry as deleted.
+ */
+public final class GameArchive implements Closeable
+{
+	/**
+	 * A game in the archive, and what it's indexed by
+	 */
+	public static final class Entry
+	{
+		private Entry(long offset, int recordOffset, int recordLength, String name, String variantName, Result result,
+				long dateMillis, String whitePlayer, String blackPlayer)
+		{
+			mOffset = offset;
+			mRecordOffset = recordOffset;
+			mRecordLength = recordLength;
+			mName = name;
+			mVariantName = variantName;
+			mResult = result;
+			mDateMillis = dateMillis;
+			mWhitePlayer = whitePlayer;
+			mBlackPlayer = blackPlayer;
+		}
+
+		public String getName()
+		{
+			return mName;
+		}
+
+		public String getVariantName()
+		{
+			return mVariantName;
+		}
+
+		public Result getResult()
+		{
+			return mResult;
+		}
+
+		/**
+		 * @return When the game was archived, in milliseconds since the epoch
+		 */
+		public long getDateMillis()
+		{
+			return mDateMillis;
+		}
+
+		public String getWhitePlayer()
+		{
+			return mWhitePlayer;
+		}
+
+		public String getBlackPlayer()
+		{
+			return mBlackPlayer;
+		}
+
+		@Override
+		public String toString()
+		{
+			return mName;
+		}
+
+		private final long mOffset;
+		private final int mRecordOffset;
+		private final int mRecordLength;
+		private final String mName;
+		private final String mVariantName;
+		private final Result mResult;
+		private final long mDateMillis;
+		private final String mWhitePlayer;
+		private final String mBlackPlayer;
+	}
+
+	private GameArchive(RandomAccessFile file)
+	{
+		mFile = file;
+		mChannel = file.getChannel();
+		mEntries = Lists.newArrayList();
+		mEntriesByDate = Lists.newArrayList();
+		mEntriesByVariant = ArrayListMultimap.create();
+		mEntriesByResult = ArrayListMultimap.create();
+		mEntriesByPlayer = ArrayListMultimap.create();
+	}
+
+	/**
+	 * @param file The archive to open, which is made if it doesn't exist
+	 * @return The archive, with every game in it indexed
+	 * @throws IOException If the file can't be read or written, or isn't an
+	 * archive of a version this can read
+	 */
+	public static GameArchive open(File file) throws IOException
+	{
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+		GameArchive archive = new GameArchive(randomAccessFile);
+		try
+		{
+			archive.readIndex();
+		}
+		catch (IOException e)
+		{
+			randomAccessFile.close();
+			throw e;
+		}
+		return archive;
+	}
+
+	private void readIndex() throws IOException
+	{
+		if (mChannel.size() == 0)
+		{
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0).putLong(HEADER_SIZE);
+			header.flip();
+			mChannel.write(header, 0);
+			mEndOffset = HEADER_SIZE;
+			return;
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		if (mChannel.size() < HEADER_SIZE || mChannel.read(header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC)
+			throw new IOException(Messages.getString("GameArchive.notAnArchive")); //$NON-NLS-1$
+		int version = header.getShort(VERSION_OFFSET);
+		if (version > VERSION)
+			throw new IOException(Messages.getString("GameArchive.newerVersion") + version); //$NON-NLS-1$
+		mEndOffset = header.getLong(END_OFFSET);
+		if (mEndOffset < HEADER_SIZE || mEndOffset > mChannel.size() || mEndOffset > Integer.MAX_VALUE)
+			throw new IOException(Messages.getString("GameArchive.notAnArchive")); //$NON-NLS-1$
+
+		mMap = mChannel.map(MapMode.READ_ONLY, 0, mEndOffset);
+		long offset = HEADER_SIZE;
+		while (offset < mEndOffset)
+		{
+			int length = mMap.getInt((int) offset);
+			if (length < ENTRY_FIXED_SIZE || offset + ENTRY_LENGTH_SIZE + length > mEndOffset)
+				throw new IOException(Messages.getString("GameArchive.notAnArchive")); //$NON-NLS-1$
+
+			if ((mMap.get((int) offset + ENTRY_LENGTH_SIZE) & FLAG_DELETED) == 0)
+				addToIndex(readEntry(mMap, offset, length));
+			offset += ENTRY_LENGTH_SIZE + length;
+		}
+	}
+
+	private static Entry readEntry(ByteBuffer map, long offset, int length) throws IOException
+	{
+		ByteBuffer buffer = map.duplicate();
+		buffer.limit((int) offset + ENTRY_LENGTH_SIZE + length);
+		buffer.position((int) offset + ENTRY_LENGTH_SIZE + ENTRY_FLAGS_SIZE);
+		DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+		long dateMillis = in.readLong();
+		int resultOrdinal = in.readUnsignedByte();
+		if (resultOrdinal >= Result.values().length)
+			throw new IOException(Messages.getString("GameArchive.notAnArchive")); //$NON-NLS-1$
+		String name = in.readUTF();
+		String variantName = in.readUTF();
+		String whitePlayer = in.readUTF();
+		String blackPlayer = in.readUTF();
+
+		return new Entry(offset, buffer.position(), buffer.remaining(), name, variantName, Result.values()[resultOrdinal],
+				dateMillis, whitePlayer, blackPlayer);
+	}
+
+	private void addToIndex(Entry entry)
+	{
+		mEntries.add(entry);
+		mEntriesByVariant.put(entry.mVariantName, entry);
+		mEntriesByResult.put(entry.mResult, entry);
+		mEntriesByPlayer.put(entry.mWhitePlayer, entry);
+		if (!entry.mBlackPlayer.equals(entry.mWhitePlayer))
+			mEntriesByPlayer.put(entry.mBlackPlayer, entry);
+
+		// games are mostly archived in the order they're played, so this
+		// seldom looks further back than the last one
+		int index = mEntriesByDate.size();
+		while (index > 0 && mEntriesByDate.get(index - 1).mDateMillis > entry.mDateMillis)
+			index--;
+		mEntriesByDate.add(index, entry);
+	}
+
+	private void removeFromIndex(Entry entry)
+	{
+		mEntries.remove(entry);
+		mEntriesByDate.remove(entry);
+		mEntriesByVariant.remove(entry.mVariantName, entry);
+		mEntriesByResult.remove(entry.mResult, entry);
+		mEntriesByPlayer.remove(entry.mWhitePlayer, entry);
+		mEntriesByPlayer.remove(entry.mBlackPlayer, entry);
+	}
+
+	/**
+	 * Add a game to the end of the archive
+	 *
+	 * @param name The name to list the game by
+	 * @param record The game
+	 * @param result How the game ended
+	 * @param dateMillis When the game was played, in milliseconds since the
+	 * epoch
+	 * @param whitePlayer Who played white, or an empty String
+	 * @param blackPlayer Who played black, or an empty String
+	 * @return The entry of the game
+	 * @throws IOException If the archive can't be written
+	 */
+	public synchronized Entry append(String name, GameRecord record, Result result, long dateMillis, String whitePlayer,
+			String blackPlayer) throws IOException
+	{
+		Preconditions.checkArgument(name != null);
+		Preconditions.checkArgument(record != null);
+		Preconditions.checkArgument(result != null);
+		Preconditions.checkArgument(whitePlayer != null);
+		Preconditions.checkArgument(blackPlayer != null);
+		Preconditions.checkState(mChannel.isOpen());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0);
+		out.writeByte(0);
+		out.writeLong(dateMillis);
+		out.writeByte(result.ordinal());
+		out.writeUTF(name);
+		out.writeUTF(record.getVariantName());
+		out.writeUTF(whitePlayer);
+		out.writeUTF(blackPlayer);
+		int recordOffset = out.size();
+		record.write(out);
+
+		ByteBuffer entryBytes = ByteBuffer.wrap(bytes.toByteArray());
+		int length = entryBytes.remaining() - ENTRY_LENGTH_SIZE;
+		if (mEndOffset + entryBytes.remaining() > Integer.MAX_VALUE)
+			throw new IOException(Messages.getString("GameArchive.full")); //$NON-NLS-1$
+		entryBytes.putInt(0, length);
+
+		long offset = mEndOffset;
+		writeFully(entryBytes, offset);
+		// the entry only counts once it's all there, so it has to reach the
+		// disk before the length does
+		mChannel.force(false);
+		ByteBuffer endOffset = ByteBuffer.allocate(END_SIZE);
+		endOffset.putLong(0, offset + entryBytes.capacity());
+		writeFully(endOffset, END_OFFSET);
+		mEndOffset = offset + entryBytes.capacity();
+
+		Entry entry = new Entry(offset, (int) offset + recordOffset, entryBytes.capacity() - recordOffset, name,
+				record.getVariantName(), result, dateMillis, whitePlayer, blackPlayer);
+		addToIndex(entry);
+		return entry;
+	}
+
+	/**
+	 * Mark a game as deleted. Its space isn't given back.
+	 *
+	 * @param entry The entry of the game, from this archive
+	 * @throws IOException If the archive can't be written
+	 */
+	public synchronized void delete(Entry entry) throws IOException
+	{
+		Preconditions.checkArgument(mEntries.contains(entry));
+
+		ByteBuffer flags = ByteBuffer.allocate(ENTRY_FLAGS_SIZE);
+		flags.put(0, (byte) FLAG_DELETED);
+		writeFully(flags, entry.mOffset + ENTRY_LENGTH_SIZE);
+		removeFromIndex(entry);
+	}
+
+	private void writeFully(ByteBuffer buffer, long position) throws IOException
+	{
+		while (buffer.hasRemaining())
+			position += mChannel.write(buffer, position);
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			int read = mChannel.read(buffer, position);
+			if (read < 0)
+				throw new IOException(Messages.getString("GameArchive.notAnArchive")); //$NON-NLS-1$
+			position += read;
+		}
+	}
+
+	/**
+	 * @param entry The entry of the game, from this archive
+	 * @return The GameRecord of the game, read straight from the memory map
+	 * if it was there when the archive was opened
+	 * @throws IOException If the archive can't be read
+	 */
+	public GameRecord readRecord(Entry entry) throws IOException
+	{
+		return GameRecord.read(new ByteBufferInputStream(getRecordBytes(entry)));
+	}
+
+	private synchronized ByteBuffer getRecordBytes(Entry entry) throws IOException
+	{
+		Preconditions.checkState(mChannel.isOpen());
+
+		int end = entry.mRecordOffset + entry.mRecordLength;
+		if (mMap != null && end <= mMap.capacity())
+		{
+			ByteBuffer buffer = mMap.duplicate();
+			buffer.limit(end);
+			buffer.position(entry.mRecordOffset);
+			return buffer;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(entry.mRecordLength);
+		readFully(buffer, entry.mRecordOffset);
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * @param entry The entry of the game, from this archive
+	 * @return The game, played up to its end
+	 * @throws IOException If the archive can't be read, or the game can't be
+	 * made again
+	 */
+	public Game load(Entry entry) throws IOException
+	{
+		return readRecord(entry).toGame();
+	}
+
+	/**
+	 * @return Every game, in the order they were archived
+	 */
+	public synchronized List<Entry> getEntries()
+	{
+		return Collections.unmodifiableList(Lists.newArrayList(mEntries));
+	}
+
+	public synchronized List<Entry> getEntriesByVariant(String variantName)
+	{
+		return Collections.unmodifiableList(Lists.newArrayList(mEntriesByVariant.get(variantName)));
+	}
+
+	public synchronized List<Entry> getEntriesByResult(Result result)
+	{
+		return Collections.unmodifiableList(Lists.newArrayList(mEntriesByResult.get(result)));
+	}
+
+	/**
+	 * @param player The name of a player
+	 * @return The games the player played either team in
+	 */
+	public synchronized List<Entry> getEntriesByPlayer(String player)
+	{
+		return Collections.unmodifiableList(Lists.newArrayList(mEntriesByPlayer.get(player)));
+	}
+
+	/**
+	 * @param fromMillis The earliest date, inclusive
+	 * @param toMillis The latest date, exclusive
+	 * @return The games played between the dates, from the earliest
+	 */
+	public synchronized List<Entry> getEntriesBetween(long fromMillis, long toMillis)
+	{
+		int from = firstEntryAtOrAfter(fromMillis);
+		int to = Math.max(from, firstEntryAtOrAfter(toMillis));
+		return Collections.unmodifiableList(Lists.newArrayList(mEntriesByDate.subList(from, to)));
+	}
+
+	private int firstEntryAtOrAfter(long dateMillis)
+	{
+		int low = 0;
+		int high = mEntriesByDate.size();
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if (mEntriesByDate.get(middle).mDateMillis < dateMillis)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	public synchronized int size()
+	{
+		return mEntries.size();
+	}
+
+	@Override
+	public synchronized void close() throws IOException
+	{
+		mMap = null;
+		mFile.close();
+	}
+
+	/**
+	 * Reads a ByteBuffer, so records are read from the map without copying
+	 * them first
+	 */
+	private static final class ByteBufferInputStream extends InputStream
+	{
+		ByteBufferInputStream(ByteBuffer buffer)
+		{
+			mBuffer = buffer;
+		}
+
+		@Override
+		public int read()
+		{
+			return mBuffer.hasRemaining() ? mBuffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length)
+		{
+			if (length == 0)
+				return 0;
+			if (!mBuffer.hasRemaining())
+				return -1;
+
+			length = Math.min(length, mBuffer.remaining());
+			mBuffer.get(bytes, offset, length);
+			return length;
+		}
+
+		private final ByteBuffer mBuffer;
+	}
+
+	/**
+	 * The first four bytes of every archive: "CCGA"
+	 */
+	public static final int MAGIC = 0x43434741;
+	public static final int VERSION = 1;
+
+	private static final int VERSION_OFFSET = 4;
+	private static final int END_OFFSET = 8;
+	private static final int END_SIZE = 8;
+	private static final int HEADER_SIZE = END_OFFSET + END_SIZE;
+	private static final int ENTRY_LENGTH_SIZE = 4;
+	private static final int ENTRY_FLAGS_SIZE = 1;
+	// the flags, date and result, and the lengths of the four Strings
+	private static final int ENTRY_FIXED_SIZE = ENTRY_FLAGS_SIZE + 8 + 1 + 4 * 2;
+	private static final int FLAG_DELETED = 1;
+
+	private final RandomAccessFile mFile;
+	private final FileChannel mChannel;
+	private final List<Entry> mEntries;
+	private final List<Entry> mEntriesByDate;
+	private final ListMultimap<String, Entry> mEntriesByVariant;
+	private final ListMultimap<Result, Entry> mEntriesByResult;
+	private final ListMultimap<String, Entry> mEntriesByPlayer;
+	private long mEndOffset;
+	private MappedByteBuffer mMap;
+}
@@ -71,6 +71,25 @@ public class GameBuilder implements Serializable
 	 * @throws IOException
 	 */
 	private static void buildClassic() throws IOException
+	{
+		createClassicBuilder().writeFile(new Rules(false), new Rules(true));
+	}
+
+	/**
+	 * Build a new game of classic chess in memory, without going through the
+	 * variants saved on disk.
+	 * 
+	 * @return The created Game object
+	 * @throws IOException
+	 */
+	public static Game newClassicGame() throws IOException
+	{
+		GameBuilder classic = createClassicBuilder();
+		return new Game(classic.mName, classic.mBoards, classic.mWhiteTeam, classic.mBlackTeam, new Rules(false), new Rules(true),
+				classic.mWhitePromotionMap, classic.mBlackPromotionMap);
+	}
+
+	private static GameBuilder createClassicBuilder() throws IOException
 	{
 		GameBuilder classic = new GameBuilder(Messages.getString("classic"));// Name is Classic chess //$NON-NLS-1$
 		classic.setBoards(new Board[] { new Board(8, 8, false) });
@@ -98,7 +117,7 @@ public class GameBuilder implements Serializable
 		classic.mBlackTeam.add(createKnight(true, b.getSquare(8, 7), b));
 		classic.mBlackTeam.add(createRook(true, b.getSquare(8, 8), b));
 
-		classic.writeFile(new Rules(false), new Rules(true));
+		return classic;
 	}
 
 	/**
@@ -275,6 +294,9 @@ public class GameBuilder implements Serializable
 					Game toReturn = new Game(name, b.mBoards, b.mWhiteTeam, b.mBlackTeam, b.getWhiteRules(), b.getBlackRules(),
 							b.mWhitePromotionMap, b.mBlackPromotionMap);
 					in.close();
+					// custom variants are where a full rebuild after every move
+					// hurts; Games that switch Boards always rebuild anyway
+					toReturn.setIncrementalLegalDests(true);
 
 					return toReturn;
 				}
@@ -0,0 +1,471 @@
+package logic;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import models.Board;
+import models.BoardGeometry;
+import models.Game;
+import models.PackedMove;
+import models.Piece;
+import models.Square;
+import timer.ChessTimer;
+import timer.TimerTypes;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * A saved game in a compact binary form, instead of the whole object graph of
+ * a Game written by an ObjectOutputStream: the variant it's a game of, the
+ * position it started from, its moves packed by PackedMove, and its timers.
+ * A game is read back by building the variant again and replaying the moves,
+ * so a game of a few hundred moves takes a few KB.
+ *
+ * After a magic number and the version, the record holds, with every count,
+ * index and packed move as an unsigned varint:
+ * <ul>
+ * <li>the name of the variant</li>
+ * <li>the names of the Pieces in the starting position, then a code for each
+ * Square of the BoardGeometry: 0 if it's empty, or twice one more than the
+ * name index, plus 1 for a black Piece</li>
+ * <li>the moves</li>
+ * <li>the type, increment and starting time of each timer, then, unless there
+ * are no timers, the time on both timers before each move and at the end, as
+ * signed varints of the change from the time before</li>
+ * </ul>
+ */
+public final class GameRecord
+{
+	private GameRecord(String variantName, String[] pieceNames, int[] squareCodes, int[] moves, TimerTypes timerType,
+			long[] timerSettings, long[] times, int[] clockDirections)
+	{
+		mVariantName = variantName;
+		mPieceNames = pieceNames;
+		mSquareCodes = squareCodes;
+		mMoves = moves;
+		mTimerType = timerType;
+		mTimerSettings = timerSettings;
+		mTimes = times;
+		mClockDirections = clockDirections;
+	}
+
+	/**
+	 * @param game The Game to record, which isn't changed
+	 * @return The record of the Game and its history
+	 * @throws IOException If the variant of the Game can't be built anymore,
+	 * or a Move of its history can't be packed
+	 */
+	public static GameRecord fromGame(Game game) throws IOException
+	{
+		// the starting position is the one of the variant, which is checked
+		// against the record when it's read back
+		Game start = newVariantGame(game.getGameType());
+		List<String> pieceNames = Lists.newArrayList();
+		int[] squareCodes = getSquareCodes(start, pieceNames);
+		if (start.getGeometry().size() != game.getGeometry().size())
+			throw new IOException(game.getGameType());
+
+		List<Move> history = game.getHistory();
+		BoardGeometry geometry = game.getGeometry();
+		int[] moves = new int[history.size()];
+		for (int i = 0; i < moves.length; i++)
+			moves[i] = packMove(history.get(i), geometry);
+
+		ChessTimer whiteTimer = game.getWhiteTimer();
+		ChessTimer blackTimer = game.getBlackTimer();
+		TimerTypes timerType = whiteTimer.getType();
+		long[] timerSettings = new long[] { whiteTimer.getIncrementAmount(), getStartTime(whiteTimer), blackTimer.getIncrementAmount(),
+				getStartTime(blackTimer) };
+		long[] times = new long[0];
+		if (timerType != TimerTypes.NO_TIMER)
+		{
+			times = new long[2 * (moves.length + 1)];
+			for (int i = 0; i < moves.length; i++)
+			{
+				times[2 * i] = history.get(i).getOldWhiteTime();
+				times[2 * i + 1] = history.get(i).getOldBlackTime();
+			}
+			times[2 * moves.length] = whiteTimer.getRawTime();
+			times[2 * moves.length + 1] = blackTimer.getRawTime();
+		}
+		int[] clockDirections = new int[] { whiteTimer.getClockDirection(), blackTimer.getClockDirection() };
+
+		return new GameRecord(game.getGameType(), pieceNames.toArray(new String[pieceNames.size()]), squareCodes, moves, timerType,
+				timerSettings, times, clockDirections);
+	}
+
+	/**
+	 * Record moves played without Move objects, by Game.makeMove, as the
+	 * importers do. The record has no timers.
+	 *
+	 * @param start A Game of the variant, at the position the variant starts
+	 * from
+	 * @param moves The moves played from there, packed by PackedMove
+	 * @return The record of the moves
+	 */
+	public static GameRecord fromMoves(Game start, int[] moves)
+	{
+		List<String> pieceNames = Lists.newArrayList();
+		int[] squareCodes = getSquareCodes(start, pieceNames);
+		return new GameRecord(start.getGameType(), pieceNames.toArray(new String[pieceNames.size()]), squareCodes, moves.clone(),
+				TimerTypes.NO_TIMER, new long[4], new long[0], new int[] { 1, 1 });
+	}
+
+	private static int packMove(Move move, BoardGeometry geometry) throws IOException
+	{
+		int origin = geometry.indexOf(move.origin);
+		int dest = geometry.indexOf(move.getDest());
+		if (origin < 0 || dest < 0)
+			throw new IOException(move.toString());
+
+		int promotion = 0;
+		if (move.getPromoPiece() != null && move.getPiece().getPromotesTo() != null)
+			promotion = move.getPiece().getPromotesTo().indexOf(move.getPromoPiece().getName()) + 1;
+		return PackedMove.pack(origin, dest, promotion);
+	}
+
+	/**
+	 * The hour glass timer is made with half of the time it's given, so it's
+	 * given twice its starting time to make it again
+	 */
+	private static long getStartTime(ChessTimer timer)
+	{
+		return timer.getType() == TimerTypes.HOUR_GLASS ? 2 * timer.getStartTime() : timer.getStartTime();
+	}
+
+	private static int[] getSquareCodes(Game game, List<String> pieceNames)
+	{
+		BoardGeometry geometry = game.getGeometry();
+		int[] squareCodes = new int[geometry.size()];
+		for (int index = 0; index < squareCodes.length; index++)
+		{
+			Piece piece = geometry.getSquare(index).getPiece();
+			if (piece == null)
+				continue;
+
+			int nameIndex = pieceNames.indexOf(piece.getName());
+			if (nameIndex < 0)
+			{
+				nameIndex = pieceNames.size();
+				pieceNames.add(piece.getName());
+			}
+			squareCodes[index] = 2 * (nameIndex + 1) + (piece.isBlack() ? 1 : 0);
+		}
+		return squareCodes;
+	}
+
+	/**
+	 * @param variantName The name of a variant, or of classic chess
+	 * @return A new Game of the variant
+	 * @throws IOException If there's no variant of that name
+	 */
+	static Game newVariantGame(String variantName) throws IOException
+	{
+		Game game = variantName.equals(Messages.getString("classic")) ? GameBuilder.newClassicGame() : GameBuilder.newGame(variantName); //$NON-NLS-1$
+		if (game == null)
+			throw new IOException(variantName);
+		return game;
+	}
+
+	/**
+	 * Build the variant again and replay the moves. The Game's timers have no
+	 * callback for running out of time yet.
+	 *
+	 * @return The Game, with its history and timers as they were recorded
+	 * @throws IOException If the variant can't be built, doesn't start from
+	 * the recorded position anymore, or doesn't allow one of the moves
+	 */
+	public Game toGame() throws IOException
+	{
+		Game game = newVariantGame(mVariantName);
+		int[] squareCodes = getSquareCodes(game, Lists.newArrayList(Arrays.asList(mPieceNames)));
+		if (!Arrays.equals(squareCodes, mSquareCodes))
+			throw new IOException(mVariantName);
+
+		ChessTimer whiteTimer = ChessTimer.createTimer(mTimerType, null, mTimerSettings[0], mTimerSettings[1], false);
+		ChessTimer blackTimer = ChessTimer.createTimer(mTimerType, null, mTimerSettings[2], mTimerSettings[3], true);
+		game.setTimers(whiteTimer, blackTimer);
+
+		game.setIsPlayback(true);
+		BoardGeometry geometry = game.getGeometry();
+		for (int i = 0; i < mMoves.length; i++)
+		{
+			if (mTimes.length > 0)
+			{
+				whiteTimer.setClockTime(mTimes[2 * i]);
+				blackTimer.setClockTime(mTimes[2 * i + 1]);
+			}
+			replayMove(game, geometry, mMoves[i]);
+		}
+		if (mTimes.length > 0)
+		{
+			whiteTimer.setClockTime(mTimes[2 * mMoves.length]);
+			blackTimer.setClockTime(mTimes[2 * mMoves.length + 1]);
+		}
+		whiteTimer.setClockDirection(mClockDirections[0]);
+		blackTimer.setClockDirection(mClockDirections[1]);
+		game.setIsPlayback(false);
+		return game;
+	}
+
+	/**
+	 * Play a move the way the GUI does, so it's in the history with
+	 * everything it needs to be undone, but without telling the GUI
+	 */
+	private static void replayMove(Game game, BoardGeometry geometry, int packedMove) throws IOException
+	{
+		if (PackedMove.getOrigin(packedMove) >= geometry.size() || PackedMove.getDest(packedMove) >= geometry.size())
+			throw new IOException(Integer.toString(packedMove));
+
+		Square origin = geometry.getSquare(PackedMove.getOrigin(packedMove));
+		Square dest = geometry.getSquare(PackedMove.getDest(packedMove));
+		int promotion = PackedMove.getPromotion(packedMove);
+		String promotionName = null;
+		if (promotion > 0 && origin.isOccupied())
+			promotionName = origin.getPiece().getPromotesTo().get(promotion - 1);
+
+		if (game.isStaleLegalDests())
+			game.genLegalDests();
+		Board board = origin.getBoard();
+		Move move;
+		try
+		{
+			move = new Move(board, origin, dest, promotionName);
+		}
+		catch (Exception e)
+		{
+			throw new IOException(e);
+		}
+		if (!move.execute())
+			throw new IOException(move.toString());
+
+		game.getHistory().add(move);
+		if (game.getWhiteRules().countMove())
+			game.setBlackMove(!game.isBlackMove());
+	}
+
+	/**
+	 * @param file The file to check
+	 * @return Whether the file starts like a GameRecord, rather than a
+	 * serialized Game
+	 */
+	public static boolean isGameRecord(File file)
+	{
+		try
+		{
+			DataInputStream in = new DataInputStream(new FileInputStream(file));
+			try
+			{
+				return in.readInt() == MAGIC;
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * @param file The file to read a GameRecord from
+	 * @return The Game it records
+	 * @throws IOException If the file can't be read, or isn't a GameRecord of
+	 * a version this can read, or the Game can't be made again
+	 */
+	public static Game load(File file) throws IOException
+	{
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try
+		{
+			return read(in).toGame();
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * @param in The stream to read the record from
+	 * @return The record
+	 * @throws IOException If the stream can't be read, or doesn't hold a
+	 * GameRecord of a version this can read
+	 */
+	public static GameRecord read(InputStream in) throws IOException
+	{
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC)
+			throw new IOException(Messages.getString("GameRecord.notAGameRecord")); //$NON-NLS-1$
+		int version = data.readUnsignedShort();
+		if (version > VERSION)
+			throw new IOException(Messages.getString("GameRecord.newerVersion") + version); //$NON-NLS-1$
+
+		String variantName = data.readUTF();
+		String[] pieceNames = new String[readVarint(data)];
+		for (int i = 0; i < pieceNames.length; i++)
+			pieceNames[i] = data.readUTF();
+		int[] squareCodes = new int[readVarint(data)];
+		for (int i = 0; i < squareCodes.length; i++)
+			squareCodes[i] = readVarint(data);
+		int[] moves = new int[readVarint(data)];
+		for (int i = 0; i < moves.length; i++)
+			moves[i] = readVarint(data);
+
+		int timerOrdinal = readVarint(data);
+		if (timerOrdinal >= TimerTypes.values().length)
+			throw new IOException(Messages.getString("GameRecord.notAGameRecord")); //$NON-NLS-1$
+		TimerTypes timerType = TimerTypes.values()[timerOrdinal];
+		long[] timerSettings = new long[4];
+		for (int i = 0; i < timerSettings.length; i++)
+			timerSettings[i] = readVarlong(data);
+		long[] times = new long[timerType == TimerTypes.NO_TIMER ? 0 : 2 * (moves.length + 1)];
+		long whiteTime = timerSettings[1];
+		long blackTime = timerSettings[3];
+		for (int i = 0; i < times.length; i += 2)
+		{
+			whiteTime += readSignedVarlong(data);
+			blackTime += readSignedVarlong(data);
+			times[i] = whiteTime;
+			times[i + 1] = blackTime;
+		}
+		int[] clockDirections = new int[] { data.readByte(), data.readByte() };
+
+		return new GameRecord(variantName, pieceNames, squareCodes, moves, timerType, timerSettings, times, clockDirections);
+	}
+
+	/**
+	 * @param out The stream to write the record to, which is flushed but not
+	 * closed
+	 * @throws IOException If the stream can't be written
+	 */
+	public void write(OutputStream out) throws IOException
+	{
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeShort(VERSION);
+
+		data.writeUTF(mVariantName);
+		writeVarint(data, mPieceNames.length);
+		for (String pieceName : mPieceNames)
+			data.writeUTF(pieceName);
+		writeVarint(data, mSquareCodes.length);
+		for (int squareCode : mSquareCodes)
+			writeVarint(data, squareCode);
+		writeVarint(data, mMoves.length);
+		for (int move : mMoves)
+			writeVarint(data, move);
+
+		writeVarint(data, mTimerType.ordinal());
+		for (long timerSetting : mTimerSettings)
+			writeVarlong(data, timerSetting);
+		long whiteTime = mTimerSettings[1];
+		long blackTime = mTimerSettings[3];
+		for (int i = 0; i < mTimes.length; i += 2)
+		{
+			writeSignedVarlong(data, mTimes[i] - whiteTime);
+			writeSignedVarlong(data, mTimes[i + 1] - blackTime);
+			whiteTime = mTimes[i];
+			blackTime = mTimes[i + 1];
+		}
+		data.writeByte(mClockDirections[0]);
+		data.writeByte(mClockDirections[1]);
+		data.flush();
+	}
+
+	private static void writeVarint(DataOutput out, int value) throws IOException
+	{
+		Preconditions.checkArgument(value >= 0);
+		writeVarlong(out, value);
+	}
+
+	private static void writeVarlong(DataOutput out, long value) throws IOException
+	{
+		while ((value & ~0x7FL) != 0)
+		{
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static void writeSignedVarlong(DataOutput out, long value) throws IOException
+	{
+		// zigzag, so small negative numbers are short too
+		writeVarlong(out, (value << 1) ^ (value >> 63));
+	}
+
+	private static int readVarint(DataInput in) throws IOException
+	{
+		long value = readVarlong(in);
+		if (value < 0 || value > Integer.MAX_VALUE)
+			throw new IOException(Messages.getString("GameRecord.notAGameRecord")); //$NON-NLS-1$
+		return (int) value;
+	}
+
+	private static long readVarlong(DataInput in) throws IOException
+	{
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7)
+		{
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException(Messages.getString("GameRecord.notAGameRecord")); //$NON-NLS-1$
+	}
+
+	private static long readSignedVarlong(DataInput in) throws IOException
+	{
+		long value = readVarlong(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public String getVariantName()
+	{
+		return mVariantName;
+	}
+
+	public int getMoveCount()
+	{
+		return mMoves.length;
+	}
+
+	/**
+	 * @param index The index of the move, from 0
+	 * @return The move, packed by PackedMove
+	 */
+	public int getMove(int index)
+	{
+		return mMoves[index];
+	}
+
+	/**
+	 * The first four bytes of every record: "CCGR"
+	 */
+	public static final int MAGIC = 0x43434752;
+	public static final int VERSION = 1;
+
+	private final String mVariantName;
+	private final String[] mPieceNames;
+	private final int[] mSquareCodes;
+	private final int[] mMoves;
+	private final TimerTypes mTimerType;
+	private final long[] mTimerSettings;
+	private final long[] mTimes;
+	private final int[] mClockDirections;
+}
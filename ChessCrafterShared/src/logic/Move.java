@@ -257,10 +257,8 @@ public class Move implements Serializable
 			{
 				setCaptured(board.getSquare(origin.getRow(), getDest().getCol()).getPiece());
 			}
-			else
-			{
-				board.setEnpassantCol(Board.NO_ENPASSANT);
-			}
+			// an en passant capture uses up the column too
+			board.setEnpassantCol(Board.NO_ENPASSANT);
 		}
 
 		// Take the captured Piece off the board
@@ -327,6 +325,7 @@ public class Move implements Serializable
 
 		board.getGame().afterMove(this);
 
+		prev = board.getGame().getLastMove();
 		if (isVerified() && prev == null)
 		{
 			oldWhiteTime = oldBlackTime = -1;
@@ -342,7 +341,6 @@ public class Move implements Serializable
 			oldBlackDirection = board.getGame().getBlackTimer().getClockDirection();
 		}
 
-		prev = board.getGame().getLastMove();
 		board.getGame().setLastMove(this);
 
 		board.getGame().setStaleLegalDests(true);
@@ -756,6 +754,24 @@ public class Move implements Serializable
 		return exploded;
 	}
 
+	/**
+	 * @return The time on the white timer before this Move, or -1 for the
+	 * time it started with
+	 */
+	public long getOldWhiteTime()
+	{
+		return oldWhiteTime;
+	}
+
+	/**
+	 * @return The time on the black timer before this Move, or -1 for the
+	 * time it started with
+	 */
+	public long getOldBlackTime()
+	{
+		return oldBlackTime;
+	}
+
 	/**
 	 * @return returns the piece that will replace the piece being promoted.
 	 */
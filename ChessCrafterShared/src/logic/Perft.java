@@ -0,0 +1,193 @@
+package logic;
+
+import java.io.IOException;
+import java.util.Map;
+
+import models.BoardGeometry;
+import models.Game;
+import models.PackedMove;
+import models.Piece;
+import models.Square;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+/**
+ * Perft counts the positions reachable from a Game in a given number of
+ * moves, to check move generation against known counts and to time it.
+ * Moves are made with Game.makeMove, so nothing is shown while counting, and
+ * every promotion choice counts as its own move.
+ */
+public final class Perft
+{
+	/**
+	 * @param game The Game to count from, which is left as it was
+	 */
+	public Perft(Game game)
+	{
+		Preconditions.checkArgument(game != null);
+
+		mGame = game;
+	}
+
+	/**
+	 * Count the positions reachable in the given number of moves
+	 *
+	 * @param depth The number of moves to look ahead
+	 * @return The number of positions at that depth
+	 */
+	public long perft(int depth)
+	{
+		Preconditions.checkArgument(depth >= 0);
+
+		long start = System.nanoTime();
+		long nodes = countNodes(depth);
+		mElapsedNanos = System.nanoTime() - start;
+		mNodes = nodes;
+		return nodes;
+	}
+
+	/**
+	 * Count the positions reachable in the given number of moves, split up by
+	 * the first move, which makes it easy to find the move a wrong count
+	 * comes from
+	 *
+	 * @param depth The number of moves to look ahead, at least 1
+	 * @return The count for each first move, in the order they were generated
+	 */
+	public Map<String, Long> divide(int depth)
+	{
+		Preconditions.checkArgument(depth >= 1);
+
+		Map<String, Long> counts = Maps.newLinkedHashMap();
+		long start = System.nanoTime();
+		long nodes = 0;
+		for (int move : mGame.getLegalMoves())
+		{
+			String name = getMoveName(move);
+			mGame.makeMove(move);
+			long count = countNodes(depth - 1);
+			mGame.unmakeMove();
+
+			counts.put(name, count);
+			nodes += count;
+		}
+		mElapsedNanos = System.nanoTime() - start;
+		mNodes = nodes;
+		return counts;
+	}
+
+	/**
+	 * @return The number of positions counted by the last perft or divide
+	 */
+	public long getNodes()
+	{
+		return mNodes;
+	}
+
+	/**
+	 * @return How long the last perft or divide took, in nanoseconds
+	 */
+	public long getElapsedNanos()
+	{
+		return mElapsedNanos;
+	}
+
+	/**
+	 * @return The positions per second counted by the last perft or divide
+	 */
+	public long getNodesPerSecond()
+	{
+		return (mElapsedNanos == 0) ? 0 : (long) (mNodes * 1e9 / mElapsedNanos);
+	}
+
+	/**
+	 * Name a move by its Squares, like e2e4, with the Board number in front
+	 * if there is more than one Board, and the promotion type at the end
+	 *
+	 * @param move The move, packed by PackedMove
+	 * @return The name of the move
+	 */
+	public String getMoveName(int move)
+	{
+		BoardGeometry geometry = mGame.getGeometry();
+		Square origin = geometry.getSquare(PackedMove.getOrigin(move));
+		Square dest = geometry.getSquare(PackedMove.getDest(move));
+
+		StringBuilder name = new StringBuilder();
+		appendSquareName(name, geometry, PackedMove.getOrigin(move), origin);
+		appendSquareName(name, geometry, PackedMove.getDest(move), dest);
+
+		int promotion = PackedMove.getPromotion(move);
+		Piece piece = origin.getPiece();
+		if (promotion > 0 && piece != null)
+			name.append('=').append(piece.getPromotesTo().get(promotion - 1));
+		return name.toString();
+	}
+
+	private long countNodes(int depth)
+	{
+		if (depth == 0)
+			return 1;
+
+		int[] moves = mGame.getLegalMoves();
+		if (depth == 1)
+			return moves.length;
+
+		long nodes = 0;
+		for (int move : moves)
+		{
+			mGame.makeMove(move);
+			nodes += countNodes(depth - 1);
+			mGame.unmakeMove();
+		}
+		return nodes;
+	}
+
+	private static void appendSquareName(StringBuilder name, BoardGeometry geometry, int index, Square square)
+	{
+		if (geometry.getBoardCount() > 1)
+			name.append(geometry.getBoardIndex(index) + 1).append(':');
+		name.append((char) ('a' + square.getCol() - 1)).append(square.getRow());
+	}
+
+	/**
+	 * Run perft from the command line:
+	 * <code>Perft &lt;variant&gt; &lt;depth&gt; [divide]</code>, where the
+	 * variant is Classic or the name of a saved variant
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 2)
+		{
+			System.out.println("Usage: Perft <variant> <depth> [divide]"); //$NON-NLS-1$
+			return;
+		}
+
+		Game game = args[0].equals(Messages.getString("classic")) ? GameBuilder.newClassicGame() : GameBuilder.newGame(args[0]); //$NON-NLS-1$
+		if (game == null)
+		{
+			System.out.println("No variant named " + args[0]); //$NON-NLS-1$
+			return;
+		}
+		game.setIsPlayback(true);
+
+		Perft perft = new Perft(game);
+		int depth = Integer.parseInt(args[1]);
+		if (args.length > 2 && args[2].equals("divide")) //$NON-NLS-1$
+		{
+			for (Map.Entry<String, Long> entry : perft.divide(depth).entrySet())
+				System.out.println(entry.getKey() + ": " + entry.getValue()); //$NON-NLS-1$
+		}
+		else
+		{
+			perft.perft(depth);
+		}
+		System.out.println("Nodes: " + perft.getNodes()); //$NON-NLS-1$
+		System.out.println("Nodes/second: " + perft.getNodesPerSecond()); //$NON-NLS-1$
+	}
+
+	private final Game mGame;
+	private long mNodes;
+	private long mElapsedNanos;
+}
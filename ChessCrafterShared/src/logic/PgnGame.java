@@ -0,0 +1,338 @@
+package logic;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import models.Game;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A game as PGN has it: its tag pairs, its moves in SAN, the comments between
+ * them and its result. Nothing in it is checked until it's made into a
+ * GameRecord, which plays the moves through the rules of its variant.
+ */
+public final class PgnGame
+{
+	public PgnGame()
+	{
+		mTags = Maps.newLinkedHashMap();
+		mMoves = Lists.newArrayList();
+		mComments = Maps.newTreeMap();
+		mResult = Result.UNDECIDED;
+	}
+
+	/**
+	 * @param record A recorded game
+	 * @return The game, with its moves in SAN and no tags
+	 * @throws IOException If the variant can't be built, or doesn't allow one
+	 * of the moves
+	 */
+	public static PgnGame fromRecord(GameRecord record) throws IOException
+	{
+		Game game = GameRecord.newVariantGame(record.getVariantName());
+		game.setIsPlayback(true);
+
+		PgnGame pgnGame = new PgnGame();
+		StringBuilder san = new StringBuilder();
+		for (int i = 0; i < record.getMoveCount(); i++)
+		{
+			int move = record.getMove(i);
+			int[] legalMoves = game.getLegalMoves();
+			if (!contains(legalMoves, move))
+				throw new IOException(Messages.getString("PgnGame.illegalMove") + (i + 1)); //$NON-NLS-1$
+
+			san.setLength(0);
+			SanConverter.appendSan(game, move, legalMoves, san);
+			pgnGame.mMoves.add(san.toString());
+			game.makeMove(move);
+		}
+		return pgnGame;
+	}
+
+	/**
+	 * @param archive The archive the game is in
+	 * @param entry The entry of the game
+	 * @return The game, with the tags of the Seven Tag Roster filled in from
+	 * the entry, and a Variant tag unless it's classic chess
+	 * @throws IOException If the archive can't be read, or the game can't be
+	 * played again
+	 */
+	public static PgnGame fromEntry(GameArchive archive, GameArchive.Entry entry) throws IOException
+	{
+		PgnGame pgnGame = fromRecord(archive.readRecord(entry));
+		pgnGame.setTag(EVENT, entry.getName());
+		pgnGame.setTag(SITE, UNKNOWN);
+		pgnGame.setTag(DATE, formatDate(entry.getDateMillis()));
+		pgnGame.setTag(ROUND, UNKNOWN);
+		pgnGame.setTag(WHITE, entry.getWhitePlayer().isEmpty() ? UNKNOWN : entry.getWhitePlayer());
+		pgnGame.setTag(BLACK, entry.getBlackPlayer().isEmpty() ? UNKNOWN : entry.getBlackPlayer());
+		pgnGame.setResult(entry.getResult());
+		if (!entry.getVariantName().equals(CLASSIC))
+			pgnGame.setTag(VARIANT, entry.getVariantName());
+		return pgnGame;
+	}
+
+	private static boolean contains(int[] moves, int move)
+	{
+		for (int legalMove : moves)
+		{
+			if (legalMove == move)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Play the moves through the rules of the variant named by the Variant
+	 * tag, or classic chess without one
+	 *
+	 * @return The record of the moves
+	 * @throws IOException If there's no such variant, the game starts from a
+	 * position of its own, or one of the moves isn't legal
+	 */
+	public GameRecord toRecord() throws IOException
+	{
+		Game start = GameRecord.newVariantGame(getVariantName());
+		start.setIsPlayback(true);
+		return toRecord(start);
+	}
+
+	/**
+	 * Play the moves through the rules of a Game of the variant, which is
+	 * taken back to where it started afterwards, so an importer can keep one
+	 * for each variant instead of building one for each game
+	 *
+	 * @param start A Game of the variant named by the Variant tag, in
+	 * playback, at the position the variant starts from
+	 * @return The record of the moves
+	 * @throws IOException If the Game isn't of the variant, the game starts
+	 * from a position of its own, or one of the moves isn't legal
+	 */
+	public GameRecord toRecord(Game start) throws IOException
+	{
+		if (mTags.containsKey(FEN) || mTags.containsKey(SET_UP))
+			throw new IOException(Messages.getString("PgnGame.setUpNotSupported")); //$NON-NLS-1$
+		if (!start.getGameType().equals(getVariantName()))
+			throw new IOException(Messages.getString("PgnGame.wrongVariant") + getVariantName()); //$NON-NLS-1$
+
+		int[] moves = new int[mMoves.size()];
+		int madeCount = 0;
+		try
+		{
+			for (int i = 0; i < moves.length; i++)
+			{
+				moves[i] = SanConverter.toMove(start, mMoves.get(i));
+				if (moves[i] == SanConverter.NO_MOVE)
+					throw new IOException(Messages.getString("PgnGame.illegalMove") + (i / 2 + 1) + (i % 2 == 0 ? ". " : "... ") + mMoves.get(i)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				start.makeMove(moves[i]);
+				madeCount++;
+			}
+		}
+		finally
+		{
+			// the record starts from where the variant does
+			for (int i = 0; i < madeCount; i++)
+				start.unmakeMove();
+		}
+		return GameRecord.fromMoves(start, moves);
+	}
+
+	/**
+	 * @return The variant named by the Variant tag, or classic chess
+	 */
+	public String getVariantName()
+	{
+		String variant = mTags.get(VARIANT);
+		return variant == null ? CLASSIC : variant;
+	}
+
+	/**
+	 * @return "White - Black" if the players are known, or else the event
+	 */
+	public String getName()
+	{
+		String white = getTag(WHITE);
+		String black = getTag(BLACK);
+		if (white != null && black != null && !white.equals(UNKNOWN) && !black.equals(UNKNOWN))
+			return white + " - " + black; //$NON-NLS-1$
+		String event = getTag(EVENT);
+		return event == null ? UNKNOWN : event;
+	}
+
+	/**
+	 * @return The Date tag, in milliseconds since the epoch at midnight UTC,
+	 * or 0 if the year isn't known. An unknown month or day counts as the
+	 * first.
+	 */
+	public long getDateMillis()
+	{
+		String date = getTag(DATE);
+		if (date == null)
+			return 0;
+
+		String[] fields = date.split("\\."); //$NON-NLS-1$
+		int[] values = new int[] { 0, 1, 1 };
+		for (int i = 0; i < Math.min(fields.length, values.length); i++)
+		{
+			try
+			{
+				values[i] = Integer.parseInt(fields[i]);
+			}
+			catch (NumberFormatException e)
+			{
+				if (i == 0)
+					return 0;
+			}
+		}
+		if (values[0] == 0)
+			return 0;
+
+		Calendar calendar = new GregorianCalendar(UTC);
+		calendar.clear();
+		calendar.set(values[0], values[1] - 1, values[2]);
+		return calendar.getTimeInMillis();
+	}
+
+	private static String formatDate(long dateMillis)
+	{
+		Calendar calendar = new GregorianCalendar(UTC);
+		calendar.setTimeInMillis(dateMillis);
+		return String.format("%04d.%02d.%02d", calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, //$NON-NLS-1$
+				calendar.get(Calendar.DAY_OF_MONTH));
+	}
+
+	/**
+	 * @param result A result token: 1-0, 0-1, 1/2-1/2 or *
+	 * @return The Result, or null if it isn't a result token
+	 */
+	public static Result parseResult(String result)
+	{
+		if (result.equals(WHITE_WIN))
+			return Result.WHITE_WIN;
+		if (result.equals(BLACK_WIN))
+			return Result.BLACK_WIN;
+		if (result.equals(DRAW))
+			return Result.DRAW;
+		if (result.equals(UNDECIDED))
+			return Result.UNDECIDED;
+		return null;
+	}
+
+	/**
+	 * @param result A Result
+	 * @return Its result token
+	 */
+	public static String formatResult(Result result)
+	{
+		switch (result)
+		{
+		case WHITE_WIN:
+			return WHITE_WIN;
+		case BLACK_WIN:
+			return BLACK_WIN;
+		case DRAW:
+			return DRAW;
+		default:
+			return UNDECIDED;
+		}
+	}
+
+	/**
+	 * @return The tag pairs, in the order they were read or set
+	 */
+	public Map<String, String> getTags()
+	{
+		return mTags;
+	}
+
+	public String getTag(String name)
+	{
+		return mTags.get(name);
+	}
+
+	public void setTag(String name, String value)
+	{
+		Preconditions.checkArgument(name != null);
+		Preconditions.checkArgument(value != null);
+
+		mTags.put(name, value);
+	}
+
+	/**
+	 * @return The moves, in SAN
+	 */
+	public List<String> getMoves()
+	{
+		return mMoves;
+	}
+
+	public void addMove(String san)
+	{
+		Preconditions.checkArgument(san != null);
+
+		mMoves.add(san);
+	}
+
+	/**
+	 * @param plyCount The number of moves before the comment
+	 * @return The comment after that many moves, or null
+	 */
+	public String getComment(int plyCount)
+	{
+		return mComments.get(plyCount);
+	}
+
+	/**
+	 * @param plyCount The number of moves before the comment
+	 * @param comment The comment, which is added to one already there
+	 */
+	public void addComment(int plyCount, String comment)
+	{
+		String existing = mComments.get(plyCount);
+		mComments.put(plyCount, existing == null ? comment : existing + ' ' + comment);
+	}
+
+	public Result getResult()
+	{
+		return mResult;
+	}
+
+	public void setResult(Result result)
+	{
+		Preconditions.checkArgument(result != null);
+
+		mResult = result;
+		mTags.put(RESULT, formatResult(result));
+	}
+
+	public static final String EVENT = "Event"; //$NON-NLS-1$
+	public static final String SITE = "Site"; //$NON-NLS-1$
+	public static final String DATE = "Date"; //$NON-NLS-1$
+	public static final String ROUND = "Round"; //$NON-NLS-1$
+	public static final String WHITE = "White"; //$NON-NLS-1$
+	public static final String BLACK = "Black"; //$NON-NLS-1$
+	public static final String RESULT = "Result"; //$NON-NLS-1$
+	public static final String VARIANT = "Variant"; //$NON-NLS-1$
+	public static final String FEN = "FEN"; //$NON-NLS-1$
+	public static final String SET_UP = "SetUp"; //$NON-NLS-1$
+	public static final String UNKNOWN = "?"; //$NON-NLS-1$
+
+	private static final String WHITE_WIN = "1-0"; //$NON-NLS-1$
+	private static final String BLACK_WIN = "0-1"; //$NON-NLS-1$
+	private static final String DRAW = "1/2-1/2"; //$NON-NLS-1$
+	private static final String UNDECIDED = "*"; //$NON-NLS-1$
+	private static final String CLASSIC = Messages.getString("classic"); //$NON-NLS-1$
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC"); //$NON-NLS-1$
+
+	private final Map<String, String> mTags;
+	private final List<String> mMoves;
+	private final Map<Integer, String> mComments;
+	private Result mResult;
+}
@@ -0,0 +1,470 @@
+package logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import models.Game;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Imports the games of PGN streams into a GameArchive. Games are read in
+ * batches, which are played through the rules of their variants on a pool of
+ * threads, each with Games of its own copied from one built for each variant.
+ * The batches are appended in the order they were read, and only a few are
+ * held at a time, so a stream of any number of games is imported in the
+ * memory of a few batches. A game that isn't legal, or that its variant
+ * fails on, is left out, and why is kept with the others that were, up to a
+ * limit. The time taken is kept as well, to tell how fast games are
+ * imported.
+ */
+public final class PgnImporter
+{
+	/**
+	 * What importing one file did
+	 */
+	public static final class FileReport
+	{
+		private FileReport(File file, int importedCount, int rejectedCount, List<String> errors, IOException failure)
+		{
+			mFile = file;
+			mImportedCount = importedCount;
+			mRejectedCount = rejectedCount;
+			mErrors = errors;
+			mFailure = failure;
+		}
+
+		public File getFile()
+		{
+			return mFile;
+		}
+
+		/**
+		 * @return The number of games of the file imported
+		 */
+		public int getImportedCount()
+		{
+			return mImportedCount;
+		}
+
+		/**
+		 * @return The number of games of the file left out because they
+		 * weren't legal, or their variant failed on them
+		 */
+		public int getRejectedCount()
+		{
+			return mRejectedCount;
+		}
+
+		/**
+		 * @return Why games of the file were left out, for those still under
+		 * the importer's limit
+		 */
+		public List<String> getErrors()
+		{
+			return mErrors;
+		}
+
+		/**
+		 * @return Why the file stopped being imported before its end, or null
+		 * if it was imported to its end. Anything other than an IOException
+		 * that stopped it is the cause of one.
+		 */
+		public IOException getFailure()
+		{
+			return mFailure;
+		}
+
+		@Override
+		public String toString()
+		{
+			return mFile.getName();
+		}
+
+		private final File mFile;
+		private final int mImportedCount;
+		private final int mRejectedCount;
+		private final List<String> mErrors;
+		private final IOException mFailure;
+	}
+
+	/**
+	 * Import on the calling thread only
+	 *
+	 * @param archive The archive to import games into
+	 */
+	public PgnImporter(GameArchive archive)
+	{
+		this(archive, 1);
+	}
+
+	/**
+	 * @param archive The archive to import games into
+	 * @param threadCount The number of threads to play games through their
+	 * variants on, or 1 to do it on the calling thread
+	 */
+	public PgnImporter(GameArchive archive, int threadCount)
+	{
+		Preconditions.checkArgument(archive != null);
+		Preconditions.checkArgument(threadCount > 0);
+
+		mArchive = archive;
+		mThreadCount = threadCount;
+		mErrors = Lists.newArrayList();
+		mTemplates = Maps.newHashMap();
+		mStartGames = new ThreadLocal<Map<String, Game>>()
+		{
+			@Override
+			protected Map<String, Game> initialValue()
+			{
+				return Maps.newHashMap();
+			}
+		};
+	}
+
+	/**
+	 * Import every game of a stream
+	 *
+	 * @param in The stream, which is read to its end but not closed
+	 * @param source The name of the stream, for the errors
+	 * @return The number of games of the stream imported
+	 * @throws IOException If the stream can't be read or isn't PGN, or the
+	 * archive can't be written. The games imported before that are kept.
+	 */
+	public int importGames(Reader in, String source) throws IOException
+	{
+		long start = System.nanoTime();
+		PgnReader reader = new PgnReader(in);
+		Queue<Future<Batch>> pending = Lists.newLinkedList();
+		int importedCount = 0;
+		try
+		{
+			Batch batch = new Batch(source, 1);
+			for (PgnGame game = reader.next(); game != null; game = reader.next())
+			{
+				batch.mGames.add(game);
+				if (batch.mGames.size() < BATCH_SIZE)
+					continue;
+
+				pending.add(submit(batch));
+				batch = new Batch(source, reader.getGameCount() + 1);
+				// the reader waits for the pool rather than running ahead of it
+				if (pending.size() > mThreadCount * 2)
+					importedCount += append(pending.remove());
+			}
+			if (!batch.mGames.isEmpty())
+				pending.add(submit(batch));
+		}
+		finally
+		{
+			// the games read before the stream failed are still imported
+			try
+			{
+				while (!pending.isEmpty())
+					importedCount += append(pending.remove());
+			}
+			finally
+			{
+				mImportedCount += importedCount;
+				mElapsedNanos += System.nanoTime() - start;
+			}
+		}
+		return importedCount;
+	}
+
+	/**
+	 * Import every game of each file, in order, as ISO-8859-1 as PGN has it.
+	 * A file that can't be read or isn't PGN, or that fails in any other way,
+	 * doesn't stop the others.
+	 *
+	 * @param files The files to import
+	 * @return What importing each file did, in the same order
+	 */
+	public List<FileReport> importFiles(List<File> files)
+	{
+		List<FileReport> reports = Lists.newArrayList();
+		for (File file : files)
+		{
+			int importedCount = mImportedCount;
+			int rejectedCount = mRejectedCount;
+			int errorCount = mErrors.size();
+			IOException failure = null;
+			try
+			{
+				Reader in = Files.newReader(file, Charsets.ISO_8859_1);
+				try
+				{
+					importGames(in, file.getName());
+				}
+				finally
+				{
+					in.close();
+				}
+			}
+			catch (IOException e)
+			{
+				failure = e;
+			}
+			catch (RuntimeException e)
+			{
+				failure = new IOException(e);
+			}
+			reports.add(new FileReport(file, mImportedCount - importedCount, mRejectedCount - rejectedCount, Lists.newArrayList(mErrors
+					.subList(errorCount, mErrors.size())), failure));
+		}
+		return reports;
+	}
+
+	private Future<Batch> submit(Batch batch)
+	{
+		if (mThreadCount == 1)
+			return Futures.immediateFuture(batch.call());
+		return getExecutor().submit(batch);
+	}
+
+	/**
+	 * Append the legal games of a batch once it's been played through
+	 *
+	 * @return The number of games appended
+	 */
+	private int append(Future<Batch> result) throws IOException
+	{
+		Batch batch;
+		try
+		{
+			batch = result.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		catch (ExecutionException e)
+		{
+			throw Throwables.propagate(e.getCause());
+		}
+
+		int appendedCount = 0;
+		for (int i = 0; i < batch.mGames.size(); i++)
+		{
+			if (batch.mRecords[i] == null)
+			{
+				addError(batch.mErrors[i]);
+				continue;
+			}
+
+			PgnGame game = batch.mGames.get(i);
+			mArchive.append(game.getName(), batch.mRecords[i], game.getResult(), game.getDateMillis(), getPlayer(game, PgnGame.WHITE),
+					getPlayer(game, PgnGame.BLACK));
+			mPlyCount += batch.mRecords[i].getMoveCount();
+			appendedCount++;
+		}
+		return appendedCount;
+	}
+
+	/**
+	 * @return A Game of the variant at its start for the calling thread alone,
+	 * copied from the one built for every thread
+	 * @throws IOException If there's no such variant
+	 */
+	private Game getStartGame(String variantName) throws IOException
+	{
+		Map<String, Game> startGames = mStartGames.get();
+		Game game = startGames.get(variantName);
+		if (game == null)
+		{
+			synchronized (mTemplates)
+			{
+				Game template = mTemplates.get(variantName);
+				if (template == null)
+				{
+					template = GameRecord.newVariantGame(variantName);
+					template.setIsPlayback(true);
+					mTemplates.put(variantName, template);
+				}
+				game = template.copy();
+			}
+			game.setIsPlayback(true);
+			startGames.put(variantName, game);
+		}
+		return game;
+	}
+
+	/**
+	 * Games read one after another, and their records or why they aren't
+	 * legal once they've been played through
+	 */
+	private final class Batch implements Callable<Batch>
+	{
+		Batch(String source, int firstGameNumber)
+		{
+			mSource = source;
+			mFirstGameNumber = firstGameNumber;
+			mGames = Lists.newArrayListWithCapacity(BATCH_SIZE);
+		}
+
+		@Override
+		public Batch call()
+		{
+			mRecords = new GameRecord[mGames.size()];
+			mErrors = new String[mGames.size()];
+			for (int i = 0; i < mGames.size(); i++)
+			{
+				PgnGame game = mGames.get(i);
+				try
+				{
+					mRecords[i] = game.toRecord(getStartGame(game.getVariantName()));
+				}
+				catch (IOException e)
+				{
+					mErrors[i] = getError(i, e.getMessage());
+				}
+				catch (RuntimeException e)
+				{
+					// the rules of the variant failed part way through a move,
+					// so the thread's Game can't be trusted for the next game
+					mStartGames.get().remove(game.getVariantName());
+					mErrors[i] = getError(i, e.toString());
+				}
+			}
+			return this;
+		}
+
+		private String getError(int index, String reason)
+		{
+			return mSource + " #" + (mFirstGameNumber + index) + ": " + reason; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		private final String mSource;
+		private final int mFirstGameNumber;
+		private final List<PgnGame> mGames;
+		private GameRecord[] mRecords;
+		private String[] mErrors;
+	}
+
+	private ExecutorService getExecutor()
+	{
+		if (mExecutor == null)
+		{
+			mExecutor = Executors.newFixedThreadPool(mThreadCount,
+					new ThreadFactoryBuilder().setNameFormat("pgn-import-%d").setDaemon(true).build()); //$NON-NLS-1$
+		}
+		return mExecutor;
+	}
+
+	/**
+	 * Stop the threads. The importer can't be used after this.
+	 */
+	public void shutdown()
+	{
+		if (mExecutor != null)
+			mExecutor.shutdownNow();
+	}
+
+	private static String getPlayer(PgnGame game, String tag)
+	{
+		String player = game.getTag(tag);
+		return player == null || player.equals(PgnGame.UNKNOWN) ? "" : player; //$NON-NLS-1$
+	}
+
+	private void addError(String error)
+	{
+		mRejectedCount++;
+		if (mErrors.size() < MAX_ERRORS)
+			mErrors.add(error);
+	}
+
+	/**
+	 * @return The number of games imported so far
+	 */
+	public int getImportedCount()
+	{
+		return mImportedCount;
+	}
+
+	/**
+	 * @return The number of games left out because they weren't legal, or
+	 * their variant failed on them
+	 */
+	public int getRejectedCount()
+	{
+		return mRejectedCount;
+	}
+
+	/**
+	 * @return Why games were left out, for the first few of them
+	 */
+	public List<String> getErrors()
+	{
+		return Collections.unmodifiableList(mErrors);
+	}
+
+	/**
+	 * @return The number of moves of every game imported so far
+	 */
+	public long getPlyCount()
+	{
+		return mPlyCount;
+	}
+
+	/**
+	 * @return The time spent importing so far, in nanoseconds
+	 */
+	public long getElapsedNanos()
+	{
+		return mElapsedNanos;
+	}
+
+	/**
+	 * @return The number of games imported per second so far
+	 */
+	public double getGamesPerSecond()
+	{
+		return mElapsedNanos == 0 ? 0 : mImportedCount * 1e9 / mElapsedNanos;
+	}
+
+	/**
+	 * @return The number of moves imported per second so far
+	 */
+	public double getPliesPerSecond()
+	{
+		return mElapsedNanos == 0 ? 0 : mPlyCount * 1e9 / mElapsedNanos;
+	}
+
+	public int getThreadCount()
+	{
+		return mThreadCount;
+	}
+
+	private static final int MAX_ERRORS = 1000;
+	private static final int BATCH_SIZE = 64;
+
+	private final GameArchive mArchive;
+	private final int mThreadCount;
+	private final List<String> mErrors;
+	private final Map<String, Game> mTemplates;
+	private final ThreadLocal<Map<String, Game>> mStartGames;
+	private ExecutorService mExecutor;
+	private int mImportedCount;
+	private int mRejectedCount;
+	private long mPlyCount;
+	private long mElapsedNanos;
+}
@@ -0,0 +1,380 @@
+package logic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Reads the games of a PGN stream one at a time, so a file of any number of
+ * games is read in the memory of one. Tag pairs, SAN moves, comments and
+ * results are kept. Move numbers, numeric annotation glyphs, variations and
+ * escaped lines are skipped. A game ends at its result, or at the tags of
+ * the next game if it has no result. A Piece named in parentheses, the way
+ * SanConverter names the Pieces that share their letter, is part of its move
+ * rather than a variation: letters in parentheses followed by the rest of a
+ * move, like (Rhino)c3, or after the = of a promotion.
+ */
+public final class PgnReader implements Closeable
+{
+	/**
+	 * Thrown when the stream isn't PGN, with the line it stopped at
+	 */
+	public static final class PgnException extends IOException
+	{
+		public PgnException(String message, int lineNumber)
+		{
+			super(message + lineNumber);
+			mLineNumber = lineNumber;
+		}
+
+		public int getLineNumber()
+		{
+			return mLineNumber;
+		}
+
+		private static final long serialVersionUID = 2806094571530711648L;
+
+		private final int mLineNumber;
+	}
+
+	/**
+	 * @param in The stream to read, which this reads through a buffer of its
+	 * own
+	 */
+	public PgnReader(Reader in)
+	{
+		Preconditions.checkArgument(in != null);
+
+		mIn = in;
+		mBuffer = new char[BUFFER_SIZE];
+		mToken = new StringBuilder();
+		mLineNumber = 1;
+		mIsLineStart = true;
+	}
+
+	/**
+	 * @return The next game, or null once there are no more
+	 * @throws IOException If the stream can't be read
+	 * @throws PgnException If the stream isn't PGN
+	 */
+	public PgnGame next() throws IOException
+	{
+		PgnGame game = null;
+		while (true)
+		{
+			boolean isLineStart = mIsLineStart;
+			int c = read();
+			if (c == -1)
+				break;
+			if (Character.isWhitespace(c))
+				continue;
+
+			if (game == null)
+				game = new PgnGame();
+			switch (c)
+			{
+			case '[':
+				if (!game.getMoves().isEmpty())
+				{
+					// a game with no result, followed by the next one
+					mPushedBack = c;
+					mGameCount++;
+					return game;
+				}
+				readTag(game);
+				break;
+			case '{':
+				game.addComment(game.getMoves().size(), readUntil('}'));
+				break;
+			case ';':
+				game.addComment(game.getMoves().size(), readUntil('\n'));
+				break;
+			case '(':
+				mToken.setLength(0);
+				int end = readPieceName();
+				if (end != ')')
+				{
+					// the variation goes on from the character
+					skipVariation(end);
+					break;
+				}
+
+				int next = read();
+				if (mToken.charAt(mToken.length() - 1) == ')' && isTokenCharacter(next))
+					game.addMove(readRestOfToken(next));
+				else if (next != -1 && !Character.isWhitespace(next))
+					mPushedBack = next;
+				break;
+			case '%':
+				if (!isLineStart)
+					throw new PgnException(Messages.getString("PgnReader.unexpected"), mLineNumber); //$NON-NLS-1$
+				readUntil('\n');
+				break;
+			case ']':
+			case '}':
+			case ')':
+				throw new PgnException(Messages.getString("PgnReader.unexpected"), mLineNumber); //$NON-NLS-1$
+			default:
+				String token = readToken(c);
+				Result result = PgnGame.parseResult(token);
+				if (result != null)
+				{
+					game.setResult(result);
+					mGameCount++;
+					return game;
+				}
+				if (token.length() > 0)
+					game.addMove(token);
+			}
+		}
+		if (game != null)
+			mGameCount++;
+		return game;
+	}
+
+	private void readTag(PgnGame game) throws IOException
+	{
+		mToken.setLength(0);
+		int c = skipWhitespace();
+		while (c != -1 && !Character.isWhitespace(c) && c != '"' && c != ']')
+		{
+			mToken.append((char) c);
+			c = read();
+		}
+		String name = mToken.toString();
+		if (Character.isWhitespace(c))
+			c = skipWhitespace();
+		if (c != '"' || name.isEmpty())
+			throw new PgnException(Messages.getString("PgnReader.badTag"), mLineNumber); //$NON-NLS-1$
+
+		mToken.setLength(0);
+		for (c = read(); c != '"'; c = read())
+		{
+			if (c == -1 || c == '\n')
+				throw new PgnException(Messages.getString("PgnReader.badTag"), mLineNumber); //$NON-NLS-1$
+			if (c == '\\')
+				c = read();
+			mToken.append((char) c);
+		}
+		if (skipWhitespace() != ']')
+			throw new PgnException(Messages.getString("PgnReader.badTag"), mLineNumber); //$NON-NLS-1$
+
+		String value = mToken.toString();
+		if (name.equals(PgnGame.RESULT))
+		{
+			Result result = PgnGame.parseResult(value);
+			if (result != null)
+				game.setResult(result);
+		}
+		else
+		{
+			game.setTag(name, value);
+		}
+	}
+
+	/**
+	 * @return The movetext token starting with the character, with the move
+	 * number in front of it taken off, so "12." and "..." are empty and
+	 * "12.e4" is "e4"
+	 */
+	private String readToken(int first) throws IOException
+	{
+		mToken.setLength(0);
+		return readRestOfToken(first);
+	}
+
+	/**
+	 * @return The token read so far, followed by the rest of it starting with
+	 * the character, with its move number taken off
+	 */
+	private String readRestOfToken(int first) throws IOException
+	{
+		int c = first;
+		while (c != -1 && !Character.isWhitespace(c))
+		{
+			if (c == '(' && mToken.length() > 0 && mToken.charAt(mToken.length() - 1) == '=')
+			{
+				// a promotion to a Piece named in parentheses
+				if (readPieceName() != ')')
+					throw new PgnException(Messages.getString("PgnReader.unexpected"), mLineNumber); //$NON-NLS-1$
+				c = read();
+				continue;
+			}
+			if (DELIMITERS.indexOf(c) >= 0)
+				break;
+			mToken.append((char) c);
+			c = read();
+		}
+		if (c != -1 && !Character.isWhitespace(c))
+			mPushedBack = c;
+
+		if (mToken.charAt(0) == '$')
+			return ""; //$NON-NLS-1$
+
+		int start = 0;
+		while (start < mToken.length() && Character.isDigit(mToken.charAt(start)))
+			start++;
+		if (start < mToken.length() && mToken.charAt(start) == '.')
+		{
+			while (start < mToken.length() && mToken.charAt(start) == '.')
+				start++;
+		}
+		else if (start < mToken.length())
+		{
+			// a result like 1-0, or a move like 0-0
+			start = 0;
+		}
+		return mToken.substring(start);
+	}
+
+	/**
+	 * Read the letters after an opening parenthesis onto the token, in their
+	 * parentheses if they're closed, as the name of a Piece
+	 *
+	 * @return The first character that isn't a letter, which is the closing
+	 * parenthesis if it was a name
+	 */
+	private int readPieceName() throws IOException
+	{
+		int start = mToken.length();
+		mToken.append('(');
+		int c = read();
+		while (c != -1 && Character.isLetter(c))
+		{
+			mToken.append((char) c);
+			c = read();
+		}
+		if (c == ')' && mToken.length() > start + 1)
+			mToken.append(')');
+		return c;
+	}
+
+	private static boolean isTokenCharacter(int c)
+	{
+		return c != -1 && !Character.isWhitespace(c) && DELIMITERS.indexOf(c) < 0;
+	}
+
+	private String readUntil(int end) throws IOException
+	{
+		int startLine = mLineNumber;
+		mToken.setLength(0);
+		for (int c = read(); c != end; c = read())
+		{
+			if (c == -1)
+			{
+				if (end == '\n')
+					break;
+				throw new PgnException(Messages.getString("PgnReader.unterminated"), startLine); //$NON-NLS-1$
+			}
+			mToken.append((char) c);
+		}
+		return mToken.toString().trim();
+	}
+
+	/**
+	 * Skip a variation, with the variations and comments in it
+	 *
+	 * @param first The first character of the variation after its opening
+	 * parenthesis
+	 */
+	private void skipVariation(int first) throws IOException
+	{
+		int startLine = mLineNumber;
+		int depth = 1;
+		for (int c = first;; c = read())
+		{
+			switch (c)
+			{
+			case -1:
+				throw new PgnException(Messages.getString("PgnReader.unterminated"), startLine); //$NON-NLS-1$
+			case '(':
+				depth++;
+				break;
+			case ')':
+				if (--depth == 0)
+					return;
+				break;
+			case '{':
+				readUntil('}');
+				break;
+			case ';':
+				readUntil('\n');
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	private int skipWhitespace() throws IOException
+	{
+		int c = read();
+		while (c != -1 && Character.isWhitespace(c))
+			c = read();
+		return c;
+	}
+
+	private int read() throws IOException
+	{
+		int c;
+		if (mPushedBack != NONE)
+		{
+			c = mPushedBack;
+			mPushedBack = NONE;
+			return c;
+		}
+		if (mPosition == mLimit)
+		{
+			mLimit = mIn.read(mBuffer, 0, mBuffer.length);
+			mPosition = 0;
+			if (mLimit <= 0)
+			{
+				mLimit = 0;
+				return -1;
+			}
+		}
+		c = mBuffer[mPosition++];
+		mIsLineStart = c == '\n';
+		if (mIsLineStart)
+			mLineNumber++;
+		return c;
+	}
+
+	/**
+	 * @return The number of games read so far
+	 */
+	public int getGameCount()
+	{
+		return mGameCount;
+	}
+
+	/**
+	 * @return The line the stream has been read up to
+	 */
+	public int getLineNumber()
+	{
+		return mLineNumber;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		mIn.close();
+	}
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int NONE = -2;
+	private static final String DELIMITERS = "[]{}();"; //$NON-NLS-1$
+
+	private final Reader mIn;
+	private final char[] mBuffer;
+	private final StringBuilder mToken;
+	private int mPosition;
+	private int mLimit;
+	private int mPushedBack = NONE;
+	private int mLineNumber;
+	private boolean mIsLineStart;
+	private int mGameCount;
+}
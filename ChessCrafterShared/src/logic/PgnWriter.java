@@ -0,0 +1,152 @@
+package logic;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Writes games as PGN, one at a time, as they come: the tag pairs, then the
+ * moves with their numbers and comments, in lines of at most 79 characters,
+ * then the result.
+ */
+public final class PgnWriter implements Closeable, Flushable
+{
+	/**
+	 * @param out The stream to write to, which this writes through a buffer
+	 */
+	public PgnWriter(Writer out)
+	{
+		Preconditions.checkArgument(out != null);
+
+		mOut = out instanceof BufferedWriter ? out : new BufferedWriter(out, BUFFER_SIZE);
+		mToken = new StringBuilder();
+	}
+
+	/**
+	 * @param game The game to write. Its Result tag is written from its
+	 * Result.
+	 * @throws IOException If the stream can't be written
+	 */
+	public void write(PgnGame game) throws IOException
+	{
+		game.setResult(game.getResult());
+		for (Map.Entry<String, String> tag : game.getTags().entrySet())
+		{
+			mOut.write('[');
+			mOut.write(tag.getKey());
+			mOut.write(" \""); //$NON-NLS-1$
+			writeEscaped(tag.getValue());
+			mOut.write("\"]\n"); //$NON-NLS-1$
+		}
+		mOut.write('\n');
+
+		mLineLength = 0;
+		List<String> moves = game.getMoves();
+		writeComment(game.getComment(0));
+		for (int ply = 0; ply < moves.size(); ply++)
+		{
+			// black's move gets its number again after a comment
+			mToken.setLength(0);
+			if (ply % 2 == 0)
+				mToken.append(ply / 2 + 1).append('.');
+			else if (game.getComment(ply) != null)
+				mToken.append(ply / 2 + 1).append("..."); //$NON-NLS-1$
+			if (mToken.length() > 0)
+				writeToken(mToken);
+
+			mToken.setLength(0);
+			mToken.append(moves.get(ply));
+			writeToken(mToken);
+			writeComment(game.getComment(ply + 1));
+		}
+		mToken.setLength(0);
+		mToken.append(PgnGame.formatResult(game.getResult()));
+		writeToken(mToken);
+		mOut.write("\n\n"); //$NON-NLS-1$
+		mGameCount++;
+	}
+
+	/**
+	 * @param archive The archive the games are in
+	 * @param entries The entries of the games to write, in order
+	 * @throws IOException If the archive can't be read, a game can't be
+	 * played again, or the stream can't be written
+	 */
+	public void write(GameArchive archive, List<GameArchive.Entry> entries) throws IOException
+	{
+		for (GameArchive.Entry entry : entries)
+			write(PgnGame.fromEntry(archive, entry));
+	}
+
+	private void writeComment(String comment) throws IOException
+	{
+		if (comment == null)
+			return;
+
+		mToken.setLength(0);
+		// a comment can't hold its own end
+		mToken.append('{').append(comment.replace('}', ')')).append('}');
+		writeToken(mToken);
+	}
+
+	private void writeToken(CharSequence token) throws IOException
+	{
+		if (mLineLength > 0 && mLineLength + 1 + token.length() > MAX_LINE_LENGTH)
+		{
+			mOut.write('\n');
+			mLineLength = 0;
+		}
+		else if (mLineLength > 0)
+		{
+			mOut.write(' ');
+			mLineLength++;
+		}
+		mOut.append(token);
+		mLineLength += token.length();
+	}
+
+	private void writeEscaped(String value) throws IOException
+	{
+		for (int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\')
+				mOut.write('\\');
+			mOut.write(c == '\n' ? ' ' : c);
+		}
+	}
+
+	/**
+	 * @return The number of games written so far
+	 */
+	public int getGameCount()
+	{
+		return mGameCount;
+	}
+
+	@Override
+	public void flush() throws IOException
+	{
+		mOut.flush();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		mOut.close();
+	}
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int MAX_LINE_LENGTH = 79;
+
+	private final Writer mOut;
+	private final StringBuilder mToken;
+	private int mLineLength;
+	private int mGameCount;
+}
@@ -8,6 +8,7 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import logic.PieceMovements.MovementDirection;
 import models.Board;
@@ -33,7 +34,7 @@ public class PieceBuilder implements Serializable
 	 */
 	public static void initPieceTypes()
 	{
-		mPieceTypes = Maps.newHashMap();
+		mPieceTypes = Maps.newConcurrentMap();
 		mPieceTypes.put(Messages.getString("pawn"), new PieceBuilder(Messages.getString("pawn"))); //$NON-NLS-1$ //$NON-NLS-2$
 		mPieceTypes.put(Messages.getString("rook"), new PieceBuilder(Messages.getString("rook"))); //$NON-NLS-1$ //$NON-NLS-2$
 		mPieceTypes.put(Messages.getString("bishop"), new PieceBuilder(Messages.getString("bishop"))); //$NON-NLS-1$ //$NON-NLS-2$
@@ -113,6 +114,46 @@ public class PieceBuilder implements Serializable
 		return mPieceTypes.get(name).makePiece(isBlack, origin, board);
 	}
 
+	/**
+	 * Cache the Piece types of the names, reading the ones that aren't cached
+	 * yet from disk, so makeCachedPiece can make Pieces of them later without
+	 * touching the disk. A type with no file is a Piece with no movements, as
+	 * makePiece makes it.
+	 * 
+	 * @param names The names of the Piece types
+	 */
+	public static void loadPieceTypes(Iterable<String> names)
+	{
+		for (String name : names)
+		{
+			if (mPieceTypes.containsKey(name))
+				continue;
+
+			PieceBuilder builder = FileUtility.getPieceFile(name).exists() ? loadFromDisk(name) : null;
+			mPieceTypes.put(name, builder == null ? new PieceBuilder(name) : builder);
+		}
+	}
+
+	/**
+	 * Make a new instance of a Piece type that's been cached, without reading
+	 * the disk
+	 * 
+	 * @param name The name of the Piece to make
+	 * @param isBlack The team for the Piece
+	 * @param origin The Square the Piece occupies
+	 * @param board The Board the Piece occupies
+	 * @return The new Piece
+	 * @throws IOException
+	 * @throws IllegalStateException If the type hasn't been cached
+	 */
+	public static Piece makeCachedPiece(String name, boolean isBlack, Square origin, Board board) throws IOException
+	{
+		PieceBuilder builder = mPieceTypes.get(name);
+		if (builder == null)
+			throw new IllegalStateException(name + " hasn't been loaded"); //$NON-NLS-1$
+		return builder.makePiece(isBlack, origin, board);
+	}
+
 	/**
 	 * Save the given PieceBuilder in the HashMap
 	 * 
@@ -227,6 +268,29 @@ public class PieceBuilder implements Serializable
 		mPieceMovements.addBidirectionalMovement(movement);
 	}
 
+	/**
+	 * Get the compiled moves of a piece type on the geometry of a Board. Each
+	 * combination of movements and geometry is only compiled once.
+	 * 
+	 * @param movements The movements of the piece type
+	 * @param isLeaper If the piece type jumps over other Pieces
+	 * @param board The Board to compile for
+	 * @return The compiled AttackTable
+	 */
+	public static AttackTable getAttackTable(PieceMovements movements, boolean isLeaper, Board board)
+	{
+		String key = AttackTable.getKey(movements, isLeaper, board.getMaxRow(), board.getMaxCol(), board.isWrapAround());
+		AttackTable table = mAttackTables.get(key);
+		if (table == null)
+		{
+			table = AttackTable.compile(movements, isLeaper, board.getMaxRow(), board.getMaxCol(), board.isWrapAround());
+			AttackTable existing = mAttackTables.putIfAbsent(key, table);
+			if (existing != null)
+				table = existing;
+		}
+		return table;
+	}
+
 	public static void removePieceType(String pieceName)
 	{
 		if (mPieceTypes != null && mPieceTypes.containsKey(pieceName))
@@ -236,6 +300,7 @@ public class PieceBuilder implements Serializable
 	private static final long serialVersionUID = -1351201562740885961L;
 
 	private static Map<String, PieceBuilder> mPieceTypes;
+	private static final ConcurrentMap<String, AttackTable> mAttackTables = Maps.newConcurrentMap();
 
 	private boolean mCanJump;
 	private String mName;
@@ -0,0 +1,378 @@
+package logic;
+
+import models.BoardGeometry;
+import models.Game;
+import models.PackedMove;
+import models.Piece;
+import models.Square;
+
+/**
+ * Converts moves packed by PackedMove to Standard Algebraic Notation and
+ * back, through the legal moves of a Game, so what's read is checked by the
+ * rules as it's converted. Files are letters from 'a' and ranks are numbers
+ * from 1, so Boards of any size work. A Piece is named by the first letter of
+ * its name, except for the knight, which is N, and the pawn, which isn't
+ * named. Pieces of a Game that share their letter are named in parentheses,
+ * as FenConverter names them, like (Rhino)c3 and e8=(Rhino), without the
+ * spaces of their names so a move stays one token. Castling is a move of the
+ * objective piece two or more columns along its row.
+ *
+ * SAN doesn't say which Board a Square is on, so a move to a Square that
+ * another Board has at the same file and rank can be ambiguous.
+ */
+public final class SanConverter
+{
+	private SanConverter()
+	{
+	}
+
+	/**
+	 * @param game The Game, at the position before the move
+	 * @param move A legal move, packed by PackedMove
+	 * @return The move in SAN
+	 */
+	public static String toSan(Game game, int move)
+	{
+		StringBuilder san = new StringBuilder(SAN_CAPACITY);
+		appendSan(game, move, game.getLegalMoves(), san);
+		return san.toString();
+	}
+
+	/**
+	 * Append the SAN of a move without making a String of it
+	 *
+	 * @param game The Game, at the position before the move
+	 * @param move A legal move, packed by PackedMove
+	 * @param legalMoves Every legal move of the position, to tell the move
+	 * apart from the others
+	 * @param san The StringBuilder to append the SAN to
+	 */
+	public static void appendSan(Game game, int move, int[] legalMoves, StringBuilder san)
+	{
+		BoardGeometry geometry = game.getGeometry();
+		Square origin = geometry.getSquare(PackedMove.getOrigin(move));
+		Square dest = geometry.getSquare(PackedMove.getDest(move));
+		Piece piece = origin.getPiece();
+
+		if (isCastle(game, piece, origin, dest))
+		{
+			san.append(dest.getCol() > origin.getCol() ? KING_SIDE_CASTLE : QUEEN_SIDE_CASTLE);
+		}
+		else
+		{
+			char letter = getLetter(piece.getName());
+			boolean isCapture = dest.isOccupied() || (letter == NO_LETTER && origin.getCol() != dest.getCol());
+			String[] names = null;
+			if (letter != NO_LETTER)
+			{
+				names = game.getPieceNames();
+				appendPiece(names, piece.getName(), san);
+				appendDisambiguation(geometry, move, legalMoves, san);
+			}
+			else if (isCapture)
+			{
+				san.append(getFile(origin.getCol()));
+			}
+			if (isCapture)
+				san.append('x');
+			san.append(getFile(dest.getCol())).append(dest.getRow());
+
+			int promotion = PackedMove.getPromotion(move);
+			if (promotion > 0)
+			{
+				san.append('=');
+				appendPiece(names == null ? game.getPieceNames() : names, piece.getPromotesTo().get(promotion - 1), san);
+			}
+		}
+
+		game.makeMove(move);
+		Piece objective = game.getOtherObjectivePiece(!game.isBlackMove());
+		if (objective != null && objective.isInCheck())
+			san.append(game.getLegalMoveCount() == 0 ? '#' : '+');
+		game.unmakeMove();
+	}
+
+	/**
+	 * Name a Piece by its letter, or by its name in parentheses if another
+	 * Piece of the Game has the same letter
+	 */
+	private static void appendPiece(String[] names, String name, StringBuilder san)
+	{
+		char letter = getLetter(name);
+		for (String other : names)
+		{
+			if (!other.equals(name) && getLetter(other) == letter)
+			{
+				san.append('(').append(Character.toUpperCase(name.charAt(0)));
+				for (int i = 1; i < name.length(); i++)
+				{
+					if (!Character.isWhitespace(name.charAt(i)))
+						san.append(name.charAt(i));
+				}
+				san.append(')');
+				return;
+			}
+		}
+		san.append(letter);
+	}
+
+	/**
+	 * Name the origin of a move by as little as it takes to tell it from the
+	 * moves of other Pieces of the same type to the same Square: its file,
+	 * else its rank, else both
+	 */
+	private static void appendDisambiguation(BoardGeometry geometry, int move, int[] legalMoves, StringBuilder san)
+	{
+		Square origin = geometry.getSquare(PackedMove.getOrigin(move));
+		String name = origin.getPiece().getName();
+		boolean isAmbiguous = false;
+		boolean isFileShared = false;
+		boolean isRankShared = false;
+		for (int other : legalMoves)
+		{
+			if (PackedMove.getDest(other) != PackedMove.getDest(move) || PackedMove.getOrigin(other) == PackedMove.getOrigin(move))
+				continue;
+
+			Square otherOrigin = geometry.getSquare(PackedMove.getOrigin(other));
+			if (!otherOrigin.getPiece().getName().equals(name))
+				continue;
+
+			isAmbiguous = true;
+			isFileShared |= otherOrigin.getCol() == origin.getCol();
+			isRankShared |= otherOrigin.getRow() == origin.getRow();
+		}
+
+		if (!isAmbiguous)
+			return;
+		if (!isFileShared)
+		{
+			san.append(getFile(origin.getCol()));
+		}
+		else if (!isRankShared)
+		{
+			san.append(origin.getRow());
+		}
+		else
+		{
+			san.append(getFile(origin.getCol())).append(origin.getRow());
+		}
+	}
+
+	/**
+	 * @param game The Game, at the position the move is played from
+	 * @param san The move in SAN. Check marks and annotations like ! and ?
+	 * are ignored.
+	 * @return The legal move the SAN names, packed by PackedMove, or NO_MOVE if
+	 * it names no legal move, or more than one
+	 */
+	public static int toMove(Game game, String san)
+	{
+		int end = san.length();
+		while (end > 0 && SUFFIXES.indexOf(san.charAt(end - 1)) >= 0)
+			end--;
+		if (end == 0)
+			return NO_MOVE;
+
+		int[] legalMoves = game.getLegalMoves();
+		if (isNotation(san, end, KING_SIDE_CASTLE) || isNotation(san, end, KING_SIDE_CASTLE_WITH_ZEROES))
+			return findCastle(game, legalMoves, false);
+		if (isNotation(san, end, QUEEN_SIDE_CASTLE) || isNotation(san, end, QUEEN_SIDE_CASTLE_WITH_ZEROES))
+			return findCastle(game, legalMoves, true);
+
+		// [piece][file][rank][x]file rank[[=]promotion], where a piece is a
+		// letter or a name in parentheses
+		int index = 0;
+		char letter = NO_LETTER;
+		String key = null;
+		if (san.charAt(index) == '(')
+		{
+			int close = san.indexOf(')', index);
+			if (close < index + 2 || close >= end)
+				return NO_MOVE;
+			key = getKey(san.substring(index + 1, close));
+			index = close + 1;
+		}
+		else if (Character.isUpperCase(san.charAt(index)))
+		{
+			letter = san.charAt(index++);
+		}
+
+		char promotionLetter = NO_LETTER;
+		String promotionKey = null;
+		if (san.charAt(end - 1) == ')')
+		{
+			int open = san.lastIndexOf('(', end - 1);
+			if (open < index || open > end - 3)
+				return NO_MOVE;
+			promotionKey = getKey(san.substring(open + 1, end - 1));
+			end = open;
+			if (end > index && san.charAt(end - 1) == '=')
+				end--;
+		}
+		else if (Character.isUpperCase(san.charAt(end - 1)))
+		{
+			promotionLetter = san.charAt(end - 1);
+			end--;
+			if (end > index && san.charAt(end - 1) == '=')
+				end--;
+		}
+
+		// the destination is the last file and rank
+		int destRankStart = end;
+		while (destRankStart > index && Character.isDigit(san.charAt(destRankStart - 1)))
+			destRankStart--;
+		if (destRankStart == end || destRankStart == index || !Character.isLowerCase(san.charAt(destRankStart - 1)))
+			return NO_MOVE;
+		int destCol = getCol(san.charAt(destRankStart - 1));
+		int destRow = parseRank(san, destRankStart, end);
+		int originEnd = destRankStart - 1;
+		if (originEnd > index && san.charAt(originEnd - 1) == 'x')
+			originEnd--;
+
+		int originCol = 0;
+		int originRow = 0;
+		if (index < originEnd && Character.isLowerCase(san.charAt(index)))
+			originCol = getCol(san.charAt(index++));
+		if (index < originEnd)
+		{
+			for (int i = index; i < originEnd; i++)
+			{
+				if (!Character.isDigit(san.charAt(i)))
+					return NO_MOVE;
+			}
+			originRow = parseRank(san, index, originEnd);
+		}
+
+		BoardGeometry geometry = game.getGeometry();
+		int found = NO_MOVE;
+		for (int move : legalMoves)
+		{
+			Square dest = geometry.getSquare(PackedMove.getDest(move));
+			if (dest.getCol() != destCol || dest.getRow() != destRow)
+				continue;
+
+			Square origin = geometry.getSquare(PackedMove.getOrigin(move));
+			Piece piece = origin.getPiece();
+			if (!isNamed(piece.getName(), letter, key) || (originCol != 0 && origin.getCol() != originCol)
+					|| (originRow != 0 && origin.getRow() != originRow))
+				continue;
+
+			int promotion = PackedMove.getPromotion(move);
+			if (promotion == 0 ? (promotionLetter != NO_LETTER || promotionKey != null) : !isNamed(
+					piece.getPromotesTo().get(promotion - 1), promotionLetter, promotionKey))
+				continue;
+
+			if (found != NO_MOVE)
+				return NO_MOVE;
+			found = move;
+		}
+		return found;
+	}
+
+	/**
+	 * @param key The key of the name the SAN gives in parentheses, or null if
+	 * it gives a letter or nothing
+	 * @return If the SAN names a Piece of the given name. A letter names
+	 * every Piece it's the letter of, so a letter shared by two Pieces still
+	 * reads if only one of them can make the move.
+	 */
+	private static boolean isNamed(String name, char letter, String key)
+	{
+		if (key != null)
+			return getKey(name).equals(key);
+		return getLetter(name) == letter;
+	}
+
+	/**
+	 * @return The name as it's looked up when read in parentheses, which is
+	 * without its spaces and the case of its first letter
+	 */
+	private static String getKey(String name)
+	{
+		StringBuilder key = new StringBuilder(name.length());
+		for (int i = 0; i < name.length(); i++)
+		{
+			char c = name.charAt(i);
+			if (!Character.isWhitespace(c))
+				key.append(key.length() == 0 ? Character.toLowerCase(c) : c);
+		}
+		return key.toString();
+	}
+
+	private static boolean isNotation(String san, int end, String notation)
+	{
+		return end == notation.length() && san.startsWith(notation);
+	}
+
+	private static int findCastle(Game game, int[] legalMoves, boolean isQueenSide)
+	{
+		BoardGeometry geometry = game.getGeometry();
+		int found = NO_MOVE;
+		for (int move : legalMoves)
+		{
+			Square origin = geometry.getSquare(PackedMove.getOrigin(move));
+			Square dest = geometry.getSquare(PackedMove.getDest(move));
+			if (!isCastle(game, origin.getPiece(), origin, dest) || (dest.getCol() < origin.getCol()) != isQueenSide)
+				continue;
+
+			if (found != NO_MOVE)
+				return NO_MOVE;
+			found = move;
+		}
+		return found;
+	}
+
+	private static boolean isCastle(Game game, Piece piece, Square origin, Square dest)
+	{
+		if (origin.getBoard() != dest.getBoard() || origin.getRow() != dest.getRow()
+				|| Math.abs(dest.getCol() - origin.getCol()) < MIN_CASTLE_DISTANCE)
+			return false;
+
+		String objectiveName = (piece.isBlack() ? game.getBlackRules() : game.getWhiteRules()).getObjectiveName();
+		return piece.getName().equals(objectiveName);
+	}
+
+	private static int parseRank(String san, int start, int end)
+	{
+		int rank = 0;
+		for (int i = start; i < end; i++)
+			rank = rank * 10 + san.charAt(i) - '0';
+		return rank;
+	}
+
+	/**
+	 * @param name The name of a Piece
+	 * @return The letter SAN names it by, or NO_LETTER for the pawn
+	 */
+	static char getLetter(String name)
+	{
+		if (name.equals(PAWN))
+			return NO_LETTER;
+		if (name.equals(KNIGHT))
+			return AlgebraicConverter.KNIGHT;
+		return Character.toUpperCase(name.charAt(0));
+	}
+
+	private static char getFile(int col)
+	{
+		return (char) ('a' + col - 1);
+	}
+
+	private static int getCol(char file)
+	{
+		return file - 'a' + 1;
+	}
+
+	public static final int NO_MOVE = -1;
+
+	private static final char NO_LETTER = 0;
+	private static final String KING_SIDE_CASTLE = "O-O"; //$NON-NLS-1$
+	private static final String KING_SIDE_CASTLE_WITH_ZEROES = "0-0"; //$NON-NLS-1$
+	private static final String QUEEN_SIDE_CASTLE = "O-O-O"; //$NON-NLS-1$
+	private static final String QUEEN_SIDE_CASTLE_WITH_ZEROES = "0-0-0"; //$NON-NLS-1$
+	private static final String SUFFIXES = "+#!?"; //$NON-NLS-1$
+	private static final String PAWN = Messages.getString("pawn"); //$NON-NLS-1$
+	private static final String KNIGHT = Messages.getString("knight"); //$NON-NLS-1$
+	private static final int MIN_CASTLE_DISTANCE = 2;
+	private static final int SAN_CAPACITY = 8;
+}
@@ -6,6 +6,8 @@ import java.util.List;
 import logic.Messages;
 import logic.Move;
 
+import com.google.common.collect.Lists;
+
 public class Board implements Serializable
 {
 	public static final int NO_ENPASSANT = 0;
@@ -24,6 +26,7 @@ public class Board implements Serializable
 			for (column = 0; column < numColumns; column++)
 				mSquares[row][column] = new Square((row + 1), (column + 1));
 		}
+		linkSquares();
 	}
 
 	public int getEnpassantCol()
@@ -127,38 +130,49 @@ public class Board implements Serializable
 	{
 		boolean[] unique = { true, true }; // Row, Column
 		List<Piece> movingTeam = (getGame().isBlackMove()) ? getGame().getBlackTeam() : getGame().getWhiteTeam();
-		List<Square> dests = null;
-		Piece piece = null;
 
 		if (p.getName().equals(Messages.getString("Board.king"))) //$NON-NLS-1$
 			return unique;
 
-		for (int i = 0; i < movingTeam.size(); i++)
+		ClassicBitboard bitboard = getGame().getClassicBitboard();
+		int type = ClassicBitboard.getType(p);
+		if (bitboard != null && type != ClassicBitboard.NONE)
 		{
-			piece = movingTeam.get(i);
+			// only Pieces of the same type that could reach dest on an empty
+			// board are worth asking; their moves are symmetric, so look from
+			// dest back at them. Pawns capture toward dest, so look back with
+			// the other team's Pawn.
+			long candidates = ClassicBitboard.getAttacks(type, (type == ClassicBitboard.PAWN) ? !p.isBlack() : p.isBlack(),
+					ClassicBitboard.indexOf(dest), bitboard.getOccupancy((Piece) null)) & bitboard.getPieces(type, p.isBlack());
+
+			List<Square> candidateSquares = Lists.newArrayList();
+			bitboard.addSquares(candidates, candidateSquares);
+
+			movingTeam = Lists.newArrayList();
+			for (Square square : candidateSquares)
+				movingTeam.add(square.getPiece());
+		}
 
-			if (piece != p && !piece.isCaptured() && piece.getClass() == p.getClass())
+		for (Piece piece : movingTeam)
+		{
+			if (piece != p && !piece.isCaptured() && piece.getName().equals(p.getName()) && piece.getLegalDests().contains(dest))
 			{
-				dests = piece.getLegalDests();
-
-				if (dests.contains(dest))
-				{
-					if (p.getSquare().getRow() == piece.getSquare().getRow())
-						unique[0] = false; // Row is not unique
-					if (p.getSquare().getCol() == piece.getSquare().getCol())
-						unique[1] = false; // Column is not unique
-
-					// Special case of knights and rooks, etc.
-					if (unique[0] == true && unique[1] == true)
-						unique[1] = false;
-				}
+				if (p.getSquare().getRow() == piece.getSquare().getRow())
+					unique[0] = false; // Row is not unique
+				if (p.getSquare().getCol() == piece.getSquare().getCol())
+					unique[1] = false; // Column is not unique
+
+				// Special case of knights and rooks, etc.
+				if (unique[0] == true && unique[1] == true)
+					unique[1] = false;
 			}
 		}
 		return unique;
 	}
 
 	/**
-	 * Determine if a Move is legal to be executed
+	 * Determine if a Move is legal to be executed. The Move is made and
+	 * taken back on the Game, without executing it.
 	 * 
 	 * @param move The Move on which to check legality
 	 * @return Whether or not the Move is legal
@@ -170,9 +184,20 @@ public class Board implements Serializable
 		if (move == null)
 			return false;
 		move.board = this;
-		if (move.execute())
-			return move.undo();
-		return false;
+
+		// castling Moves don't know their Squares until they execute
+		if (move.origin == null)
+		{
+			if (move.execute())
+				return move.undo();
+			return false;
+		}
+
+		if (!getGame().makeMove(move.origin, move.getDest(), null))
+			return false;
+		getGame().unmakeMove();
+		move.setVerified(true);
+		return true;
 	}
 
 	public boolean isRowValid(int row)
@@ -202,12 +227,41 @@ public class Board implements Serializable
 
 	public void setEnpassantCol(int enpassantCol)
 	{
+		int oldEnpassantCol = mEnpassantColumn;
 		mEnpassantColumn = enpassantCol;
+		if (mGame != null && oldEnpassantCol != enpassantCol)
+			mGame.onEnpassantChanged(this, oldEnpassantCol, enpassantCol);
 	}
 
 	public void setGame(Game g)
 	{
 		mGame = g;
+		linkSquares();
+	}
+
+	/**
+	 * Point every Square back at this Board so changes to the Squares can be
+	 * reported to the Game. Boards read from older files won't have the link
+	 * yet.
+	 */
+	void linkSquares()
+	{
+		for (Square[] row : mSquares)
+		{
+			for (Square square : row)
+				square.setBoard(this);
+		}
+	}
+
+	/**
+	 * Called by a Square on this Board whenever the Piece occupying it changes
+	 * 
+	 * @param square The Square that changed
+	 */
+	void onSquareChanged(Square square)
+	{
+		if (mGame != null)
+			mGame.onSquareChanged(square);
 	}
 
 	public void setMaxCol(int maxCol)
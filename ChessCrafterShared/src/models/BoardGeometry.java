@@ -0,0 +1,118 @@
+package models;
+
+import java.util.List;
+
+/**
+ * Numbers every Square of every Board in a Game, so positions of any size,
+ * with any number of Boards, can be kept in SquareSets. The Squares of each
+ * Board are numbered row by row, one Board after the other.
+ */
+public final class BoardGeometry
+{
+	public BoardGeometry(Board[] boards)
+	{
+		mBoards = boards.clone();
+		mOffsets = new int[boards.length + 1];
+		for (int i = 0; i < boards.length; i++)
+			mOffsets[i + 1] = mOffsets[i] + boards[i].getMaxRow() * boards[i].getMaxCol();
+	}
+
+	/**
+	 * @return The number of Squares on all the Boards
+	 */
+	public int size()
+	{
+		return mOffsets[mBoards.length];
+	}
+
+	/**
+	 * @return An empty SquareSet big enough for every Square of this geometry
+	 */
+	public SquareSet newSquareSet()
+	{
+		return new SquareSet(size());
+	}
+
+	/**
+	 * @param square The Square to look up
+	 * @return The index of the Square, or -1 if it isn't on one of these
+	 * Boards
+	 */
+	public int indexOf(Square square)
+	{
+		Board board = square.getBoard();
+		for (int i = 0; i < mBoards.length; i++)
+		{
+			if (mBoards[i] == board)
+				return indexOf(i, square.getRow(), square.getCol());
+		}
+		return -1;
+	}
+
+	/**
+	 * @param boardIndex The index of the Board in the Game
+	 * @param row The row of the Square, counting from 1
+	 * @param col The column of the Square, counting from 1
+	 * @return The index of the Square
+	 */
+	public int indexOf(int boardIndex, int row, int col)
+	{
+		return mOffsets[boardIndex] + (row - 1) * mBoards[boardIndex].getMaxCol() + col - 1;
+	}
+
+	/**
+	 * @param index The index of a Square
+	 * @return The Square at the given index
+	 */
+	public Square getSquare(int index)
+	{
+		int boardIndex = getBoardIndex(index);
+		int cols = mBoards[boardIndex].getMaxCol();
+		int offset = index - mOffsets[boardIndex];
+		return mBoards[boardIndex].mSquares[offset / cols][offset % cols];
+	}
+
+	/**
+	 * @param index The index of a Square
+	 * @return The index of the Board the Square is on
+	 */
+	public int getBoardIndex(int index)
+	{
+		int boardIndex = 0;
+		while (index >= mOffsets[boardIndex + 1])
+			boardIndex++;
+		return boardIndex;
+	}
+
+	public Board getBoard(int boardIndex)
+	{
+		return mBoards[boardIndex];
+	}
+
+	public int getBoardCount()
+	{
+		return mBoards.length;
+	}
+
+	/**
+	 * Add the given Squares to the given set
+	 *
+	 * @param squares The Squares to add
+	 * @param set The set to add them to
+	 * @return False if one of the Squares isn't part of this geometry
+	 */
+	public boolean addAll(List<Square> squares, SquareSet set)
+	{
+		for (Square square : squares)
+		{
+			int index = indexOf(square);
+			if (index < 0)
+				return false;
+			set.add(index);
+		}
+		return true;
+	}
+
+	private final Board[] mBoards;
+	private final int[] mOffsets;
+}
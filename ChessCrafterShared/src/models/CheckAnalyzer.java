@@ -0,0 +1,135 @@
+package models;
+
+import java.util.List;
+
+import logic.AttackTable;
+import logic.Messages;
+
+/**
+ * Finds the Pieces pinned to an objective piece, and the Squares that get
+ * it out of check. Pins are found along the rays of the enemy Pieces'
+ * AttackTables, so they follow every piece type's own lines, wraparound
+ * columns included, instead of asking every enemy Piece for its line of
+ * sight. Pins and blocks come out as SquareSets, so cropping the legal
+ * destinations of a Piece is one lookup per destination.
+ */
+final class CheckAnalyzer
+{
+	CheckAnalyzer(BoardGeometry geometry)
+	{
+		mGeometry = geometry;
+		mLine = geometry.newSquareSet();
+	}
+
+	/**
+	 * Walk every ray of every sliding enemy Piece on the Board of the
+	 * objective piece. A friendly Piece followed by the objective piece, with
+	 * nothing else in between, is pinned, and may only move along the ray.
+	 *
+	 * @param objectivePiece The objective piece of the moving team
+	 * @param enemyTeam The team of the other side
+	 */
+	void cropPins(Piece objectivePiece, List<Piece> enemyTeam)
+	{
+		Board board = objectivePiece.getSquare().getBoard();
+		int offset = mGeometry.indexOf(board.getSquare(1, 1));
+		for (int i = 0; i < enemyTeam.size(); i++)
+		{
+			Piece enemy = enemyTeam.get(i);
+			if (enemy.isCaptured() || enemy.getSquare().getBoard() != board || enemy.getName().equals(PAWN))
+				continue;
+
+			AttackTable table = enemy.getAttackTable(board);
+			if (table.isLeaper())
+				continue;
+
+			Square square = enemy.getSquare();
+			int origin = table.indexOf(square.getRow(), square.getCol());
+			int[] raySquares = table.getRaySquares(origin);
+			int start = 0;
+			for (int end : table.getRayEnds(origin))
+			{
+				cropPin(objectivePiece, enemy, raySquares, start, end, offset);
+				start = end;
+			}
+		}
+	}
+
+	/**
+	 * Pin the Piece on a ray of an enemy Piece, if the objective piece is the
+	 * next Piece behind it
+	 */
+	private void cropPin(Piece objectivePiece, Piece pinner, int[] raySquares, int start, int end, int offset)
+	{
+		Piece blocker = null;
+		for (int i = start; i < end; i++)
+		{
+			Piece piece = mGeometry.getSquare(offset + raySquares[i]).getPiece();
+			if (piece == null)
+				continue;
+
+			if (blocker == null)
+			{
+				// the enemy's own Piece stops the ray, and the objective
+				// piece first is a check, not a pin
+				if (piece.isBlack() != objectivePiece.isBlack() || piece == objectivePiece)
+					return;
+				blocker = piece;
+				continue;
+			}
+
+			if (piece == objectivePiece)
+			{
+				mLine.clear();
+				addSquare(pinner.getSquare());
+				for (int j = start; j < i; j++)
+					mLine.add(offset + raySquares[j]);
+				blocker.setPinned(pinner, mLine, mGeometry);
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Crop the destinations of the moving team down to the ones that capture
+	 * or block the single Piece giving check
+	 *
+	 * @param objectivePiece The objective piece in check
+	 * @param threat The Piece giving check
+	 * @param movingTeam The team of the objective piece
+	 */
+	void cropToBlocks(Piece objectivePiece, Piece threat, List<Piece> movingTeam)
+	{
+		mLine.clear();
+		addSquare(threat.getSquare());
+		addLine(threat.getLineOfSight(objectivePiece, false));
+
+		for (int i = 0; i < movingTeam.size(); i++)
+		{
+			Piece piece = movingTeam.get(i);
+			if (piece != objectivePiece && !piece.isCaptured())
+				piece.retainLegalDests(mLine, mGeometry, threat);
+		}
+	}
+
+	private void addLine(Square[] line)
+	{
+		if (line == null)
+			return;
+
+		for (Square square : line)
+			addSquare(square);
+	}
+
+	private void addSquare(Square square)
+	{
+		int index = mGeometry.indexOf(square);
+		if (index >= 0)
+			mLine.add(index);
+	}
+
+	private static final String PAWN = Messages.getString("pawn"); //$NON-NLS-1$
+
+	private final BoardGeometry mGeometry;
+	private final SquareSet mLine;
+}
@@ -0,0 +1,380 @@
+package models;
+
+import java.util.Arrays;
+import java.util.List;
+
+import logic.Messages;
+
+/**
+ * A 64 bit bitboard view of a classic 8x8 Game. Bit (row - 1) * 8 + (col - 1)
+ * stands for the Square at row, col. The Game keeps it up to date through the
+ * same Square change notifications used for incremental legal destinations,
+ * so attack questions become a handful of mask operations instead of team
+ * scans. Sliding attacks are looked up in kindergarten tables.
+ */
+public final class ClassicBitboard
+{
+	public static final int NONE = -1;
+	public static final int PAWN = 0;
+	public static final int KNIGHT = 1;
+	public static final int BISHOP = 2;
+	public static final int ROOK = 3;
+	public static final int QUEEN = 4;
+	public static final int KING = 5;
+
+	/**
+	 * Build a bitboard of the current position of the given Game
+	 *
+	 * @param game The Game to represent
+	 * @return The bitboard, or null if the Game isn't classic chess on a
+	 * single 8x8 Board with only the classic pieces
+	 */
+	static ClassicBitboard create(Game game)
+	{
+		if (!game.isClassicChess() || game.getBoards().length != 1)
+			return null;
+
+		Board board = game.getBoards()[0];
+		if (board.getMaxRow() != SIZE || board.getMaxCol() != SIZE || board.isWrapAround())
+			return null;
+
+		ClassicBitboard bitboard = new ClassicBitboard(board);
+		for (int index = 0; index < SQUARES; index++)
+		{
+			Square square = bitboard.getSquare(index);
+			if (!square.isHabitable() || !bitboard.update(square))
+				return null;
+		}
+		return bitboard;
+	}
+
+	private ClassicBitboard(Board board)
+	{
+		mBoard = board;
+		mTypes = new int[SQUARES];
+		Arrays.fill(mTypes, NONE);
+		mPieces = new long[TYPE_NAMES.length];
+		mColors = new long[2];
+	}
+
+	/**
+	 * Bring the bitboard up to date with the contents of the given Square
+	 *
+	 * @param square The Square that changed
+	 * @return False if the Square now holds a Piece the bitboard can't
+	 * represent
+	 */
+	boolean update(Square square)
+	{
+		int index = indexOf(square);
+		long bit = 1L << index;
+
+		if (mTypes[index] != NONE)
+		{
+			mPieces[mTypes[index]] &= ~bit;
+			mColors[WHITE] &= ~bit;
+			mColors[BLACK] &= ~bit;
+			mTypes[index] = NONE;
+		}
+
+		Piece piece = square.getPiece();
+		if (piece == null)
+			return true;
+
+		int type = getType(piece);
+		if (type == NONE)
+			return false;
+
+		mTypes[index] = type;
+		mPieces[type] |= bit;
+		mColors[piece.isBlack() ? BLACK : WHITE] |= bit;
+		return true;
+	}
+
+	/**
+	 * @param piece The Piece to look up
+	 * @return The bitboard type of the given Piece, or NONE if it isn't one
+	 * of the classic pieces
+	 */
+	public static int getType(Piece piece)
+	{
+		for (int type = 0; type < TYPE_NAMES.length; type++)
+		{
+			if (TYPE_NAMES[type].equals(piece.getName()))
+				return type;
+		}
+		return NONE;
+	}
+
+	/**
+	 * @param square A Square of the Board this bitboard represents
+	 * @return The bit index of the given Square
+	 */
+	public static int indexOf(Square square)
+	{
+		return (square.getRow() - 1) * SIZE + square.getCol() - 1;
+	}
+
+	/**
+	 * @param index A bit index
+	 * @return The Square of the Board at the given index
+	 */
+	public Square getSquare(int index)
+	{
+		return mBoard.mSquares[index / SIZE][index % SIZE];
+	}
+
+	/**
+	 * Add the Square for every bit of the given set to the given List, in
+	 * index order
+	 *
+	 * @param squares The set of Squares to add
+	 * @param list The List to add to
+	 */
+	public void addSquares(long squares, List<Square> list)
+	{
+		while (squares != 0)
+		{
+			list.add(getSquare(Long.numberOfTrailingZeros(squares)));
+			squares &= squares - 1;
+		}
+	}
+
+	/**
+	 * @param type The type of Pieces to get
+	 * @param isBlack The team of the Pieces
+	 * @return The set of Squares holding Pieces of the given type and team
+	 */
+	public long getPieces(int type, boolean isBlack)
+	{
+		return mPieces[type] & mColors[isBlack ? BLACK : WHITE];
+	}
+
+	/**
+	 * @param isBlack The team to get
+	 * @return The set of Squares holding Pieces of the given team
+	 */
+	public long getOccupancy(boolean isBlack)
+	{
+		return mColors[isBlack ? BLACK : WHITE];
+	}
+
+	/**
+	 * Get the set of occupied Squares, as seen by sliding Pieces
+	 *
+	 * @param seeThrough A Piece the sliding Pieces look straight through, or
+	 * null
+	 * @return The set of occupied Squares, without the Square of seeThrough
+	 */
+	public long getOccupancy(Piece seeThrough)
+	{
+		long occupancy = mColors[WHITE] | mColors[BLACK];
+		if (seeThrough != null && !seeThrough.isCaptured() && seeThrough.getSquare() != null
+				&& seeThrough.getSquare().getBoard() == mBoard)
+		{
+			occupancy &= ~(1L << indexOf(seeThrough.getSquare()));
+		}
+		return occupancy;
+	}
+
+	/**
+	 * Get every Square a Piece attacks from the given Square, whoever is on
+	 * them
+	 *
+	 * @param type The type of the attacking Piece
+	 * @param isBlack The team of the attacking Piece
+	 * @param index The Square the attacking Piece is on
+	 * @param occupancy The occupied Squares blocking sliding Pieces
+	 * @return The attacked Squares
+	 */
+	public static long getAttacks(int type, boolean isBlack, int index, long occupancy)
+	{
+		switch (type)
+		{
+		case PAWN:
+			return PAWN_ATTACKS[isBlack ? BLACK : WHITE][index];
+		case KNIGHT:
+			return KNIGHT_ATTACKS[index];
+		case BISHOP:
+			return getLineAttacks(DIAGONAL, index, occupancy) | getLineAttacks(ANTI_DIAGONAL, index, occupancy);
+		case ROOK:
+			return getLineAttacks(RANK, index, occupancy) | getLineAttacks(FILE, index, occupancy);
+		case QUEEN:
+			return getLineAttacks(DIAGONAL, index, occupancy) | getLineAttacks(ANTI_DIAGONAL, index, occupancy)
+					| getLineAttacks(RANK, index, occupancy) | getLineAttacks(FILE, index, occupancy);
+		case KING:
+			return KING_ATTACKS[index];
+		default:
+			return 0L;
+		}
+	}
+
+	/**
+	 * Get the Squares of the Pieces threatening the given Square the way
+	 * Piece.isLegalAttack sees it: Pawns always threaten diagonally forward,
+	 * everyone else only threatens Squares not held by their own team.
+	 *
+	 * @param index The threatened Square
+	 * @param attackerIsBlack The team of the attackers
+	 * @param occupancy The occupied Squares blocking sliding Pieces
+	 * @return The Squares of the threatening Pieces
+	 */
+	public long getThreats(int index, boolean attackerIsBlack, long occupancy)
+	{
+		long threats = PAWN_ATTACKS[attackerIsBlack ? WHITE : BLACK][index] & getPieces(PAWN, attackerIsBlack);
+		if ((getOccupancy(attackerIsBlack) & (1L << index)) == 0)
+			threats |= getPieceAttackers(index, attackerIsBlack, occupancy);
+		return threats;
+	}
+
+	/**
+	 * Get the Squares of the Pieces guarding the given Square the way
+	 * Piece.isGuarding sees it: only a Square held by their own team can be
+	 * guarded, and Pawns never guard.
+	 *
+	 * @param index The guarded Square
+	 * @param isBlack The team of the guards
+	 * @param occupancy The occupied Squares blocking sliding Pieces
+	 * @return The Squares of the guarding Pieces
+	 */
+	public long getGuards(int index, boolean isBlack, long occupancy)
+	{
+		if ((getOccupancy(isBlack) & (1L << index)) == 0)
+			return 0L;
+		return getPieceAttackers(index, isBlack, occupancy);
+	}
+
+	private long getPieceAttackers(int index, boolean attackerIsBlack, long occupancy)
+	{
+		long diagonalSliders = mPieces[BISHOP] | mPieces[QUEEN];
+		long straightSliders = mPieces[ROOK] | mPieces[QUEEN];
+
+		long attackers = (KNIGHT_ATTACKS[index] & mPieces[KNIGHT]) | (KING_ATTACKS[index] & mPieces[KING]);
+		if (((LINE_MASKS[DIAGONAL][index] | LINE_MASKS[ANTI_DIAGONAL][index]) & diagonalSliders) != 0)
+		{
+			attackers |= (getLineAttacks(DIAGONAL, index, occupancy) | getLineAttacks(ANTI_DIAGONAL, index, occupancy))
+					& diagonalSliders;
+		}
+		if (((LINE_MASKS[RANK][index] | LINE_MASKS[FILE][index]) & straightSliders) != 0)
+			attackers |= (getLineAttacks(RANK, index, occupancy) | getLineAttacks(FILE, index, occupancy)) & straightSliders;
+
+		return attackers & getOccupancy(attackerIsBlack);
+	}
+
+	private static long getLineAttacks(int line, int index, long occupancy)
+	{
+		return LINE_ATTACKS[line][index][getLineIndex(line, index, occupancy & LINE_MASKS[line][index])];
+	}
+
+	/**
+	 * Squeeze the occupied Squares of one line through a Square down to 6
+	 * bits. The edge Squares of a line never block anything, so the 6 inner
+	 * Squares are all that matter.
+	 */
+	private static int getLineIndex(int line, int index, long lineOccupancy)
+	{
+		switch (line)
+		{
+		case RANK:
+			return (int) ((lineOccupancy >>> ((index / SIZE) * SIZE + 1)) & 63);
+		case FILE:
+			return (int) ((((lineOccupancy >>> (index % SIZE)) & A_FILE) * C2_H7_DIAGONAL) >>> 58);
+		default:
+			return (int) ((lineOccupancy * B_FILE) >>> 58);
+		}
+	}
+
+	private static long walk(int index, int rowStep, int colStep, long occupancy)
+	{
+		long attacks = 0L;
+		int row = index / SIZE + rowStep;
+		int col = index % SIZE + colStep;
+		while (row >= 0 && row < SIZE && col >= 0 && col < SIZE)
+		{
+			long bit = 1L << (row * SIZE + col);
+			attacks |= bit;
+			if ((occupancy & bit) != 0)
+				break;
+			row += rowStep;
+			col += colStep;
+		}
+		return attacks;
+	}
+
+	private static long leap(int index, int[][] offsets)
+	{
+		long attacks = 0L;
+		for (int[] offset : offsets)
+			attacks |= walk(index, offset[0], offset[1], -1L);
+		return attacks;
+	}
+
+	private static final int SIZE = 8;
+	private static final int SQUARES = SIZE * SIZE;
+	private static final int WHITE = 0;
+	private static final int BLACK = 1;
+
+	private static final int RANK = 0;
+	private static final int FILE = 1;
+	private static final int DIAGONAL = 2;
+	private static final int ANTI_DIAGONAL = 3;
+
+	private static final long A_FILE = 0x0101010101010101L;
+	private static final long B_FILE = 0x0202020202020202L;
+	private static final long C2_H7_DIAGONAL = 0x0004081020408000L;
+
+	private static final String[] TYPE_NAMES = { Messages.getString("pawn"), Messages.getString("knight"), //$NON-NLS-1$ //$NON-NLS-2$
+			Messages.getString("bishop"), Messages.getString("rook"), Messages.getString("queen"), Messages.getString("king") }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+	private static final long[] KNIGHT_ATTACKS = new long[SQUARES];
+	private static final long[] KING_ATTACKS = new long[SQUARES];
+	private static final long[][] PAWN_ATTACKS = new long[2][SQUARES];
+	private static final long[][] LINE_MASKS = new long[4][SQUARES];
+	private static final long[][][] LINE_ATTACKS = new long[4][SQUARES][64];
+
+	private final Board mBoard;
+	private final int[] mTypes;
+	private final long[] mPieces;
+	private final long[] mColors;
+
+	// the tables are declared above, so fill them in last
+	static
+	{
+		int[][][] lineSteps = { { { 0, 1 }, { 0, -1 } }, { { 1, 0 }, { -1, 0 } }, { { 1, 1 }, { -1, -1 } }, { { 1, -1 }, { -1, 1 } } };
+		int[][] knightOffsets = { { 1, 2 }, { 2, 1 }, { 2, -1 }, { 1, -2 }, { -1, -2 }, { -2, -1 }, { -2, 1 }, { -1, 2 } };
+		int[][] kingOffsets = { { 0, 1 }, { 1, 1 }, { 1, 0 }, { 1, -1 }, { 0, -1 }, { -1, -1 }, { -1, 0 }, { -1, 1 } };
+
+		for (int index = 0; index < SQUARES; index++)
+		{
+			KNIGHT_ATTACKS[index] = leap(index, knightOffsets);
+			KING_ATTACKS[index] = leap(index, kingOffsets);
+			PAWN_ATTACKS[WHITE][index] = leap(index, new int[][] { { 1, 1 }, { 1, -1 } });
+			PAWN_ATTACKS[BLACK][index] = leap(index, new int[][] { { -1, 1 }, { -1, -1 } });
+
+			for (int line = 0; line < lineSteps.length; line++)
+			{
+				long mask = walk(index, lineSteps[line][0][0], lineSteps[line][0][1], 0L)
+						| walk(index, lineSteps[line][1][0], lineSteps[line][1][1], 0L);
+				LINE_MASKS[line][index] = mask;
+
+				// fill the table by trying every occupancy of the line, and
+				// make sure the index never mixes up two different answers
+				boolean[] isFilled = new boolean[64];
+				long occupancy = 0L;
+				do
+				{
+					long attacks = walk(index, lineSteps[line][0][0], lineSteps[line][0][1], occupancy)
+							| walk(index, lineSteps[line][1][0], lineSteps[line][1][1], occupancy);
+					int lineIndex = getLineIndex(line, index, occupancy);
+					if (isFilled[lineIndex] && LINE_ATTACKS[line][index][lineIndex] != attacks)
+						throw new IllegalStateException("Bitboard line index collision"); //$NON-NLS-1$
+
+					LINE_ATTACKS[line][index][lineIndex] = attacks;
+					isFilled[lineIndex] = true;
+					occupancy = (occupancy - mask) & mask;
+				}
+				while (occupancy != 0L);
+			}
+		}
+	}
+}
@@ -1,25 +1,72 @@
 package models;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import logic.AlgebraicConverter;
+import logic.GameRecord;
 import logic.Messages;
 import logic.Move;
+import logic.PieceBuilder;
 
 import timer.ChessTimer;
 import timer.TimerTypes;
 import utility.FileUtility;
 import ai.FakeMove;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 public class Game implements Serializable
 {
+	/**
+	 * Told after every Move played by playMove, once the Move is in the
+	 * history and the end of the game has been checked, so a listener that
+	 * plays on another thread sees the whole Move. Moves executed any other
+	 * way, like the search's makeMove and unmakeMove, don't tell anybody.
+	 */
+	public interface TurnListener
+	{
+		/**
+		 * Called on the thread that played the Move. Variants that give a
+		 * team more than one move a turn call it after each of them.
+		 * 
+		 * @param isBlackMove Whether it's now black's turn
+		 */
+		public void onTurnChanged(boolean isBlackMove);
+	}
+
+	/**
+	 * Told whenever the Piece on a Square changes, by Move.execute, Move.undo,
+	 * makeMove, unmakeMove and the AfterMove rules alike, which is what the
+	 * Zobrist key is kept up to date by. Listeners are called on the thread
+	 * changing the Game, in the middle of a move, so they must be quick and
+	 * must not look at anything but the Square.
+	 */
+	public interface SquareListener
+	{
+		/**
+		 * @param square The Square whose Piece changed
+		 */
+		public void onSquareChanged(Square square);
+	}
+
+
 	public Game(String gameType, Board[] boards, List<Piece> whiteTeam, List<Piece> blackTeam, Rules whiteRules, Rules blackRules,
 			Map<String, List<String>> whitePromotionMap, Map<String, List<String>> blackPromotionMap)
 	{
@@ -47,6 +94,8 @@ public class Game implements Serializable
 		mStaleLegalDests = true;
 
 		mHistory = Lists.newArrayList();
+
+		loadPromotionTypes();
 	}
 
 	/**
@@ -66,6 +115,30 @@ public class Game implements Serializable
 	 * Generate the legal destinations for every piece on the board.
 	 */
 	public void genLegalDests()
+	{
+		setStaleLegalDests(false);
+		if (mLegalDestsCache == null)
+		{
+			genLegalDestsFromScratch();
+			return;
+		}
+
+		long key = getZobristKey();
+		if (mLegalDestsCache.restore(key, this))
+		{
+			// the remembered pseudo legal destinations are from some other
+			// position now, so the next generation has to be a full one
+			mChangedSquares = null;
+			return;
+		}
+
+		mLegalDestsCache.save(key, this, genLegalDestsFromScratch());
+	}
+
+	/**
+	 * @return The number of Pieces giving check to the moving team
+	 */
+	private int genLegalDestsFromScratch()
 	{
 		Piece[] threats = null;
 		Piece movingObjectivePiece = null;
@@ -73,22 +146,7 @@ public class Game implements Serializable
 		List<Piece> movingTeam = null;
 		List<Piece> otherTeam = null;
 
-		setStaleLegalDests(false);
-
-		for (int i = 0; i < mBoards.length; i++)
-		{
-			for (int r = 0, c = 0; r < mBoards[i].getMaxRow(); r++)
-			{
-				for (c = 0; c < mBoards[i].getMaxCol(); c++)
-				{
-					if (mBoards[i].mSquares[r][c].getPiece() != null)
-					{
-						mBoards[i].mSquares[r][c].getPiece().genLegalDests(
-								(isBlackMove() ? getBlackRules() : getWhiteRules()).getBoard(mBoards[i]));
-					}
-				}
-			}
-		}
+		genPseudoLegalDests();
 
 		movingObjectivePiece = (isBlackMove()) ? mBlackRules.objectivePiece(true) : mWhiteRules.objectivePiece(false);
 		movingTeam = (isBlackMove()) ? getBlackTeam() : getWhiteTeam();
@@ -107,10 +165,16 @@ public class Game implements Serializable
 					otherObjectivePiece, otherTeam);
 		}
 
-		if (movingObjectivePiece != null)
+		// Now see if any of the moves puts the objective piece in check and
+		// are therefore illegal
+		if (movingObjectivePiece != null && mBoards.length == 1)
+		{
+			if ((isBlackMove() ? getWhiteRules() : getBlackRules()).isPinning())
+				getCheckAnalyzer().cropPins(movingObjectivePiece, otherTeam);
+		}
+		else if (movingObjectivePiece != null)
 		{
-			// Now see if any of the moves puts the objective piece in check and
-			// are therefore illegal
+			// Pieces attack across Boards, so ask every one of them
 			for (int i = 0; i < otherTeam.size(); i++)
 			{
 				if (otherTeam.equals(getWhiteTeam()))
@@ -122,6 +186,9 @@ public class Game implements Serializable
 
 		(isBlackMove() ? getBlackRules() : getWhiteRules()).adjustTeamLegalDestinations(movingTeam);
 
+		if (movingObjectivePiece != null && isClassicChess())
+			cropEnpassantDiscoveries(movingObjectivePiece, movingTeam);
+
 		// if the objective piece is in check, the legal moves list must be
 		// modified accordingly
 		if (movingObjectivePiece != null && movingObjectivePiece.isInCheck())
@@ -136,8 +203,7 @@ public class Game implements Serializable
 			case 1:
 				// there is only one threat, so another Piece could block, or
 				// the King could move
-				for (int i = 0; i < movingTeam.size(); i++)
-					movingTeam.get(i).genLegalDestsSaveKing(movingObjectivePiece, threats[0]);
+				getCheckAnalyzer().cropToBlocks(movingObjectivePiece, threats[0], movingTeam);
 
 				break;
 			case 2:
@@ -159,6 +225,467 @@ public class Game implements Serializable
 				break;
 			}
 		}
+		return (threats == null) ? 0 : threats.length;
+	}
+
+	/**
+	 * An en passant capture takes two Pawns off the same row at once, which
+	 * pin detection can't see: if the objective piece is on that row, the
+	 * capture can open it up to a Rook or Queen.
+	 * 
+	 * @param objectivePiece The objective piece of the moving team
+	 * @param movingTeam The moving team
+	 */
+	private void cropEnpassantDiscoveries(Piece objectivePiece, List<Piece> movingTeam)
+	{
+		Board board = objectivePiece.getBoard();
+		int row = objectivePiece.getSquare().getRow();
+		if (board.getEnpassantCol() == Board.NO_ENPASSANT || row != (objectivePiece.isBlack() ? 4 : 5))
+			return;
+
+		Square enpassant = board.getSquare(objectivePiece.isBlack() ? 3 : 6, board.getEnpassantCol());
+		for (Piece piece : movingTeam)
+		{
+			if (piece.isCaptured() || !piece.getName().equals(PAWN) || piece.getSquare().getRow() != row
+					|| !piece.getLegalDests().contains(enpassant))
+			{
+				continue;
+			}
+
+			int[] skipped = { piece.getSquare().getCol(), board.getEnpassantCol() };
+			int col = objectivePiece.getSquare().getCol();
+			int dir = (skipped[0] < col) ? -1 : 1;
+			for (col += dir; board.isColValid(col); col += dir)
+			{
+				if (col == skipped[0] || col == skipped[1])
+					continue;
+
+				Piece attacker = board.getSquare(row, col).getPiece();
+				if (attacker == null)
+					continue;
+
+				if (attacker.isBlack() != objectivePiece.isBlack()
+						&& (attacker.getName().equals(ROOK) || attacker.getName().equals(QUEEN)))
+				{
+					piece.getLegalDests().remove(enpassant);
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Generate the destinations of every piece on the board, before anything
+	 * is cropped for pins or checks. In incremental mode, only the pieces
+	 * affected by the Squares that changed since the last generation are
+	 * regenerated; everyone else gets their previous destinations back.
+	 */
+	private void genPseudoLegalDests()
+	{
+		boolean incremental = mIsIncrementalLegalDests && mChangedSquares != null && !mWhiteRules.switchBoards()
+				&& !mBlackRules.switchBoards();
+		Rules movingRules = isBlackMove() ? getBlackRules() : getWhiteRules();
+		SquareSet objectiveSquares = null;
+		if (incremental)
+		{
+			objectiveSquares = getGeometry().newSquareSet();
+			addObjectiveSquare(objectiveSquares, false);
+			addObjectiveSquare(objectiveSquares, true);
+		}
+
+		for (int i = 0; i < mBoards.length; i++)
+		{
+			for (int r = 0, c = 0; r < mBoards[i].getMaxRow(); r++)
+			{
+				for (c = 0; c < mBoards[i].getMaxCol(); c++)
+				{
+					Piece piece = mBoards[i].mSquares[r][c].getPiece();
+					if (piece == null)
+						continue;
+
+					if (incremental && piece.hasReusablePseudoLegalDests(mChangedSquares, objectiveSquares))
+					{
+						piece.restorePseudoLegalDests();
+					}
+					else
+					{
+						piece.genLegalDests(movingRules.getBoard(mBoards[i]));
+						if (mIsIncrementalLegalDests)
+							piece.savePseudoLegalDests(getGeometry());
+					}
+				}
+			}
+		}
+
+		if (incremental && mIsVerifyingIncrementalLegalDests)
+			verifyPseudoLegalDests(movingRules);
+
+		if (mIsIncrementalLegalDests)
+			mChangedSquares = getGeometry().newSquareSet();
+	}
+
+	/**
+	 * Regenerate every piece from scratch and make sure the incremental
+	 * generation came up with the same destinations.
+	 * 
+	 * @param movingRules The Rules of the team whose turn it is
+	 */
+	private void verifyPseudoLegalDests(Rules movingRules)
+	{
+		for (Board board : mBoards)
+		{
+			for (Square[] row : board.mSquares)
+			{
+				for (Square square : row)
+				{
+					Piece piece = square.getPiece();
+					if (piece == null)
+						continue;
+
+					Set<Square> incrementalDests = Sets.newHashSet(piece.getLegalDests());
+					Set<Square> incrementalGuards = Sets.newHashSet(piece.getGuardSquares());
+					piece.genLegalDests(movingRules.getBoard(board));
+					if (!incrementalDests.equals(Sets.newHashSet(piece.getLegalDests()))
+							|| !incrementalGuards.equals(Sets.newHashSet(piece.getGuardSquares())))
+					{
+						throw new IllegalStateException("Incremental legal destinations differ for " + piece.getName() + " on " //$NON-NLS-1$ //$NON-NLS-2$
+								+ square.getRow() + "," + square.getCol()); //$NON-NLS-1$
+					}
+				}
+			}
+		}
+	}
+
+	private void addObjectiveSquare(SquareSet squares, boolean isBlack)
+	{
+		Piece objective = (isBlack ? mBlackRules : mWhiteRules).objectivePiece(isBlack);
+		int index = (objective == null || objective.isCaptured()) ? -1 : getGeometry().indexOf(objective.getSquare());
+		if (index >= 0)
+			squares.add(index);
+	}
+
+	/**
+	 * Called whenever the Piece on one of the Squares of this Game changes.
+	 * 
+	 * @param square The Square that changed
+	 */
+	void onSquareChanged(Square square)
+	{
+		if (mChangedSquares != null || mSquareSetPosition != null)
+		{
+			int index = getGeometry().indexOf(square);
+			if (index >= 0 && mChangedSquares != null)
+				mChangedSquares.add(index);
+			if (index >= 0 && mSquareSetPosition != null)
+				mSquareSetPosition.update(index, square);
+		}
+
+		if (mZobristKey != null)
+			mZobristKey.update(square);
+
+		if (mSquareListeners != null)
+		{
+			for (int i = 0; i < mSquareListeners.length; i++)
+				mSquareListeners[i].onSquareChanged(square);
+		}
+
+		if (mClassicBitboard != null && !mClassicBitboard.update(square))
+		{
+			// something the bitboard can't represent showed up, so go back to
+			// scanning the teams
+			mClassicBitboard = null;
+			mIsClassicBitboardChecked = false;
+		}
+	}
+
+	/**
+	 * Called whenever the en passant column of one of the Boards of this Game
+	 * changes.
+	 * 
+	 * @param board The Board that changed
+	 * @param oldCol The en passant column before the change
+	 * @param newCol The en passant column after the change
+	 */
+	void onEnpassantChanged(Board board, int oldCol, int newCol)
+	{
+		if (mZobristKey != null)
+			mZobristKey.setEnpassantCol(Arrays.asList(mBoards).indexOf(board), oldCol, newCol);
+	}
+
+	/**
+	 * Called whenever a Piece of this Game is captured, comes back, or
+	 * changes teams while captured.
+	 * 
+	 * @param piece The Piece that changed
+	 * @param isJailed Whether the Piece went into its team's jail or came out
+	 */
+	void onJailChanged(Piece piece, boolean isJailed)
+	{
+		if (mZobristKey != null)
+			mZobristKey.setJailed(piece, isJailed);
+	}
+
+	/**
+	 * Make a deep copy of this Game, which shares no Boards, Pieces or Rules
+	 * with it, so it can be searched on another thread. The copy has no
+	 * timers and no history, and can't take back the moves made before it.
+	 * 
+	 * @return The copy
+	 */
+	public Game copy()
+	{
+		try
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes)
+			{
+				{
+					enableReplaceObject(true);
+				}
+
+				@Override
+				protected Object replaceObject(Object object) throws IOException
+				{
+					if (object instanceof ChessTimer)
+						return null;
+					if (object == mHistory)
+						return Lists.newArrayList();
+					return object;
+				}
+			};
+			out.writeObject(this);
+			out.close();
+
+			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+			Game copy = (Game) in.readObject();
+			in.close();
+			return copy;
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private CheckAnalyzer getCheckAnalyzer()
+	{
+		if (mCheckAnalyzer == null)
+			mCheckAnalyzer = new CheckAnalyzer(getGeometry());
+		return mCheckAnalyzer;
+	}
+
+	/**
+	 * Remember the legal destinations of the most recently visited positions,
+	 * so coming back to one of them, as playback and analysis keep doing,
+	 * doesn't generate them again.
+	 * 
+	 * @param maxSize The most positions to remember, or 0 to turn the cache
+	 * off
+	 */
+	public void setLegalDestsCacheSize(int maxSize)
+	{
+		mLegalDestsCache = (maxSize > 0) ? new LegalDestsCache(maxSize) : null;
+		setStaleLegalDests(true);
+	}
+
+	/**
+	 * @return The cache of legal destinations, with its hit and miss counts,
+	 * or null if it's off
+	 */
+	public LegalDestsCache getLegalDestsCache()
+	{
+		return mLegalDestsCache;
+	}
+
+	/**
+	 * Get the Zobrist key of the current position. The first call builds the
+	 * key; after that it is kept up to date as the position changes, however
+	 * the moves are made.
+	 * 
+	 * @return The key, equal for equal positions
+	 */
+	public long getZobristKey()
+	{
+		if (mZobristKey == null)
+		{
+			// the key is kept up to date by the Squares, so make sure they
+			// all know where to report to
+			for (Board board : mBoards)
+				board.linkSquares();
+
+			mZobristKey = ZobristKey.create(this);
+		}
+		return mZobristKey.getKey();
+	}
+
+	/**
+	 * Get the bitboard view of this Game, which classic games use to answer
+	 * attack questions and generate destinations without scanning the teams.
+	 * 
+	 * @return The bitboard, or null if this Game can't use one
+	 */
+	public ClassicBitboard getClassicBitboard()
+	{
+		if (mClassicBitboard == null && !mIsClassicBitboardChecked && !mIsClassicBitboardDisabled)
+		{
+			mIsClassicBitboardChecked = true;
+			// the bitboard is kept up to date by the Squares, so make sure
+			// they all know where to report to
+			for (Board board : mBoards)
+				board.linkSquares();
+
+			mClassicBitboard = ClassicBitboard.create(this);
+		}
+		return mClassicBitboard;
+	}
+
+	/**
+	 * Turn the bitboard for classic games on or off. It is on by default.
+	 * 
+	 * @param isEnabled Whether classic games should use the bitboard
+	 */
+	public void setClassicBitboardEnabled(boolean isEnabled)
+	{
+		mIsClassicBitboardDisabled = !isEnabled;
+		mIsClassicBitboardChecked = false;
+		mClassicBitboard = null;
+		setStaleLegalDests(true);
+	}
+
+	/**
+	 * Get the bitboard to answer attack questions about the given team with.
+	 * Only the team that isn't moving is answered this way; the legal
+	 * destinations of the moving team have been cropped for pins and checks,
+	 * and those are what the team scans look at.
+	 * 
+	 * @param attackerIsBlack The attacking team
+	 * @return The bitboard, or null if the teams must be scanned
+	 */
+	private ClassicBitboard getAttackBitboard(boolean attackerIsBlack)
+	{
+		if (attackerIsBlack == isBlackMove())
+			return null;
+		return getClassicBitboard();
+	}
+
+	/**
+	 * @param bitboard The bitboard of this Game
+	 * @return The occupied Squares as seen by the team that isn't moving,
+	 * whose sliding Pieces look through the moving objective piece
+	 */
+	private long getAttackOccupancy(ClassicBitboard bitboard)
+	{
+		return bitboard.getOccupancy(getOtherObjectivePiece(!isBlackMove()));
+	}
+
+	/**
+	 * Get the geometry numbering the Squares of every Board of this Game
+	 * 
+	 * @return The geometry
+	 */
+	public BoardGeometry getGeometry()
+	{
+		if (mGeometry == null)
+		{
+			// SquareSets are kept up to date by the Squares, so make sure they
+			// all know where to report to
+			for (Board board : mBoards)
+				board.linkSquares();
+
+			mGeometry = new BoardGeometry(mBoards);
+		}
+		return mGeometry;
+	}
+
+	/**
+	 * Get the SquareSet position to answer attack questions about the given
+	 * team with, for games that can't use the bitboard. Like
+	 * getAttackBitboard, only the team that isn't moving is answered this
+	 * way, since the legal destinations of the moving team are cropped.
+	 * 
+	 * @param attackerIsBlack The attacking team
+	 * @return The position, or null if the teams must be scanned
+	 */
+	private SquareSetPosition getSquareSetPosition(boolean attackerIsBlack)
+	{
+		return (attackerIsBlack == isBlackMove()) ? null : getSquareSetPosition();
+	}
+
+	/**
+	 * @return The SquareSet position of this Game, which is kept up to date
+	 * from the first call on
+	 */
+	SquareSetPosition getSquareSetPosition()
+	{
+		if (mSquareSetPosition == null)
+			mSquareSetPosition = new SquareSetPosition(this, getGeometry());
+		return mSquareSetPosition;
+	}
+
+	private Rules getMovingRules()
+	{
+		return isBlackMove() ? mBlackRules : mWhiteRules;
+	}
+
+	/**
+	 * Collect the Pieces of a team standing on the given set of Squares
+	 * 
+	 * @param squares The set of Squares
+	 * @param isBlack The team to collect from
+	 * @return The Pieces, in team order, or null if there are none
+	 */
+	private Piece[] getPieces(long squares, boolean isBlack)
+	{
+		if (squares == 0L)
+			return null;
+
+		List<Piece> pieces = Lists.newArrayList();
+		for (Piece piece : (isBlack) ? getBlackTeam() : getWhiteTeam())
+		{
+			if (!piece.isCaptured() && (squares & (1L << ClassicBitboard.indexOf(piece.getSquare()))) != 0)
+				pieces.add(piece);
+		}
+		return pieces.isEmpty() ? null : pieces.toArray(new Piece[pieces.size()]);
+	}
+
+	/**
+	 * Turn incremental legal destination generation on or off. When on, only
+	 * the pieces whose moves could have been affected by the Squares changed
+	 * since the last generation are regenerated.
+	 * 
+	 * @param isIncremental Whether to generate incrementally
+	 */
+	public void setIncrementalLegalDests(boolean isIncremental)
+	{
+		mIsIncrementalLegalDests = isIncremental;
+		// nothing has been remembered yet, so the next generation is always a
+		// full one
+		mChangedSquares = null;
+		for (Board board : mBoards)
+			board.linkSquares();
+
+		setStaleLegalDests(true);
+	}
+
+	public boolean isIncrementalLegalDests()
+	{
+		return mIsIncrementalLegalDests;
+	}
+
+	/**
+	 * When on, every incremental generation is checked against a full
+	 * rebuild and an IllegalStateException is thrown if they differ. This is
+	 * slow and only meant for tests.
+	 * 
+	 * @param isVerifying Whether to verify incremental generation
+	 */
+	public void setVerifyIncrementalLegalDests(boolean isVerifying)
+	{
+		mIsVerifyingIncrementalLegalDests = isVerifying;
 	}
 
 	public Rules getBlackRules()
@@ -231,6 +758,15 @@ public class Game implements Serializable
 		if (isStaleLegalDests())
 			genLegalDests();
 
+		ClassicBitboard bitboard = getAttackBitboard(isBlack);
+		if (bitboard != null)
+			return getPieces(bitboard.getGuards(ClassicBitboard.indexOf(square), isBlack, getAttackOccupancy(bitboard)), isBlack);
+
+		SquareSetPosition position = getSquareSetPosition(isBlack);
+		int index = (position == null) ? -1 : getGeometry().indexOf(square);
+		if (index >= 0)
+			return position.getGuards(index, isBlack, getMovingRules());
+
 		Piece piece = null;
 		while (team.hasNext())
 		{
@@ -277,6 +813,50 @@ public class Game implements Serializable
 		return count;
 	}
 
+	/**
+	 * Get every legal move of the moving team, packed by PackedMove, with one
+	 * move for each type a Piece can promote to
+	 * 
+	 * @return The legal moves this turn
+	 */
+	public int[] getLegalMoves()
+	{
+		if (isStaleLegalDests())
+			genLegalDests();
+
+		BoardGeometry geometry = getGeometry();
+		List<Piece> movingTeam = isBlackMove() ? getBlackTeam() : getWhiteTeam();
+		Rules rules = isBlackMove() ? mBlackRules : mWhiteRules;
+		int[] moves = new int[64];
+		int count = 0;
+		for (int i = 0; i < movingTeam.size(); i++)
+		{
+			Piece piece = movingTeam.get(i);
+			if (piece.isCaptured())
+				continue;
+
+			int origin = geometry.indexOf(piece.getSquare());
+			List<Square> dests = piece.getLegalDests();
+			for (int j = 0; j < dests.size(); j++)
+			{
+				Square dest = dests.get(j);
+				int promotions = 0;
+				if (piece.getPromotesTo() != null && rules.isPromotionSquare(piece, dest))
+					promotions = piece.getPromotesTo().size();
+
+				if (count + promotions + 1 > moves.length)
+					moves = Arrays.copyOf(moves, moves.length * 2 + promotions);
+
+				int destIndex = geometry.indexOf(dest);
+				if (promotions == 0)
+					moves[count++] = PackedMove.pack(origin, destIndex, 0);
+				for (int promotion = 1; promotion <= promotions; promotion++)
+					moves[count++] = PackedMove.pack(origin, destIndex, promotion);
+			}
+		}
+		return Arrays.copyOf(moves, count);
+	}
+
 	/**
 	 * Get the specified objective piece
 	 * 
@@ -306,7 +886,7 @@ public class Game implements Serializable
 	 * @param attackerIsBlack The team of the attacker
 	 * @return The pieces threatening the specified piece
 	 */
-	private Piece[] getThreats(Square threatened, boolean attackerIsBlack)
+	Piece[] getThreats(Square threatened, boolean attackerIsBlack)
 	{
 		Iterator<Piece> team = (attackerIsBlack) ? getBlackTeam().iterator() : getWhiteTeam().iterator();
 		List<Piece> attackers = Lists.newArrayList();
@@ -314,6 +894,18 @@ public class Game implements Serializable
 		if (isStaleLegalDests())
 			genLegalDests();
 
+		ClassicBitboard bitboard = getAttackBitboard(attackerIsBlack);
+		if (bitboard != null)
+		{
+			return getPieces(bitboard.getThreats(ClassicBitboard.indexOf(threatened), attackerIsBlack, getAttackOccupancy(bitboard)),
+					attackerIsBlack);
+		}
+
+		SquareSetPosition position = getSquareSetPosition(attackerIsBlack);
+		int index = (position == null) ? -1 : getGeometry().indexOf(threatened);
+		if (index >= 0)
+			return position.getThreats(index, attackerIsBlack, getMovingRules());
+
 		Piece piece = null;
 		while (team.hasNext())
 		{
@@ -392,6 +984,14 @@ public class Game implements Serializable
 			return false;
 	}
 
+	/**
+	 * @return The name of the variant this is a game of
+	 */
+	public String getGameType()
+	{
+		return mGameType;
+	}
+
 	/**
 	 * Check if this game is classic chess
 	 * 
@@ -411,6 +1011,18 @@ public class Game implements Serializable
 	 */
 	public boolean isGuarded(Square square, boolean isBlack)
 	{
+		if (isStaleLegalDests())
+			genLegalDests();
+
+		ClassicBitboard bitboard = getAttackBitboard(isBlack);
+		if (bitboard != null)
+			return bitboard.getGuards(ClassicBitboard.indexOf(square), isBlack, getAttackOccupancy(bitboard)) != 0L;
+
+		SquareSetPosition position = getSquareSetPosition(isBlack);
+		int index = (position == null) ? -1 : getGeometry().indexOf(square);
+		if (index >= 0)
+			return position.isGuarded(index, isBlack, getMovingRules());
+
 		return (getGuards(square, isBlack) != null);
 	}
 
@@ -458,6 +1070,18 @@ public class Game implements Serializable
 	 */
 	public boolean isThreatened(Square sq, boolean isBlack)
 	{
+		if (isStaleLegalDests())
+			genLegalDests();
+
+		ClassicBitboard bitboard = getAttackBitboard(isBlack);
+		if (bitboard != null)
+			return bitboard.getThreats(ClassicBitboard.indexOf(sq), isBlack, getAttackOccupancy(bitboard)) != 0L;
+
+		SquareSetPosition position = getSquareSetPosition(isBlack);
+		int index = (position == null) ? -1 : getGeometry().indexOf(sq);
+		if (index >= 0)
+			return position.isThreatened(index, isBlack, getMovingRules());
+
 		return (getThreats(sq, isBlack) != null);
 	}
 
@@ -470,6 +1094,239 @@ public class Game implements Serializable
 		setBlackMove(getWhiteRules().nextTurn());
 	}
 
+	/**
+	 * @param listener The TurnListener to tell about every turn change, until
+	 * it's removed
+	 */
+	public void addTurnListener(TurnListener listener)
+	{
+		Preconditions.checkArgument(listener != null);
+
+		synchronized (this)
+		{
+			// listeners come and go while another thread plays moves
+			if (mTurnListeners == null)
+				mTurnListeners = Lists.newCopyOnWriteArrayList();
+		}
+		mTurnListeners.add(listener);
+	}
+
+	public void removeTurnListener(TurnListener listener)
+	{
+		if (mTurnListeners != null)
+			mTurnListeners.remove(listener);
+	}
+
+	/**
+	 * @param listener The SquareListener to tell about every change to the
+	 * Squares of this Game, until it's removed
+	 */
+	public synchronized void addSquareListener(SquareListener listener)
+	{
+		Preconditions.checkArgument(listener != null);
+
+		// an array, since it's walked on every change to a Square
+		List<SquareListener> listeners = (mSquareListeners == null) ? Lists.<SquareListener> newArrayList() : Lists
+				.newArrayList(mSquareListeners);
+		listeners.add(listener);
+		mSquareListeners = listeners.toArray(new SquareListener[listeners.size()]);
+	}
+
+	public synchronized void removeSquareListener(SquareListener listener)
+	{
+		if (mSquareListeners == null)
+			return;
+
+		List<SquareListener> listeners = Lists.newArrayList(mSquareListeners);
+		listeners.remove(listener);
+		mSquareListeners = listeners.isEmpty() ? null : listeners.toArray(new SquareListener[listeners.size()]);
+	}
+
+	/**
+	 * Make a move without any of the side effects of Move.execute: the GUI
+	 * isn't refreshed, the timers and the history are left alone, and nothing
+	 * is asked of the players. Only the position changes: the Squares, the
+	 * captured Pieces, the en passant column, castling, promotion, the
+	 * AfterMove rules and whose turn it is. Legal destinations are marked
+	 * stale, not regenerated. Every successful call must be matched by a call
+	 * to unmakeMove.
+	 * 
+	 * @param origin The Square of the Piece to move
+	 * @param dest The Square to move it to
+	 * @param promotionName The name of the Piece to promote to, or null for the
+	 * first one the Piece promotes to
+	 * @return False, without changing anything, if there is no Piece of the
+	 * moving team on the origin
+	 * @throws IllegalArgumentException If the move promotes, but not to the
+	 * given name; nothing is changed then
+	 */
+	public boolean makeMove(Square origin, Square dest, String promotionName)
+	{
+		Piece piece = origin.getPiece();
+		if (piece == null || piece.isBlack() != isBlackMove())
+			return false;
+
+		Rules rules = isBlackMove() ? mBlackRules : mWhiteRules;
+		boolean isPromotion = rules.isPromotionSquare(piece, dest) && rules.checkQuietPromotion(piece, promotionName);
+
+		MoveRecord record = pushMoveRecord();
+		record.reset(piece, origin, dest);
+		record.mIsBlackMove = isBlackMove();
+		record.mLastMove = mLastMove;
+
+		Board board = origin.getBoard();
+		record.mEnpassantBoard = board;
+		record.mEnpassantCol = board.getEnpassantCol();
+
+		boolean isClassic = isClassicChess();
+		boolean isPawn = piece.getName().equals(PAWN);
+		Piece captured = dest.getPiece();
+		if (isClassic)
+		{
+			if (isPawn && captured == null && origin.getCol() != dest.getCol())
+				captured = board.getSquare(origin.getRow(), dest.getCol()).getPiece();
+			board.setEnpassantCol(Board.NO_ENPASSANT);
+		}
+
+		if (captured != null)
+		{
+			record.mCaptured = captured;
+			record.mCapturedSquare = captured.getSquare();
+			captured.setIsCaptured(true);
+			record.mCapturedSquare.setPiece(null);
+		}
+
+		if (isClassic)
+		{
+			if (isPawn && Math.abs(origin.getRow() - dest.getRow()) == 2)
+				board.setEnpassantCol(origin.getCol());
+
+			if (piece.getMoveCount() == 0 && piece.getName().equals(KING) && (dest.getCol() == 3 || dest.getCol() == 7))
+			{
+				Square rookOrigin = board.getSquare(origin.getRow(), (dest.getCol() == 3) ? 1 : 8);
+				Square rookDest = board.getSquare(origin.getRow(), (dest.getCol() == 3) ? 4 : 6);
+				if (rookOrigin.isOccupied())
+				{
+					record.mRookOrigin = rookOrigin;
+					record.mRookDest = rookDest;
+					rookDest.setPiece(rookOrigin.setPiece(null));
+					rookDest.getPiece().setMoveCount(rookDest.getPiece().getMoveCount() + 1);
+				}
+			}
+		}
+
+		dest.setPiece(origin.setPiece(null));
+		piece.getLegalDests().clear();
+		piece.getGuardSquares().clear();
+		piece.setPinnedBy(null);
+		piece.setMoveCount(piece.getMoveCount() + 1);
+
+		if (isPromotion)
+		{
+			Piece promoted = rules.promoteQuietly(piece, promotionName);
+			if (promoted != piece)
+				record.mPromoted = promoted;
+		}
+		rules.afterMove(record);
+
+		// the last Move is the last one played for real, and search moves
+		// mustn't mark it as check
+		mLastMove = null;
+		setStaleLegalDests(true);
+		if (mWhiteRules.countMove())
+			setBlackMove(!isBlackMove());
+		return true;
+	}
+
+	/**
+	 * Make a move from getLegalMoves, as makeMove(Square, Square, String) does
+	 * 
+	 * @param move The move, packed by PackedMove
+	 * @return False, without changing anything, if there is no Piece of the
+	 * moving team on the origin
+	 */
+	public boolean makeMove(int move)
+	{
+		BoardGeometry geometry = getGeometry();
+		Square origin = geometry.getSquare(PackedMove.getOrigin(move));
+		int promotion = PackedMove.getPromotion(move);
+		String promotionName = null;
+		if (promotion > 0 && origin.isOccupied())
+			promotionName = origin.getPiece().getPromotesTo().get(promotion - 1);
+
+		return makeMove(origin, geometry.getSquare(PackedMove.getDest(move)), promotionName);
+	}
+
+	/**
+	 * Take back the last move made by makeMove
+	 */
+	public void unmakeMove()
+	{
+		Preconditions.checkState(mMoveRecordCount > 0);
+
+		MoveRecord record = mMoveRecords[--mMoveRecordCount];
+		Piece piece = record.getPiece();
+
+		mWhiteRules.uncountMove();
+		setBlackMove(record.mIsBlackMove);
+		(record.mIsBlackMove ? mBlackRules : mWhiteRules).undoAfterMove(record);
+
+		if (record.mPromoted != null)
+		{
+			List<Piece> team = record.mPromoted.isBlack() ? mBlackTeam : mWhiteTeam;
+			team.set(team.indexOf(record.mPromoted), piece);
+		}
+
+		record.getDest().setPiece(null);
+		record.getOrigin().setPiece(piece);
+		piece.setMoveCount(piece.getMoveCount() - 1);
+
+		if (record.mCaptured != null)
+		{
+			record.mCaptured.setIsCaptured(false);
+			record.mCapturedSquare.setPiece(record.mCaptured);
+		}
+
+		if (record.mRookOrigin != null)
+		{
+			record.mRookOrigin.setPiece(record.mRookDest.setPiece(null));
+			record.mRookOrigin.getPiece().setMoveCount(record.mRookOrigin.getPiece().getMoveCount() - 1);
+		}
+
+		record.mEnpassantBoard.setEnpassantCol(record.mEnpassantCol);
+		mLastMove = record.mLastMove;
+		setStaleLegalDests(true);
+	}
+
+	/**
+	 * @return The number of moves made by makeMove and not taken back yet
+	 */
+	public int getMadeMoveCount()
+	{
+		return mMoveRecordCount;
+	}
+
+	/**
+	 * @return The record of the last move made by makeMove
+	 */
+	public MoveRecord getLastMoveRecord()
+	{
+		Preconditions.checkState(mMoveRecordCount > 0);
+		return mMoveRecords[mMoveRecordCount - 1];
+	}
+
+	private MoveRecord pushMoveRecord()
+	{
+		if (mMoveRecords == null)
+			mMoveRecords = new MoveRecord[16];
+		else if (mMoveRecordCount == mMoveRecords.length)
+			mMoveRecords = Arrays.copyOf(mMoveRecords, mMoveRecords.length * 2);
+
+		if (mMoveRecords[mMoveRecordCount] == null)
+			mMoveRecords[mMoveRecordCount] = new MoveRecord();
+		return mMoveRecords[mMoveRecordCount++];
+	}
+
 	/**
 	 * Play a move in the Game
 	 * 
@@ -480,12 +1337,18 @@ public class Game implements Serializable
 	{
 		move.execute();
 
-		if (getHistory().contains(move))
-			return;
+		if (!getHistory().contains(move))
+		{
+			getHistory().add(move);
+			getBlackRules().checkEndOfGame(mBlackRules.objectivePiece(true));
+			getWhiteRules().checkEndOfGame(mWhiteRules.objectivePiece(false));
+		}
 
-		getHistory().add(move);
-		getBlackRules().checkEndOfGame(mBlackRules.objectivePiece(true));
-		getWhiteRules().checkEndOfGame(mWhiteRules.objectivePiece(false));
+		if (mTurnListeners != null)
+		{
+			for (TurnListener listener : mTurnListeners)
+				listener.onTurnChanged(isBlackMove());
+		}
 	}
 
 	/**
@@ -497,7 +1360,8 @@ public class Game implements Serializable
 	}
 
 	/**
-	 * Saves game's state to file.
+	 * Saves game's state to file, as a GameRecord if the variant can be built
+	 * again to replay it, or else as the whole serialized Game.
 	 * 
 	 * @param dirName The directory in which to save the game
 	 * @param fileName The name for the game file
@@ -508,34 +1372,62 @@ public class Game implements Serializable
 	{
 		try
 		{
-			if (!inProgress)
+			saveGame(inProgress ? FileUtility.getGamesInProgressFile(fileName) : FileUtility.getCompletedGamesFile(fileName));
+
+			if (!inProgress && ACN)
+				AlgebraicConverter.convert(getHistory(), fileName);
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Saves game's state to the given file, the way saveGame(String, boolean,
+	 * boolean) does
+	 * 
+	 * @param file The file to save to
+	 * @throws IOException If the file can't be written
+	 */
+	public void saveGame(File file) throws IOException
+	{
+		GameRecord record;
+		try
+		{
+			record = GameRecord.fromGame(this);
+		}
+		catch (IOException e)
+		{
+			// a variant that can't be built again can only be saved whole
+			record = null;
+		}
+
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		try
+		{
+			if (record != null)
 			{
-				FileOutputStream f_out = new FileOutputStream(FileUtility.getCompletedGamesFile(fileName));
-				ObjectOutputStream out = new ObjectOutputStream(f_out);
-				out.writeObject(this);
-				out.close();
-				f_out.close();
-				if (ACN)
-					AlgebraicConverter.convert(getHistory(), fileName);
+				record.write(out);
 			}
 			else
 			{
-				FileOutputStream f_out = new FileOutputStream(FileUtility.getGamesInProgressFile(fileName));
-				ObjectOutputStream out = new ObjectOutputStream(f_out);
-				out.writeObject(this);
-				out.close();
-				f_out.close();
+				ObjectOutputStream objectOut = new ObjectOutputStream(out);
+				objectOut.writeObject(this);
+				objectOut.flush();
 			}
 		}
-		catch (Exception e)
+		finally
 		{
-			e.printStackTrace();
+			out.close();
 		}
 	}
 
 	public void setBlackMove(boolean isBlackMove)
 	{
 		mIsBlackMove = isBlackMove;
+		if (mZobristKey != null)
+			mZobristKey.setBlackMove(isBlackMove);
 	}
 
 	public void setLastMove(Move lastMove)
@@ -615,6 +1507,72 @@ public class Game implements Serializable
 		return mBlackPromotionMap;
 	}
 
+	/**
+	 * @return The names of every Piece this Game has or can promote to, in
+	 * alphabetical order, which positions of the Game are written down with
+	 */
+	public String[] getPieceNames()
+	{
+		Set<String> names = Sets.newTreeSet();
+		addPieceNames(mWhiteTeam, names);
+		addPieceNames(mBlackTeam, names);
+		addPieceNames(mWhitePromotionMap, names);
+		addPieceNames(mBlackPromotionMap, names);
+		return names.toArray(new String[names.size()]);
+	}
+
+	/**
+	 * Cache the Piece types the Pieces of the Game promote to, so promoting in
+	 * makeMove never reads them from disk
+	 */
+	public void loadPromotionTypes()
+	{
+		Set<String> names = Sets.newHashSet();
+		for (Piece piece : Iterables.concat(mWhiteTeam, mBlackTeam))
+		{
+			if (piece.getPromotesTo() != null)
+				names.addAll(piece.getPromotesTo());
+		}
+		addPromotesTo(mWhitePromotionMap, names);
+		addPromotesTo(mBlackPromotionMap, names);
+		PieceBuilder.loadPieceTypes(names);
+	}
+
+	private static void addPromotesTo(Map<String, List<String>> promotions, Set<String> names)
+	{
+		if (promotions == null)
+			return;
+
+		for (List<String> promotesTo : promotions.values())
+		{
+			if (promotesTo != null)
+				names.addAll(promotesTo);
+		}
+	}
+
+	private static void addPieceNames(List<Piece> team, Set<String> names)
+	{
+		for (Piece piece : team)
+		{
+			names.add(piece.getName());
+			if (piece.getPromotesTo() != null)
+				names.addAll(piece.getPromotesTo());
+		}
+	}
+
+	private static void addPieceNames(Map<String, List<String>> promotions, Set<String> names)
+	{
+		if (promotions == null)
+			return;
+
+		for (Map.Entry<String, List<String>> promotion : promotions.entrySet())
+		{
+			names.add(promotion.getKey());
+			if (promotion.getValue() != null)
+				names.addAll(promotion.getValue());
+		}
+	}
+
 	public void setIsPlayback(boolean isPlayback)
 	{
 		mIsPlayback = isPlayback;
@@ -627,6 +1585,11 @@ public class Game implements Serializable
 
 	private static final long serialVersionUID = 7291801823624891384L;
 
+	private static final String PAWN = Messages.getString("pawn"); //$NON-NLS-1$
+	private static final String KING = Messages.getString("king"); //$NON-NLS-1$
+	private static final String ROOK = Messages.getString("rook"); //$NON-NLS-1$
+	private static final String QUEEN = Messages.getString("queen"); //$NON-NLS-1$
+
 	private final Board[] mBoards;
 	private final Rules mWhiteRules;
 	private final Rules mBlackRules;
@@ -645,4 +1608,20 @@ public class Game implements Serializable
 
 	private List<Move> mHistory;
 	private Move mLastMove;
+
+	private transient boolean mIsIncrementalLegalDests;
+	private transient boolean mIsVerifyingIncrementalLegalDests;
+	private transient SquareSet mChangedSquares;
+	private transient BoardGeometry mGeometry;
+	private transient SquareSetPosition mSquareSetPosition;
+	private transient ClassicBitboard mClassicBitboard;
+	private transient boolean mIsClassicBitboardChecked;
+	private transient boolean mIsClassicBitboardDisabled;
+	private transient ZobristKey mZobristKey;
+	private transient CheckAnalyzer mCheckAnalyzer;
+	private transient LegalDestsCache mLegalDestsCache;
+	private transient volatile List<TurnListener> mTurnListeners;
+	private transient SquareListener[] mSquareListeners;
+	private transient MoveRecord[] mMoveRecords;
+	private transient int mMoveRecordCount;
 }
@@ -0,0 +1,205 @@
+package models;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * The legal destinations of every Piece of a Game, remembered by the Zobrist
+ * key of the position they were generated for. Stepping back and forth
+ * through the history of a Game, replaying it or analyzing it keeps coming
+ * back to the same positions, and those get their destinations back without
+ * generating them again. The cache holds a bounded number of positions, and
+ * forgets the least recently used one when it's full.
+ */
+public final class LegalDestsCache
+{
+	/**
+	 * @param maxSize The most positions to remember
+	 */
+	LegalDestsCache(final int maxSize)
+	{
+		Preconditions.checkArgument(maxSize > 0);
+		mMaxSize = maxSize;
+		mEntries = new LinkedHashMap<Long, Position>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Position> eldest)
+			{
+				return size() > mMaxSize;
+			}
+
+			private static final long serialVersionUID = -3209851207451183046L;
+		};
+	}
+
+	/**
+	 * Give the Pieces of the Game back the destinations remembered for the
+	 * given position
+	 *
+	 * @param key The Zobrist key of the current position
+	 * @param game The Game to restore
+	 * @return True if the destinations were restored, false if they have to
+	 * be generated
+	 */
+	boolean restore(long key, Game game)
+	{
+		Position position = mEntries.get(key);
+		if (position == null || !position.hasSamePieces(game))
+		{
+			mMissCount++;
+			return false;
+		}
+
+		mHitCount++;
+		position.restore(game);
+		return true;
+	}
+
+	/**
+	 * Remember the destinations just generated for the given position
+	 *
+	 * @param key The Zobrist key of the current position
+	 * @param game The Game to remember
+	 * @param threatCount The number of Pieces giving check to the moving team
+	 */
+	void save(long key, Game game, int threatCount)
+	{
+		mEntries.put(key, new Position(game, threatCount));
+	}
+
+	/**
+	 * Forget every position, and reset the counters
+	 */
+	public void clear()
+	{
+		mEntries.clear();
+		mHitCount = 0;
+		mMissCount = 0;
+	}
+
+	public int size()
+	{
+		return mEntries.size();
+	}
+
+	public int getMaxSize()
+	{
+		return mMaxSize;
+	}
+
+	/**
+	 * @return How many generations were answered from the cache
+	 */
+	public long getHitCount()
+	{
+		return mHitCount;
+	}
+
+	/**
+	 * @return How many generations had to be done from scratch
+	 */
+	public long getMissCount()
+	{
+		return mMissCount;
+	}
+
+	/**
+	 * The destinations of both teams in one position. The Pieces are kept
+	 * too, since a promotion that is undone and made again may put a new
+	 * Piece on the same Square.
+	 */
+	private static final class Position
+	{
+		Position(Game game, int threatCount)
+		{
+			mWhitePieces = snapshot(game.getWhiteTeam());
+			mBlackPieces = snapshot(game.getBlackTeam());
+			mThreatCount = threatCount;
+		}
+
+		boolean hasSamePieces(Game game)
+		{
+			return hasSamePieces(mWhitePieces, game.getWhiteTeam()) && hasSamePieces(mBlackPieces, game.getBlackTeam());
+		}
+
+		void restore(Game game)
+		{
+			restore(mWhitePieces);
+			restore(mBlackPieces);
+			// mark the last Move like a generation would
+			if (game.getLastMove() != null && mThreatCount > 0)
+			{
+				game.getLastMove().setCheck(true);
+				if (mThreatCount == 2)
+					game.getLastMove().setDoubleCheck(true);
+			}
+		}
+
+		private static PieceDests[] snapshot(List<Piece> team)
+		{
+			PieceDests[] pieces = new PieceDests[team.size()];
+			for (int i = 0; i < pieces.length; i++)
+				pieces[i] = new PieceDests(team.get(i));
+			return pieces;
+		}
+
+		private static boolean hasSamePieces(PieceDests[] pieces, List<Piece> team)
+		{
+			if (pieces.length != team.size())
+				return false;
+
+			for (int i = 0; i < pieces.length; i++)
+			{
+				if (pieces[i].mPiece != team.get(i))
+					return false;
+			}
+			return true;
+		}
+
+		private static void restore(PieceDests[] pieces)
+		{
+			for (PieceDests piece : pieces)
+				piece.restore();
+		}
+
+		private final PieceDests[] mWhitePieces;
+		private final PieceDests[] mBlackPieces;
+		private final int mThreatCount;
+	}
+
+	/**
+	 * One Piece and its destinations. The Lists are copied both ways, since
+	 * cropping changes them in place.
+	 */
+	private static final class PieceDests
+	{
+		PieceDests(Piece piece)
+		{
+			mPiece = piece;
+			mLegalDests = Lists.newArrayList(piece.getLegalDests());
+			mGuardSquares = Lists.newArrayList(piece.getGuardSquares());
+			mPinnedBy = piece.getPinnedBy();
+		}
+
+		void restore()
+		{
+			mPiece.setLegalDests(Lists.newArrayList(mLegalDests));
+			mPiece.setGuardSquares(Lists.newArrayList(mGuardSquares));
+			mPiece.setPinnedBy(mPinnedBy);
+		}
+
+		private final Piece mPiece;
+		private final List<Square> mLegalDests;
+		private final List<Square> mGuardSquares;
+		private final Piece mPinnedBy;
+	}
+
+	private final int mMaxSize;
+	private final LinkedHashMap<Long, Position> mEntries;
+	private long mHitCount;
+	private long mMissCount;
+}
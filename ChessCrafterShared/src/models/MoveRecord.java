@@ -0,0 +1,171 @@
+package models;
+
+import logic.Move;
+
+/**
+ * What Game.makeMove changed, so Game.unmakeMove can put it back. Records
+ * live on the Game's undo stack and are reused from one move to the next, so
+ * making a move doesn't build a Move, or anything else.
+ */
+public final class MoveRecord
+{
+	MoveRecord()
+	{
+		mExploded = new Piece[9];
+	}
+
+	/**
+	 * Forget the last move recorded here, and start recording a new one
+	 */
+	void reset(Piece piece, Square origin, Square dest)
+	{
+		mPiece = piece;
+		mOrigin = origin;
+		mDest = dest;
+
+		mCaptured = null;
+		mCapturedSquare = null;
+		mRookOrigin = null;
+		mRookDest = null;
+		mPromoted = null;
+		mRemoved = null;
+		mRemovedIndex = -1;
+		mSwitchedIndex = -1;
+		mExplodedCount = 0;
+	}
+
+	/**
+	 * @return The Piece that moved, as it was before any promotion
+	 */
+	public Piece getPiece()
+	{
+		return mPiece;
+	}
+
+	/**
+	 * @return The Piece standing on the destination after the move, which is
+	 * the promoted Piece if there was a promotion
+	 */
+	public Piece getMovedPiece()
+	{
+		return (mPromoted == null) ? mPiece : mPromoted;
+	}
+
+	public Square getOrigin()
+	{
+		return mOrigin;
+	}
+
+	/**
+	 * @return The Game the move was made in
+	 */
+	public Game getGame()
+	{
+		return mOrigin.getBoard().getGame();
+	}
+
+	public Square getDest()
+	{
+		return mDest;
+	}
+
+	public Piece getCaptured()
+	{
+		return mCaptured;
+	}
+
+	/**
+	 * @return The Square the captured Piece was taken from, which isn't the
+	 * destination for en passant
+	 */
+	public Square getCapturedSquare()
+	{
+		return mCapturedSquare;
+	}
+
+	/**
+	 * @return The Piece the moving Piece was promoted to, or null
+	 */
+	public Piece getPromoted()
+	{
+		return mPromoted;
+	}
+
+	public Piece getRemoved()
+	{
+		return mRemoved;
+	}
+
+	/**
+	 * @return Where the removed Piece was in its team
+	 */
+	public int getRemovedIndex()
+	{
+		return mRemovedIndex;
+	}
+
+	/**
+	 * Remember a Piece an AfterMove rule took out of its team
+	 *
+	 * @param removed The Piece taken out
+	 * @param index Where the Piece was in its team
+	 */
+	public void setRemoved(Piece removed, int index)
+	{
+		mRemoved = removed;
+		mRemovedIndex = index;
+	}
+
+	/**
+	 * @return Where the Piece an AfterMove rule switched to the other team
+	 * was in its old team, or -1 if no Piece switched
+	 */
+	public int getSwitchedIndex()
+	{
+		return mSwitchedIndex;
+	}
+
+	public void setSwitchedIndex(int index)
+	{
+		mSwitchedIndex = index;
+	}
+
+	public int getExplodedCount()
+	{
+		return mExplodedCount;
+	}
+
+	public Piece getExploded(int index)
+	{
+		return mExploded[index];
+	}
+
+	/**
+	 * Remember a Piece taken off the Board by an atomic capture
+	 *
+	 * @param piece The exploded Piece
+	 */
+	public void addExploded(Piece piece)
+	{
+		mExploded[mExplodedCount++] = piece;
+	}
+
+	private Piece mPiece;
+	private Square mOrigin;
+	private Square mDest;
+	private final Piece[] mExploded;
+	private int mExplodedCount;
+	private Piece mRemoved;
+	private int mRemovedIndex;
+	private int mSwitchedIndex;
+
+	Piece mCaptured;
+	Square mCapturedSquare;
+	Square mRookOrigin;
+	Square mRookDest;
+	Piece mPromoted;
+	Board mEnpassantBoard;
+	int mEnpassantCol;
+	boolean mIsBlackMove;
+	Move mLastMove;
+}
@@ -0,0 +1,44 @@
+package models;
+
+/**
+ * Moves packed into an int, for searches that go through millions of them.
+ * The origin and destination are Square indices from the Game's
+ * BoardGeometry, and the promotion is 0 for none, or one more than the index
+ * of the promoted type in the moving Piece's getPromotesTo List. Geometries
+ * of up to 4096 Squares and up to 255 promotion types fit.
+ */
+public final class PackedMove
+{
+	private PackedMove()
+	{
+	}
+
+	/**
+	 * @param origin The index of the origin Square
+	 * @param dest The index of the destination Square
+	 * @param promotion 0, or one more than the index of the promoted type
+	 * @return The packed move
+	 */
+	public static int pack(int origin, int dest, int promotion)
+	{
+		return origin | (dest << SQUARE_BITS) | (promotion << (2 * SQUARE_BITS));
+	}
+
+	public static int getOrigin(int move)
+	{
+		return move & SQUARE_MASK;
+	}
+
+	public static int getDest(int move)
+	{
+		return (move >>> SQUARE_BITS) & SQUARE_MASK;
+	}
+
+	public static int getPromotion(int move)
+	{
+		return move >>> (2 * SQUARE_BITS);
+	}
+
+	private static final int SQUARE_BITS = 12;
+	private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+}
@@ -7,6 +7,8 @@ import java.util.List;
 
 import logic.BidirectionalMovement;
 import logic.Messages;
+import logic.AttackTable;
+import logic.PieceBuilder;
 import logic.PieceMovements;
 import logic.PieceMovements.MovementDirection;
 
@@ -122,11 +124,14 @@ public class Piece implements Serializable
 							if (c < mCurrentSquare.getCol())
 								blocked = mBoard.getSquare(mCurrentSquare.getRow(), c).isOccupied();
 
-							if (!blocked)
+							// the Rook may pass through an attacked Square, the
+							// King may not
+							if (!blocked && c >= mCurrentSquare.getCol() - 2)
 								blocked = mBoard.getGame().isThreatened(mBoard.getSquare(mCurrentSquare.getRow(), c), !isBlack());
 						}
 
-						if (!blocked)
+						// the objective piece can be cropped more than once
+						if (!blocked && !getLegalDests().contains(mBoard.getSquare(((isBlack()) ? 8 : 1), 3)))
 							addLegalDest(mBoard.getSquare(((isBlack()) ? 8 : 1), 3));
 					}
 
@@ -145,7 +150,7 @@ public class Piece implements Serializable
 								blocked = mBoard.getGame().isThreatened(mBoard.getSquare(mCurrentSquare.getRow(), c), !isBlack());
 						}
 
-						if (!blocked)
+						if (!blocked && !getLegalDests().contains(mBoard.getSquare(((isBlack()) ? 8 : 1), 7)))
 							addLegalDest(mBoard.getSquare(((isBlack()) ? 8 : 1), 7));
 					}
 				}
@@ -164,18 +169,11 @@ public class Piece implements Serializable
 
 		if (line != null)
 		{
-			List<Square> temp = Lists.newArrayList();
-			for (Square square : line)
-			{
-				if (mLegalDests.contains(square) || square.equals(mCurrentSquare))
-					temp.add(square);
-			}
-			line = new Square[temp.size()];
-			temp.toArray(line);
-
 			if (mBoard.getGame().isStaleLegalDests())
 				mBoard.getGame().genLegalDests();
 
+			// look at the whole line, not just the Squares this Piece can
+			// reach: a second Piece behind the first means there's no pin.
 			// start i at 1 since 0 is this Piece
 			for (int i = 1; i < line.length && !done; i++)
 			{
@@ -201,7 +199,7 @@ public class Piece implements Serializable
 				}
 			}
 
-			if (pin != null)
+			if (pin != null && mLegalDests.contains(pin.getSquare()))
 			{
 				// need to AND moves with line (includes this square)
 				List<Square> maintainPins = Arrays.asList(line);
@@ -295,288 +293,69 @@ public class Piece implements Serializable
 			return getLegalDests().size();
 		}
 
-		boolean done = false;
-		Square dest;
-		int distance;
-		boolean wraparound = board.isWrapAround();
-
-		// east
-		distance = mPieceMovements.getDistance(MovementDirection.EAST);
-		int northMax = distance + mCurrentSquare.getCol();
-		if (northMax > board.getMaxCol() || distance == PieceMovements.UNLIMITED)
-		{
-			if (!wraparound)
-				northMax = board.getMaxCol();
-		}
-		for (int c = mCurrentSquare.getCol() + 1; ((distance == PieceMovements.UNLIMITED && wraparound) ? true : c <= northMax)
-				&& !done; c++)
-		{
-			int j = c;
-			if (wraparound)
-			{
-				if (j > board.getMaxCol())
-					j = j % board.getMaxCol();
-			}
+		ClassicBitboard bitboard = board.getGame().getClassicBitboard();
+		if (bitboard != null && ClassicBitboard.getType(this) != ClassicBitboard.NONE)
+			return genLegalDests(bitboard);
 
-			if (j == 0)
-				break;
+		getAttackTable(board);
 
-			dest = board.getSquare(mCurrentSquare.getRow(), j);
-			done = !addLegalDest(dest);
-			done = mIsLeaper ? false : (done || (dest.isOccupied() && !(board.isBlackTurn() != isBlack() && dest.getPiece().equals(
-					board.getGame().getOtherObjectivePiece(isBlack())))));
-		}
-		done = false;
+		// sliding Pieces of the team that isn't moving see through the
+		// objective piece of the moving team
+		Piece seeThrough = (board.isBlackTurn() != isBlack()) ? board.getGame().getOtherObjectivePiece(isBlack()) : null;
+		Square[][] squares = board.mSquares;
+		int maxCol = board.getMaxCol();
+		int origin = mAttackTable.indexOf(mCurrentSquare.getRow(), mCurrentSquare.getCol());
 
-		// west
-		distance = mPieceMovements.getDistance(MovementDirection.WEST);
-		int southMax = mCurrentSquare.getCol() - distance;
-		if (southMax < 1 || distance == PieceMovements.UNLIMITED)
-		{
-			if (!wraparound)
-				southMax = 1;
-		}
-		for (int c = mCurrentSquare.getCol() - 1; ((distance == PieceMovements.UNLIMITED && wraparound) ? true : c >= southMax)
-				&& !done; c--)
+		int[] raySquares = mAttackTable.getRaySquares(origin);
+		int start = 0;
+		for (int end : mAttackTable.getRayEnds(origin))
 		{
-			int j = c;
-			if (wraparound)
+			for (int i = start; i < end; i++)
 			{
-				if (j < 1)
-					j = board.getMaxCol() + j;
+				Square dest = squares[raySquares[i] / maxCol][raySquares[i] % maxCol];
+				boolean done = !addLegalDest(dest);
+				if (!mIsLeaper && (done || (dest.isOccupied() && (seeThrough == null || !dest.getPiece().equals(seeThrough)))))
+					break;
 			}
-
-			dest = board.getSquare(mCurrentSquare.getRow(), j);
-			done = !addLegalDest(dest);
-			done = mIsLeaper ? false : (done || (dest.isOccupied() && !(board.isBlackTurn() != isBlack() && dest.getPiece().equals(
-					board.getGame().getOtherObjectivePiece(isBlack())))));
-		}
-		done = false;
-
-		// north
-		distance = mPieceMovements.getDistance(MovementDirection.NORTH);
-		int eastMax = distance + mCurrentSquare.getRow();
-
-		if (eastMax >= board.getMaxRow() || distance == PieceMovements.UNLIMITED)
-			eastMax = board.getMaxRow();
-
-		for (int r = mCurrentSquare.getRow() + 1; (r <= eastMax) && !done; r++)
-		{
-			int j = r;
-			dest = board.getSquare(j, mCurrentSquare.getCol());
-			done = !addLegalDest(dest);
-			done = mIsLeaper ? false : (done || (dest.isOccupied() && !(board.isBlackTurn() != isBlack() && dest.getPiece().equals(
-					board.getGame().getOtherObjectivePiece(isBlack())))));
-		}
-		done = false;
-
-		// south
-		distance = mPieceMovements.getDistance(MovementDirection.SOUTH);
-		int westMax = mCurrentSquare.getRow() - distance;
-
-		if (westMax < 1 || distance == PieceMovements.UNLIMITED)
-			westMax = 1;
-
-		for (int r = mCurrentSquare.getRow() - 1; (r >= westMax) && !done; r--)
-		{
-			int j = r;
-			dest = board.getSquare(j, mCurrentSquare.getCol());
-			done = !addLegalDest(dest);
-			done = mIsLeaper ? false : (done || (dest.isOccupied() && !(board.isBlackTurn() != isBlack() && dest.getPiece().equals(
-					board.getGame().getOtherObjectivePiece(isBlack())))));
-		}
-		done = false;
-
-		// northeast
-		distance = mPieceMovements.getDistance(MovementDirection.NORTHEAST);
-		int neMax = ((mCurrentSquare.getRow() >= mCurrentSquare.getCol()) ? mCurrentSquare.getRow() : mCurrentSquare.getCol())
-				+ distance;
-
-		if (neMax >= board.getMaxCol() || distance == PieceMovements.UNLIMITED)
-			neMax = board.getMaxCol();
-		if (neMax >= board.getMaxRow() || distance == PieceMovements.UNLIMITED)
-			neMax = board.getMaxRow();
-
-		for (int r = mCurrentSquare.getRow() + 1, c = mCurrentSquare.getCol() + 1; r <= neMax && c <= neMax && !done; r++, c++)
-		{
-			dest = board.getSquare(r, c);
-			done = !addLegalDest(dest);
-			done = mIsLeaper ? false : (done || (dest.isOccupied() && !(board.isBlackTurn() != isBlack() && dest.getPiece().equals(
-					board.getGame().getOtherObjectivePiece(isBlack())))));
-		}
-		done = false;
-
-		// southeast
-		distance = mPieceMovements.getDistance(MovementDirection.SOUTHEAST);
-		int eastMaximum = mCurrentSquare.getCol() + distance;
-
-		if (eastMaximum >= board.getMaxCol() || distance == PieceMovements.UNLIMITED)
-			eastMaximum = board.getMaxCol();
-
-		int southMin = mCurrentSquare.getRow() - distance;
-
-		if (southMin <= 1 || distance == PieceMovements.UNLIMITED)
-			southMin = 1;
-
-		for (int r = mCurrentSquare.getRow() - 1, c = mCurrentSquare.getCol() + 1; r >= southMin && c <= eastMaximum && !done; r--, c++)
-		{
-			dest = board.getSquare(r, c);
-			done = !addLegalDest(dest);
-			done = mIsLeaper ? false : (done || (dest.isOccupied() && !(board.isBlackTurn() != isBlack() && dest.getPiece().equals(
-					board.getGame().getOtherObjectivePiece(isBlack())))));
-		}
-		done = false;
-
-		// northwest
-		distance = mPieceMovements.getDistance(MovementDirection.NORTHWEST);
-		int westMin = mCurrentSquare.getCol() - distance;
-		if (westMin <= 1 || distance == PieceMovements.UNLIMITED)
-			westMin = 1;
-
-		int NorthMax = mCurrentSquare.getRow() + distance;
-		if (NorthMax >= board.getMaxRow() || distance == PieceMovements.UNLIMITED)
-			NorthMax = board.getMaxRow();
-
-		for (int r = mCurrentSquare.getRow() + 1, c = mCurrentSquare.getCol() - 1; r <= NorthMax && c >= westMin && !done; r++, c--)
-		{
-			dest = board.getSquare(r, c);
-			done = !addLegalDest(dest);
-			done = mIsLeaper ? false : (done || (dest.isOccupied() && !(board.isBlackTurn() != isBlack() && dest.getPiece().equals(
-					board.getGame().getOtherObjectivePiece(isBlack())))));
-		}
-		done = false;
-
-		// southwest
-		distance = mPieceMovements.getDistance(MovementDirection.SOUTHWEST);
-		westMin = mCurrentSquare.getCol() - distance;
-		if (westMin <= 1 || distance == PieceMovements.UNLIMITED)
-			westMin = 1;
-
-		southMin = mCurrentSquare.getRow() - distance;
-		if (southMin <= 1 || distance == PieceMovements.UNLIMITED)
-			southMin = 1;
-
-		for (int r = mCurrentSquare.getRow() - 1, c = mCurrentSquare.getCol() - 1; r >= southMin && c >= westMin && !done; r--, c--)
-		{
-			dest = board.getSquare(r, c);
-			done = !addLegalDest(dest);
-			done = mIsLeaper ? false : (done || (dest.isOccupied() && !(board.isBlackTurn() != isBlack() && dest.getPiece().equals(
-					board.getGame().getOtherObjectivePiece(isBlack())))));
+			start = end;
 		}
 
 		/*
 		 * Knight / Leaper Movements
 		 * 
-		 * Store of Knight Movements are as followed:
-		 * 
 		 * A Piece can move x File by y Rank squares at a time.
 		 * 
 		 * IE: A knight can move 1 by 2 or 2 by 1, but not 1 by 1 or 2 by 2
 		 */
-		for (BidirectionalMovement movement : mPieceMovements.getBidirectionalMovements())
-		{
-			int f, r;
-			int rank = movement.getRowDistance();
-			int file = movement.getColumnDistance();
-
-			// one o'clock
-			f = (mCurrentSquare.getRow() + file);
-			r = (mCurrentSquare.getCol() + rank);
-			if (wraparound)
-			{
-				if (r > board.getMaxCol() + 1)
-					r = r % board.getMaxCol();
-			}
-
-			if (board.isRowValid(f) && board.isColValid(r))
-				addLegalDest(board.getSquare(f, r));
-
-			// two o'clock
-			f = (mCurrentSquare.getRow() + rank);
-			r = (mCurrentSquare.getCol() + file);
-			if (wraparound)
-			{
-				if (r > board.getMaxCol() + 1)
-					r = r % board.getMaxCol();
-			}
-
-			if (board.isRowValid(f) && board.isColValid(r))
-				addLegalDest(board.getSquare(f, r));
-
-			// four o'clock
-			f = (mCurrentSquare.getRow() + file);
-			r = (mCurrentSquare.getCol() - rank);
-			if (wraparound)
-			{
-				if (r < 1)
-					r = board.getMaxCol() + r;
-			}
-
-			if (board.isRowValid(f) && board.isColValid(r))
-				addLegalDest(board.getSquare(f, r));
-
-			// five o'clock
-			f = (mCurrentSquare.getRow() + rank);
-			r = (mCurrentSquare.getCol() - file);
-			if (wraparound)
-			{
-				if (r < 1)
-					r = board.getMaxCol() + r;
-			}
-
-			if (board.isRowValid(f) && board.isColValid(r))
-				addLegalDest(board.getSquare(f, r));
-
-			// seven o'clock
-			f = (mCurrentSquare.getRow() - file);
-			r = (mCurrentSquare.getCol() - rank);
-			if (wraparound)
-			{
-				if (r < 1)
-					r = board.getMaxCol() + r;
-			}
+		for (int leap : mAttackTable.getLeapSquares(origin))
+			addLegalDest(squares[leap / maxCol][leap % maxCol]);
 
-			if (board.isRowValid(f) && board.isColValid(r))
-				addLegalDest(board.getSquare(f, r));
-
-			// eight o'clock
-			f = (mCurrentSquare.getRow() - rank);
-			r = (mCurrentSquare.getCol() - file);
-			if (wraparound)
-			{
-				if (r < 1)
-					r = board.getMaxCol() + r;
-			}
-
-			if (board.isRowValid(f) && board.isColValid(r))
-				addLegalDest(board.getSquare(f, r));
-
-			// ten o'clock
-			f = (mCurrentSquare.getRow() - file);
-			r = (mCurrentSquare.getCol() + rank);
-			if (wraparound)
-			{
-				if (r > board.getMaxCol() + 1)
-					r = r % board.getMaxCol();
-			}
-
-			if (board.isRowValid(f) && board.isColValid(r))
-				addLegalDest(board.getSquare(f, r));
+		return getLegalDests().size();
+	}
 
-			// eleven o'clock
-			f = (mCurrentSquare.getRow() - rank);
-			r = (mCurrentSquare.getCol() + file);
-			if (wraparound)
-			{
-				if (r > board.getMaxCol() + 1)
-					r = r % board.getMaxCol();
-			}
+	/**
+	 * Generate the List of legal destinations for this Piece from the
+	 * bitboard of a classic Game, instead of walking the Board
+	 * 
+	 * @param bitboard The bitboard of the Game
+	 * @return The number of legal destinations for this Piece
+	 */
+	private int genLegalDests(ClassicBitboard bitboard)
+	{
+		if (mIsCaptured)
+			return 0;
 
-			if (board.isRowValid(f) && board.isColValid(r))
-				addLegalDest(board.getSquare(f, r));
-		}
+		Game game = mBoard.getGame();
+		// like the walk above, Pieces of the team that isn't moving see
+		// through the moving objective piece
+		Piece seeThrough = (game.isBlackMove() != isBlack()) ? game.getOtherObjectivePiece(isBlack()) : null;
+		long attacks = ClassicBitboard.getAttacks(ClassicBitboard.getType(this), isBlack(),
+				ClassicBitboard.indexOf(mCurrentSquare), bitboard.getOccupancy(seeThrough));
+		long team = bitboard.getOccupancy(isBlack());
 
-		return getLegalDests().size();
+		bitboard.addSquares(attacks & ~team, mLegalDests);
+		bitboard.addSquares(attacks & team, mGuardSquares);
+		return mLegalDests.size();
 	}
 
 	/**
@@ -608,14 +387,49 @@ public class Piece implements Serializable
 				getLegalDests().add(sq);
 			else if (sq.equals(threat.getSquare()))
 				getLegalDests().add(sq);
+			else if (isEnpassantCapture(sq, threat))
+				getLegalDests().add(sq);
 		}
 	}
 
+	/**
+	 * @param dest A destination of this Piece
+	 * @param threat A Piece of the other team
+	 * @return If moving to dest takes the threat en passant
+	 */
+	private boolean isEnpassantCapture(Square dest, Piece threat)
+	{
+		return mBoard.getGame().isClassicChess() && mName.equals(Messages.getString("pawn")) && !dest.isOccupied() //$NON-NLS-1$
+				&& dest.getCol() != mCurrentSquare.getCol() && threat.getSquare().getRow() == mCurrentSquare.getRow()
+				&& threat.getSquare().getCol() == dest.getCol() && threat.getName().equals(mName);
+	}
+
 	public Board getBoard()
 	{
 		return mBoard;
 	}
 
+	/**
+	 * @param board The Board to move on
+	 * @return The moves of this Piece's type on the Board, compiled
+	 */
+	public AttackTable getAttackTable(Board board)
+	{
+		if (mAttackTable == null || !mAttackTable.isFor(board.getMaxRow(), board.getMaxCol(), board.isWrapAround()))
+			mAttackTable = PieceBuilder.getAttackTable(mPieceMovements, mIsLeaper, board);
+		return mAttackTable;
+	}
+
+	PieceMovements getPieceMovements()
+	{
+		return mPieceMovements;
+	}
+
+	boolean isLeaper()
+	{
+		return mIsLeaper;
+	}
+
 	public List<Square> getGuardSquares()
 	{
 		return mGuardSquares;
@@ -641,7 +455,8 @@ public class Piece implements Serializable
 	{
 		if (mName.equals(Messages.getString("pawn"))) //$NON-NLS-1$
 			return null;
-		if ((mIsBlack ? mBoard.getGame().getBlackRules() : mBoard.getGame().getWhiteRules()).objectivePiece(mIsBlack).equals(this))
+		// the objective piece may be gone, after an atomic capture
+		if (this.equals((mIsBlack ? mBoard.getGame().getBlackRules() : mBoard.getGame().getWhiteRules()).objectivePiece(mIsBlack)))
 			return null;
 		Square[] returnSet = null;
 		List<Square> returnTemp = Lists.newArrayList();
@@ -1004,7 +819,19 @@ public class Piece implements Serializable
 
 	public void setBlack(boolean isBlack)
 	{
+		// a captured Piece changes jails
+		boolean isJailed = mIsCaptured && isBlack != mIsBlack && mBoard != null && mBoard.getGame() != null;
+		if (isJailed)
+			mBoard.getGame().onJailChanged(this, false);
+
 		mIsBlack = isBlack;
+
+		if (isJailed)
+			mBoard.getGame().onJailChanged(this, true);
+
+		// the other Pieces see this Square differently now
+		if (mCurrentSquare != null && mCurrentSquare.getPiece() == this && mCurrentSquare.getBoard() != null)
+			mCurrentSquare.getBoard().onSquareChanged(mCurrentSquare);
 	}
 
 	public void setIsCaptured(boolean isCaptured)
@@ -1013,7 +840,11 @@ public class Piece implements Serializable
 		getLegalDests().clear();
 		getGuardSquares().clear();
 		setPinnedBy(null);
+
+		boolean isChanged = isCaptured != mIsCaptured;
 		mIsCaptured = isCaptured;
+		if (isChanged && mBoard != null && mBoard.getGame() != null)
+			mBoard.getGame().onJailChanged(this, isCaptured);
 	}
 
 	public void setGuardSquares(List<Square> guardSquares)
@@ -1028,7 +859,13 @@ public class Piece implements Serializable
 
 	public void setMoveCount(int moveCount)
 	{
+		boolean isChanged = (moveCount == 0) != (mMoveCount == 0);
 		mMoveCount = moveCount;
+
+		// Pawns that haven't moved can step twice, and Kings and Rooks can
+		// castle
+		if (isChanged && mCurrentSquare != null && mCurrentSquare.getPiece() == this && mCurrentSquare.getBoard() != null)
+			mCurrentSquare.getBoard().onSquareChanged(mCurrentSquare);
 	}
 
 	public void setOriginalSquare(Square originalSquare)
@@ -1049,6 +886,38 @@ public class Piece implements Serializable
 		getLegalDests().retainAll(lineOfSight);
 	}
 
+	/**
+	 * Pin this Piece to the line between the pinner and the objective piece
+	 * 
+	 * @param pinner The enemy Piece pinning this one
+	 * @param lineOfSight The Squares this Piece may still move to
+	 * @param geometry The geometry the Squares are numbered by
+	 */
+	void setPinned(Piece pinner, SquareSet lineOfSight, BoardGeometry geometry)
+	{
+		setPinnedBy(pinner);
+		retainLegalDests(lineOfSight, geometry, null);
+	}
+
+	/**
+	 * Keep only the legal destinations in the given set
+	 * 
+	 * @param squares The destinations to keep
+	 * @param geometry The geometry the Squares are numbered by
+	 * @param threat A Pawn that may also be taken en passant, or null
+	 */
+	void retainLegalDests(SquareSet squares, BoardGeometry geometry, Piece threat)
+	{
+		Iterator<Square> dests = getLegalDests().iterator();
+		while (dests.hasNext())
+		{
+			Square dest = dests.next();
+			int index = geometry.indexOf(dest);
+			if ((index < 0 || !squares.contains(index)) && (threat == null || !isEnpassantCapture(dest, threat)))
+				dests.remove();
+		}
+	}
+
 	public void setPinnedBy(Piece pinnedBy)
 	{
 		mPinnedBy = pinnedBy;
@@ -1059,6 +928,63 @@ public class Piece implements Serializable
 		mCurrentSquare = curSquare;
 	}
 
+	/**
+	 * Remember the destinations and guard squares just generated by
+	 * genLegalDests, before any cropping, so they can be reused if nothing
+	 * they depend on changes.
+	 * 
+	 * @param geometry The geometry of the Game, to number the Squares with
+	 */
+	void savePseudoLegalDests(BoardGeometry geometry)
+	{
+		mPseudoLegalDests = Lists.newArrayList(mLegalDests);
+		mPseudoGuardSquares = Lists.newArrayList(mGuardSquares);
+
+		mPseudoLegalDestSet = geometry.newSquareSet();
+		mPseudoGuardSquareSet = geometry.newSquareSet();
+		if (!geometry.addAll(mLegalDests, mPseudoLegalDestSet) || !geometry.addAll(mGuardSquares, mPseudoGuardSquareSet))
+			mPseudoLegalDests = null;
+		mPseudoSquareIndex = geometry.indexOf(mCurrentSquare);
+	}
+
+	/**
+	 * Restore the destinations remembered by savePseudoLegalDests
+	 * 
+	 * @return False if there was nothing to restore
+	 */
+	boolean restorePseudoLegalDests()
+	{
+		if (mPseudoLegalDests == null)
+			return false;
+
+		mLegalDests = Lists.newArrayList(mPseudoLegalDests);
+		mGuardSquares = Lists.newArrayList(mPseudoGuardSquares);
+		setPinnedBy(null);
+		return true;
+	}
+
+	/**
+	 * Check if the remembered destinations of this Piece are still usable
+	 * 
+	 * @param changedSquares The Squares whose contents changed since they
+	 * were remembered
+	 * @param objectiveSquares The Squares of the objective pieces, which
+	 * sliding Pieces see through depending on whose turn it is
+	 * @return If the remembered destinations can be restored
+	 */
+	boolean hasReusablePseudoLegalDests(SquareSet changedSquares, SquareSet objectiveSquares)
+	{
+		if (mPseudoLegalDests == null || mIsCaptured || mPseudoSquareIndex < 0 || changedSquares.contains(mPseudoSquareIndex))
+			return false;
+		// Pawns depend on squares they can't move to and on the en passant
+		// column, so always regenerate them; they're cheap anyway
+		if (mName.equals(Messages.getString("pawn"))) //$NON-NLS-1$
+			return false;
+
+		return !mPseudoLegalDestSet.intersects(objectiveSquares) && !mPseudoLegalDestSet.intersects(changedSquares)
+				&& !mPseudoGuardSquareSet.intersects(changedSquares);
+	}
+
 	public List<String> getPromotesTo()
 	{
 		return mPromotesTo;
@@ -1085,4 +1011,11 @@ public class Piece implements Serializable
 	private Piece mPinnedBy;
 	private Square mOriginalSquare;
 	private List<String> mPromotesTo = Lists.newArrayList();
+
+	private transient AttackTable mAttackTable;
+	private transient List<Square> mPseudoLegalDests;
+	private transient List<Square> mPseudoGuardSquares;
+	private transient SquareSet mPseudoLegalDestSet;
+	private transient SquareSet mPseudoGuardSquareSet;
+	private transient int mPseudoSquareIndex;
 }
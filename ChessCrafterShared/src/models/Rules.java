@@ -92,12 +92,32 @@ public class Rules implements Serializable
 			rule.performAfterMoveAction(move);
 	}
 
+	/**
+	 * Perform the AfterMove rules for a move made by Game.makeMove
+	 * 
+	 * @param record The record of the move
+	 */
+	public void afterMove(MoveRecord record)
+	{
+		for (AfterMove rule : mAfterMoves)
+			rule.performAfterMoveAction(record);
+	}
+
 	public void cropLegalDests(Piece movingObjectivePiece, Piece pieceToAdjust, List<Piece> enemyTeam)
 	{
 		for (CropLegalDestinations cropLegalDests : mCropLegalDests)
 			cropLegalDests.cropLegalDestinations(movingObjectivePiece, pieceToAdjust, enemyTeam);
 	}
 
+	/**
+	 * @return If this team's Pieces pin the Pieces of the other team to their
+	 * objective piece
+	 */
+	public boolean isPinning()
+	{
+		return !mCropLegalDests.isEmpty();
+	}
+
 	public void checkEndOfGame(Piece objectivePiece)
 	{
 		mEndOfGame.checkEndOfGame(objectivePiece);
@@ -113,6 +133,16 @@ public class Rules implements Serializable
 		return mGetPromotionSquares.getPromotionSquares(toPromote);
 	}
 
+	/**
+	 * @param toPromote The Piece that moved
+	 * @param square The Square it moved to
+	 * @return If the Piece promotes by moving there
+	 */
+	public boolean isPromotionSquare(Piece toPromote, Square square)
+	{
+		return mPromote != Promote.NO_PROMOTIONS && mGetPromotionSquares.isPromotionSquare(toPromote, square);
+	}
+
 	public boolean nextTurn()
 	{
 		return mNextTurn.getNextTurn();
@@ -123,6 +153,21 @@ public class Rules implements Serializable
 		return mNextTurn.undo(isPlayback);
 	}
 
+	/**
+	 * Count a move made by Game.makeMove, without telling the GUI
+	 * 
+	 * @return If the turn passed to the other team
+	 */
+	public boolean countMove()
+	{
+		return mNextTurn.countMove();
+	}
+
+	public void uncountMove()
+	{
+		mNextTurn.uncountMove();
+	}
+
 	public Piece objectivePiece(boolean isBlack)
 	{
 		return mObjectivePiece.getObjectivePiece(isBlack);
@@ -133,6 +178,16 @@ public class Rules implements Serializable
 		return mPromote.promotePiece(pieceToPromote, pieceCanBePromoted, pieceTypeToPromoteFrom);
 	}
 
+	public Piece promoteQuietly(Piece pieceToPromote, String pieceTypeToPromoteTo)
+	{
+		return mPromote.promotePieceQuietly(pieceToPromote, pieceTypeToPromoteTo);
+	}
+
+	public boolean checkQuietPromotion(Piece pieceToPromote, String pieceTypeToPromoteTo)
+	{
+		return mPromote.checkQuietPromotion(pieceToPromote, pieceTypeToPromoteTo);
+	}
+
 	public void setGame(Game game)
 	{
 		mEndOfGame.setGame(game);
@@ -171,6 +226,12 @@ public class Rules implements Serializable
 			rule.undo(move);
 	}
 
+	public void undoAfterMove(MoveRecord record)
+	{
+		for (AfterMove rule : mAfterMoves)
+			rule.undo(record);
+	}
+
 	public void undoEndOfGame()
 	{
 		mEndOfGame.undo();
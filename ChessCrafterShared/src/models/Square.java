@@ -47,6 +47,16 @@ public class Square implements Serializable
 			mListener.onJailStateChanged();
 	}
 
+	public Board getBoard()
+	{
+		return mBoard;
+	}
+
+	void setBoard(Board board)
+	{
+		mBoard = board;
+	}
+
 	public int getCol()
 	{
 		return mColumn;
@@ -90,6 +100,9 @@ public class Square implements Serializable
 		if (mPiece != null)
 			mPiece.setSquare(this);
 
+		if (mBoard != null)
+			mBoard.onSquareChanged(this);
+
 		return oldPiece;
 	}
 
@@ -136,6 +149,7 @@ public class Square implements Serializable
 	private int mRow;// File
 	private int mColumn;// Rank
 	private boolean mIsHabitable;
+	private Board mBoard;
 
 	private SquareStateListener mListener;
 }
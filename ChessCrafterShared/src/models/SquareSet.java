@@ -0,0 +1,171 @@
+package models;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A fixed size set of Squares, stored one bit per Square in a long[]. The
+ * bit index of a Square comes from the BoardGeometry of its Game, so a set
+ * can span boards of any size, and set operations work a whole word at a
+ * time instead of a Square at a time.
+ */
+public final class SquareSet
+{
+	/**
+	 * Create an empty set
+	 *
+	 * @param size The number of Squares the set can hold
+	 */
+	public SquareSet(int size)
+	{
+		Preconditions.checkArgument(size >= 0);
+
+		mSize = size;
+		mWords = new long[(size + 63) >>> 6];
+	}
+
+	/**
+	 * @return A copy of this set
+	 */
+	public SquareSet copy()
+	{
+		SquareSet copy = new SquareSet(mSize);
+		System.arraycopy(mWords, 0, copy.mWords, 0, mWords.length);
+		return copy;
+	}
+
+	public int size()
+	{
+		return mSize;
+	}
+
+	public void add(int index)
+	{
+		mWords[index >>> 6] |= 1L << index;
+	}
+
+	public void remove(int index)
+	{
+		mWords[index >>> 6] &= ~(1L << index);
+	}
+
+	public boolean contains(int index)
+	{
+		return (mWords[index >>> 6] & (1L << index)) != 0;
+	}
+
+	public void clear()
+	{
+		Arrays.fill(mWords, 0L);
+	}
+
+	public boolean isEmpty()
+	{
+		for (long word : mWords)
+		{
+			if (word != 0L)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return The number of Squares in this set
+	 */
+	public int cardinality()
+	{
+		int count = 0;
+		for (long word : mWords)
+			count += Long.bitCount(word);
+		return count;
+	}
+
+	/**
+	 * @param other A set of the same size
+	 * @return If this set and the other one have any Square in common
+	 */
+	public boolean intersects(SquareSet other)
+	{
+		for (int i = 0; i < mWords.length; i++)
+		{
+			if ((mWords[i] & other.mWords[i]) != 0L)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Add every Square of the other set to this one
+	 *
+	 * @param other A set of the same size
+	 */
+	public void or(SquareSet other)
+	{
+		for (int i = 0; i < mWords.length; i++)
+			mWords[i] |= other.mWords[i];
+	}
+
+	/**
+	 * Remove every Square not in the other set from this one
+	 *
+	 * @param other A set of the same size
+	 */
+	public void and(SquareSet other)
+	{
+		for (int i = 0; i < mWords.length; i++)
+			mWords[i] &= other.mWords[i];
+	}
+
+	/**
+	 * Remove every Square of the other set from this one
+	 *
+	 * @param other A set of the same size
+	 */
+	public void andNot(SquareSet other)
+	{
+		for (int i = 0; i < mWords.length; i++)
+			mWords[i] &= ~other.mWords[i];
+	}
+
+	/**
+	 * Find the next Square in this set, for iterating:
+	 * <code>for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1))</code>
+	 *
+	 * @param fromIndex The index to start looking from, inclusive
+	 * @return The index of the next Square in this set, or -1 if there is none
+	 */
+	public int nextSetBit(int fromIndex)
+	{
+		if (fromIndex >= mSize)
+			return -1;
+
+		int wordIndex = fromIndex >>> 6;
+		long word = mWords[wordIndex] & (-1L << fromIndex);
+		while (true)
+		{
+			if (word != 0L)
+				return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+			if (++wordIndex == mWords.length)
+				return -1;
+			word = mWords[wordIndex];
+		}
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		if (!(other instanceof SquareSet))
+			return false;
+		return mSize == ((SquareSet) other).mSize && Arrays.equals(mWords, ((SquareSet) other).mWords);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(mWords);
+	}
+
+	private final int mSize;
+	private final long[] mWords;
+}
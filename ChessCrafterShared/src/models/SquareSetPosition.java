@@ -0,0 +1,308 @@
+package models;
+
+import java.util.List;
+
+import logic.AttackTable;
+import logic.Messages;
+
+import com.google.common.collect.Lists;
+
+/**
+ * The position of a Game as SquareSets, for Games of any size and any number
+ * of Boards, which the classic bitboard can't hold: the Squares occupied by
+ * each team, and the Squares threatened and guarded by the Piece on every
+ * occupied Square. The sets are kept up to date a Square at a time as the
+ * Game reports its changes, however the moves are made, and only the Pieces
+ * whose attacks run through a changed Square are walked again, using the
+ * AttackTable of their type. Threat and guard questions are then a bit test
+ * against the union of a team's sets.
+ *
+ * Attacks are the ones Piece.genLegalDests finds for the team that isn't
+ * moving: sliding Pieces see through the enemy objective piece.
+ */
+final class SquareSetPosition
+{
+	/**
+	 * Build the sets from the Squares of a Game
+	 *
+	 * @param game The Game
+	 * @param geometry The geometry of the Game
+	 */
+	SquareSetPosition(Game game, BoardGeometry geometry)
+	{
+		mGame = game;
+		mGeometry = geometry;
+
+		int size = geometry.size();
+		mOccupied = new SquareSet[] { geometry.newSquareSet(), geometry.newSquareSet() };
+		mUninhabitable = geometry.newSquareSet();
+		mDirty = geometry.newSquareSet();
+		mThreats = new SquareSet[size];
+		mGuards = new SquareSet[size];
+		mPieces = new Piece[size];
+		mTargetBoards = new Board[size];
+		mTeamThreats = new SquareSet[] { geometry.newSquareSet(), geometry.newSquareSet() };
+		mTeamGuards = new SquareSet[] { geometry.newSquareSet(), geometry.newSquareSet() };
+		mIsTeamStale = new boolean[] { true, true };
+
+		for (int index = 0; index < size; index++)
+		{
+			Square square = geometry.getSquare(index);
+			if (!square.isHabitable())
+				mUninhabitable.add(index);
+			update(index, square);
+		}
+	}
+
+	/**
+	 * Record a change to the Piece on a Square. The occupancy changes right
+	 * away; the attacks running through the Square are walked again the next
+	 * time they're asked for.
+	 *
+	 * @param index The index of the Square
+	 * @param square The Square that changed
+	 */
+	void update(int index, Square square)
+	{
+		Piece piece = square.getPiece();
+		mOccupied[WHITE].remove(index);
+		mOccupied[BLACK].remove(index);
+		if (piece != null)
+			mOccupied[piece.isBlack() ? BLACK : WHITE].add(index);
+
+		mDirty.add(index);
+		for (int team = WHITE; team <= BLACK; team++)
+		{
+			SquareSet occupied = mOccupied[team];
+			for (int i = occupied.nextSetBit(0); i >= 0; i = occupied.nextSetBit(i + 1))
+			{
+				if ((mThreats[i] != null && mThreats[i].contains(index)) || (mGuards[i] != null && mGuards[i].contains(index)))
+					mDirty.add(i);
+			}
+			mIsTeamStale[team] = true;
+		}
+	}
+
+	/**
+	 * @param isBlack The team
+	 * @return The Squares occupied by the team
+	 */
+	SquareSet getOccupancy(boolean isBlack)
+	{
+		return mOccupied[isBlack ? BLACK : WHITE];
+	}
+
+	/**
+	 * @param index The index of a Square
+	 * @param isBlack The attacking team
+	 * @param movingRules The Rules of the team whose turn it is, which decide
+	 * the Board every Piece moves onto
+	 * @return If the team threatens the Square
+	 */
+	boolean isThreatened(int index, boolean isBlack, Rules movingRules)
+	{
+		refresh(isBlack, movingRules);
+		return mTeamThreats[isBlack ? BLACK : WHITE].contains(index);
+	}
+
+	/**
+	 * @param index The index of a Square
+	 * @param isBlack The guarding team
+	 * @param movingRules The Rules of the team whose turn it is
+	 * @return If the team guards the Square
+	 */
+	boolean isGuarded(int index, boolean isBlack, Rules movingRules)
+	{
+		refresh(isBlack, movingRules);
+		return mTeamGuards[isBlack ? BLACK : WHITE].contains(index);
+	}
+
+	/**
+	 * @param index The index of the threatened Square
+	 * @param isBlack The attacking team
+	 * @param movingRules The Rules of the team whose turn it is
+	 * @return The Pieces threatening the Square, in team order, or null if
+	 * there are none
+	 */
+	Piece[] getThreats(int index, boolean isBlack, Rules movingRules)
+	{
+		return isThreatened(index, isBlack, movingRules) ? getPieces(mThreats, index, isBlack) : null;
+	}
+
+	/**
+	 * @param index The index of the guarded Square
+	 * @param isBlack The guarding team
+	 * @param movingRules The Rules of the team whose turn it is
+	 * @return The Pieces guarding the Square, in team order, or null if there
+	 * are none
+	 */
+	Piece[] getGuards(int index, boolean isBlack, Rules movingRules)
+	{
+		return isGuarded(index, isBlack, movingRules) ? getPieces(mGuards, index, isBlack) : null;
+	}
+
+	/**
+	 * Walk the attacks of every Piece of a team that changed, and gather the
+	 * team's attacks again if any did
+	 */
+	private void refresh(boolean isBlack, Rules movingRules)
+	{
+		int team = isBlack ? BLACK : WHITE;
+		if (!mIsTeamStale[team] && movingRules == mMovingRules[team])
+			return;
+
+		// a new turn can send the Pieces onto other Boards
+		boolean isNewTurn = movingRules != mMovingRules[team];
+		mMovingRules[team] = movingRules;
+
+		SquareSet occupied = mOccupied[team];
+		SquareSet threats = mTeamThreats[team];
+		SquareSet guards = mTeamGuards[team];
+		threats.clear();
+		guards.clear();
+		for (int i = occupied.nextSetBit(0); i >= 0; i = occupied.nextSetBit(i + 1))
+		{
+			Piece piece = mGeometry.getSquare(i).getPiece();
+			Board target = movingRules.getBoard(piece.getSquare().getBoard());
+			if (isNewTurn || mDirty.contains(i) || mPieces[i] != piece || mTargetBoards[i] != target)
+			{
+				walk(i, piece, target);
+				mDirty.remove(i);
+			}
+			threats.or(mThreats[i]);
+			guards.or(mGuards[i]);
+		}
+		mIsTeamStale[team] = false;
+	}
+
+	/**
+	 * Find the Squares the Piece on a Square threatens and guards, just as
+	 * Piece.genLegalDests would for the team that isn't moving
+	 */
+	private void walk(int index, Piece piece, Board target)
+	{
+		if (mThreats[index] == null)
+		{
+			mThreats[index] = mGeometry.newSquareSet();
+			mGuards[index] = mGeometry.newSquareSet();
+		}
+		SquareSet threats = mThreats[index];
+		SquareSet guards = mGuards[index];
+		threats.clear();
+		guards.clear();
+		mPieces[index] = piece;
+		mTargetBoards[index] = target;
+
+		Square current = piece.getSquare();
+		if (piece.getName().equals(PAWN))
+		{
+			// a Pawn threatens the Squares diagonally in front of it on every
+			// Board, whether it can move there or not, and never guards; see
+			// Piece.isLegalAttack
+			int row = current.getRow() + (piece.isBlack() ? -1 : 1);
+			for (int boardIndex = 0; boardIndex < mGeometry.getBoardCount(); boardIndex++)
+			{
+				Board board = mGeometry.getBoard(boardIndex);
+				if (!board.isRowValid(row))
+					continue;
+				if (board.isColValid(current.getCol() - 1))
+					threats.add(mGeometry.indexOf(boardIndex, row, current.getCol() - 1));
+				if (board.isColValid(current.getCol() + 1))
+					threats.add(mGeometry.indexOf(boardIndex, row, current.getCol() + 1));
+			}
+			return;
+		}
+
+		int boardIndex = getBoardIndex(target);
+		if (boardIndex < 0)
+			return;
+
+		int offset = mGeometry.indexOf(boardIndex, 1, 1);
+		SquareSet team = mOccupied[piece.isBlack() ? BLACK : WHITE];
+		SquareSet enemy = mOccupied[piece.isBlack() ? WHITE : BLACK];
+		Piece seeThrough = mGame.getOtherObjectivePiece(piece.isBlack());
+		int seeThroughIndex = (seeThrough == null || seeThrough.isCaptured()) ? -1 : mGeometry.indexOf(seeThrough.getSquare());
+
+		AttackTable table = piece.getAttackTable(target);
+		int origin = table.indexOf(current.getRow(), current.getCol());
+		int[] raySquares = table.getRaySquares(origin);
+		int start = 0;
+		for (int end : table.getRayEnds(origin))
+		{
+			for (int i = start; i < end; i++)
+			{
+				int dest = offset + raySquares[i];
+				boolean isOpen = add(dest, team, threats, guards);
+				if (!table.isLeaper() && (!isOpen || (enemy.contains(dest) && dest != seeThroughIndex)))
+					break;
+			}
+			start = end;
+		}
+
+		for (int leap : table.getLeapSquares(origin))
+			add(offset + leap, team, threats, guards);
+	}
+
+	/**
+	 * Add a Square a Piece reaches, as Piece.addLegalDest does
+	 *
+	 * @return False if the Square stops a sliding Piece
+	 */
+	private boolean add(int index, SquareSet team, SquareSet threats, SquareSet guards)
+	{
+		if (mUninhabitable.contains(index))
+			return true;
+
+		if (team.contains(index))
+		{
+			guards.add(index);
+			return false;
+		}
+
+		threats.add(index);
+		return true;
+	}
+
+	private int getBoardIndex(Board board)
+	{
+		for (int i = 0; i < mGeometry.getBoardCount(); i++)
+		{
+			if (mGeometry.getBoard(i) == board)
+				return i;
+		}
+		return -1;
+	}
+
+	private Piece[] getPieces(SquareSet[] pieceSets, int index, boolean isBlack)
+	{
+		List<Piece> pieces = Lists.newArrayList();
+		for (Piece piece : isBlack ? mGame.getBlackTeam() : mGame.getWhiteTeam())
+		{
+			if (piece.isCaptured() || piece.getSquare().getPiece() != piece)
+				continue;
+
+			int square = mGeometry.indexOf(piece.getSquare());
+			if (square >= 0 && mPieces[square] == piece && pieceSets[square].contains(index))
+				pieces.add(piece);
+		}
+		return pieces.toArray(new Piece[pieces.size()]);
+	}
+
+	private static final String PAWN = Messages.getString("pawn"); //$NON-NLS-1$
+	private static final int WHITE = 0;
+	private static final int BLACK = 1;
+
+	private final Game mGame;
+	private final BoardGeometry mGeometry;
+	private final SquareSet[] mOccupied;
+	private final SquareSet mUninhabitable;
+	private final SquareSet mDirty;
+	private final SquareSet[] mThreats;
+	private final SquareSet[] mGuards;
+	private final Piece[] mPieces;
+	private final Board[] mTargetBoards;
+	private final SquareSet[] mTeamThreats;
+	private final SquareSet[] mTeamGuards;
+	private final boolean[] mIsTeamStale;
+	private final Rules[] mMovingRules = new Rules[2];
+}
@@ -0,0 +1,220 @@
+package models;
+
+import java.util.Map;
+
+import logic.Messages;
+import rules.NextTurn;
+import rules.NextTurn.NextTurnOption;
+
+import com.google.common.collect.Maps;
+
+/**
+ * A 64 bit Zobrist key for the position of a Game: the Pieces on every
+ * Square of every Board, the team to move and how far into its turn it is,
+ * the en passant column of each Board, which Pawns, Kings and Rooks haven't
+ * moved yet (the castling rights, and the Pawns' double step), and the
+ * captured Pieces of each team, which drop variants play back onto the Board.
+ * Equal positions have equal keys.
+ *
+ * The Game keeps the key up to date through the same Square change
+ * notifications used for incremental legal destinations, so Move.execute,
+ * Move.undo, Game.makeMove and the AfterMove rules all update it for free.
+ * Instead of a table of random numbers, every part of the position is mixed
+ * into a key from the index of the Piece name among the Game's piece names,
+ * so Pieces built by PieceBuilder for custom variants get keys like any
+ * other, no two types share one, and keys are the same on every run.
+ */
+public final class ZobristKey
+{
+	/**
+	 * Build the key of the current position of the given Game
+	 *
+	 * @param game The Game to follow
+	 * @return The key
+	 */
+	static ZobristKey create(Game game)
+	{
+		BoardGeometry geometry = game.getGeometry();
+		ZobristKey key = new ZobristKey(game, geometry);
+		for (int index = 0; index < geometry.size(); index++)
+			key.update(geometry.getSquare(index));
+
+		Board[] boards = game.getBoards();
+		for (int i = 0; i < boards.length; i++)
+			key.setEnpassantCol(i, Board.NO_ENPASSANT, boards[i].getEnpassantCol());
+
+		for (Piece piece : game.getWhiteTeam())
+		{
+			if (piece.isCaptured())
+				key.setJailed(piece, true);
+		}
+		for (Piece piece : game.getBlackTeam())
+		{
+			if (piece.isCaptured())
+				key.setJailed(piece, true);
+		}
+
+		key.setBlackMove(game.isBlackMove());
+		return key;
+	}
+
+	private ZobristKey(Game game, BoardGeometry geometry)
+	{
+		mGame = game;
+		mGeometry = geometry;
+		mPieceIndexes = Maps.newHashMap();
+		for (String name : game.getPieceNames())
+			mPieceIndexes.put(name, mPieceIndexes.size());
+		mSquareKeys = new long[geometry.size()];
+		mWhiteJail = Maps.newHashMap();
+		mBlackJail = Maps.newHashMap();
+	}
+
+	/**
+	 * @return The key, with the state of the current turn, which the rules
+	 * for turns keep to themselves
+	 */
+	public long getKey()
+	{
+		return mKey ^ getTurnKey(mGame.getWhiteRules().getNextTurn());
+	}
+
+	/**
+	 * Bring the key up to date with the contents of the given Square
+	 *
+	 * @param square The Square that changed
+	 */
+	void update(Square square)
+	{
+		int index = mGeometry.indexOf(square);
+		if (index < 0)
+			return;
+
+		Piece piece = square.getPiece();
+		long squareKey = (piece == null) ? 0 : getPieceKey(piece, index);
+		mKey ^= mSquareKeys[index] ^ squareKey;
+		mSquareKeys[index] = squareKey;
+	}
+
+	void setBlackMove(boolean isBlackMove)
+	{
+		if (isBlackMove != mIsBlackMove)
+		{
+			mKey ^= BLACK_MOVE;
+			mIsBlackMove = isBlackMove;
+		}
+	}
+
+	/**
+	 * @param boardIndex The index of the Board in its Game
+	 * @param oldCol The en passant column the key was built with
+	 * @param newCol The new en passant column
+	 */
+	void setEnpassantCol(int boardIndex, int oldCol, int newCol)
+	{
+		if (oldCol != Board.NO_ENPASSANT)
+			mKey ^= mix(ENPASSANT + ((long) boardIndex << 16) + oldCol);
+		if (newCol != Board.NO_ENPASSANT)
+			mKey ^= mix(ENPASSANT + ((long) boardIndex << 16) + newCol);
+	}
+
+	/**
+	 * Put a Piece into its team's jail, or take it out. Only the number of
+	 * Pieces of each type counts, not which Piece it was.
+	 *
+	 * @param piece The Piece
+	 * @param isJailed True if the Piece was captured, false if it's back
+	 */
+	void setJailed(Piece piece, boolean isJailed)
+	{
+		Map<String, Integer> jail = piece.isBlack() ? mBlackJail : mWhiteJail;
+		Integer count = jail.get(piece.getName());
+		int oldCount = (count == null) ? 0 : count;
+		int newCount = isJailed ? oldCount + 1 : oldCount - 1;
+		jail.put(piece.getName(), newCount);
+
+		// the key holds one number for every Piece of the type up to the
+		// count, so adding or removing a Piece changes just the last one
+		int changed = isJailed ? newCount : oldCount;
+		mKey ^= mix(JAIL + ((long) getPieceIndex(piece) << 32) + (piece.isBlack() ? 1L << 16 : 0) + changed);
+	}
+
+	/**
+	 * Classic turns are all in who is to move. The other kinds of turns also
+	 * depend on the moves made so far in the turn, and on how many moves
+	 * each team has in a turn, which grows in the increasing kinds.
+	 *
+	 * @param nextTurn The rules for turns of the Game
+	 * @return The part of the key for the state of the current turn
+	 */
+	private static long getTurnKey(NextTurn nextTurn)
+	{
+		if (nextTurn == null || nextTurn.getOption() == NextTurnOption.CLASSIC)
+			return 0;
+		return mix(TURN + ((long) nextTurn.getBlackMoves() << 40) + ((long) nextTurn.getWhiteMoves() << 20) + nextTurn.getMovesMade());
+	}
+
+	/**
+	 * @return The index of the name of the Piece among the piece names of the
+	 * Game; a name the Game didn't know about gets the next free one
+	 */
+	private int getPieceIndex(Piece piece)
+	{
+		Integer index = mPieceIndexes.get(piece.getName());
+		if (index == null)
+		{
+			index = mPieceIndexes.size();
+			mPieceIndexes.put(piece.getName(), index);
+		}
+		return index;
+	}
+
+	private long getPieceKey(Piece piece, int index)
+	{
+		long key = ((long) getPieceIndex(piece) << 32) + ((long) index << 2);
+		if (piece.isBlack())
+			key += 2;
+		if (piece.getMoveCount() == 0 && isTrackingMoves(piece))
+			key += 1;
+		return mix(key);
+	}
+
+	/**
+	 * @return If move generation looks at whether this Piece has moved: Pawns
+	 * step twice and Kings and Rooks castle only from their first Square
+	 */
+	private static boolean isTrackingMoves(Piece piece)
+	{
+		String name = piece.getName();
+		return name.equals(PAWN) || name.equals(KING) || name.equals(ROOK);
+	}
+
+	/**
+	 * The finalizer of SplitMix64, which spreads every bit of the input over
+	 * the whole output. Different inputs always give different outputs.
+	 */
+	private static long mix(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private static final String PAWN = Messages.getString("pawn"); //$NON-NLS-1$
+	private static final String KING = Messages.getString("king"); //$NON-NLS-1$
+	private static final String ROOK = Messages.getString("rook"); //$NON-NLS-1$
+
+	private static final long BLACK_MOVE = mix(0x9e3779b97f4a7c15L);
+	private static final long ENPASSANT = 0x632be59bd9b4e019L;
+	private static final long JAIL = 0x2545f4914f6cdd1dL;
+	private static final long TURN = 0x4f1bbcdcbfa53e0bL;
+
+	private final Game mGame;
+	private final BoardGeometry mGeometry;
+	private final Map<String, Integer> mPieceIndexes;
+	private final long[] mSquareKeys;
+	private final Map<String, Integer> mWhiteJail;
+	private final Map<String, Integer> mBlackJail;
+	private long mKey;
+	private boolean mIsBlackMove;
+}
@@ -6,6 +6,7 @@ import utility.GuiUtility;
 import logic.Move;
 import models.Board;
 import models.Game;
+import models.MoveRecord;
 import models.Piece;
 import models.Square;
 
@@ -65,6 +66,75 @@ public enum AfterMove
 		}
 	}
 
+	/**
+	 * Perform the rule for a move made by Game.makeMove. Nothing is shown to
+	 * the players, so a captured Piece that would be placed on the Board by
+	 * its new owner stays off the Board.
+	 * 
+	 * @param record The record of the move
+	 */
+	public void performAfterMoveAction(MoveRecord record)
+	{
+		if (record.getCaptured() == null)
+			return;
+
+		switch (this)
+		{
+		case SWAP_COLOR_OF_CAPTURER:
+			record.setSwitchedIndex(switchTeams(record.getGame(), record.getMovedPiece()));
+			break;
+		case CAPTURED_PIECE_TO_ORIGIN:
+			moveCapturedPieceToOrigin(record);
+			break;
+		case CAPTURER_STEALS_CAPTURED:
+			record.setSwitchedIndex(switchTeams(record.getGame(), record.getCaptured()));
+			break;
+		case ATOMIC_CAPTURE:
+			atomicCapture(record);
+			break;
+		case CAPTURER_PLACES_CAPTURED:
+		case CLASSIC:
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Undo the rule for a move made by Game.makeMove
+	 * 
+	 * @param record The record of the move
+	 */
+	public void undo(MoveRecord record)
+	{
+		if (record.getCaptured() == null)
+			return;
+
+		switch (this)
+		{
+		case SWAP_COLOR_OF_CAPTURER:
+			unswitchTeams(record.getGame(), record.getMovedPiece(), record.getSwitchedIndex());
+			break;
+		case CAPTURED_PIECE_TO_ORIGIN:
+			undoMoveCapturedPieceToOrigin(record);
+			break;
+		case CAPTURER_STEALS_CAPTURED:
+			unswitchTeams(record.getGame(), record.getCaptured(), record.getSwitchedIndex());
+			break;
+		case ATOMIC_CAPTURE:
+			for (int i = record.getExplodedCount() - 1; i >= 0; i--)
+			{
+				Piece piece = record.getExploded(i);
+				piece.setIsCaptured(false);
+				piece.getSquare().setPiece(piece);
+			}
+			break;
+		case CAPTURER_PLACES_CAPTURED:
+		case CLASSIC:
+		default:
+			break;
+		}
+	}
+
 	public void setGame(Game game)
 	{
 		mGame = game;
@@ -215,6 +285,87 @@ public enum AfterMove
 		}
 	}
 
+	/**
+	 * Move a Piece to the end of the other team. The rules of every Game
+	 * share this enum, so the Game comes from the move, which lets Games on
+	 * several search threads make moves at once.
+	 * 
+	 * @return Where the Piece was in its old team
+	 */
+	private static int switchTeams(Game game, Piece toSwitch)
+	{
+		List<Piece> team = toSwitch.isBlack() ? game.getBlackTeam() : game.getWhiteTeam();
+		int index = team.indexOf(toSwitch);
+		team.remove(index);
+		(toSwitch.isBlack() ? game.getWhiteTeam() : game.getBlackTeam()).add(toSwitch);
+		toSwitch.setBlack(!toSwitch.isBlack());
+		return index;
+	}
+
+	private static void unswitchTeams(Game game, Piece toSwitch, int index)
+	{
+		List<Piece> team = toSwitch.isBlack() ? game.getBlackTeam() : game.getWhiteTeam();
+		team.remove(team.size() - 1);
+		(toSwitch.isBlack() ? game.getWhiteTeam() : game.getBlackTeam()).add(index, toSwitch);
+		toSwitch.setBlack(!toSwitch.isBlack());
+	}
+
+	private void moveCapturedPieceToOrigin(MoveRecord record)
+	{
+		Piece toHome = record.getCaptured();
+		Square home = toHome.getOriginalSquare();
+		if (home == record.getCapturedSquare())
+			return;
+
+		Piece removed = home.getPiece();
+		if (removed != null)
+		{
+			List<Piece> team = removed.isBlack() ? record.getGame().getBlackTeam() : record.getGame().getWhiteTeam();
+			int index = team.indexOf(removed);
+			team.remove(index);
+			record.setRemoved(removed, index);
+		}
+
+		home.setPiece(toHome);
+		toHome.setIsCaptured(false);
+	}
+
+	private void undoMoveCapturedPieceToOrigin(MoveRecord record)
+	{
+		Piece toHome = record.getCaptured();
+		Square home = toHome.getOriginalSquare();
+		if (home == record.getCapturedSquare())
+			return;
+
+		Piece removed = record.getRemoved();
+		if (removed != null)
+			(removed.isBlack() ? record.getGame().getBlackTeam() : record.getGame().getWhiteTeam()).add(record.getRemovedIndex(),
+					removed);
+
+		home.setPiece(removed);
+		toHome.setIsCaptured(true);
+	}
+
+	private void atomicCapture(MoveRecord record)
+	{
+		Piece suicide = record.getMovedPiece();
+		for (Square square : getBlastSquares(record.getCapturedSquare(), record.getCaptured().getBoard()))
+		{
+			if (square == null)
+				continue;
+			Piece p = square.getPiece();
+			if (p != null && (!(p.getName().equals(Messages.getString("pawn"))) && p != suicide) && p != record.getCaptured()) //$NON-NLS-1$
+			{
+				record.addExploded(p);
+				p.setIsCaptured(true);
+				square.setPiece(null);
+			}
+		}
+		record.addExploded(suicide);
+		suicide.setIsCaptured(true);
+		suicide.getSquare().setPiece(null);
+	}
+
 	/**
 	 * Capture removes pieces from 8 surrounding squares, including the
 	 * capturing piece - with the exception of pawns, unless the pawn is either
@@ -228,17 +379,44 @@ public enum AfterMove
 			return;
 		Piece captured = move.getCaptured();
 		Piece suicide = move.getPiece();
-		Square curSquare = captured.getSquare();
-		Board board = captured.getBoard();
+		Square[] squares = getBlastSquares(captured.getSquare(), captured.getBoard());
+		List<Piece> exploded = Lists.newArrayList();
+		for (Square s : squares)
+		{
+			if (s == null)
+				continue;
+			Piece p = s.getPiece();
+			if (p != null && (!(p.getName().equals(Messages.getString("pawn"))) && p != suicide) && p != captured) //$NON-NLS-1$
+			{
+				exploded.add(p);
+				p.setIsCaptured(true);
+				p.getSquare().setPiece(null);
+			}
+		}
+		exploded.add(suicide);
+		suicide.setIsCaptured(true);
+		suicide.getSquare().setPiece(null);
+		Piece[] toReturn = new Piece[exploded.size()];
+		move.setExploded(exploded.toArray(toReturn));
+	}
+
+	/**
+	 * @param center The Square of the captured Piece
+	 * @param board The Board of the captured Piece
+	 * @return The Squares an atomic capture clears, with null for the ones
+	 * off the Board
+	 */
+	private Square[] getBlastSquares(Square center, Board board)
+	{
 		Square[] squares = new Square[9];
 		int n = 0;
 		boolean wraparound = board.isWrapAround();
-		int upperCol = curSquare.getCol() + 1;
-		for (int i = curSquare.getRow() - 1; i <= 1 + curSquare.getRow(); i++)
+		int upperCol = center.getCol() + 1;
+		for (int i = center.getRow() - 1; i <= 1 + center.getRow(); i++)
 		{
-			for (int j = curSquare.getCol() - 1; j <= upperCol; j++)
+			for (int j = center.getCol() - 1; j <= upperCol; j++)
 			{
-				upperCol = curSquare.getCol() + 1;
+				upperCol = center.getCol() + 1;
 				if (board.isRowValid(i))
 				{
 					if (!wraparound && !board.isColValid(j))
@@ -258,24 +436,7 @@ public enum AfterMove
 				}
 			}
 		}
-		List<Piece> exploded = Lists.newArrayList();
-		for (Square s : squares)
-		{
-			if (s == null)
-				continue;
-			Piece p = s.getPiece();
-			if (p != null && (!(p.getName().equals(Messages.getString("pawn"))) && p != suicide) && p != captured) //$NON-NLS-1$
-			{
-				exploded.add(p);
-				p.setIsCaptured(true);
-				p.getSquare().setPiece(null);
-			}
-		}
-		exploded.add(suicide);
-		suicide.setIsCaptured(true);
-		suicide.getSquare().setPiece(null);
-		Piece[] toReturn = new Piece[exploded.size()];
-		move.setExploded(exploded.toArray(toReturn));
+		return squares;
 	}
 
 	private void undoAtomicCapture(Move move)
@@ -32,9 +32,12 @@ public enum GetBoard
 
 	private Board getOppositeBoard(Board startBoard)
 	{
-		if (startBoard.equals(mGame.getBoards()[0]))
-			return mGame.getBoards()[1];
-		return mGame.getBoards()[0];
+		// the Board knows its own Game, which may be a copy searched on
+		// another thread
+		Game game = startBoard.getGame();
+		if (startBoard.equals(game.getBoards()[0]))
+			return game.getBoards()[1];
+		return game.getBoards()[0];
 	}
 
 	private Game mGame;
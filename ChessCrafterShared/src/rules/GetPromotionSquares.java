@@ -2,6 +2,7 @@ package rules;
 
 import java.util.List;
 
+import models.Board;
 import models.Piece;
 import models.Square;
 
@@ -23,6 +24,26 @@ public enum GetPromotionSquares
 		}
 	}
 
+	/**
+	 * @param piece The Piece to promote
+	 * @param square The Square the Piece moved to
+	 * @return If the Square is one of the Piece's promotion Squares; the same
+	 * answer as searching getPromotionSquares, without building the List
+	 */
+	public boolean isPromotionSquare(Piece piece, Square square)
+	{
+		switch (this)
+		{
+		case CLASSIC:
+			Board board = piece.getBoard();
+			int row = piece.isBlack() ? 1 : board.getMaxRow();
+			return board.isColValid(square.getCol()) && board.getSquare(row, square.getCol()) == square;
+		case NO_PROMOTIONS:
+		default:
+			return false;
+		}
+	}
+
 	private List<Square> classicPromoSquares(Piece piece)
 	{
 		List<Square> toReturn = Lists.newArrayList();
@@ -28,101 +28,167 @@ public class NextTurn implements Serializable
 	}
 
 	public boolean getNextTurn()
+	{
+		return getNextTurn(true);
+	}
+
+	public boolean undo(boolean isPlayback)
+	{
+		return undo(isPlayback, true);
+	}
+
+	/**
+	 * Count a move without telling the GUI about it, for moves made while
+	 * searching or validating
+	 * 
+	 * @return If the turn passed to the other team
+	 */
+	public boolean countMove()
+	{
+		boolean wasBlackMove = mIsBlackMove;
+		return getNextTurn(false) != wasBlackMove;
+	}
+
+	/**
+	 * Take back a move counted by countMove, without telling the GUI about it
+	 */
+	public void uncountMove()
+	{
+		undo(false, false);
+	}
+
+	public int getWhiteMoves()
+	{
+		return mNumberOfWhiteMovesBeforeTurnChange;
+	}
+
+	public int getBlackMoves()
+	{
+		return mNumberOfBlackMovesBeforeTurnChange;
+	}
+
+	public int getIncrement()
+	{
+		return mTurnIncrement;
+	}
+
+	public NextTurnOption getOption()
+	{
+		return mNextTurnOption;
+	}
+
+	/**
+	 * @return The number of moves made so far in the current turn
+	 */
+	public int getMovesMade()
+	{
+		return mCurrentNumberOfMovesMade;
+	}
+
+	public boolean isBlackMove()
+	{
+		return mIsBlackMove;
+	}
+
+	/**
+	 * Pick up in the middle of a game, from a position written down with the
+	 * state of its turn, without telling the GUI about it
+	 * 
+	 * @param isBlackMove Whose turn it is
+	 * @param movesMade The number of moves made so far in the turn
+	 * @param whiteMoves The number of moves white makes in a turn, with the
+	 * increments so far
+	 * @param blackMoves The number of moves black makes in a turn, with the
+	 * increments so far
+	 */
+	public void setTurn(boolean isBlackMove, int movesMade, int whiteMoves, int blackMoves)
+	{
+		mIsBlackMove = isBlackMove;
+		mCurrentNumberOfMovesMade = movesMade;
+		mNumberOfWhiteMovesBeforeTurnChange = whiteMoves;
+		mNumberOfBlackMovesBeforeTurnChange = blackMoves;
+	}
+
+	private boolean getNextTurn(boolean isNotifying)
 	{
 		switch (mNextTurnOption)
 		{
 		case CLASSIC:
-			return classicNextTurn();
+			return classicNextTurn(isNotifying);
 		case INCREASING_TOGETHER:
-			return increasingTurnsTogether();
+			return increasingTurnsTogether(isNotifying);
 		case INCREASING_SEPARATELY:
-			return increasingTurnsSeparately();
+			return increasingTurnsSeparately(isNotifying);
 		case DIFFERENT_NUMBER_OF_TURNS:
-			return differentNumberOfTurns();
+			return differentNumberOfTurns(isNotifying);
 		default:
 			return false;
 		}
 	}
 
-	public boolean undo(boolean isPlayback)
+	private boolean undo(boolean isPlayback, boolean isNotifying)
 	{
 		switch (mNextTurnOption)
 		{
 		case CLASSIC:
-			return undoClassic(isPlayback);
+			return undoClassic(isPlayback && isNotifying);
 		case INCREASING_TOGETHER:
-			return undoIncreasingTurnsTogether();
+			return undoIncreasingTurnsTogether(isNotifying);
 		case INCREASING_SEPARATELY:
-			return undoIncreasingTurnsSeparately();
+			return undoIncreasingTurnsSeparately(isNotifying);
 		case DIFFERENT_NUMBER_OF_TURNS:
-			return undoDifferentNumberOfTurns();
+			return undoDifferentNumberOfTurns(isNotifying);
 		default:
 			return false;
 		}
 	}
 
-	public int getWhiteMoves()
-	{
-		return mNumberOfWhiteMovesBeforeTurnChange;
-	}
-
-	public int getBlackMoves()
-	{
-		return mNumberOfBlackMovesBeforeTurnChange;
-	}
-
-	public int getIncrement()
-	{
-		return mTurnIncrement;
-	}
-
-	private boolean classicNextTurn()
+	private boolean classicNextTurn(boolean isNotifying)
 	{
 		mIsBlackMove = !mIsBlackMove;
-		GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+		showTurn(isNotifying);
 
 		return mIsBlackMove;
 	}
 
-	private boolean undoClassic(boolean isPlayback)
+	private boolean undoClassic(boolean isNotifying)
 	{
 		mIsBlackMove = !mIsBlackMove;
-		if (isPlayback)
-			GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+		showTurn(isNotifying);
 
 		return mIsBlackMove;
 	}
 
-	private boolean increasingTurnsTogether()
+	private boolean increasingTurnsTogether(boolean isNotifying)
 	{
 		if (++mCurrentNumberOfMovesMade >= mNumberOfWhiteMovesBeforeTurnChange)
 		{
 			mIsBlackMove = !mIsBlackMove;
-			GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+			showTurn(isNotifying);
 			mNumberOfWhiteMovesBeforeTurnChange += mTurnIncrement;
 			mCurrentNumberOfMovesMade = 0;
 		}
 		return mIsBlackMove;
 	}
 
-	private boolean undoIncreasingTurnsTogether()
+	private boolean undoIncreasingTurnsTogether(boolean isNotifying)
 	{
 		if (--mCurrentNumberOfMovesMade < 0)
 		{
 			mIsBlackMove = !mIsBlackMove;
-			GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+			showTurn(isNotifying);
 			mNumberOfWhiteMovesBeforeTurnChange -= mTurnIncrement;
 			mCurrentNumberOfMovesMade = mNumberOfWhiteMovesBeforeTurnChange - 1;
 		}
 		return mIsBlackMove;
 	}
 
-	private boolean increasingTurnsSeparately()
+	private boolean increasingTurnsSeparately(boolean isNotifying)
 	{
 		if (++mCurrentNumberOfMovesMade >= (mIsBlackMove ? mNumberOfBlackMovesBeforeTurnChange : mNumberOfWhiteMovesBeforeTurnChange))
 		{
 			mIsBlackMove = !mIsBlackMove;
-			GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+			showTurn(isNotifying);
 			mNumberOfBlackMovesBeforeTurnChange += mTurnIncrement;
 			mNumberOfWhiteMovesBeforeTurnChange += mTurnIncrement;
 			mCurrentNumberOfMovesMade = 0;
@@ -130,44 +196,50 @@ public class NextTurn implements Serializable
 		return mIsBlackMove;
 	}
 
-	private boolean undoIncreasingTurnsSeparately()
+	private boolean undoIncreasingTurnsSeparately(boolean isNotifying)
 	{
 		if (--mCurrentNumberOfMovesMade < 0)
 		{
 			mIsBlackMove = !mIsBlackMove;
 			mNumberOfBlackMovesBeforeTurnChange -= mTurnIncrement;
 			mNumberOfWhiteMovesBeforeTurnChange -= mTurnIncrement;
-			GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+			showTurn(isNotifying);
 
-			mCurrentNumberOfMovesMade = mIsBlackMove ? mNumberOfBlackMovesBeforeTurnChange : mNumberOfWhiteMovesBeforeTurnChange;
+			mCurrentNumberOfMovesMade = (mIsBlackMove ? mNumberOfBlackMovesBeforeTurnChange : mNumberOfWhiteMovesBeforeTurnChange) - 1;
 		}
 		return mIsBlackMove;
 	}
 
-	private boolean differentNumberOfTurns()
+	private boolean differentNumberOfTurns(boolean isNotifying)
 	{
 		if (++mCurrentNumberOfMovesMade >= (mIsBlackMove ? mNumberOfBlackMovesBeforeTurnChange : mNumberOfWhiteMovesBeforeTurnChange))
 		{
 			mIsBlackMove = !mIsBlackMove;
-			GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+			showTurn(isNotifying);
 
 			mCurrentNumberOfMovesMade = 0;
 		}
 		return mIsBlackMove;
 	}
 
-	private boolean undoDifferentNumberOfTurns()
+	private boolean undoDifferentNumberOfTurns(boolean isNotifying)
 	{
 		if (--mCurrentNumberOfMovesMade < 0)
 		{
 			mIsBlackMove = !mIsBlackMove;
-			GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+			showTurn(isNotifying);
 
-			mCurrentNumberOfMovesMade = mIsBlackMove ? mNumberOfBlackMovesBeforeTurnChange : mNumberOfWhiteMovesBeforeTurnChange;
+			mCurrentNumberOfMovesMade = (mIsBlackMove ? mNumberOfBlackMovesBeforeTurnChange : mNumberOfWhiteMovesBeforeTurnChange) - 1;
 		}
 		return mIsBlackMove;
 	}
 
+	private void showTurn(boolean isNotifying)
+	{
+		if (isNotifying)
+			GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+	}
+
 	private NextTurnOption mNextTurnOption;
 	private int mNumberOfWhiteMovesBeforeTurnChange;
 	private int mNumberOfBlackMovesBeforeTurnChange;
@@ -1,5 +1,6 @@
 package rules;
 
+import java.io.IOException;
 import java.util.List;
 
 import javax.swing.JOptionPane;
@@ -47,6 +48,83 @@ public enum Promote
 		}
 	}
 
+	/**
+	 * Promote a Piece without asking the player anything, for moves made
+	 * while searching or validating
+	 * 
+	 * @param pieceToPromote The Piece that reached a promotion Square
+	 * @param pieceTypeToPromoteTo The name of the Piece to promote to, or null
+	 * for the first one the Piece promotes to
+	 * @return The promoted Piece, which has replaced the old one in its team
+	 * and on its Square, or the old Piece if it doesn't promote
+	 * @throws IllegalArgumentException If the Piece can't promote to the given
+	 * name; nothing is changed then
+	 */
+	public Piece promotePieceQuietly(Piece pieceToPromote, String pieceTypeToPromoteTo)
+	{
+		if (!checkQuietPromotion(pieceToPromote, pieceTypeToPromoteTo))
+			return pieceToPromote;
+
+		// the Game comes from the Piece, since searches on other threads
+		// promote in their own copies of the Game
+		Game game = pieceToPromote.getBoard().getGame();
+		String promotedName = (pieceTypeToPromoteTo == null) ? pieceToPromote.getPromotesTo().get(0) : pieceTypeToPromoteTo;
+		List<Piece> team = pieceToPromote.isBlack() ? game.getBlackTeam() : game.getWhiteTeam();
+		int index = team.indexOf(pieceToPromote);
+		if (index < 0)
+			throw new IllegalArgumentException(pieceToPromote.getName() + " isn't on its team"); //$NON-NLS-1$
+
+		Piece promoted;
+		try
+		{
+			promoted = PieceBuilder.makeCachedPiece(promotedName, pieceToPromote.isBlack(), pieceToPromote.getSquare(),
+					pieceToPromote.getBoard());
+		}
+		catch (IOException e)
+		{
+			// the type couldn't be read, before the new Piece took the Square
+			throw new IllegalStateException(e);
+		}
+		team.set(index, promoted);
+		promoted.setMoveCount(pieceToPromote.getMoveCount());
+		return promoted;
+	}
+
+	/**
+	 * Check that promotePieceQuietly can promote a Piece to the given name,
+	 * so moves can be turned down before anything about them has changed
+	 * 
+	 * @param pieceToPromote The Piece that would reach a promotion Square
+	 * @param pieceTypeToPromoteTo The name of the Piece to promote to, or null
+	 * for the first one the Piece promotes to
+	 * @return False if the Piece doesn't promote at all
+	 * @throws IllegalArgumentException If the Piece promotes, but not to the
+	 * given name
+	 * @throws IllegalStateException If the type it promotes to hasn't been
+	 * cached by Game.loadPromotionTypes, so it would have to be read from disk
+	 */
+	public boolean checkQuietPromotion(Piece pieceToPromote, String pieceTypeToPromoteTo)
+	{
+		List<String> promotesTo = pieceToPromote.getPromotesTo();
+		if (this == NO_PROMOTIONS || promotesTo == null || promotesTo.isEmpty())
+			return false;
+
+		Game game = pieceToPromote.getBoard().getGame();
+		String objectiveName = (pieceToPromote.isBlack() ? game.getBlackRules() : game.getWhiteRules()).getObjectiveName();
+		if (pieceToPromote.getName().equals(objectiveName))
+			return false;
+
+		if (pieceTypeToPromoteTo != null && !promotesTo.contains(pieceTypeToPromoteTo))
+		{
+			throw new IllegalArgumentException(pieceToPromote.getName() + " can't promote to " + pieceTypeToPromoteTo); //$NON-NLS-1$
+		}
+
+		String promotedName = (pieceTypeToPromoteTo == null) ? promotesTo.get(0) : pieceTypeToPromoteTo;
+		if (!PieceBuilder.isPieceType(promotedName))
+			throw new IllegalStateException(promotedName + " hasn't been loaded"); //$NON-NLS-1$
+		return !promotedName.equals(pieceToPromote.getName());
+	}
+
 	public void setGame(Game game)
 	{
 		mGame = game;
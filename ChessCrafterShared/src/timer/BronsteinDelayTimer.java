@@ -49,6 +49,18 @@ class BronsteinDelayTimer extends ChessTimer
 			mListener.onTimerStop();
 	}
 
+	@Override
+	public TimerTypes getType()
+	{
+		return TimerTypes.BRONSTEIN_DELAY;
+	}
+
+	@Override
+	public long getIncrementAmount()
+	{
+		return mIncrementAmount;
+	}
+
 	private static final long serialVersionUID = 5421690863308194342L;
 
 	private long mIncrementAmount;
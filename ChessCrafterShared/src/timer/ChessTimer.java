@@ -94,6 +94,21 @@ public abstract class ChessTimer implements Serializable
 		return mCurrentTime;
 	}
 
+	/**
+	 * @return The type of this timer
+	 */
+	public abstract TimerTypes getType();
+
+	/**
+	 * @return The time, in milliseconds, this timer gives back or doesn't
+	 * count on every move: the Fischer increment, the most a Bronstein delay
+	 * gives back, or the simple delay. 0 for the other timers.
+	 */
+	public long getIncrementAmount()
+	{
+		return 0;
+	}
+
 	/**
 	 * Reset the timer to the original settings
 	 */
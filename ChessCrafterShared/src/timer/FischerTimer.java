@@ -52,6 +52,18 @@ class FischerTimer extends ChessTimer
 			mListener.onTimerStop();
 	}
 
+	@Override
+	public TimerTypes getType()
+	{
+		return mIsFisherAfterTimer ? TimerTypes.FISCHER_AFTER : TimerTypes.FISCHER;
+	}
+
+	@Override
+	public long getIncrementAmount()
+	{
+		return mIncrementAmount;
+	}
+
 	private static final long serialVersionUID = 6129683219865263879L;
 
 	private long mIncrementAmount;
@@ -40,5 +40,11 @@ class HourGlassTimer extends ChessTimer
 			mListener.onTimerStart();
 	}
 
+	@Override
+	public TimerTypes getType()
+	{
+		return TimerTypes.HOUR_GLASS;
+	}
+
 	private static final long serialVersionUID = 1345233312932413270L;
 }
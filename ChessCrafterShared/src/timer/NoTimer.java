@@ -27,5 +27,11 @@ class NoTimer extends ChessTimer
 	{
 	}
 
+	@Override
+	public TimerTypes getType()
+	{
+		return TimerTypes.NO_TIMER;
+	}
+
 	private static final long serialVersionUID = -5680712751187652015L;
 }
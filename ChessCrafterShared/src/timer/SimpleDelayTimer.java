@@ -36,6 +36,18 @@ class SimpleDelayTimer extends ChessTimer
 			mListener.onTimerStop();
 	}
 
+	@Override
+	public TimerTypes getType()
+	{
+		return TimerTypes.SIMPLE_DELAY;
+	}
+
+	@Override
+	public long getIncrementAmount()
+	{
+		return mDelayTime;
+	}
+
 	private static final long serialVersionUID = 5421690863308194342L;
 
 	private long mDelayTime;
@@ -32,5 +32,11 @@ class WordTimer extends ChessTimer
 		mClockDirection = -1;
 	}
 
+	@Override
+	public TimerTypes getType()
+	{
+		return TimerTypes.WORD;
+	}
+
 	private static final long serialVersionUID = -3488243754798571897L;
 }
@@ -30,6 +30,16 @@ public final class FileUtility
 		return new File(path + SLASH + aiName);
 	}
 
+	/**
+	 * @return The directory compiled AI plugins are kept in
+	 */
+	public static File getAICacheDir()
+	{
+		File file = new File(HIDDEN_DIR + SLASH + AI_CACHE);
+		file.mkdirs();
+		return file;
+	}
+
 	public static String getImagePath(String imageName)
 	{
 		File file = new File(HIDDEN_DIR + SLASH + IMAGES);
@@ -110,6 +120,15 @@ public final class FileUtility
 		return new File(path + SLASH + completedGameFileName);
 	}
 
+	/**
+	 * @return The GameArchive file completed games are kept in
+	 */
+	public static File getGameArchiveFile()
+	{
+		new File(HIDDEN_DIR).mkdirs();
+		return new File(HIDDEN_DIR + SLASH + GAME_ARCHIVE);
+	}
+
 	public static File getPreferencesFile()
 	{
 		new File(HIDDEN_DIR).mkdirs();
@@ -187,6 +206,8 @@ public final class FileUtility
 	
 	private static final String HIDDEN_DIR;
 	private static final String AI = "AI"; //$NON-NLS-1$
+	private static final String AI_CACHE = "aiCache"; //$NON-NLS-1$
+	private static final String GAME_ARCHIVE = "completedGames.archive"; //$NON-NLS-1$
 	private static final String IMAGES = "images"; //$NON-NLS-1$
 	private static final String VARIANTS = "variants"; //$NON-NLS-1$
 	private static final String PIECES = "pieces"; //$NON-NLS-1$
@@ -0,0 +1,307 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import gui.PlayGameScreen;
+import gui.PlayNetGameScreen;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import logic.GameBuilder;
+import logic.Move;
+import models.Board;
+import models.Game;
+import models.Game.TurnListener;
+import models.Piece;
+import models.Rules;
+import models.Square;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import rules.GetBoard;
+import utility.ChessCrafter;
+import utility.GuiUtility;
+
+import ai.AIAdapter.AIBoard;
+import ai.AIAdapter.AIPiece;
+import ai.AIAdapter.AISquare;
+
+public class AIAdapterTest
+{
+	@Before
+	public void setUp() throws Exception
+	{
+		mGame = GameBuilder.newClassicGame();
+		mGame.setIsPlayback(true);
+		mBoard = mGame.getBoards()[0];
+		mAdapter = new AIAdapter(mGame);
+	}
+
+	@After
+	public void tearDown()
+	{
+		mAdapter.stopGame();
+		GuiUtility.setChessCrafter(null);
+	}
+
+	@Test
+	public final void testBoardsAreLiveViews() throws Exception
+	{
+		AIBoard[] boards = mAdapter.getBoards();
+		AISquare origin = boards[0].getSquare(2, 5);
+		AIPiece pawn = origin.getPiece();
+		assertEquals(2, pawn.getLegalDests().size());
+
+		assertTrue(mGame.makeMove(mBoard.getSquare(2, 5), mBoard.getSquare(4, 5), null));
+		AIBoard[] after = mAdapter.getBoards();
+		assertSame(boards[0], after[0]);
+		assertNull(origin.getPiece());
+		assertSame(pawn, after[0].getSquare(4, 5).getPiece());
+		assertSame(boards[0], pawn.getBoard());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public final void testLegalDestsCantBeChanged() throws Exception
+	{
+		List<AISquare> dests = mAdapter.getBoards()[0].getSquare(1, 2).getPiece().getLegalDests();
+		dests.remove(0);
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test(expected = UnsupportedOperationException.class)
+	public final void testSquaresCantBeChanged() throws Exception
+	{
+		mAdapter.getBoards()[0].getSquare(4, 4).setPiece(null);
+	}
+
+	@Test
+	public final void testPluginIsAskedOnceTheMoveIsPlayed() throws Exception
+	{
+		playWithoutGui();
+		FirstMovePlugin plugin = new FirstMovePlugin();
+		mAdapter.runGame(plugin, mScreen);
+
+		final CountDownLatch whiteToMove = new CountDownLatch(1);
+		mGame.addTurnListener(new TurnListener()
+		{
+			@Override
+			public void onTurnChanged(boolean isBlackMove)
+			{
+				if (!isBlackMove)
+					whiteToMove.countDown();
+			}
+		});
+		mGame.playMove(new Move(mBoard, mBoard.getSquare(2, 5), mBoard.getSquare(4, 5)));
+
+		assertTrue(whiteToMove.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		assertEquals(1, plugin.mCalls.get());
+		// white's Move was all played before the plug in was asked
+		assertEquals(1, plugin.mHistorySize);
+		assertEquals(2, mGame.getHistory().size());
+		assertFalse(mGame.isBlackMove());
+	}
+
+	@Test
+	public final void testPluginIsntAskedAfterStopGame() throws Exception
+	{
+		playWithoutGui();
+		FirstMovePlugin plugin = new FirstMovePlugin();
+		mAdapter.runGame(plugin, mScreen);
+		mAdapter.stopGame();
+
+		mGame.playMove(new Move(mBoard, mBoard.getSquare(2, 5), mBoard.getSquare(4, 5)));
+		assertTrue(mGame.isBlackMove());
+		assertEquals(0, plugin.mCalls.get());
+		assertEquals(1, mGame.getHistory().size());
+	}
+
+	/**
+	 * In a variant where every move lands on the other Board, the built in
+	 * AI's move is played on the Board of its destination, and a move to the
+	 * Board of its origin isn't played at all
+	 */
+	@Test
+	public final void testMovesLandOnTheBoardOfTheirDestination() throws Exception
+	{
+		Game game = newTwoBoardGame();
+		Board[] boards = game.getBoards();
+		AIAdapter adapter = new AIAdapter(game);
+
+		// the origin of a move to the first Board is on the second, which is
+		// empty
+		assertFalse(adapter.playMove(new FakeMove(0, 2, 1, 4, 1, null)));
+		assertEquals(0, game.getHistory().size());
+
+		FakeMove move = new AlphaBetaPlugin(game, TIME_BUDGET_MILLIS).getMove(adapter.getBoards());
+		assertEquals(1, move.mBoardIndex);
+		Square origin = boards[0].getSquare(move.mOriginRow, move.mOriginColumn);
+		Piece piece = origin.getPiece();
+		assertTrue(adapter.playMove(move));
+		assertNull(origin.getPiece());
+		assertNull(boards[0].getSquare(move.mDestinationRow, move.mDestinationColumn).getPiece());
+		assertSame(piece, boards[1].getSquare(move.mDestinationRow, move.mDestinationColumn).getPiece());
+		assertEquals(1, game.getHistory().size());
+	}
+
+	/**
+	 * NewGamePanel offers the built in AI, pondering, for every variant, so
+	 * it has to answer on the Board of its destination when it's playing
+	 * black against a player on the GUI
+	 */
+	@Test
+	public final void testBuiltInAIPlaysTwoBoardVariants() throws Exception
+	{
+		mGame = newTwoBoardGame();
+		mAdapter = new AIAdapter(mGame);
+		Board[] boards = mGame.getBoards();
+		playWithoutGui();
+		AlphaBetaPlugin plugin = new AlphaBetaPlugin(mGame, TIME_BUDGET_MILLIS, 2);
+		plugin.setPondering(true);
+		try
+		{
+			mAdapter.runGame(plugin, mScreen);
+
+			final CountDownLatch whiteToMove = new CountDownLatch(1);
+			mGame.addTurnListener(new TurnListener()
+			{
+				@Override
+				public void onTurnChanged(boolean isBlackMove)
+				{
+					if (!isBlackMove)
+						whiteToMove.countDown();
+				}
+			});
+			mGame.playMove(mGame.fakeToRealMove(new FakeMove(1, 2, 5, 4, 5, null)));
+
+			assertTrue(whiteToMove.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			assertEquals(2, mGame.getHistory().size());
+			Move reply = mGame.getHistory().get(1);
+			assertSame(boards[1], reply.getDest().getBoard());
+			assertTrue(reply.getDest().getPiece().isBlack());
+		}
+		finally
+		{
+			mAdapter.stopGame();
+			plugin.getSearch().shutdown();
+		}
+	}
+
+	/**
+	 * @return A classic setup where every move lands on the other Board
+	 */
+	static Game newTwoBoardGame() throws Exception
+	{
+		Game classic = GameBuilder.newClassicGame();
+		Board[] boards = { classic.getBoards()[0], new Board(8, 8, false) };
+		Rules whiteRules = new Rules(false);
+		Rules blackRules = new Rules(true);
+		whiteRules.setGetBoard(GetBoard.OPPOSITE_BOARD);
+		blackRules.setGetBoard(GetBoard.OPPOSITE_BOARD);
+
+		Game game = new Game(TWO_BOARDS, boards, classic.getWhiteTeam(), classic.getBlackTeam(), whiteRules, blackRules,
+				classic.getWhitePromotionMap(), classic.getBlackPromotionMap());
+		game.setIsPlayback(true);
+		return game;
+	}
+
+	/**
+	 * Turns only change outside of playback, which tells the GUI about every
+	 * Move, so stand in for it
+	 */
+	private void playWithoutGui()
+	{
+		final PlayGameScreen playGameScreen = stub(PlayGameScreen.class, new DefaultHandler());
+		GuiUtility.setChessCrafter(stub(ChessCrafter.class, new DefaultHandler()
+		{
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args)
+			{
+				if (method.getName().equals("getPlayGameScreen")) //$NON-NLS-1$
+					return playGameScreen;
+				return super.invoke(proxy, method, args);
+			}
+		}));
+		mScreen = stub(PlayNetGameScreen.class, new DefaultHandler()
+		{
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args)
+			{
+				if (method.getName().equals("setIsRunning")) //$NON-NLS-1$
+					mIsRunning = (Boolean) args[0];
+				else if (method.getName().equals("isRunning")) //$NON-NLS-1$
+					return mIsRunning;
+				return super.invoke(proxy, method, args);
+			}
+
+			private boolean mIsRunning;
+		});
+		mGame.setIsPlayback(false);
+	}
+
+	private static <T> T stub(Class<T> type, InvocationHandler handler)
+	{
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+
+	/**
+	 * Does nothing, and answers false to every question
+	 */
+	private static class DefaultHandler implements InvocationHandler
+	{
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args)
+		{
+			return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+		}
+	}
+
+	/**
+	 * Plays the first legal move it finds for black
+	 */
+	private class FirstMovePlugin implements AIPlugin
+	{
+		@Override
+		public FakeMove getMove(AIBoard[] boards)
+		{
+			mCalls.incrementAndGet();
+			mHistorySize = mGame.getHistory().size();
+			AIBoard board = boards[0];
+			for (int row = 1; row <= board.maxRow(); row++)
+			{
+				for (int col = 1; col <= board.maxCol(); col++)
+				{
+					AIPiece piece = board.getSquare(row, col).getPiece();
+					if (piece != null && piece.isBlack() && !piece.getLegalDests().isEmpty())
+					{
+						AISquare dest = piece.getLegalDests().get(0);
+						return new FakeMove(0, row, col, dest.getRow(), dest.getCol(), null);
+					}
+				}
+			}
+			return null;
+		}
+
+		private final AtomicInteger mCalls = new AtomicInteger();
+		private volatile int mHistorySize;
+	}
+
+	private static final int TIMEOUT_SECONDS = 10;
+	private static final long TIME_BUDGET_MILLIS = 200L;
+	private static final String TWO_BOARDS = "Two Boards"; //$NON-NLS-1$
+
+	private Game mGame;
+	private Board mBoard;
+	private AIAdapter mAdapter;
+	private PlayNetGameScreen mScreen;
+}
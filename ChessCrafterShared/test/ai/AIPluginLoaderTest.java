@@ -0,0 +1,98 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class AIPluginLoaderTest
+{
+	@Before
+	public void setUp() throws Exception
+	{
+		mDir = Files.createTempDir();
+		mLoader = new AIPluginLoader(new File(mDir, "cache")); //$NON-NLS-1$
+	}
+
+	@Test
+	public final void testSourceIsCompiledOnce() throws Exception
+	{
+		File source = writeSource(PLUGIN_SOURCE);
+		Class<? extends AIPlugin> pluginClass = mLoader.loadPluginClass(source);
+		assertEquals(1, mLoader.getCacheDir().list().length);
+
+		// a new loader finds the classes compiled by the first one
+		AIPluginLoader loader = new AIPluginLoader(mLoader.getCacheDir());
+		long compiledAt = mLoader.getCacheDir().listFiles()[0].lastModified();
+		assertTrue(loader.newPlugin(source) instanceof AIPlugin);
+		assertNotSame(pluginClass, loader.loadPluginClass(source));
+		assertSame(pluginClass, mLoader.loadPluginClass(source));
+		assertEquals(compiledAt, mLoader.getCacheDir().listFiles()[0].lastModified());
+
+		// a changed source is compiled again
+		writeSource(PLUGIN_SOURCE.replace("return null;", "return new FakeMove(0, 1, 1, 2, 1, null);")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(mLoader.loadPluginClass(source) != pluginClass);
+		assertEquals(2, mLoader.getCacheDir().list().length);
+	}
+
+	@Test
+	public final void testBrokenSourceIsNotCached() throws Exception
+	{
+		File source = writeSource(PLUGIN_SOURCE.replace("return null;", "")); //$NON-NLS-1$ //$NON-NLS-2$
+		try
+		{
+			mLoader.loadPluginClass(source);
+			fail();
+		}
+		catch (AIPluginLoader.LoadException e)
+		{
+			assertTrue(e.isCompilationFailure());
+		}
+		assertEquals(0, mLoader.getCacheDir().list().length);
+	}
+
+	@Test
+	public final void testJarPluginsAreFoundByServiceLoader() throws Exception
+	{
+		File source = writeSource(PLUGIN_SOURCE);
+		mLoader.loadPluginClass(source);
+		File classFile = new File(mLoader.getCacheDir().listFiles()[0], PLUGIN_NAME + ".class"); //$NON-NLS-1$
+
+		File jar = new File(mDir, PLUGIN_NAME + ".jar"); //$NON-NLS-1$
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+		out.putNextEntry(new JarEntry(PLUGIN_NAME + ".class")); //$NON-NLS-1$
+		out.write(Files.toByteArray(classFile));
+		out.putNextEntry(new JarEntry("META-INF/services/" + AIPlugin.class.getName())); //$NON-NLS-1$
+		out.write(PLUGIN_NAME.getBytes(Charsets.UTF_8));
+		out.close();
+
+		assertEquals(PLUGIN_NAME, mLoader.newPlugin(jar).getClass().getName());
+	}
+
+	private File writeSource(String source) throws Exception
+	{
+		File file = new File(mDir, PLUGIN_NAME + ".java"); //$NON-NLS-1$
+		Files.write(source, file, Charsets.UTF_8);
+		return file;
+	}
+
+	private static final String PLUGIN_NAME = "TestPlugin"; //$NON-NLS-1$
+	private static final String PLUGIN_SOURCE = "import ai.*;\nimport ai.AIAdapter.*;\n" //$NON-NLS-1$
+			+ "public class TestPlugin implements AIPlugin {\n" //$NON-NLS-1$
+			+ "public FakeMove getMove(AIBoard[] boards) { return null; }\n}\n"; //$NON-NLS-1$
+
+	private File mDir;
+	private AIPluginLoader mLoader;
+}
@@ -0,0 +1,13 @@
+package ai;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({ AIAdapterTest.class, AIPluginLoaderTest.class, AlphaBetaPluginTest.class, HeadlessGameTest.class, ParallelSearchTest.class, PieceSquareEvaluatorTest.class, SearchEngineTest.class, TimeManagerTest.class,
+		TournamentRunnerTest.class, TranspositionTableTest.class })
+public class AISuite
+{
+
+}
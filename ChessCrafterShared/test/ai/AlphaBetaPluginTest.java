@@ -0,0 +1,97 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import logic.GameBuilder;
+import models.Board;
+import models.Game;
+import models.PackedMove;
+import models.Square;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AlphaBetaPluginTest
+{
+	@Before
+	public void setUp() throws Exception
+	{
+		mGame = GameBuilder.newClassicGame();
+		mGame.setIsPlayback(true);
+		mPlugin = new AlphaBetaPlugin(mGame, TIME_BUDGET_MILLIS);
+		mPlugin.setPondering(true);
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		mPlugin.setPondering(false);
+	}
+
+	@Test
+	public final void testPonderHitBecomesTheSearch() throws Exception
+	{
+		playPluginMove();
+		mPlugin.startPondering();
+		assertTrue(mGame.makeMove(getExpectedReply()));
+
+		playPluginMove();
+		assertEquals(1, mPlugin.getPonderHitCount());
+		assertEquals(0, mPlugin.getPonderMissCount());
+		assertTrue(mPlugin.getLastCompletedDepth() > 0);
+		// the ponder search ran as the search, so it has the statistics
+		assertEquals(mPlugin.getSearch().getNodeCount(), mPlugin.getLastNodeCount());
+		assertTrue(mPlugin.getLastNodeCount() > 0);
+	}
+
+	@Test
+	public final void testPonderMissIsThrownAway() throws Exception
+	{
+		playPluginMove();
+		mPlugin.startPondering();
+		int expectedReply = getExpectedReply();
+		for (int move : mGame.getLegalMoves())
+		{
+			if (move != expectedReply)
+			{
+				assertTrue(mGame.makeMove(move));
+				break;
+			}
+		}
+
+		playPluginMove();
+		assertEquals(0, mPlugin.getPonderHitCount());
+		assertEquals(1, mPlugin.getPonderMissCount());
+		assertEquals(mPlugin.getSearch().getNodeCount(), mPlugin.getLastNodeCount());
+	}
+
+	private int getExpectedReply()
+	{
+		return TranspositionTable.getMove(mPlugin.getSearch().getTranspositionTable().probe(mGame.getZobristKey()));
+	}
+
+	private void playPluginMove()
+	{
+		FakeMove fakeMove = mPlugin.getMove(null);
+		Board board = mGame.getBoards()[fakeMove.mBoardIndex];
+		Square origin = board.getSquare(fakeMove.mOriginRow, fakeMove.mOriginColumn);
+		Square dest = board.getSquare(fakeMove.mDestinationRow, fakeMove.mDestinationColumn);
+		for (int move : mGame.getLegalMoves())
+		{
+			if (mGame.getGeometry().getSquare(PackedMove.getOrigin(move)) == origin
+					&& mGame.getGeometry().getSquare(PackedMove.getDest(move)) == dest)
+			{
+				assertTrue(mGame.makeMove(move));
+				return;
+			}
+		}
+		throw new AssertionError();
+	}
+
+	private static final long TIME_BUDGET_MILLIS = 200;
+
+	private Game mGame;
+	private AlphaBetaPlugin mPlugin;
+}
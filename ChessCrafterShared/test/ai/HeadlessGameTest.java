@@ -0,0 +1,90 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import logic.GameBuilder;
+import logic.Result;
+import models.Game;
+
+import org.junit.Test;
+
+import rules.EndOfGame;
+import ai.AIAdapter.AIBoard;
+
+public class HeadlessGameTest
+{
+	@Test
+	public final void testChecksAreCounted() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.getWhiteRules().addEndOfGame(EndOfGame.CHECK_N_TIMES.init(1, null, false));
+		game.getBlackRules().addEndOfGame(EndOfGame.CHECK_N_TIMES.init(1, null, true));
+
+		// 1. e4 f5 2. Qh5+ checks once, and wins before black moves out of it
+		AIPlugin white = new ScriptedPlugin(new FakeMove(0, 2, 5, 4, 5, null), new FakeMove(0, 1, 4, 5, 8, null));
+		AIPlugin black = new ScriptedPlugin(new FakeMove(0, 7, 6, 5, 6, null));
+		HeadlessGame headlessGame = new HeadlessGame(game, white, black, MAX_PLIES);
+
+		assertEquals(Result.WHITE_WIN, headlessGame.play());
+		assertFalse(headlessGame.isForfeit());
+		assertEquals(3, headlessGame.getPlyCount());
+	}
+
+	@Test
+	public final void testObjectiveRulesOfClassicAreLeftToTheLegalMoves() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+
+		// the same check doesn't end a classic game
+		AIPlugin white = new ScriptedPlugin(new FakeMove(0, 2, 5, 4, 5, null), new FakeMove(0, 1, 4, 5, 8, null));
+		AIPlugin black = new ScriptedPlugin(new FakeMove(0, 7, 6, 5, 6, null), new FakeMove(0, 7, 7, 6, 7, null));
+		HeadlessGame headlessGame = new HeadlessGame(game, white, black, 4);
+
+		assertEquals(Result.DRAW, headlessGame.play());
+		assertEquals(4, headlessGame.getPlyCount());
+	}
+
+	/**
+	 * A FakeMove names the Board of its destination, as the GUI plays it, so
+	 * a move that names the Board of its origin instead forfeits
+	 */
+	@Test
+	public final void testMovesMustNameTheBoardOfTheirDestination() throws Exception
+	{
+		Game game = AIAdapterTest.newTwoBoardGame();
+
+		AIPlugin white = new ScriptedPlugin(new FakeMove(1, 2, 1, 4, 1, null));
+		AIPlugin black = new ScriptedPlugin(new FakeMove(0, 7, 1, 5, 1, null));
+		HeadlessGame headlessGame = new HeadlessGame(game, white, black, MAX_PLIES);
+
+		assertEquals(Result.WHITE_WIN, headlessGame.play());
+		assertTrue(headlessGame.isForfeit());
+		assertEquals(1, headlessGame.getPlyCount());
+	}
+
+	/**
+	 * Plays the given moves, then nothing
+	 */
+	private static final class ScriptedPlugin implements AIPlugin
+	{
+		ScriptedPlugin(FakeMove... moves)
+		{
+			mMoves = Arrays.asList(moves).iterator();
+		}
+
+		@Override
+		public FakeMove getMove(AIBoard[] boards)
+		{
+			return mMoves.hasNext() ? mMoves.next() : null;
+		}
+
+		private final Iterator<FakeMove> mMoves;
+	}
+
+	private static final int MAX_PLIES = 20;
+}
@@ -0,0 +1,104 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import logic.GameBuilder;
+import models.Board;
+import models.Game;
+import models.PackedMove;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelSearchTest
+{
+	@Before
+	public void setUp() throws Exception
+	{
+		mGame = GameBuilder.newClassicGame();
+		mGame.setIsPlayback(true);
+		mBoard = mGame.getBoards()[0];
+	}
+
+	@Test
+	public final void testCopySharesNothing() throws Exception
+	{
+		Game copy = mGame.copy();
+		assertEquals(mGame.getZobristKey(), copy.getZobristKey());
+
+		int[] moves = copy.getLegalMoves();
+		assertTrue(copy.makeMove(moves[0]));
+		assertTrue(mGame.getZobristKey() != copy.getZobristKey());
+		assertEquals(0, mGame.getMadeMoveCount());
+		assertEquals(moves.length, mGame.getLegalMoves().length);
+	}
+
+	@Test
+	public final void testHelpersFindTheSameMate() throws Exception
+	{
+		// 1. e4 e5 2. Bc4 Nc6 3. Qh5 Nf6, and Qxf7 is mate
+		play(2, 5, 4, 5);
+		play(7, 5, 5, 5);
+		play(1, 6, 4, 3);
+		play(8, 2, 6, 3);
+		play(1, 4, 5, 8);
+		play(8, 7, 6, 6);
+
+		ParallelSearch search = new ParallelSearch(mGame, THREAD_COUNT, new TranspositionTable(1));
+		search.getMainEngine().setMaxDepth(3);
+		int move = search.search();
+		search.shutdown();
+
+		assertEquals(mBoard.getSquare(5, 8), mGame.getGeometry().getSquare(PackedMove.getOrigin(move)));
+		assertEquals(mBoard.getSquare(7, 6), mGame.getGeometry().getSquare(PackedMove.getDest(move)));
+		assertTrue(search.getNodeCount() >= search.getMainEngine().getNodeCount());
+		assertEquals(6, mGame.getMadeMoveCount());
+	}
+
+	@Test
+	public final void testCountsOfEveryThreadAreSummed() throws Exception
+	{
+		ParallelSearch search = new ParallelSearch(mGame, THREAD_COUNT, new TranspositionTable(1));
+		search.getMainEngine().setMaxDepth(4);
+		search.search();
+		search.shutdown();
+
+		SearchEngine main = search.getMainEngine();
+		assertTrue(main.getProbeCount() > 0);
+		assertTrue(main.getHitCount() <= main.getProbeCount());
+		assertTrue(search.getProbeCount() >= main.getProbeCount());
+		assertTrue(search.getHitCount() >= main.getHitCount());
+		assertTrue(search.getCollisionCount() >= main.getCollisionCount());
+		assertTrue(search.getHitCount() > 0);
+		assertTrue(search.getHitRate() > 0 && search.getHitRate() <= 1);
+	}
+
+	@Test
+	public final void testOtherGamesAreSearchedOnEveryThread() throws Exception
+	{
+		Game ponderGame = mGame.copy();
+		assertTrue(ponderGame.makeMove(mBoard.getSquare(2, 5), mBoard.getSquare(4, 5), null));
+		ParallelSearch search = new ParallelSearch(mGame, THREAD_COUNT, new TranspositionTable(1));
+		SearchEngine engine = new SearchEngine(ponderGame, search.getTranspositionTable(), PieceSquareEvaluator.FACTORY);
+		engine.setMaxDepth(4);
+		int move = search.search(engine);
+		search.shutdown();
+
+		assertTrue(ponderGame.getGeometry().getSquare(PackedMove.getOrigin(move)).getPiece().isBlack());
+		assertTrue(search.getNodeCount() > engine.getNodeCount());
+		assertEquals(0, search.getMainEngine().getNodeCount());
+		assertEquals(0, mGame.getMadeMoveCount());
+		assertEquals(1, ponderGame.getMadeMoveCount());
+	}
+
+	private void play(int originRow, int originCol, int destRow, int destCol)
+	{
+		assertTrue(mGame.makeMove(mBoard.getSquare(originRow, originCol), mBoard.getSquare(destRow, destCol), null));
+	}
+
+	private static final int THREAD_COUNT = 4;
+
+	private Game mGame;
+	private Board mBoard;
+}
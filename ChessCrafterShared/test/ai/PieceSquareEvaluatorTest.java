@@ -0,0 +1,64 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import logic.GameBuilder;
+import logic.Messages;
+import models.Board;
+import models.Game;
+import models.Piece;
+
+import org.junit.Test;
+
+public class PieceSquareEvaluatorTest
+{
+	@Test
+	public final void testStartIsEven() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.setIsPlayback(true);
+
+		assertEquals(0, new PieceSquareEvaluator(game).evaluate());
+	}
+
+	@Test
+	public final void testScoreFollowsMakeAndUnmake() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.setIsPlayback(true);
+		PieceSquareEvaluator evaluator = new PieceSquareEvaluator(game);
+
+		Random random = new Random(RANDOM_SEED);
+		for (int ply = 0; ply < MAX_PLIES; ply++)
+		{
+			int[] moves = game.getLegalMoves();
+			if (moves.length == 0)
+				break;
+			assertTrue(game.makeMove(moves[random.nextInt(moves.length)]));
+			assertEquals(evaluator.getScoreFromScratch(), game.isBlackMove() ? -evaluator.evaluate() : evaluator.evaluate());
+		}
+		while (game.getMadeMoveCount() > 0)
+			game.unmakeMove();
+		assertEquals(0, evaluator.evaluate());
+	}
+
+	@Test
+	public final void testMobilityValuesMatchClassicPieces() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		Board board = game.getBoards()[0];
+		Piece knight = board.getSquare(1, 2).getPiece();
+		Piece queen = board.getSquare(1, 4).getPiece();
+		assertEquals(Messages.getString("knight"), knight.getName()); //$NON-NLS-1$
+
+		assertEquals(PieceValues.getValue(knight), PieceValues.getMobilityValue(knight.getAttackTable(board), board), MOBILITY_TOLERANCE);
+		assertEquals(PieceValues.getValue(queen), PieceValues.getMobilityValue(queen.getAttackTable(board), board), MOBILITY_TOLERANCE);
+	}
+
+	private static final long RANDOM_SEED = 1776L;
+	private static final int MAX_PLIES = 150;
+	private static final int MOBILITY_TOLERANCE = 5;
+}
@@ -0,0 +1,124 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import logic.GameBuilder;
+import models.Board;
+import models.Game;
+import models.PackedMove;
+import models.Square;
+import rules.NextTurn;
+import rules.NextTurn.NextTurnOption;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchEngineTest
+{
+	@Before
+	public void setUp() throws Exception
+	{
+		mGame = GameBuilder.newClassicGame();
+		mGame.setIsPlayback(true);
+		mBoard = mGame.getBoards()[0];
+	}
+
+	@Test
+	public final void testFindsMateInOne() throws Exception
+	{
+		// 1. e4 e5 2. Bc4 Nc6 3. Qh5 Nf6, and Qxf7 is mate
+		play(2, 5, 4, 5);
+		play(7, 5, 5, 5);
+		play(1, 6, 4, 3);
+		play(8, 2, 6, 3);
+		play(1, 4, 5, 8);
+		play(8, 7, 6, 6);
+
+		SearchEngine engine = new SearchEngine(mGame);
+		engine.setMaxDepth(3);
+		int move = engine.search();
+
+		assertEquals(mBoard.getSquare(5, 8), getSquare(PackedMove.getOrigin(move)));
+		assertEquals(mBoard.getSquare(7, 6), getSquare(PackedMove.getDest(move)));
+		assertTrue(SearchEngine.isMateScore(engine.getScore()));
+		assertTrue(engine.getScore() > 0);
+	}
+
+	@Test
+	public final void testLeavesGameAsItWas() throws Exception
+	{
+		long key = mGame.getZobristKey();
+		int[] moves = mGame.getLegalMoves();
+
+		SearchEngine engine = new SearchEngine(mGame);
+		engine.setMaxDepth(4);
+		int move = engine.search();
+
+		assertEquals(key, mGame.getZobristKey());
+		assertEquals(0, mGame.getMadeMoveCount());
+		assertEquals(moves.length, mGame.getLegalMoves().length);
+		assertEquals(4, engine.getCompletedDepth());
+		assertTrue(move != SearchEngine.NO_MOVE);
+		assertTrue(engine.getNodeCount() > 0);
+	}
+
+	@Test
+	public final void testStopsWhenOutOfTime() throws Exception
+	{
+		SearchEngine engine = new SearchEngine(mGame);
+		engine.setTimeBudgetMillis(TIME_BUDGET_MILLIS);
+		int move = engine.search();
+
+		assertTrue(move != SearchEngine.NO_MOVE);
+		assertTrue(engine.getCompletedDepth() < engine.getMaxDepth());
+		assertTrue(engine.getElapsedMillis() < TIME_BUDGET_MILLIS * 10);
+	}
+
+	@Test
+	public final void testStopsWhenInterrupted() throws Exception
+	{
+		SearchEngine engine = new SearchEngine(mGame);
+		engine.setTimeBudgetMillis(TIME_BUDGET_MILLIS * 100);
+		Thread.currentThread().interrupt();
+		int move = engine.search();
+		Thread.interrupted();
+
+		assertTrue(move != SearchEngine.NO_MOVE);
+		assertTrue(engine.getElapsedMillis() < TIME_BUDGET_MILLIS * 10);
+	}
+
+	@Test
+	public final void testTurnStatesDontShareEntries() throws Exception
+	{
+		// white makes two moves a turn, so after e4 it's still white's move
+		mGame.getWhiteRules().setNextTurn(new NextTurn(NextTurnOption.DIFFERENT_NUMBER_OF_TURNS, 2, 1, 0));
+		SearchEngine engine = new SearchEngine(mGame);
+		engine.setMaxDepth(2);
+		engine.search();
+
+		play(2, 5, 4, 5);
+		assertFalse(mGame.isBlackMove());
+		assertTrue(engine.getTranspositionTable().probe(mGame.getZobristKey()) != TranspositionTable.MISS);
+
+		// the same Pieces at the start of a white turn were never searched
+		mGame.getWhiteRules().getNextTurn().setTurn(false, 0, 2, 1);
+		assertEquals(TranspositionTable.MISS, engine.getTranspositionTable().probe(mGame.getZobristKey()));
+	}
+
+	private void play(int originRow, int originCol, int destRow, int destCol)
+	{
+		assertTrue(mGame.makeMove(mBoard.getSquare(originRow, originCol), mBoard.getSquare(destRow, destCol), null));
+	}
+
+	private Square getSquare(int index)
+	{
+		return mGame.getGeometry().getSquare(index);
+	}
+
+	private static final long TIME_BUDGET_MILLIS = 200L;
+
+	private Game mGame;
+	private Board mBoard;
+}
@@ -0,0 +1,63 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import logic.GameBuilder;
+import models.Game;
+import timer.ChessTimer;
+import timer.TimerTypes;
+
+import org.junit.Test;
+
+public class TimeManagerTest
+{
+	@Test
+	public final void testUntimedGameUsesDefault() throws Exception
+	{
+		TimeManager timeManager = new TimeManager(GameBuilder.newClassicGame(), DEFAULT_BUDGET_MILLIS);
+		timeManager.startMove(false);
+
+		assertEquals(DEFAULT_BUDGET_MILLIS, timeManager.getSoftLimitMillis());
+		assertEquals(DEFAULT_BUDGET_MILLIS, timeManager.getHardLimitMillis());
+	}
+
+	@Test
+	public final void testLimitsFitTheClock() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.setTimers(ChessTimer.createTimer(TimerTypes.FISCHER, null, INCREMENT_MILLIS, START_MILLIS, false),
+				ChessTimer.createTimer(TimerTypes.HOUR_GLASS, null, 0, START_MILLIS, true));
+		TimeManager timeManager = new TimeManager(game, DEFAULT_BUDGET_MILLIS);
+
+		timeManager.startMove(false);
+		long soft = timeManager.getSoftLimitMillis();
+		long hard = timeManager.getHardLimitMillis();
+		assertTrue(soft > INCREMENT_MILLIS / 2 && soft <= hard);
+		assertTrue(hard < START_MILLIS / 2);
+
+		// an hour glass has half the time, and gives nothing back
+		timeManager.startMove(true);
+		assertTrue(timeManager.getSoftLimitMillis() < soft);
+		assertTrue(timeManager.getHardLimitMillis() < START_MILLIS / 4);
+	}
+
+	@Test
+	public final void testMovesAreTimed() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.setIsPlayback(true);
+		AlphaBetaPlugin plugin = new AlphaBetaPlugin(game, DEFAULT_BUDGET_MILLIS);
+		plugin.getMove(null);
+		plugin.getMove(null);
+
+		TimeManager timeManager = plugin.getTimeManager();
+		assertEquals(2, timeManager.getMoveCount());
+		assertTrue(timeManager.getMaxMoveMillis() <= timeManager.getTotalMillis());
+		assertTrue(timeManager.getMaxMoveMillis() < DEFAULT_BUDGET_MILLIS * 2);
+	}
+
+	private static final long DEFAULT_BUDGET_MILLIS = 200;
+	private static final long INCREMENT_MILLIS = 2000;
+	private static final long START_MILLIS = 60000;
+}
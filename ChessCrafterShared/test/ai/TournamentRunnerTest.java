@@ -0,0 +1,117 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import logic.Messages;
+import logic.Result;
+import models.Game;
+
+import org.junit.Test;
+
+import ai.AIAdapter.AIBoard;
+import ai.TournamentRunner.GameRecord;
+import ai.TournamentRunner.PluginFactory;
+import ai.TournamentRunner.Standing;
+
+public class TournamentRunnerTest
+{
+	@Test
+	public final void testRoundRobin() throws Exception
+	{
+		TournamentRunner runner = new TournamentRunner(Collections.singletonList(Messages.getString("classic")), 2, MAX_PLIES); //$NON-NLS-1$
+		runner.setThreadCount(2);
+		runner.addEntrant("fast", TournamentRunner.parseEntrant("AlphaBeta:5")); //$NON-NLS-1$ //$NON-NLS-2$
+		runner.addEntrant("slow", TournamentRunner.parseEntrant("AlphaBeta:10")); //$NON-NLS-1$ //$NON-NLS-2$
+		runner.addEntrant("illegal", new PluginFactory() //$NON-NLS-1$
+		{
+			@Override
+			public AIPlugin newPlugin(Game game)
+			{
+				return new AIPlugin()
+				{
+					@Override
+					public FakeMove getMove(AIBoard[] boards)
+					{
+						// a Rook can't jump over its Pawn
+						return new FakeMove(0, 1, 1, 5, 1, null);
+					}
+				};
+			}
+		});
+
+		List<GameRecord> records = runner.run();
+		assertEquals(6, records.size());
+		assertEquals("fast", records.get(0).getWhite()); //$NON-NLS-1$
+		assertEquals("slow", records.get(1).getWhite()); //$NON-NLS-1$
+
+		List<Standing> standings = runner.getStandings(records);
+		Standing illegal = standings.get(2);
+		assertEquals(4, illegal.getGameCount());
+		assertEquals(4, illegal.getLosses());
+		for (GameRecord record : records)
+		{
+			if (record.getBlack().equals("illegal")) //$NON-NLS-1$
+			{
+				assertTrue(record.isForfeit());
+				assertEquals(Result.WHITE_WIN, record.getResult());
+			}
+		}
+		assertTrue(standings.get(0).getNodesPerSecond() > 0);
+		assertTrue(standings.get(0).getElo() > 0);
+
+		StringWriter report = new StringWriter();
+		runner.writeReport(records, report);
+		assertTrue(report.toString().contains("forfeit")); //$NON-NLS-1$
+	}
+
+	@Test
+	public final void testFailedGamesDontStopTheTournament() throws Exception
+	{
+		TournamentRunner runner = new TournamentRunner(Arrays.asList(Messages.getString("classic"), "NoSuchVariant"), 2, MAX_PLIES); //$NON-NLS-1$ //$NON-NLS-2$
+		runner.setThreadCount(2);
+		runner.addEntrant("fast", TournamentRunner.parseEntrant("AlphaBeta:5")); //$NON-NLS-1$ //$NON-NLS-2$
+		runner.addEntrant("broken", new PluginFactory() //$NON-NLS-1$
+		{
+			private final AtomicInteger mCount = new AtomicInteger();
+
+			@Override
+			public AIPlugin newPlugin(Game game)
+			{
+				if (mCount.getAndIncrement() == 0)
+					throw new IllegalStateException("broken"); //$NON-NLS-1$
+				return TournamentRunner.parseEntrant("AlphaBeta:5").newPlugin(game); //$NON-NLS-1$
+			}
+		});
+
+		List<GameRecord> records = runner.run();
+		assertEquals(4, records.size());
+		int failedCount = 0;
+		for (GameRecord record : records)
+		{
+			if (record.isFailed())
+			{
+				failedCount++;
+				assertNull(record.getResult());
+			}
+		}
+		// one of the classic games, and both games of the missing variant
+		assertEquals(3, failedCount);
+		assertTrue(records.get(2).getFailure() instanceof IOException);
+		assertEquals(1, runner.getStandings(records).get(0).getGameCount());
+
+		StringWriter report = new StringWriter();
+		runner.writeReport(records, report);
+		assertTrue(report.toString().contains("failed: java.lang.IllegalStateException: broken")); //$NON-NLS-1$
+	}
+
+	private static final int MAX_PLIES = 6;
+}
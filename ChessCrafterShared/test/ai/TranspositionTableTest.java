@@ -0,0 +1,87 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class TranspositionTableTest
+{
+	@Test
+	public final void testStoreAndProbe() throws Exception
+	{
+		TranspositionTable table = new TranspositionTable(1);
+		assertFalse(table.store(KEY, MOVE, -1234, 7, TranspositionTable.LOWER_BOUND));
+
+		long data = table.probe(KEY);
+		assertEquals(MOVE, TranspositionTable.getMove(data));
+		assertEquals(-1234, TranspositionTable.getScore(data));
+		assertEquals(7, TranspositionTable.getDepth(data));
+		assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.getBound(data));
+
+		// same entry, other position
+		long otherKey = KEY + ((long) table.getCapacity() << 32) + table.getCapacity();
+		assertEquals(TranspositionTable.MISS, table.probe(otherKey));
+
+		// a shallower result doesn't replace a deeper one of the same search,
+		// but does once a new search starts
+		assertTrue(table.store(otherKey, MOVE, 0, 3, TranspositionTable.EXACT));
+		assertEquals(TranspositionTable.MISS, table.probe(otherKey));
+		table.newSearch();
+		assertTrue(table.store(otherKey, SearchEngine.NO_MOVE, TranspositionTable.MAX_SCORE, 3, TranspositionTable.EXACT));
+		assertEquals(SearchEngine.NO_MOVE, TranspositionTable.getMove(table.probe(otherKey)));
+		assertEquals(TranspositionTable.MAX_SCORE, TranspositionTable.getScore(table.probe(otherKey)));
+		assertEquals(TranspositionTable.MISS, table.probe(KEY));
+	}
+
+	@Test
+	public final void testConcurrentWritesAreNeverTorn() throws Exception
+	{
+		final TranspositionTable table = new TranspositionTable(1);
+		List<Thread> threads = Lists.newArrayList();
+		final boolean[] isTorn = new boolean[1];
+		final long[] hitCounts = new long[THREAD_COUNT];
+		for (int i = 0; i < THREAD_COUNT; i++)
+		{
+			final int thread = i;
+			threads.add(new Thread()
+			{
+				@Override
+				public void run()
+				{
+					// every thread writes its own data for the same keys, and
+					// whatever comes back must be the data of one of them
+					for (int n = 0; n < STORE_COUNT; n++)
+					{
+						long key = KEY + (n % 64);
+						table.store(key, thread, thread, thread, TranspositionTable.EXACT);
+						long data = table.probe(key);
+						if (data != TranspositionTable.MISS)
+							hitCounts[thread]++;
+						if (data != TranspositionTable.MISS && TranspositionTable.getMove(data) != TranspositionTable.getScore(data))
+							isTorn[0] = true;
+						table.newSearch();
+					}
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+
+		assertTrue(!isTorn[0]);
+		for (long hitCount : hitCounts)
+			assertTrue(hitCount > 0);
+	}
+
+	private static final long KEY = 0x1234567887654321L;
+	private static final int MOVE = 0x02345678;
+	private static final int THREAD_COUNT = 4;
+	private static final int STORE_COUNT = 100000;
+}
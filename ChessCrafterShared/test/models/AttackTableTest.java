@@ -0,0 +1,246 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import logic.BidirectionalMovement;
+import logic.Messages;
+import logic.PieceMovements;
+import logic.PieceMovements.MovementDirection;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
+public class AttackTableTest
+{
+	@Test
+	public final void testWraparoundGameMatchesMovementWalker() throws Exception
+	{
+		playAndCompare(TestGames.newWraparoundGame());
+	}
+
+	@Test
+	public final void testLargeWraparoundGameMatchesMovementWalker() throws Exception
+	{
+		playAndCompare(TestGames.newLargeGame(true));
+	}
+
+	@Test
+	public final void testLargeGameMatchesMovementWalker() throws Exception
+	{
+		playAndCompare(TestGames.newLargeGame(false));
+	}
+
+	/**
+	 * Play a random game, and after every move have every Piece that isn't a
+	 * Pawn generate its destinations from its AttackTable and from the
+	 * movement walker Piece.genLegalDests used before the tables
+	 */
+	private static void playAndCompare(Game game) throws Exception
+	{
+		Random random = new Random(RANDOM_SEED);
+		for (int ply = 0; ply < MAX_PLIES; ply++)
+		{
+			game.genLegalDests();
+			for (List<Piece> team : ImmutableList.of(game.getWhiteTeam(), game.getBlackTeam()))
+			{
+				for (Piece piece : team)
+				{
+					if (piece.isCaptured() || piece.getName().equals(PAWN))
+						continue;
+
+					Board board = piece.getSquare().getBoard();
+					piece.genLegalDests(board);
+					Set<Square> dests = Sets.newHashSet(piece.getLegalDests());
+					Set<Square> guards = Sets.newHashSet(piece.getGuardSquares());
+
+					walk(piece, board);
+					String where = piece.getName() + " on " + piece.getSquare().getRow() + "," + piece.getSquare().getCol(); //$NON-NLS-1$ //$NON-NLS-2$
+					assertEquals(where, Sets.newHashSet(piece.getLegalDests()), dests);
+					assertEquals(where, Sets.newHashSet(piece.getGuardSquares()), guards);
+				}
+			}
+
+			// the destinations above weren't cropped for checks and pins
+			game.setStaleLegalDests(true);
+			if (TestGames.playRandomMove(game, random) == null)
+				break;
+		}
+	}
+
+	/**
+	 * The movement walker of Piece.genLegalDests from before AttackTables,
+	 * with one change: an unlimited westward wrap used to index off the Board
+	 * when a leaper came all the way around, and now stops there.
+	 */
+	private static void walk(Piece piece, Board board)
+	{
+		piece.getLegalDests().clear();
+		piece.getGuardSquares().clear();
+
+		PieceMovements movements = piece.getPieceMovements();
+		boolean isLeaper = piece.isLeaper();
+		Square current = piece.getSquare();
+		boolean wraparound = board.isWrapAround();
+		boolean done = false;
+		Square dest;
+		int distance;
+
+		// east
+		distance = movements.getDistance(MovementDirection.EAST);
+		int eastMax = distance + current.getCol();
+		if ((eastMax > board.getMaxCol() || distance == PieceMovements.UNLIMITED) && !wraparound)
+			eastMax = board.getMaxCol();
+		for (int c = current.getCol() + 1; ((distance == PieceMovements.UNLIMITED && wraparound) ? true : c <= eastMax) && !done; c++)
+		{
+			int j = (wraparound && c > board.getMaxCol()) ? c % board.getMaxCol() : c;
+			if (j == 0)
+				break;
+
+			dest = board.getSquare(current.getRow(), j);
+			done = isBlocked(piece, dest, !piece.addLegalDest(dest), isLeaper, board);
+		}
+		done = false;
+
+		// west
+		distance = movements.getDistance(MovementDirection.WEST);
+		int westMin = current.getCol() - distance;
+		if ((westMin < 1 || distance == PieceMovements.UNLIMITED) && !wraparound)
+			westMin = 1;
+		for (int c = current.getCol() - 1; ((distance == PieceMovements.UNLIMITED && wraparound) ? true : c >= westMin) && !done; c--)
+		{
+			int j = (wraparound && c < 1) ? board.getMaxCol() + c : c;
+			if (j < 1)
+				break;
+
+			dest = board.getSquare(current.getRow(), j);
+			done = isBlocked(piece, dest, !piece.addLegalDest(dest), isLeaper, board);
+		}
+		done = false;
+
+		// north
+		distance = movements.getDistance(MovementDirection.NORTH);
+		int northMax = distance + current.getRow();
+		if (northMax >= board.getMaxRow() || distance == PieceMovements.UNLIMITED)
+			northMax = board.getMaxRow();
+		for (int r = current.getRow() + 1; r <= northMax && !done; r++)
+		{
+			dest = board.getSquare(r, current.getCol());
+			done = isBlocked(piece, dest, !piece.addLegalDest(dest), isLeaper, board);
+		}
+		done = false;
+
+		// south
+		distance = movements.getDistance(MovementDirection.SOUTH);
+		int southMin = current.getRow() - distance;
+		if (southMin < 1 || distance == PieceMovements.UNLIMITED)
+			southMin = 1;
+		for (int r = current.getRow() - 1; r >= southMin && !done; r--)
+		{
+			dest = board.getSquare(r, current.getCol());
+			done = isBlocked(piece, dest, !piece.addLegalDest(dest), isLeaper, board);
+		}
+		done = false;
+
+		// northeast
+		distance = movements.getDistance(MovementDirection.NORTHEAST);
+		int neMax = Math.max(current.getRow(), current.getCol()) + distance;
+		if (neMax >= board.getMaxCol() || distance == PieceMovements.UNLIMITED)
+			neMax = board.getMaxCol();
+		if (neMax >= board.getMaxRow() || distance == PieceMovements.UNLIMITED)
+			neMax = board.getMaxRow();
+		for (int r = current.getRow() + 1, c = current.getCol() + 1; r <= neMax && c <= neMax && !done; r++, c++)
+		{
+			dest = board.getSquare(r, c);
+			done = isBlocked(piece, dest, !piece.addLegalDest(dest), isLeaper, board);
+		}
+		done = false;
+
+		// southeast
+		distance = movements.getDistance(MovementDirection.SOUTHEAST);
+		int seMaxCol = current.getCol() + distance;
+		if (seMaxCol >= board.getMaxCol() || distance == PieceMovements.UNLIMITED)
+			seMaxCol = board.getMaxCol();
+		int seMinRow = current.getRow() - distance;
+		if (seMinRow <= 1 || distance == PieceMovements.UNLIMITED)
+			seMinRow = 1;
+		for (int r = current.getRow() - 1, c = current.getCol() + 1; r >= seMinRow && c <= seMaxCol && !done; r--, c++)
+		{
+			dest = board.getSquare(r, c);
+			done = isBlocked(piece, dest, !piece.addLegalDest(dest), isLeaper, board);
+		}
+		done = false;
+
+		// northwest
+		distance = movements.getDistance(MovementDirection.NORTHWEST);
+		int nwMinCol = current.getCol() - distance;
+		if (nwMinCol <= 1 || distance == PieceMovements.UNLIMITED)
+			nwMinCol = 1;
+		int nwMaxRow = current.getRow() + distance;
+		if (nwMaxRow >= board.getMaxRow() || distance == PieceMovements.UNLIMITED)
+			nwMaxRow = board.getMaxRow();
+		for (int r = current.getRow() + 1, c = current.getCol() - 1; r <= nwMaxRow && c >= nwMinCol && !done; r++, c--)
+		{
+			dest = board.getSquare(r, c);
+			done = isBlocked(piece, dest, !piece.addLegalDest(dest), isLeaper, board);
+		}
+		done = false;
+
+		// southwest
+		distance = movements.getDistance(MovementDirection.SOUTHWEST);
+		int swMinCol = current.getCol() - distance;
+		if (swMinCol <= 1 || distance == PieceMovements.UNLIMITED)
+			swMinCol = 1;
+		int swMinRow = current.getRow() - distance;
+		if (swMinRow <= 1 || distance == PieceMovements.UNLIMITED)
+			swMinRow = 1;
+		for (int r = current.getRow() - 1, c = current.getCol() - 1; r >= swMinRow && c >= swMinCol && !done; r--, c--)
+		{
+			dest = board.getSquare(r, c);
+			done = isBlocked(piece, dest, !piece.addLegalDest(dest), isLeaper, board);
+		}
+
+		// leaps, clockwise from one o'clock
+		for (BidirectionalMovement movement : movements.getBidirectionalMovements())
+		{
+			int rank = movement.getRowDistance();
+			int file = movement.getColumnDistance();
+			int[][] leaps = { { file, rank }, { rank, file }, { file, -rank }, { rank, -file }, { -file, -rank }, { -rank, -file },
+					{ -file, rank }, { -rank, file } };
+			for (int[] leap : leaps)
+			{
+				int row = current.getRow() + leap[0];
+				int col = current.getCol() + leap[1];
+				if (wraparound && leap[1] > 0 && col > board.getMaxCol() + 1)
+					col = col % board.getMaxCol();
+				else if (wraparound && leap[1] < 0 && col < 1)
+					col = board.getMaxCol() + col;
+
+				if (board.isRowValid(row) && board.isColValid(col))
+					piece.addLegalDest(board.getSquare(row, col));
+			}
+		}
+	}
+
+	/**
+	 * @return If a sliding Piece stops at the destination; Pieces of the team
+	 * that isn't moving see through the other objective piece
+	 */
+	private static boolean isBlocked(Piece piece, Square dest, boolean isRejected, boolean isLeaper, Board board)
+	{
+		if (isLeaper)
+			return false;
+		return isRejected
+				|| (dest.isOccupied() && !(board.isBlackTurn() != piece.isBlack() && dest.getPiece().equals(
+						board.getGame().getOtherObjectivePiece(piece.isBlack()))));
+	}
+
+	private static final String PAWN = Messages.getString("pawn"); //$NON-NLS-1$
+	private static final long RANDOM_SEED = 404L;
+	private static final int MAX_PLIES = 120;
+}
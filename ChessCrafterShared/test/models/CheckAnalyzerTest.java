@@ -0,0 +1,146 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class CheckAnalyzerTest
+{
+	@Test
+	public final void testWraparoundPinsMatchLinesOfSight() throws Exception
+	{
+		Random random = new Random(RANDOM_SEED);
+		int wrongLinesOfSight = 0;
+		for (int i = 0; i < NUMBER_OF_GAMES; i++)
+			wrongLinesOfSight += playAndCompare(TestGames.newWraparoundGame(), random);
+
+		// pins across the edge of the Board happen, and lines of sight don't
+		// wrap around
+		assertTrue(wrongLinesOfSight > 0);
+	}
+
+	@Test
+	public final void testLargeWraparoundPinsMatchLinesOfSight() throws Exception
+	{
+		Random random = new Random(RANDOM_SEED);
+		for (int i = 0; i < NUMBER_OF_GAMES; i++)
+			playAndCompare(TestGames.newLargeGame(true), random);
+	}
+
+	@Test
+	public final void testLargePinsMatchLinesOfSight() throws Exception
+	{
+		Random random = new Random(RANDOM_SEED);
+		for (int i = 0; i < NUMBER_OF_GAMES; i++)
+			playAndCompare(TestGames.newLargeGame(false), random);
+	}
+
+	/**
+	 * Play a random game, and before every move that isn't out of check, pin
+	 * the moving team with cropPins and with the cropLegalDests path of
+	 * multi-Board games, which asks every enemy Piece for its line of sight.
+	 * Wherever the two differ, the move is made to see which one is right,
+	 * and it must be cropPins.
+	 *
+	 * @return The number of destinations the lines of sight got wrong
+	 */
+	private static int playAndCompare(Game game, Random random) throws Exception
+	{
+		int wrongLinesOfSight = 0;
+		for (int ply = 0; ply < MAX_PLIES; ply++)
+		{
+			game.genLegalDests();
+			boolean isBlack = game.isBlackMove();
+			Piece objectivePiece = (isBlack ? game.getBlackRules() : game.getWhiteRules()).objectivePiece(isBlack);
+			if (!objectivePiece.isInCheck())
+				wrongLinesOfSight += compare(game, objectivePiece);
+
+			game.setStaleLegalDests(true);
+			game.genLegalDests();
+			if (TestGames.playRandomMove(game, random) == null)
+				break;
+		}
+		return wrongLinesOfSight;
+	}
+
+	private static int compare(Game game, Piece objectivePiece)
+	{
+		boolean isBlack = game.isBlackMove();
+		List<Piece> movingTeam = isBlack ? game.getBlackTeam() : game.getWhiteTeam();
+		List<Piece> otherTeam = isBlack ? game.getWhiteTeam() : game.getBlackTeam();
+		Rules movingRules = isBlack ? game.getBlackRules() : game.getWhiteRules();
+		Rules otherRules = isBlack ? game.getWhiteRules() : game.getBlackRules();
+
+		List<Piece> pieces = Lists.newArrayList();
+		List<List<Square>> pseudoLegalDests = Lists.newArrayList();
+		for (Piece piece : movingTeam)
+		{
+			if (piece.isCaptured() || piece == objectivePiece)
+				continue;
+
+			piece.genLegalDests(movingRules.getBoard(piece.getSquare().getBoard()));
+			pieces.add(piece);
+			pseudoLegalDests.add(Lists.newArrayList(piece.getLegalDests()));
+		}
+
+		new CheckAnalyzer(game.getGeometry()).cropPins(objectivePiece, otherTeam);
+		List<Set<Square>> pinned = Lists.newArrayList();
+		for (Piece piece : pieces)
+			pinned.add(Sets.newHashSet(piece.getLegalDests()));
+
+		for (int i = 0; i < pieces.size(); i++)
+			pieces.get(i).setLegalDests(Lists.newArrayList(pseudoLegalDests.get(i)));
+		for (Piece enemy : otherTeam)
+			otherRules.cropLegalDests(objectivePiece, enemy, movingTeam);
+		List<Set<Square>> linesOfSight = Lists.newArrayList();
+		for (Piece piece : pieces)
+			linesOfSight.add(Sets.newHashSet(piece.getLegalDests()));
+
+		int wrongLinesOfSight = 0;
+		for (int i = 0; i < pieces.size(); i++)
+		{
+			Piece piece = pieces.get(i);
+			for (Square dest : Sets.symmetricDifference(pinned.get(i), linesOfSight.get(i)).immutableCopy())
+			{
+				String where = piece.getName() + " from " + toString(piece.getSquare()) + " to " + toString(dest); //$NON-NLS-1$ //$NON-NLS-2$
+				assertEquals(where, isLegal(game, piece.getSquare(), dest, objectivePiece), pinned.get(i).contains(dest));
+				wrongLinesOfSight++;
+			}
+		}
+		return wrongLinesOfSight;
+	}
+
+	/**
+	 * @return If making the move leaves the objective piece out of check
+	 */
+	private static boolean isLegal(Game game, Square origin, Square dest, Piece objectivePiece)
+	{
+		boolean isBlack = game.isBlackMove();
+		assertTrue(game.makeMove(origin, dest, null));
+
+		// only the attacks of the team that isn't moving are kept up to date
+		// as the Squares change, so ask as the team that moved
+		game.setBlackMove(isBlack);
+		boolean isLegal = !game.isThreatened(objectivePiece.getSquare(), !isBlack);
+		game.unmakeMove();
+		game.setStaleLegalDests(true);
+		return isLegal;
+	}
+
+	private static String toString(Square square)
+	{
+		return square.getRow() + "," + square.getCol(); //$NON-NLS-1$
+	}
+
+	private static final long RANDOM_SEED = 99L;
+	private static final int NUMBER_OF_GAMES = 20;
+	private static final int MAX_PLIES = 200;
+}
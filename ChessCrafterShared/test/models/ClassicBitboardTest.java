@@ -0,0 +1,116 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import logic.GameBuilder;
+import logic.Move;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class ClassicBitboardTest
+{
+	@Before
+	public void setUp() throws Exception
+	{
+		mGame = GameBuilder.newClassicGame();
+		mGame.setIsPlayback(true);
+	}
+
+	@Test
+	public final void testClassicGameUsesBitboard()
+	{
+		assertNotNull(mGame.getClassicBitboard());
+
+		mGame.setClassicBitboardEnabled(false);
+		assertNull(mGame.getClassicBitboard());
+	}
+
+	@Test
+	public final void testRandomGamesMatchTeamScans() throws Exception
+	{
+		Random random = new Random(RANDOM_SEED);
+		for (int game = 0; game < NUMBER_OF_GAMES; game++)
+		{
+			setUp();
+			for (int ply = 0; ply < MAX_PLIES; ply++)
+			{
+				List<String> withBitboard = describePosition();
+				mGame.setClassicBitboardEnabled(false);
+				List<String> withoutBitboard = describePosition();
+				mGame.setClassicBitboardEnabled(true);
+				assertEquals(withoutBitboard, withBitboard);
+
+				List<Square[]> moves = Lists.newArrayList();
+				for (Piece piece : mGame.isBlackMove() ? mGame.getBlackTeam() : mGame.getWhiteTeam())
+				{
+					if (!piece.isCaptured())
+					{
+						for (Square dest : piece.getLegalDests())
+							moves.add(new Square[] { piece.getSquare(), dest });
+					}
+				}
+				if (moves.isEmpty())
+					break;
+
+				Square[] move = moves.get(random.nextInt(moves.size()));
+				Move toPlay = new Move(mGame.getBoards()[0], move[0], move[1], QUEEN);
+				toPlay.execute();
+				mGame.getHistory().add(toPlay);
+				mGame.setBlackMove(!mGame.isBlackMove());
+			}
+		}
+	}
+
+	/**
+	 * Describe everything the bitboard answers for: the legal destinations and
+	 * guard squares of every Piece, and the threats and guards on every Square
+	 */
+	private List<String> describePosition()
+	{
+		List<String> description = Lists.newArrayList();
+		for (Piece piece : Iterables.concat(mGame.getWhiteTeam(), mGame.getBlackTeam()))
+		{
+			if (piece.isCaptured())
+				continue;
+
+			description.add(piece.getName() + piece.getSquare() + toSortedStrings(piece.getLegalDests())
+					+ toSortedStrings(piece.getGuardSquares()));
+		}
+
+		for (Square[] row : mGame.getBoards()[0].mSquares)
+		{
+			for (Square square : row)
+			{
+				description.add(square + " " + mGame.isThreatened(square, true) + mGame.isThreatened(square, false) //$NON-NLS-1$
+						+ mGame.isGuarded(square, true) + mGame.isGuarded(square, false));
+			}
+		}
+		return description;
+	}
+
+	private static Set<String> toSortedStrings(List<Square> squares)
+	{
+		Set<String> strings = Sets.newTreeSet();
+		for (Square square : squares)
+			strings.add(square.toString());
+		return strings;
+	}
+
+	private static final long RANDOM_SEED = 2048L;
+	private static final int NUMBER_OF_GAMES = 10;
+	private static final int MAX_PLIES = 150;
+	private static final String QUEEN = "Queen"; //$NON-NLS-1$
+
+	private Game mGame;
+}
@@ -0,0 +1,80 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import logic.FenConverter;
+import logic.GameBuilder;
+import logic.Messages;
+import logic.Perft;
+
+import org.junit.Test;
+
+import rules.AfterMove;
+
+public class FenConverterTest
+{
+	@Test
+	public final void testClassicPositionsAreStandardFen() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		assertEquals(FenConverter.CLASSIC_START, new FenConverter(game).toFen());
+
+		Game kiwipete = FenConverter.newGame(Messages.getString("classic"), KIWIPETE); //$NON-NLS-1$
+		kiwipete.setIsPlayback(true);
+		assertEquals(KIWIPETE, new FenConverter(kiwipete).toFen());
+		Perft perft = new Perft(kiwipete);
+		assertEquals(48, perft.perft(1));
+		assertEquals(2039, perft.perft(2));
+	}
+
+	/**
+	 * Positions of random games read back into the variant write the same,
+	 * and have the same moves, through wraparound Boards, custom
+	 * Pieces, a second Board and Pieces changing teams in the jail
+	 */
+	@Test
+	public final void testRandomPositionsReadBack() throws Exception
+	{
+		assertPositionsReadBack(GameBuilder.newClassicGame());
+		assertPositionsReadBack(TestGames.newWraparoundGame());
+		assertPositionsReadBack(TestGames.newTwoBoardGame());
+		assertPositionsReadBack(TestGames.newAfterMoveGame(AfterMove.CAPTURER_STEALS_CAPTURED));
+	}
+
+	private static void assertPositionsReadBack(Game start) throws Exception
+	{
+		start.setIsPlayback(true);
+		Random random = new Random(7);
+		for (int game = 0; game < 4; game++)
+		{
+			Game played = start.copy();
+			played.setIsPlayback(true);
+			FenConverter converter = new FenConverter(played);
+			for (int ply = 0; ply < 60; ply++)
+			{
+				int[] moves = played.getLegalMoves();
+				if (moves.length == 0)
+					break;
+				played.makeMove(moves[random.nextInt(moves.length)]);
+				if (ply % 10 != 9)
+					continue;
+
+				StringBuilder position = new StringBuilder();
+				converter.appendPosition(position);
+				Game read = start.copy();
+				read.setIsPlayback(true);
+				FenConverter readConverter = new FenConverter(read);
+				readConverter.setPosition(position.toString());
+
+				StringBuilder readPosition = new StringBuilder();
+				readConverter.appendPosition(readPosition);
+				assertEquals(position.toString(), readPosition.toString());
+				assertEquals(position.toString(), played.getLegalMoveCount(), read.getLegalMoveCount());
+			}
+		}
+	}
+
+	private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"; //$NON-NLS-1$
+}
@@ -0,0 +1,137 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Random;
+
+import logic.GameArchive;
+import logic.GameBuilder;
+import logic.GameRecord;
+import logic.Result;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class GameArchiveTest
+{
+	@Before
+	public void setUp() throws Exception
+	{
+		mFile = File.createTempFile("archive", ".archive"); //$NON-NLS-1$ //$NON-NLS-2$
+		mFile.delete();
+		mFile.deleteOnExit();
+	}
+
+	@Test
+	public final void testIndexesSurviveReopening() throws Exception
+	{
+		GameArchive archive = GameArchive.open(mFile);
+		long[] keys = new long[NUMBER_OF_GAMES];
+		for (int i = 0; i < NUMBER_OF_GAMES; i++)
+		{
+			Game game = newRandomGame(i);
+			keys[i] = game.getZobristKey();
+			archive.append("game" + i, GameRecord.fromGame(game), i % 2 == 0 ? Result.WHITE_WIN : Result.DRAW, DATE + i, //$NON-NLS-1$
+					PLAYERS[i % PLAYERS.length], PLAYERS[(i + 1) % PLAYERS.length]);
+		}
+		archive.close();
+
+		archive = GameArchive.open(mFile);
+		try
+		{
+			assertEquals(NUMBER_OF_GAMES, archive.size());
+			assertEquals(NUMBER_OF_GAMES, archive.getEntriesByVariant(GameBuilder.newClassicGame().getGameType()).size());
+			assertEquals(NUMBER_OF_GAMES / 2, archive.getEntriesByResult(Result.DRAW).size());
+			assertEquals(0, archive.getEntriesByResult(Result.BLACK_WIN).size());
+			// each player plays every game but the ones of the other two
+			assertEquals(NUMBER_OF_GAMES * 2 / PLAYERS.length, archive.getEntriesByPlayer(PLAYERS[0]).size());
+
+			List<GameArchive.Entry> between = archive.getEntriesBetween(DATE + 2, DATE + 5);
+			assertEquals(3, between.size());
+			assertEquals("game2", between.get(0).getName()); //$NON-NLS-1$
+
+			GameArchive.Entry entry = archive.getEntries().get(4);
+			assertEquals(keys[4], archive.load(entry).getZobristKey());
+		}
+		finally
+		{
+			archive.close();
+		}
+	}
+
+	@Test
+	public final void testDeletedAndUnfinishedEntriesAreSkipped() throws Exception
+	{
+		GameArchive archive = GameArchive.open(mFile);
+		GameArchive.Entry first = archive.append("first", GameRecord.fromGame(newRandomGame(1)), Result.DRAW, DATE, "", ""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		archive.append("second", GameRecord.fromGame(newRandomGame(2)), Result.DRAW, DATE, "", ""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		archive.delete(first);
+		archive.close();
+
+		// an append that stopped halfway
+		RandomAccessFile file = new RandomAccessFile(mFile, "rw"); //$NON-NLS-1$
+		file.seek(file.length());
+		file.write(new byte[] { 0, 0, 1, 0, 0, 7 });
+		file.close();
+
+		archive = GameArchive.open(mFile);
+		try
+		{
+			assertEquals(1, archive.size());
+			assertEquals("second", archive.getEntries().get(0).getName()); //$NON-NLS-1$
+
+			archive.append("third", GameRecord.fromGame(newRandomGame(3)), Result.DRAW, DATE, "", ""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			assertEquals("third", archive.getEntries().get(1).getName()); //$NON-NLS-1$
+			assertEquals(MAX_PLIES, archive.readRecord(archive.getEntries().get(1)).getMoveCount());
+		}
+		finally
+		{
+			archive.close();
+		}
+	}
+
+	@Test
+	public final void testRecordsAreReadFromTheMapAndTheChannel() throws Exception
+	{
+		Game first = newRandomGame(1);
+		Game second = newRandomGame(2);
+
+		// a new archive has nothing mapped
+		GameArchive archive = GameArchive.open(mFile);
+		GameArchive.Entry firstEntry = archive.append("first", GameRecord.fromGame(first), Result.DRAW, DATE, "", ""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(first.getZobristKey(), archive.load(firstEntry).getZobristKey());
+		archive.close();
+
+		archive = GameArchive.open(mFile);
+		try
+		{
+			GameArchive.Entry secondEntry = archive.append("second", GameRecord.fromGame(second), Result.DRAW, DATE, "", ""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			assertEquals(first.getZobristKey(), archive.load(archive.getEntries().get(0)).getZobristKey());
+			assertEquals(second.getZobristKey(), archive.load(secondEntry).getZobristKey());
+		}
+		finally
+		{
+			archive.close();
+		}
+	}
+
+	private static Game newRandomGame(long seed) throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.setIsPlayback(true);
+		Random random = new Random(seed);
+		for (int ply = 0; ply < MAX_PLIES; ply++)
+			TestGames.playRandomMove(game, random);
+		return game;
+	}
+
+	private static final int NUMBER_OF_GAMES = 6;
+	private static final int MAX_PLIES = 12;
+	private static final long DATE = 1380000000000L;
+	private static final String[] PLAYERS = new String[] { "alpha", "beta", "gamma" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+	private File mFile;
+}
@@ -0,0 +1,99 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import logic.GameBuilder;
+import logic.GameRecord;
+import logic.Move;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import timer.ChessTimer;
+import timer.TimerTypes;
+
+public class GameRecordTest
+{
+	@Before
+	public void setUp() throws Exception
+	{
+		mGame = GameBuilder.newClassicGame();
+		mGame.setIsPlayback(true);
+	}
+
+	@Test
+	public final void testRandomGameRoundTrips() throws Exception
+	{
+		Random random = new Random(RANDOM_SEED);
+		for (int ply = 0; ply < MAX_PLIES; ply++)
+		{
+			if (TestGames.playRandomMove(mGame, random) == null)
+				break;
+		}
+
+		byte[] bytes = toBytes(GameRecord.fromGame(mGame));
+		Game read = GameRecord.read(new ByteArrayInputStream(bytes)).toGame();
+
+		assertEquals(mGame.getHistory().size(), read.getHistory().size());
+		assertEquals(mGame.isBlackMove(), read.isBlackMove());
+		assertEquals(mGame.getZobristKey(), read.getZobristKey());
+		// a couple of bytes a move, where the serialized Game takes tens of KB
+		assertTrue(bytes.length < MAX_RECORD_BYTES);
+	}
+
+	@Test
+	public final void testTimersRoundTrip() throws Exception
+	{
+		mGame.setTimers(ChessTimer.createTimer(TimerTypes.FISCHER, null, INCREMENT, START_TIME, false),
+				ChessTimer.createTimer(TimerTypes.FISCHER, null, INCREMENT, START_TIME, true));
+		Random random = new Random(RANDOM_SEED);
+		for (int ply = 0; ply < TIMED_PLIES; ply++)
+		{
+			ChessTimer timer = mGame.isBlackMove() ? mGame.getBlackTimer() : mGame.getWhiteTimer();
+			timer.setClockTime(timer.getRawTime() - random.nextInt(INCREMENT * 2) + INCREMENT);
+			TestGames.playRandomMove(mGame, random);
+		}
+
+		Game read = GameRecord.read(new ByteArrayInputStream(toBytes(GameRecord.fromGame(mGame)))).toGame();
+
+		assertEquals(TimerTypes.FISCHER, read.getWhiteTimer().getType());
+		assertEquals(INCREMENT, read.getBlackTimer().getIncrementAmount());
+		assertEquals(START_TIME, read.getWhiteTimer().getStartTime());
+		assertEquals(mGame.getWhiteTimer().getRawTime(), read.getWhiteTimer().getRawTime());
+		assertEquals(mGame.getBlackTimer().getRawTime(), read.getBlackTimer().getRawTime());
+
+		// undoing the last Move puts back the times from before it
+		read.setIsPlayback(true);
+		Move last = read.getHistory().get(read.getHistory().size() - 1);
+		last.undo();
+		assertEquals(mGame.getHistory().get(TIMED_PLIES - 1).getOldBlackTime(), read.getBlackTimer().getRawTime());
+	}
+
+	@Test(expected = IOException.class)
+	public final void testRejectsOtherFiles() throws Exception
+	{
+		GameRecord.read(new ByteArrayInputStream(new byte[] { (byte) 0xAC, (byte) 0xED, 0, 5, 0, 0 }));
+	}
+
+	private static byte[] toBytes(GameRecord record) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		record.write(out);
+		return out.toByteArray();
+	}
+
+	private static final long RANDOM_SEED = 21;
+	private static final int MAX_PLIES = 200;
+	private static final int MAX_RECORD_BYTES = 2048;
+	private static final int TIMED_PLIES = 10;
+	private static final int INCREMENT = 2000;
+	private static final long START_TIME = 300000;
+
+	private Game mGame;
+}
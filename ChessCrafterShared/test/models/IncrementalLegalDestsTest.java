@@ -0,0 +1,158 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import logic.GameBuilder;
+import logic.Move;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class IncrementalLegalDestsTest
+{
+	@Before
+	public void setUp() throws Exception
+	{
+		mGame = GameBuilder.newClassicGame();
+		mGame.setIsPlayback(true);
+		mGame.setIncrementalLegalDests(true);
+		// every generation is checked against a full rebuild, and throws if
+		// they differ
+		mGame.setVerifyIncrementalLegalDests(true);
+	}
+
+	@Test
+	public final void testRandomGamesMatchFullRebuild() throws Exception
+	{
+		Random random = new Random(RANDOM_SEED);
+		for (int game = 0; game < NUMBER_OF_GAMES; game++)
+		{
+			setUp();
+			for (int ply = 0; ply < MAX_PLIES; ply++)
+			{
+				List<Square[]> moves = getLegalMoves();
+				if (moves.isEmpty())
+					break;
+
+				Square[] move = moves.get(random.nextInt(moves.size()));
+				Move toPlay = new Move(mGame.getBoards()[0], move[0], move[1], QUEEN);
+				toPlay.execute();
+				mGame.getHistory().add(toPlay);
+				mGame.setBlackMove(!mGame.isBlackMove());
+			}
+		}
+	}
+
+	@Test
+	public final void testUndoMatchesFullRebuild() throws Exception
+	{
+		Random random = new Random(RANDOM_SEED);
+		List<Move> played = Lists.newArrayList();
+		for (int ply = 0; ply < MAX_PLIES / 2; ply++)
+		{
+			List<Square[]> moves = getLegalMoves();
+			if (moves.isEmpty())
+				break;
+
+			Square[] move = moves.get(random.nextInt(moves.size()));
+			Move toPlay = new Move(mGame.getBoards()[0], move[0], move[1], QUEEN);
+			toPlay.execute();
+			played.add(toPlay);
+			mGame.setBlackMove(!mGame.isBlackMove());
+		}
+
+		for (int i = played.size() - 1; i >= 0; i--)
+		{
+			mGame.setBlackMove(!mGame.isBlackMove());
+			played.get(i).undo();
+			assertTrue(mGame.getLegalMoveCount() > 0);
+		}
+	}
+
+	@Test
+	public final void testWraparoundGamesMatchFullRegeneration() throws Exception
+	{
+		Random random = new Random(RANDOM_SEED);
+		for (int game = 0; game < NUMBER_OF_GAMES; game++)
+			playAndCompare(TestGames.newWraparoundGame(), TestGames.newWraparoundGame(), random);
+	}
+
+	@Test
+	public final void testLargeGamesMatchFullRegeneration() throws Exception
+	{
+		Random random = new Random(RANDOM_SEED);
+		for (int game = 0; game < NUMBER_OF_GAMES; game++)
+			playAndCompare(TestGames.newLargeGame(), TestGames.newLargeGame(), random);
+	}
+
+	/**
+	 * Play the same random game on two copies of a variant, one generating
+	 * incrementally and one from scratch, and make sure every Piece of both
+	 * teams ends up with the same legal destinations after every move
+	 */
+	private static void playAndCompare(Game incremental, Game full, Random random) throws Exception
+	{
+		incremental.setIncrementalLegalDests(true);
+		incremental.setVerifyIncrementalLegalDests(true);
+		for (int ply = 0; ply < MAX_PLIES; ply++)
+		{
+			assertEquals(getLegalDests(full), getLegalDests(incremental));
+
+			Move played = TestGames.playRandomMove(incremental, random);
+			if (played == null)
+				break;
+
+			Square origin = full.getBoards()[0].getSquare(played.origin.getRow(), played.origin.getCol());
+			Move toPlay = new Move(origin.getBoard(), origin, full.getBoards()[0].getSquare(played.getDest().getRow(), played
+					.getDest().getCol()), QUEEN);
+			toPlay.execute();
+			full.getHistory().add(toPlay);
+			full.setBlackMove(!full.isBlackMove());
+		}
+	}
+
+	private static List<String> getLegalDests(Game game)
+	{
+		List<String> dests = Lists.newArrayList();
+		for (List<Piece> team : ImmutableList.of(game.getWhiteTeam(), game.getBlackTeam()))
+		{
+			for (Piece piece : team)
+			{
+				StringBuilder builder = new StringBuilder(piece.getName()).append(piece.getSquare().getRow()).append(',')
+						.append(piece.getSquare().getCol()).append(':');
+				for (Square dest : piece.getLegalDests())
+					builder.append(' ').append(dest.getRow()).append(',').append(dest.getCol());
+				dests.add(builder.toString());
+			}
+		}
+		return dests;
+	}
+
+	private List<Square[]> getLegalMoves()
+	{
+		List<Square[]> moves = Lists.newArrayList();
+		for (Piece piece : mGame.isBlackMove() ? mGame.getBlackTeam() : mGame.getWhiteTeam())
+		{
+			if (piece.isCaptured())
+				continue;
+
+			for (Square dest : piece.getLegalDests())
+				moves.add(new Square[] { piece.getSquare(), dest });
+		}
+		return moves;
+	}
+
+	private static final long RANDOM_SEED = 335L;
+	private static final int NUMBER_OF_GAMES = 10;
+	private static final int MAX_PLIES = 150;
+	private static final String QUEEN = "Queen"; //$NON-NLS-1$
+
+	private Game mGame;
+}
@@ -0,0 +1,88 @@
+package models;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import logic.GameBuilder;
+import logic.Move;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class LegalDestsCacheTest
+{
+	@Test
+	public final void testSteppingBackRestoresMoves() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.setIsPlayback(true);
+		game.setLegalDestsCacheSize(CACHE_SIZE);
+		LegalDestsCache cache = game.getLegalDestsCache();
+
+		Random random = new Random(RANDOM_SEED);
+		List<Move> played = Lists.newArrayList();
+		List<int[]> legalMoves = Lists.newArrayList();
+		legalMoves.add(game.getLegalMoves());
+		for (int ply = 0; ply < MAX_PLIES; ply++)
+		{
+			Move move = TestGames.playRandomMove(game, random);
+			if (move == null)
+				break;
+			played.add(move);
+			legalMoves.add(game.getLegalMoves());
+		}
+		long hitCount = cache.getHitCount();
+		long missCount = cache.getMissCount();
+
+		// every position on the way back was seen on the way forward
+		for (int i = played.size() - 1; i >= 0; i--)
+		{
+			game.setBlackMove(!game.isBlackMove());
+			played.get(i).undo();
+			assertArrayEquals(legalMoves.get(i), game.getLegalMoves());
+		}
+		assertTrue(cache.getHitCount() >= hitCount + played.size());
+		assertEquals(missCount, cache.getMissCount());
+	}
+
+	@Test
+	public final void testLeastRecentlyUsedIsEvicted() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.setIsPlayback(true);
+		game.setLegalDestsCacheSize(2);
+		LegalDestsCache cache = game.getLegalDestsCache();
+		Board board = game.getBoards()[0];
+
+		// the Knight goes out, and back to the start position, which is used
+		// again, then out the other way, which pushes the first position out
+		game.getLegalMoves();
+		game.makeMove(board.getSquare(1, 7), board.getSquare(3, 6), null);
+		game.getLegalMoves();
+		game.unmakeMove();
+		game.getLegalMoves();
+		game.makeMove(board.getSquare(1, 2), board.getSquare(3, 3), null);
+		game.getLegalMoves();
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getHitCount());
+
+		game.unmakeMove();
+		game.getLegalMoves();
+		assertEquals(2, cache.getHitCount());
+		game.makeMove(board.getSquare(1, 7), board.getSquare(3, 6), null);
+		game.getLegalMoves();
+		assertEquals(2, cache.getHitCount());
+		assertEquals(4, cache.getMissCount());
+	}
+
+	private static final long RANDOM_SEED = 2112L;
+	private static final int MAX_PLIES = 60;
+	// playing a Move also generates destinations before the turn changes, so
+	// there are more positions than plies
+	private static final int CACHE_SIZE = 1000;
+}
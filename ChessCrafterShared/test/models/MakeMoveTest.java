@@ -0,0 +1,298 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Random;
+
+import logic.GameBuilder;
+import logic.Move;
+import logic.PieceBuilder;
+
+import org.junit.Test;
+
+import rules.AfterMove;
+import rules.NextTurn;
+import rules.NextTurn.NextTurnOption;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+public class MakeMoveTest
+{
+	@Test
+	public final void testClassicMatchesExecute() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.setIsPlayback(true);
+		playAndCompare(game, true);
+	}
+
+	@Test
+	public final void testWraparoundMatchesExecute() throws Exception
+	{
+		playAndCompare(TestGames.newWraparoundGame(), true);
+	}
+
+	@Test
+	public final void testTwoBoardsMatchExecute() throws Exception
+	{
+		playAndCompare(TestGames.newTwoBoardGame(), true);
+	}
+
+	@Test
+	public final void testAfterMoveRulesUnmake() throws Exception
+	{
+		for (AfterMove afterMove : new AfterMove[] { AfterMove.ATOMIC_CAPTURE, AfterMove.SWAP_COLOR_OF_CAPTURER,
+				AfterMove.CAPTURED_PIECE_TO_ORIGIN })
+		{
+			playAndCompare(TestGames.newAfterMoveGame(afterMove), false);
+		}
+	}
+
+	@Test
+	public final void testUnmakeWholeGame() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.setIsPlayback(true);
+		List<String> start = describePosition(game);
+
+		Random random = new Random(RANDOM_SEED);
+		for (int ply = 0; ply < MAX_PLIES; ply++)
+		{
+			List<Square[]> moves = getLegalMoves(game);
+			if (moves.isEmpty())
+				break;
+
+			Square[] move = moves.get(random.nextInt(moves.size()));
+			assertTrue(game.makeMove(move[0], move[1], null));
+		}
+
+		while (game.getMadeMoveCount() > 0)
+			game.unmakeMove();
+		assertEquals(start, describePosition(game));
+	}
+
+	@Test
+	public final void testOtherTeamCantMove() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.setIsPlayback(true);
+		Board board = game.getBoards()[0];
+
+		assertFalse(game.makeMove(board.getSquare(7, 5), board.getSquare(5, 5), null));
+		assertFalse(game.makeMove(board.getSquare(4, 4), board.getSquare(5, 4), null));
+		assertEquals(0, game.getMadeMoveCount());
+	}
+
+	/**
+	 * Play a random game. At every ply, make and unmake every legal move and
+	 * check nothing is left behind, then play one of them and check makeMove
+	 * leaves the same position as Move.execute
+	 */
+	private static void playAndCompare(Game game, boolean isComparingExecute) throws Exception
+	{
+		Random random = new Random(RANDOM_SEED);
+		for (int ply = 0; ply < MAX_PLIES; ply++)
+		{
+			List<String> before = describePosition(game);
+			List<Square[]> moves = getLegalMoves(game);
+			if (moves.isEmpty())
+				break;
+
+			for (Square[] move : moves)
+			{
+				assertTrue(game.makeMove(move[0], move[1], TestGames.QUEEN));
+				game.unmakeMove();
+				assertEquals(before, describePosition(game));
+			}
+
+			Square[] move = moves.get(random.nextInt(moves.size()));
+			if (isComparingExecute)
+			{
+				game.makeMove(move[0], move[1], TestGames.QUEEN);
+				List<String> made = describePosition(game);
+				game.unmakeMove();
+
+				Move toPlay = new Move(move[0].getBoard(), move[0], move[1], TestGames.QUEEN);
+				toPlay.execute();
+				game.getHistory().add(toPlay);
+				game.setBlackMove(!game.isBlackMove());
+				assertEquals(made, describePosition(game));
+			}
+			else
+			{
+				game.makeMove(move[0], move[1], TestGames.QUEEN);
+			}
+		}
+	}
+
+	@Test
+	public final void testBadPromotionChangesNothing() throws Exception
+	{
+		Game game = TestGames.newClassicPosition("4k3/P7/8/8/8/8/8/4K3", false, "-", Board.NO_ENPASSANT); //$NON-NLS-1$ //$NON-NLS-2$
+		Board board = game.getBoards()[0];
+		List<String> start = describePosition(game);
+		long key = game.getZobristKey();
+
+		try
+		{
+			game.makeMove(board.getSquare(7, 1), board.getSquare(8, 1), "Camel"); //$NON-NLS-1$
+			fail();
+		}
+		catch (IllegalArgumentException expected)
+		{
+		}
+		assertEquals(0, game.getMadeMoveCount());
+		assertEquals(key, game.getZobristKey());
+		assertEquals(start, describePosition(game));
+
+		assertTrue(game.makeMove(board.getSquare(7, 1), board.getSquare(8, 1), KNIGHT));
+		assertEquals(KNIGHT, board.getSquare(8, 1).getPiece().getName());
+		game.unmakeMove();
+		assertEquals(start, describePosition(game));
+	}
+
+	/**
+	 * makeMove only promotes to Piece types cached when the Game or the
+	 * search was set up, and turns down the others before changing anything
+	 */
+	@Test
+	public final void testPromotionTypesAreLoadedUpFront() throws Exception
+	{
+		Game game = TestGames.newClassicPosition("4k3/P7/8/8/8/8/8/4K3", false, "-", Board.NO_ENPASSANT); //$NON-NLS-1$ //$NON-NLS-2$
+		Board board = game.getBoards()[0];
+		board.getSquare(7, 1).getPiece().setPromotesTo(Lists.newArrayList(UNLOADED));
+		List<String> start = describePosition(game);
+
+		try
+		{
+			try
+			{
+				game.makeMove(board.getSquare(7, 1), board.getSquare(8, 1), UNLOADED);
+				fail();
+			}
+			catch (IllegalStateException expected)
+			{
+			}
+			assertEquals(0, game.getMadeMoveCount());
+			assertEquals(start, describePosition(game));
+
+			game.loadPromotionTypes();
+			assertTrue(PieceBuilder.isPieceType(UNLOADED));
+			assertTrue(game.makeMove(board.getSquare(7, 1), board.getSquare(8, 1), UNLOADED));
+			assertEquals(UNLOADED, board.getSquare(8, 1).getPiece().getName());
+			game.unmakeMove();
+			assertEquals(start, describePosition(game));
+		}
+		finally
+		{
+			PieceBuilder.removePieceType(UNLOADED);
+		}
+	}
+
+	/**
+	 * Undoing a turn of several moves steps back through it one move at a
+	 * time, and the turn played again after that passes at the same moves
+	 * as it did the first time
+	 */
+	@Test
+	public final void testUndoAcrossMultiMoveTurns() throws Exception
+	{
+		for (NextTurnOption option : new NextTurnOption[] { NextTurnOption.DIFFERENT_NUMBER_OF_TURNS,
+				NextTurnOption.INCREASING_SEPARATELY, NextTurnOption.INCREASING_TOGETHER })
+		{
+			NextTurn nextTurn = new NextTurn(option, 2, 3, 1);
+			List<String> played = Lists.newArrayList(describeTurn(nextTurn));
+			for (int i = 0; i < TURN_MOVES; i++)
+			{
+				nextTurn.countMove();
+				played.add(describeTurn(nextTurn));
+			}
+
+			for (int i = TURN_MOVES - 1; i >= 0; i--)
+			{
+				nextTurn.uncountMove();
+				assertEquals(option + " undo to " + i, played.get(i), describeTurn(nextTurn)); //$NON-NLS-1$
+			}
+
+			for (int i = 1; i <= TURN_MOVES; i++)
+			{
+				nextTurn.countMove();
+				assertEquals(option + " replay to " + i, played.get(i), describeTurn(nextTurn)); //$NON-NLS-1$
+			}
+		}
+	}
+
+	private static String describeTurn(NextTurn nextTurn)
+	{
+		return (nextTurn.isBlackMove() ? "black " : "white ") + nextTurn.getMovesMade() + " of " + nextTurn.getWhiteMoves() + "/" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				+ nextTurn.getBlackMoves();
+	}
+
+	private static List<Square[]> getLegalMoves(Game game)
+	{
+		List<Square[]> moves = Lists.newArrayList();
+		for (Piece piece : game.isBlackMove() ? game.getBlackTeam() : game.getWhiteTeam())
+		{
+			if (piece.isCaptured())
+				continue;
+
+			for (Square dest : piece.getLegalDests())
+				moves.add(new Square[] { piece.getSquare(), dest });
+		}
+		return moves;
+	}
+
+	/**
+	 * Describe the position and the legal destinations it leads to
+	 */
+	private static List<String> describePosition(Game game)
+	{
+		if (game.isStaleLegalDests())
+			game.genLegalDests();
+
+		List<String> description = Lists.newArrayList();
+		description.add(game.isBlackMove() ? "black" : "white"); //$NON-NLS-1$ //$NON-NLS-2$
+		for (Board board : game.getBoards())
+		{
+			description.add("en passant " + board.getEnpassantCol()); //$NON-NLS-1$
+			for (Square[] row : board.mSquares)
+			{
+				for (Square square : row)
+				{
+					if (square.isOccupied())
+						description.add(describeSquare(square) + " " + describePiece(square.getPiece())); //$NON-NLS-1$
+				}
+			}
+		}
+		for (Piece piece : Iterables.concat(game.getWhiteTeam(), game.getBlackTeam()))
+		{
+			String dests = ""; //$NON-NLS-1$
+			for (Square dest : Iterables.concat(piece.getLegalDests(), piece.getGuardSquares()))
+				dests += " " + describeSquare(dest); //$NON-NLS-1$
+			description.add(describePiece(piece) + dests);
+		}
+		return description;
+	}
+
+	private static String describeSquare(Square square)
+	{
+		return square.getRow() + "," + square.getCol(); //$NON-NLS-1$
+	}
+
+	private static String describePiece(Piece piece)
+	{
+		return (piece.isBlack() ? "black " : "white ") + piece.getName() + " " + piece.getMoveCount() + " " + describeSquare(piece.getSquare()) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				+ (piece.isCaptured() ? " captured" : ""); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static final String KNIGHT = "Knight"; //$NON-NLS-1$
+	private static final String UNLOADED = "Unloaded Test Piece"; //$NON-NLS-1$
+	private static final long RANDOM_SEED = 5150L;
+	private static final int MAX_PLIES = 120;
+	private static final int TURN_MOVES = 12;
+}
@@ -0,0 +1,14 @@
+package models;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({ AttackTableTest.class, CheckAnalyzerTest.class, ClassicBitboardTest.class, FenConverterTest.class, GameArchiveTest.class, GameRecordTest.class,
+		IncrementalLegalDestsTest.class, LegalDestsCacheTest.class, MakeMoveTest.class, PerftTest.class, PgnTest.class,
+		SquareSetTest.class, ZobristKeyTest.class })
+public class ModelsSuite
+{
+
+}
@@ -0,0 +1,88 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+
+import logic.GameBuilder;
+import logic.Perft;
+
+import org.junit.Test;
+
+import rules.AfterMove;
+
+public class PerftTest
+{
+	@Test
+	public final void testClassicStart() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.setIsPlayback(true);
+		assertCounts(game, 20, 400, 8902, 197281);
+	}
+
+	/**
+	 * Castling through and out of attacks, promotions, and en passant next to
+	 * the King
+	 */
+	@Test
+	public final void testKiwipete() throws Exception
+	{
+		assertCounts(TestGames.newClassicPosition("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R", false, "KQkq", //$NON-NLS-1$ //$NON-NLS-2$
+				Board.NO_ENPASSANT), 48, 2039, 97862);
+	}
+
+	/**
+	 * En passant captures that uncover the King along its row, or capture the
+	 * checking Pawn
+	 */
+	@Test
+	public final void testEnpassantDiscoveries() throws Exception
+	{
+		assertCounts(TestGames.newClassicPosition("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8", false, "-", Board.NO_ENPASSANT), 14, 191, //$NON-NLS-1$ //$NON-NLS-2$
+				2812, 43238);
+	}
+
+	@Test
+	public final void testPromotionsAndChecks() throws Exception
+	{
+		assertCounts(TestGames.newClassicPosition("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1", false, "kq", //$NON-NLS-1$ //$NON-NLS-2$
+				Board.NO_ENPASSANT), 6, 264, 9467);
+		assertCounts(TestGames.newClassicPosition("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R", false, "KQ", //$NON-NLS-1$ //$NON-NLS-2$
+				Board.NO_ENPASSANT), 44, 1486, 62379);
+	}
+
+	/**
+	 * Variants have no published counts, so these are the counts move
+	 * generation gave when the runner was written. A change here means the
+	 * moves of a variant changed.
+	 */
+	@Test
+	public final void testVariantBaselines() throws Exception
+	{
+		assertCounts(TestGames.newAfterMoveGame(AfterMove.ATOMIC_CAPTURE), 20, 400, 8902, 197326);
+		assertCounts(TestGames.newWraparoundGame(), 32, 1024, 36342);
+		assertCounts(TestGames.newTwoBoardGame(), 88, 7505);
+	}
+
+	@Test
+	public final void testDivideAddsUp() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.setIsPlayback(true);
+		Perft perft = new Perft(game);
+
+		Map<String, Long> divide = perft.divide(3);
+		assertEquals(20, divide.size());
+		assertEquals(Long.valueOf(600), divide.get("e2e4")); //$NON-NLS-1$
+		assertEquals(8902, perft.getNodes());
+		assertEquals(0, game.getMadeMoveCount());
+	}
+
+	private static void assertCounts(Game game, long... counts)
+	{
+		Perft perft = new Perft(game);
+		for (int depth = 1; depth <= counts.length; depth++)
+			assertEquals("depth " + depth, counts[depth - 1], perft.perft(depth)); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,220 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import logic.GameArchive;
+import logic.GameRecord;
+import logic.PgnGame;
+import logic.PgnImporter;
+import logic.PgnReader;
+import logic.PgnWriter;
+import logic.Result;
+import logic.SanConverter;
+
+import org.junit.Test;
+
+public class PgnTest
+{
+	@Test
+	public final void testGameWrittenBackReadsTheSame() throws Exception
+	{
+		PgnReader reader = new PgnReader(new StringReader(OPERA_GAME));
+		PgnGame game = reader.next();
+		assertNull(reader.next());
+		assertEquals(33, game.getMoves().size());
+		assertEquals(Result.WHITE_WIN, game.getResult());
+		assertEquals("Morphy - Duke", game.getName()); //$NON-NLS-1$
+		assertEquals("development", game.getComment(6)); //$NON-NLS-1$
+
+		// the SAN made from the moves, with its disambiguation and check
+		// marks, is the SAN they were read from
+		GameRecord record = game.toRecord();
+		assertEquals(game.getMoves(), PgnGame.fromRecord(record).getMoves());
+
+		StringWriter out = new StringWriter();
+		PgnWriter writer = new PgnWriter(out);
+		writer.write(game);
+		writer.flush();
+		PgnGame readBack = new PgnReader(new StringReader(out.toString())).next();
+		assertEquals(game.getTags(), readBack.getTags());
+		assertEquals(game.getMoves(), readBack.getMoves());
+		assertEquals(game.getComment(6), readBack.getComment(6));
+	}
+
+	@Test
+	public final void testImporterLeavesOutIllegalGames() throws Exception
+	{
+		File file = File.createTempFile("pgn", ".archive"); //$NON-NLS-1$ //$NON-NLS-2$
+		file.delete();
+		file.deleteOnExit();
+		GameArchive archive = GameArchive.open(file);
+		try
+		{
+			PgnImporter importer = new PgnImporter(archive);
+			assertEquals(1, importer.importGames(new StringReader(OPERA_GAME + ILLEGAL_GAME), "test")); //$NON-NLS-1$
+			assertEquals(1, importer.getRejectedCount());
+			assertEquals(1, importer.getErrors().size());
+			assertEquals(33, importer.getPlyCount());
+
+			GameArchive.Entry entry = archive.getEntries().get(0);
+			assertEquals("Morphy", entry.getWhitePlayer()); //$NON-NLS-1$
+			assertEquals(Result.WHITE_WIN, entry.getResult());
+			assertEquals(game(OPERA_GAME).getMoves(), PgnGame.fromEntry(archive, entry).getMoves());
+		}
+		finally
+		{
+			archive.close();
+		}
+	}
+
+	@Test
+	public final void testParallelImportKeepsTheOrderOfTheFile() throws Exception
+	{
+		File pgn = File.createTempFile("games", ".pgn"); //$NON-NLS-1$ //$NON-NLS-2$
+		pgn.deleteOnExit();
+		Writer out = new FileWriter(pgn);
+		for (int i = 0; i < 100; i++)
+			out.write((i % 10 == 3 ? ILLEGAL_GAME : OPERA_GAME).replace("Morphy", "Morphy " + i)); //$NON-NLS-1$ //$NON-NLS-2$
+		out.close();
+		File missing = new File(pgn.getPath() + ".missing"); //$NON-NLS-1$
+
+		File file = File.createTempFile("pgn", ".archive"); //$NON-NLS-1$ //$NON-NLS-2$
+		file.delete();
+		file.deleteOnExit();
+		GameArchive archive = GameArchive.open(file);
+		PgnImporter importer = new PgnImporter(archive, 4);
+		try
+		{
+			List<PgnImporter.FileReport> reports = importer.importFiles(Arrays.asList(missing, pgn));
+			assertNotNull(reports.get(0).getFailure());
+			assertNull(reports.get(1).getFailure());
+			assertEquals(90, reports.get(1).getImportedCount());
+			assertEquals(10, reports.get(1).getRejectedCount());
+			assertTrue(reports.get(1).getErrors().get(0).startsWith(pgn.getName() + " #4:")); //$NON-NLS-1$
+
+			List<GameArchive.Entry> entries = archive.getEntries();
+			assertEquals(90, entries.size());
+			for (int i = 0, game = 0; i < entries.size(); i++, game++)
+			{
+				if (game % 10 == 3)
+					game++;
+				assertEquals("Morphy " + game, entries.get(i).getWhitePlayer()); //$NON-NLS-1$
+			}
+			assertEquals(game(OPERA_GAME).getMoves(), PgnGame.fromEntry(archive, entries.get(89)).getMoves());
+		}
+		finally
+		{
+			importer.shutdown();
+			archive.close();
+		}
+	}
+
+	@Test
+	public final void testFailuresStayWithTheirFile() throws Exception
+	{
+		File pgn = File.createTempFile("games", ".pgn"); //$NON-NLS-1$ //$NON-NLS-2$
+		pgn.deleteOnExit();
+		Writer out = new FileWriter(pgn);
+		out.write(OPERA_GAME);
+		out.close();
+
+		File file = File.createTempFile("pgn", ".archive"); //$NON-NLS-1$ //$NON-NLS-2$
+		file.delete();
+		file.deleteOnExit();
+		GameArchive archive = GameArchive.open(file);
+		archive.close();
+		PgnImporter importer = new PgnImporter(archive, 2);
+		try
+		{
+			// appending to a closed archive throws an IllegalStateException,
+			// which ends up in the report of each file rather than out of
+			// importFiles
+			List<PgnImporter.FileReport> reports = importer.importFiles(Arrays.asList(pgn, pgn));
+			assertEquals(2, reports.size());
+			for (PgnImporter.FileReport report : reports)
+			{
+				assertTrue(report.getFailure().getCause() instanceof IllegalStateException);
+				assertEquals(0, report.getImportedCount());
+			}
+		}
+		finally
+		{
+			importer.shutdown();
+		}
+	}
+
+	/**
+	 * In a variant where the Rhino and the Rook share the letter R, every
+	 * legal move of random games reads back from its SAN, and the moves
+	 * played read back from PGN
+	 */
+	@Test
+	public final void testPiecesSharingALetterReadBack() throws Exception
+	{
+		Game start = TestGames.newSharedLetterGame();
+		Random random = new Random(RANDOM_SEED);
+		boolean isPieceNamed = false;
+		boolean isPromotionNamed = false;
+		for (int i = 0; i < NUMBER_OF_GAMES; i++)
+		{
+			Game game = start.copy();
+			game.setIsPlayback(true);
+			PgnGame pgnGame = new PgnGame();
+			for (int ply = 0; ply < MAX_PLIES; ply++)
+			{
+				int[] moves = game.getLegalMoves();
+				if (moves.length == 0)
+					break;
+				for (int move : moves)
+				{
+					String san = SanConverter.toSan(game, move);
+					assertEquals(san, move, SanConverter.toMove(game, san));
+					isPieceNamed |= san.startsWith("(Rhino)"); //$NON-NLS-1$
+					isPromotionNamed |= san.contains("=(Rook)"); //$NON-NLS-1$
+				}
+
+				int move = moves[random.nextInt(moves.length)];
+				pgnGame.addMove(SanConverter.toSan(game, move));
+				game.makeMove(move);
+			}
+
+			StringWriter out = new StringWriter();
+			PgnWriter writer = new PgnWriter(out);
+			writer.write(pgnGame);
+			writer.flush();
+			assertEquals(pgnGame.getMoves(), game(out.toString()).getMoves());
+		}
+		assertTrue(isPieceNamed);
+		assertTrue(isPromotionNamed);
+
+		// names in parentheses are moves, and variations are still skipped
+		assertEquals(Arrays.asList("e4", "(Rhino)d5", "e8=(Rook)"), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				game("1. e4 (1. d4 (Rhino)d5) (Rhino)d5 (Nf) 2. e8=(Rook) {(Rook)} *").getMoves()); //$NON-NLS-1$
+	}
+
+	private static PgnGame game(String pgn) throws Exception
+	{
+		return new PgnReader(new StringReader(pgn)).next();
+	}
+
+	private static final String OPERA_GAME = "[Event \"Paris\"]\n[Date \"1858.??.??\"]\n[White \"Morphy\"]\n[Black \"Duke\"]\n" //$NON-NLS-1$
+			+ "[Result \"1-0\"]\n\n1. e4 e5 2. Nf3 d6 3. d4 Bg4 {development} 4. dxe5 Bxf3 5. Qxf3 dxe5 6. Bc4 Nf6 " //$NON-NLS-1$
+			+ "7. Qb3 Qe7 8. Nc3 c6 9. Bg5 b5 (9... h6 10. Bxf6) 10. Nxb5 cxb5 11. Bxb5+ Nbd7 12. O-O-O Rd8 " //$NON-NLS-1$
+			+ "13. Rxd7 Rxd7 14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ $1 Nxb8 17. Rd8# 1-0\n\n"; //$NON-NLS-1$
+	private static final long RANDOM_SEED = 23L;
+	private static final int NUMBER_OF_GAMES = 4;
+	private static final int MAX_PLIES = 200;
+	private static final String ILLEGAL_GAME = "[Event \"Illegal\"]\n\n1. e4 e5 2. Ke3 *\n"; //$NON-NLS-1$
+}
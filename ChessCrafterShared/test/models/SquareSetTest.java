@@ -0,0 +1,161 @@
+package models;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class SquareSetTest
+{
+	@Test
+	public final void testSetOperationsAcrossWords()
+	{
+		SquareSet set = new SquareSet(144);
+		SquareSet other = new SquareSet(144);
+		set.add(3);
+		set.add(64);
+		set.add(143);
+		other.add(64);
+		other.add(100);
+
+		assertTrue(set.intersects(other));
+		assertEquals(3, set.cardinality());
+		assertEquals(64, set.nextSetBit(4));
+		assertEquals(143, set.nextSetBit(65));
+		assertEquals(-1, set.nextSetBit(144));
+
+		set.andNot(other);
+		assertFalse(set.contains(64));
+		assertFalse(set.intersects(other));
+
+		set.or(other);
+		set.and(other);
+		assertEquals(other, set);
+	}
+
+	@Test
+	public final void testGeometryNumbersEverySquareOnce() throws Exception
+	{
+		Game game = TestGames.newTwoBoardGame();
+		BoardGeometry geometry = game.getGeometry();
+		assertEquals(128, geometry.size());
+		for (int index = 0; index < geometry.size(); index++)
+			assertEquals(index, geometry.indexOf(geometry.getSquare(index)));
+	}
+
+	@Test
+	public final void testWraparoundAttacksMatchTeamScans() throws Exception
+	{
+		Game game = TestGames.newWraparoundGame();
+		Random random = new Random(RANDOM_SEED);
+		for (int ply = 0; ply < MAX_PLIES && TestGames.playRandomMove(game, random) != null; ply++)
+			assertAttacksMatchTeamScans(game);
+	}
+
+	@Test
+	public final void testTwoBoardAttacksMatchTeamScans() throws Exception
+	{
+		Game game = TestGames.newTwoBoardGame();
+		Random random = new Random(RANDOM_SEED);
+		for (int ply = 0; ply < MAX_PLIES && TestGames.playRandomMove(game, random) != null; ply++)
+			assertAttacksMatchTeamScans(game);
+	}
+
+	@Test
+	public final void testLargeAttacksMatchTeamScans() throws Exception
+	{
+		Game game = TestGames.newLargeGame();
+		Random random = new Random(RANDOM_SEED);
+		for (int ply = 0; ply < MAX_PLIES && TestGames.playRandomMove(game, random) != null; ply++)
+			assertAttacksMatchTeamScans(game);
+	}
+
+	@Test
+	public final void testMakeAndUnmakeKeepSetsUpToDate() throws Exception
+	{
+		for (Game game : new Game[] { TestGames.newWraparoundGame(), TestGames.newLargeGame(), TestGames.newTwoBoardGame() })
+		{
+			// built before any move is made, so every later change comes in
+			// a Square at a time
+			game.getSquareSetPosition();
+			Random random = new Random(RANDOM_SEED);
+			for (int ply = 0; ply < MAX_PLIES / 4; ply++)
+			{
+				int[] moves = game.getLegalMoves();
+				if (moves.length == 0)
+					break;
+
+				// look one move ahead and come back, then play the move for
+				// real
+				int move = moves[random.nextInt(moves.length)];
+				if (game.makeMove(move))
+				{
+					assertAttacksMatchTeamScans(game);
+					int[] replies = game.getLegalMoves();
+					if (replies.length > 0 && game.makeMove(replies[random.nextInt(replies.length)]))
+					{
+						assertAttacksMatchTeamScans(game);
+						game.unmakeMove();
+					}
+					game.unmakeMove();
+				}
+				assertAttacksMatchTeamScans(game);
+				game.makeMove(move);
+			}
+		}
+	}
+
+	/**
+	 * Compare the occupancy, threats and guards the Game keeps in SquareSets
+	 * against the Squares and against asking every Piece of the team that
+	 * isn't moving for its legal destinations
+	 */
+	private static void assertAttacksMatchTeamScans(Game game)
+	{
+		game.genLegalDests();
+		boolean attackerIsBlack = !game.isBlackMove();
+		List<Piece> attackers = attackerIsBlack ? game.getBlackTeam() : game.getWhiteTeam();
+		SquareSetPosition position = game.getSquareSetPosition();
+		BoardGeometry geometry = game.getGeometry();
+
+		for (Board board : game.getBoards())
+		{
+			for (Square[] row : board.mSquares)
+			{
+				for (Square square : row)
+				{
+					int index = geometry.indexOf(square);
+					assertEquals(square.isOccupied() && !square.getPiece().isBlack(), position.getOccupancy(false).contains(index));
+					assertEquals(square.isOccupied() && square.getPiece().isBlack(), position.getOccupancy(true).contains(index));
+
+					List<Piece> threats = Lists.newArrayList();
+					List<Piece> guards = Lists.newArrayList();
+					for (Piece piece : attackers)
+					{
+						if (piece.isLegalAttack(square))
+							threats.add(piece);
+						if (piece.isGuarding(square))
+							guards.add(piece);
+					}
+
+					assertEquals(!threats.isEmpty(), game.isThreatened(square, attackerIsBlack));
+					assertEquals(!guards.isEmpty(), game.isGuarded(square, attackerIsBlack));
+					if (!guards.isEmpty())
+						assertArrayEquals(guards.toArray(), game.getGuards(square, attackerIsBlack));
+					if (!threats.isEmpty())
+						assertArrayEquals(threats.toArray(), game.getThreats(square, attackerIsBlack));
+				}
+			}
+		}
+	}
+
+	private static final long RANDOM_SEED = 144L;
+	private static final int MAX_PLIES = 120;
+}
@@ -0,0 +1,332 @@
+package models;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import logic.BidirectionalMovement;
+import logic.GameBuilder;
+import logic.Messages;
+import logic.Move;
+import logic.PieceMovements;
+import logic.PieceMovements.MovementDirection;
+import rules.AfterMove;
+import rules.GetBoard;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Variants built in code for tests that need something other than classic
+ * chess
+ */
+final class TestGames
+{
+	/**
+	 * @return A 10x12 variant with wraparound columns and two custom pieces:
+	 * a Camel that leaps 1 by 3, and an Archer that slides diagonally forward
+	 * and steps one Square orthogonally
+	 */
+	static Game newWraparoundGame() throws IOException
+	{
+		Board board = new Board(10, 12, true);
+		List<Piece> whiteTeam = Lists.newArrayList();
+		List<Piece> blackTeam = Lists.newArrayList();
+		for (int col = 1; col <= 12; col++)
+		{
+			whiteTeam.add(GameBuilder.createPawn(false, board.getSquare(2, col), board));
+			blackTeam.add(GameBuilder.createPawn(true, board.getSquare(9, col), board));
+			whiteTeam.add(createBackRankPiece(col, false, board.getSquare(1, col), board));
+			blackTeam.add(createBackRankPiece(col, true, board.getSquare(10, col), board));
+		}
+
+		return newGame(WRAPAROUND, new Board[] { board }, whiteTeam, blackTeam, new Rules(false), new Rules(true));
+	}
+
+	/**
+	 * @return A 16x16 variant with 64 Pieces, among them the Camel and Archer
+	 * of newWraparoundGame, a Zebra that leaps 2 by 3, and a Ghost that moves
+	 * up to three Squares orthogonally, jumping over anything in the way
+	 */
+	static Game newLargeGame() throws IOException
+	{
+		return newLargeGame(false);
+	}
+
+	/**
+	 * @param isWraparound If the columns of the Board wrap around
+	 * @return The variant of newLargeGame, with or without wraparound
+	 */
+	static Game newLargeGame(boolean isWraparound) throws IOException
+	{
+		Board board = new Board(16, 16, isWraparound);
+		List<Piece> whiteTeam = Lists.newArrayList();
+		List<Piece> blackTeam = Lists.newArrayList();
+		for (int col = 1; col <= 16; col++)
+		{
+			whiteTeam.add(GameBuilder.createPawn(false, board.getSquare(2, col), board));
+			blackTeam.add(GameBuilder.createPawn(true, board.getSquare(15, col), board));
+			whiteTeam.add(createLargeBackRankPiece(col, false, board.getSquare(1, col), board));
+			blackTeam.add(createLargeBackRankPiece(col, true, board.getSquare(16, col), board));
+		}
+
+		return newGame(LARGE, new Board[] { board }, whiteTeam, blackTeam, new Rules(false), new Rules(true));
+	}
+
+	/**
+	 * @return A classic setup where every move lands on the other Board
+	 */
+	static Game newTwoBoardGame() throws IOException
+	{
+		Game classic = GameBuilder.newClassicGame();
+		Board[] boards = { classic.getBoards()[0], new Board(8, 8, false) };
+
+		Rules whiteRules = new Rules(false);
+		Rules blackRules = new Rules(true);
+		whiteRules.setGetBoard(GetBoard.OPPOSITE_BOARD);
+		blackRules.setGetBoard(GetBoard.OPPOSITE_BOARD);
+
+		return newGame(TWO_BOARDS, boards, classic.getWhiteTeam(), classic.getBlackTeam(), whiteRules, blackRules);
+	}
+
+	/**
+	 * @param afterMove The AfterMove rule both teams play with
+	 * @return A classic setup played with the given AfterMove rule
+	 */
+	static Game newAfterMoveGame(AfterMove afterMove) throws IOException
+	{
+		Game classic = GameBuilder.newClassicGame();
+		Rules whiteRules = new Rules(false);
+		Rules blackRules = new Rules(true);
+		whiteRules.addAfterMove(afterMove);
+		blackRules.addAfterMove(afterMove);
+
+		return newGame(afterMove.toString(), classic.getBoards(), classic.getWhiteTeam(), classic.getBlackTeam(), whiteRules,
+				blackRules);
+	}
+
+	/**
+	 * @return A classic setup with Rhinos, which leap 1 by 3, in place of the
+	 * Bishops, so the Rhino and the Rook share the letter R
+	 */
+	static Game newSharedLetterGame() throws IOException
+	{
+		Game classic = GameBuilder.newClassicGame();
+		Board board = classic.getBoards()[0];
+		for (List<Piece> team : ImmutableList.of(classic.getWhiteTeam(), classic.getBlackTeam()))
+		{
+			for (int i = 0; i < team.size(); i++)
+			{
+				Piece piece = team.get(i);
+				if (!piece.getName().equals(Messages.getString("bishop"))) //$NON-NLS-1$
+					continue;
+
+				PieceMovements rhino = new PieceMovements();
+				rhino.addBidirectionalMovement(new BidirectionalMovement(1, 3));
+				team.set(i, new Piece(RHINO, piece.isBlack(), piece.getSquare(), board, rhino, true));
+			}
+		}
+
+		return newGame(SHARED_LETTER, classic.getBoards(), classic.getWhiteTeam(), classic.getBlackTeam(), new Rules(false),
+				new Rules(true));
+	}
+
+	/**
+	 * Set up a classic position from the piece placement of a FEN record,
+	 * like rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR
+	 *
+	 * @param placement The ranks from 8 down to 1, split by slashes
+	 * @param isBlackMove If it's black's turn
+	 * @param castling Who may still castle, like KQkq, or - for no one
+	 * @param enpassantCol The column a Pawn just passed through, or
+	 * Board.NO_ENPASSANT
+	 * @return The position
+	 */
+	static Game newClassicPosition(String placement, boolean isBlackMove, String castling, int enpassantCol)
+			throws IOException
+	{
+		Board board = new Board(8, 8, false);
+		List<Piece> whiteTeam = Lists.newArrayList();
+		List<Piece> blackTeam = Lists.newArrayList();
+		String[] ranks = placement.split("/"); //$NON-NLS-1$
+		for (int i = 0; i < ranks.length; i++)
+		{
+			int row = 8 - i;
+			int col = 1;
+			for (char c : ranks[i].toCharArray())
+			{
+				if (Character.isDigit(c))
+				{
+					col += c - '0';
+					continue;
+				}
+
+				boolean isBlack = Character.isLowerCase(c);
+				Piece piece = createClassicPiece(Character.toLowerCase(c), isBlack, board.getSquare(row, col++), board);
+				// Pawns off their first row have moved, and so have Kings and
+				// Rooks until the castling rights say otherwise
+				boolean isPawn = Character.toLowerCase(c) == 'p';
+				if (isPawn ? row != (isBlack ? 7 : 2) : "kr".indexOf(Character.toLowerCase(c)) >= 0) //$NON-NLS-1$
+					piece.setMoveCount(1);
+				(isBlack ? blackTeam : whiteTeam).add(piece);
+			}
+		}
+
+		for (char c : castling.replace("-", "").toCharArray()) //$NON-NLS-1$ //$NON-NLS-2$
+		{
+			int row = Character.isLowerCase(c) ? 8 : 1;
+			board.getSquare(row, 5).getPiece().setMoveCount(0);
+			board.getSquare(row, Character.toLowerCase(c) == 'k' ? 8 : 1).getPiece().setMoveCount(0);
+		}
+		board.setEnpassantCol(enpassantCol);
+
+		Game game = newGame(Messages.getString("classic"), new Board[] { board }, whiteTeam, blackTeam, new Rules(false), //$NON-NLS-1$
+				new Rules(true));
+		if (isBlackMove)
+		{
+			game.setBlackMove(true);
+			game.getWhiteRules().countMove();
+		}
+		return game;
+	}
+
+	/**
+	 * Play a random legal move, and hand the turn to the other team
+	 *
+	 * @param game The Game to play in, which must be in playback mode
+	 * @param random The source of randomness
+	 * @return The Move played, or null if there were no legal moves
+	 */
+	static Move playRandomMove(Game game, Random random) throws Exception
+	{
+		List<Square[]> moves = Lists.newArrayList();
+		for (Piece piece : game.isBlackMove() ? game.getBlackTeam() : game.getWhiteTeam())
+		{
+			if (piece.isCaptured())
+				continue;
+
+			for (Square dest : piece.getLegalDests())
+				moves.add(new Square[] { piece.getSquare(), dest });
+		}
+		if (moves.isEmpty())
+			return null;
+
+		Square[] move = moves.get(random.nextInt(moves.size()));
+		Move toPlay = new Move(move[0].getBoard(), move[0], move[1], QUEEN);
+		toPlay.execute();
+		game.getHistory().add(toPlay);
+		game.setBlackMove(!game.isBlackMove());
+		return toPlay;
+	}
+
+	private static Game newGame(String name, Board[] boards, List<Piece> whiteTeam, List<Piece> blackTeam, Rules whiteRules,
+			Rules blackRules)
+	{
+		Map<String, List<String>> whitePromotions = Maps.newHashMap();
+		Map<String, List<String>> blackPromotions = Maps.newHashMap();
+		Game game = new Game(name, boards, whiteTeam, blackTeam, whiteRules, blackRules, whitePromotions, blackPromotions);
+		game.setIsPlayback(true);
+		return game;
+	}
+
+	private static Piece createClassicPiece(char type, boolean isBlack, Square square, Board board) throws IOException
+	{
+		switch (type)
+		{
+		case 'p':
+			return GameBuilder.createPawn(isBlack, square, board);
+		case 'n':
+			return GameBuilder.createKnight(isBlack, square, board);
+		case 'b':
+			return GameBuilder.createBishop(isBlack, square, board);
+		case 'r':
+			return GameBuilder.createRook(isBlack, square, board);
+		case 'q':
+			return GameBuilder.createQueen(isBlack, square, board);
+		default:
+			return GameBuilder.createKing(isBlack, square, board);
+		}
+	}
+
+	private static Piece createBackRankPiece(int col, boolean isBlack, Square square, Board board) throws IOException
+	{
+		switch (col)
+		{
+		case 1:
+		case 12:
+			return GameBuilder.createRook(isBlack, square, board);
+		case 2:
+		case 11:
+			return GameBuilder.createKnight(isBlack, square, board);
+		case 3:
+		case 10:
+			PieceMovements camel = new PieceMovements();
+			camel.addBidirectionalMovement(new BidirectionalMovement(1, 3));
+			return new Piece(CAMEL, isBlack, square, board, camel, true);
+		case 4:
+		case 9:
+			return GameBuilder.createBishop(isBlack, square, board);
+		case 5:
+		case 8:
+			PieceMovements archer = new PieceMovements();
+			archer.addMovement(isBlack ? MovementDirection.SOUTHEAST : MovementDirection.NORTHEAST, PieceMovements.UNLIMITED);
+			archer.addMovement(isBlack ? MovementDirection.SOUTHWEST : MovementDirection.NORTHWEST, PieceMovements.UNLIMITED);
+			for (MovementDirection direction : new MovementDirection[] { MovementDirection.NORTH, MovementDirection.SOUTH,
+					MovementDirection.EAST, MovementDirection.WEST })
+			{
+				archer.addMovement(direction, 1);
+			}
+			return new Piece(ARCHER, isBlack, square, board, archer, false);
+		case 6:
+			return GameBuilder.createQueen(isBlack, square, board);
+		default:
+			return GameBuilder.createKing(isBlack, square, board);
+		}
+	}
+
+	private static Piece createLargeBackRankPiece(int col, boolean isBlack, Square square, Board board) throws IOException
+	{
+		switch (Math.min(col, 17 - col))
+		{
+		case 1:
+			return GameBuilder.createRook(isBlack, square, board);
+		case 2:
+			return GameBuilder.createKnight(isBlack, square, board);
+		case 3:
+			// the Camel and the Archer are the ones from the wraparound game
+			return createBackRankPiece(3, isBlack, square, board);
+		case 4:
+			PieceMovements zebra = new PieceMovements();
+			zebra.addBidirectionalMovement(new BidirectionalMovement(2, 3));
+			return new Piece(ZEBRA, isBlack, square, board, zebra, true);
+		case 5:
+			return GameBuilder.createBishop(isBlack, square, board);
+		case 6:
+			return createBackRankPiece(5, isBlack, square, board);
+		case 7:
+			PieceMovements ghost = new PieceMovements();
+			for (MovementDirection direction : new MovementDirection[] { MovementDirection.NORTH, MovementDirection.SOUTH,
+					MovementDirection.EAST, MovementDirection.WEST })
+			{
+				ghost.addMovement(direction, 3);
+			}
+			return new Piece(GHOST, isBlack, square, board, ghost, true);
+		default:
+			return (col == 8) ? GameBuilder.createKing(isBlack, square, board) : GameBuilder.createQueen(isBlack, square, board);
+		}
+	}
+
+	static final String QUEEN = "Queen"; //$NON-NLS-1$
+
+	private static final String WRAPAROUND = "Wraparound"; //$NON-NLS-1$
+	private static final String TWO_BOARDS = "Two Boards"; //$NON-NLS-1$
+	private static final String LARGE = "Large"; //$NON-NLS-1$
+	private static final String SHARED_LETTER = "Shared Letter"; //$NON-NLS-1$
+	private static final String CAMEL = "Camel"; //$NON-NLS-1$
+	private static final String ARCHER = "Archer"; //$NON-NLS-1$
+	private static final String ZEBRA = "Zebra"; //$NON-NLS-1$
+	private static final String GHOST = "Ghost"; //$NON-NLS-1$
+	private static final String RHINO = "Rhino"; //$NON-NLS-1$
+}
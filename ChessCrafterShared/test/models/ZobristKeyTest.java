@@ -0,0 +1,203 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import logic.BidirectionalMovement;
+import logic.GameBuilder;
+import logic.Move;
+import logic.PieceMovements;
+
+import org.junit.Test;
+
+import rules.AfterMove;
+import rules.NextTurn;
+import rules.NextTurn.NextTurnOption;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class ZobristKeyTest
+{
+	@Test
+	public final void testTranspositionsShareKeys() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.setIsPlayback(true);
+		Board board = game.getBoards()[0];
+		long start = game.getZobristKey();
+
+		// the Knights go out and come back
+		game.makeMove(board.getSquare(1, 7), board.getSquare(3, 6), null);
+		game.makeMove(board.getSquare(8, 7), board.getSquare(6, 6), null);
+		game.makeMove(board.getSquare(3, 6), board.getSquare(1, 7), null);
+		game.makeMove(board.getSquare(6, 6), board.getSquare(8, 7), null);
+		assertEquals(start, game.getZobristKey());
+
+		// the King goes out and comes back, and can't castle anymore
+		game.makeMove(board.getSquare(2, 5), board.getSquare(3, 5), null);
+		game.makeMove(board.getSquare(7, 5), board.getSquare(6, 5), null);
+		long beforeKingMove = game.getZobristKey();
+		game.makeMove(board.getSquare(1, 5), board.getSquare(2, 5), null);
+		game.makeMove(board.getSquare(8, 7), board.getSquare(6, 6), null);
+		game.makeMove(board.getSquare(2, 5), board.getSquare(1, 5), null);
+		game.makeMove(board.getSquare(6, 6), board.getSquare(8, 7), null);
+		assertFalse(beforeKingMove == game.getZobristKey());
+		assertEquals(ZobristKey.create(game).getKey(), game.getZobristKey());
+
+		while (game.getMadeMoveCount() > 0)
+			game.unmakeMove();
+		assertEquals(start, game.getZobristKey());
+	}
+
+	@Test
+	public final void testExecuteAndUndoKeepKey() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.setIsPlayback(true);
+		game.getZobristKey();
+
+		Random random = new Random(RANDOM_SEED);
+		for (int ply = 0; ply < MAX_PLIES; ply++)
+		{
+			game.genLegalDests();
+			long before = game.getZobristKey();
+			Move move = TestGames.playRandomMove(game, random);
+			if (move == null)
+				break;
+			assertEquals(ZobristKey.create(game).getKey(), game.getZobristKey());
+
+			move.undo();
+			game.setBlackMove(!game.isBlackMove());
+			assertEquals(before, game.getZobristKey());
+
+			move.execute();
+			game.setBlackMove(!game.isBlackMove());
+		}
+	}
+
+	@Test
+	public final void testMakeMoveKeepsKey() throws Exception
+	{
+		playAndCheck(TestGames.newWraparoundGame());
+		playAndCheck(TestGames.newTwoBoardGame());
+		playAndCheck(TestGames.newAfterMoveGame(AfterMove.ATOMIC_CAPTURE));
+		playAndCheck(TestGames.newAfterMoveGame(AfterMove.SWAP_COLOR_OF_CAPTURER));
+	}
+
+	@Test
+	public final void testTurnStateIsInKey() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.setIsPlayback(true);
+		game.getWhiteRules().setNextTurn(new NextTurn(NextTurnOption.DIFFERENT_NUMBER_OF_TURNS, 2, 1, 0));
+		Board board = game.getBoards()[0];
+
+		// white makes the first of two moves; taking it back by moving the
+		// Knight home again puts the Pieces back, but it's black's turn now
+		long start = game.getZobristKey();
+		game.makeMove(board.getSquare(1, 7), board.getSquare(3, 6), null);
+		long firstMoveMade = game.getZobristKey();
+		assertFalse(game.isBlackMove());
+		game.makeMove(board.getSquare(3, 6), board.getSquare(1, 7), null);
+		assertTrue(game.isBlackMove());
+		assertFalse(start == game.getZobristKey());
+
+		// the same Pieces with white to move, one move into the turn or none
+		game.unmakeMove();
+		game.unmakeMove();
+		assertEquals(start, game.getZobristKey());
+		game.getWhiteRules().getNextTurn().setTurn(false, 1, 2, 1);
+		assertFalse(start == game.getZobristKey());
+		game.getWhiteRules().getNextTurn().setTurn(false, 0, 2, 1);
+		assertEquals(start, game.getZobristKey());
+		assertFalse(firstMoveMade == start);
+	}
+
+	@Test
+	public final void testMakeMoveKeepsKeyWithTurnRules() throws Exception
+	{
+		for (NextTurnOption option : new NextTurnOption[] { NextTurnOption.DIFFERENT_NUMBER_OF_TURNS,
+				NextTurnOption.INCREASING_TOGETHER, NextTurnOption.INCREASING_SEPARATELY })
+		{
+			Game game = GameBuilder.newClassicGame();
+			game.setIsPlayback(true);
+			game.getWhiteRules().setNextTurn(new NextTurn(option, 2, 1, 1));
+			playAndCheck(game);
+		}
+	}
+
+	@Test
+	public final void testPieceTypesGetKeysOfTheirOwn() throws Exception
+	{
+		// the two names have the same hash code
+		assertEquals(FIRST_NAME.hashCode(), SECOND_NAME.hashCode());
+
+		Game game = newCustomPosition(FIRST_NAME, SECOND_NAME);
+		Game swapped = newCustomPosition(SECOND_NAME, FIRST_NAME);
+		assertFalse(game.getZobristKey() == swapped.getZobristKey());
+		assertEquals(game.getZobristKey(), newCustomPosition(FIRST_NAME, SECOND_NAME).getZobristKey());
+	}
+
+	/**
+	 * @return Kings on their classic Squares, and white Pieces of the given
+	 * names, both moving like Knights, on d4 and e4
+	 */
+	private static Game newCustomPosition(String d4Name, String e4Name) throws Exception
+	{
+		Board board = new Board(8, 8, false);
+		List<Piece> whiteTeam = Lists.newArrayList();
+		List<Piece> blackTeam = Lists.newArrayList();
+		whiteTeam.add(GameBuilder.createKing(false, board.getSquare(1, 5), board));
+		blackTeam.add(GameBuilder.createKing(true, board.getSquare(8, 5), board));
+		for (String name : new String[] { d4Name, e4Name })
+		{
+			PieceMovements movements = new PieceMovements();
+			movements.addBidirectionalMovement(new BidirectionalMovement(1, 2));
+			Square square = board.getSquare(4, name == d4Name ? 4 : 5);
+			whiteTeam.add(new Piece(name, false, square, board, movements, true));
+		}
+
+		Map<String, List<String>> promotions = Maps.newHashMap();
+		return new Game(CUSTOM, new Board[] { board }, whiteTeam, blackTeam, new Rules(false), new Rules(true), promotions,
+				promotions);
+	}
+
+	/**
+	 * Play a random game, checking after every move that the key kept up to
+	 * date is the one built from scratch, and that taking the move back
+	 * brings the old key back
+	 */
+	private static void playAndCheck(Game game)
+	{
+		Random random = new Random(RANDOM_SEED);
+		game.getZobristKey();
+		for (int ply = 0; ply < MAX_PLIES; ply++)
+		{
+			int[] moves = game.getLegalMoves();
+			if (moves.length == 0)
+				break;
+
+			long before = game.getZobristKey();
+			for (int move : moves)
+			{
+				game.makeMove(move);
+				assertEquals(ZobristKey.create(game).getKey(), game.getZobristKey());
+				game.unmakeMove();
+				assertEquals(before, game.getZobristKey());
+			}
+			game.makeMove(moves[random.nextInt(moves.length)]);
+		}
+	}
+
+	private static final String FIRST_NAME = "Aa"; //$NON-NLS-1$
+	private static final String SECOND_NAME = "BB"; //$NON-NLS-1$
+	private static final String CUSTOM = "Custom"; //$NON-NLS-1$
+	private static final long RANDOM_SEED = 5150L;
+	private static final int MAX_PLIES = 80;
+}